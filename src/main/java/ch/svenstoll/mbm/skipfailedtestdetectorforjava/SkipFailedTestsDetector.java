@@ -1,16 +1,32 @@
 package ch.svenstoll.mbm.skipfailedtestdetectorforjava;
 
 import ch.svenstoll.mbm.skipfailedtestdetectorforjava.comparator.BuildComparator;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.lifecycle.LifecycleQuery;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.lifecycle.TestLifecycleIndex;
 import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.Build;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.DetectorConfiguration;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.parser.ArgumentParser;
 import ch.svenstoll.mbm.skipfailedtestdetectorforjava.parser.BuildParser;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.sampling.SamplingAnalyzer;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.scheduler.ExecutorBenchmark;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.scheduler.ShardAssignment;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.server.AnalysisServer;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.stream.BuildEventReader;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.stream.StreamingAnalyzer;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.NumberUtility;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer.ShardManifest;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer.ShardMerger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * <p>Running this program allows you to detect if a Junit test method that failed in a certain
@@ -71,34 +87,318 @@ import java.util.List;
  */
 public class SkipFailedTestsDetector {
 
+  private static final String MERGE_SHARDS_COMMAND = "--merge-shards";
+  private static final String SERVE_COMMAND = "--serve";
+  private static final String STREAM_COMMAND = "--stream";
+  private static final String BENCHMARK_EXECUTORS_COMMAND = "--benchmark-executors";
+  private static final String QUERY_LIFECYCLE_COMMAND = "--query-lifecycle";
   private static Logger logger;
 
   /**
    * The entry point to the program.
    *
    * @param args
-   *     [0]: Path to a valid CSV input file, [1]: Path to the desired output folder
+   *     [0]: Path to a valid CSV input file, [1]: Path to the desired output folder, [2..n]:
+   *     Optional settings in the form {@code --name=value}. Alternatively, [0]:
+   *     {@code --merge-shards}, [1]: Path to the output folder of a sharded analysis, [2]: The
+   *     number of shards of the analysis. Or [0]:
+   *     {@code --serve} or {@code --stream}, [1]: Path to the output folder of the daemon or the
+   *     streaming mode, [2..n]: Optional settings. Or [0]: {@code --benchmark-executors}, followed
+   *     by the arguments of an analysis. Or [0]: {@code --query-lifecycle}, [1]: Path to the output
+   *     folder of an analysis with a lifecycle index, [2]: The query, [3]: Its option
    *
    */
   public static void main(String[] args) {
+    if (args.length == 3 && MERGE_SHARDS_COMMAND.equals(args[0])) {
+      mergeShards(args[1], args[2]);
+      return;
+    }
+    if (args.length >= 2 && SERVE_COMMAND.equals(args[0])) {
+      serve(args);
+      return;
+    }
+    if (args.length >= 2 && STREAM_COMMAND.equals(args[0])) {
+      stream(args);
+      return;
+    }
+    if (args.length >= 1 && BENCHMARK_EXECUTORS_COMMAND.equals(args[0])) {
+      benchmarkExecutors(Arrays.copyOfRange(args, 1, args.length));
+      return;
+    }
+    if (args.length >= 3 && QUERY_LIFECYCLE_COMMAND.equals(args[0])) {
+      queryLifecycle(args);
+      return;
+    }
+
     validateArgs(args);
+    DetectorConfiguration configuration = parseConfiguration(args);
 
     // The logger is initialized here, because the output location is only known at execution time.
-    System.setProperty("SkipFailedTestsDetectorOutputFolder", args[1]);
+    System.setProperty("SkipFailedTestsDetectorOutputFolder", configuration.getOutputFolderPath());
     logger = LoggerFactory.getLogger(SkipFailedTestsDetector.class);
 
-    List<Build> builds = new BuildParser().parseBuildsFile(args[0]);
-    BuildComparator comparator = new BuildComparator(args[1]);
-    comparator.compareBuilds(builds);
+    List<Build> builds = new BuildParser().parseBuildsFile(configuration.getInputFilePath());
+    if (configuration.isSampled()) {
+      analyzeSample(configuration, builds);
+    }
+    else if (configuration.isSharded()) {
+      analyzeShard(configuration, builds);
+    }
+    else {
+      new BuildComparator(configuration).compareBuilds(builds);
+    }
+
+    logger.info("The analysis has finished. Check \"{}\" for the log file and your results.",
+        configuration.getOutputFolderPath());
+  }
+
+  private static void analyzeShard(DetectorConfiguration configuration, List<Build> builds) {
+    List<Build> shardBuilds = ShardAssignment.selectBuilds(builds, configuration.getShardIndex(),
+        configuration.getShardCount());
+    long numProjects = shardBuilds.stream()
+        .map(build -> build.getProjectBranchKey().getProjectName())
+        .distinct()
+        .count();
+    logger.info("Shard {} of {} analyzes {} of {} builds from {} projects.", configuration.getShardIndex(),
+        configuration.getShardCount(), shardBuilds.size(), builds.size(), numProjects);
+
+    try {
+      writeShardManifest(configuration, numProjects, shardBuilds.size(), false);
+      boolean completed = new BuildComparator(configuration).compareBuilds(shardBuilds);
+      writeShardManifest(configuration, numProjects, shardBuilds.size(), completed);
+    }
+    catch (IOException e) {
+      logger.error("Could not write the shard manifest.", e);
+    }
+  }
 
-    logger.info("The analysis has finished. Check \"{}\" for the log file and your results.", args[1]);
+  private static void analyzeSample(DetectorConfiguration configuration, List<Build> builds) {
+    try {
+      new SamplingAnalyzer(configuration).analyze(builds);
+    }
+    catch (IllegalArgumentException e) {
+      logger.error("Could not start the sampling mode. {}", e.getMessage());
+      System.exit(1);
+    }
+    catch (IOException e) {
+      logger.error("Could not write the results of the sample.", e);
+    }
+  }
+
+  private static void writeShardManifest(DetectorConfiguration configuration, long numProjects, long numBuilds,
+                                         boolean completed) throws IOException {
+    new ShardManifest(configuration.getShardIndex(), configuration.getShardCount(), configuration.getInputFilePath(),
+        numProjects, numBuilds, completed).write(configuration.getOutputFolderPath());
+  }
+
+  private static void benchmarkExecutors(String[] args) {
+    validateArgs(args);
+    DetectorConfiguration configuration = parseConfiguration(args);
+    System.setProperty("SkipFailedTestsDetectorOutputFolder", configuration.getOutputFolderPath());
+    logger = LoggerFactory.getLogger(SkipFailedTestsDetector.class);
+
+    List<Build> builds = new BuildParser().parseBuildsFile(configuration.getInputFilePath());
+    new ExecutorBenchmark(configuration).run(builds);
+    logger.info("The benchmark has finished. Check \"{}\" for the log file with the measurements.",
+        configuration.getOutputFolderPath());
+  }
+
+  private static void serve(String[] args) {
+    DetectorConfiguration configuration = parseCommandConfiguration(args);
+    try {
+      AnalysisServer server = new AnalysisServer(configuration);
+      Runtime.getRuntime().addShutdownHook(new Thread(server::close, "server-shutdown"));
+      server.start();
+    }
+    catch (IllegalArgumentException e) {
+      logger.error("Could not start the daemon. {}", e.getMessage());
+      System.exit(1);
+    }
+    catch (IOException e) {
+      logger.error("Could not start the daemon.", e);
+      System.exit(1);
+    }
+  }
+
+  private static void stream(String[] args) {
+    DetectorConfiguration configuration = parseCommandConfiguration(args);
+    BuildEventReader reader;
+    try {
+      reader = new BuildEventReader(configuration);
+    }
+    catch (IllegalArgumentException e) {
+      logger.error("Could not start the streaming mode. {}", e.getMessage());
+      System.exit(1);
+      return;
+    }
+    Thread mainThread = Thread.currentThread();
+    // Ctrl+C stops reading, while the builds that are still buffered are written before exiting.
+    Thread shutdownHook = new Thread(() -> {
+      reader.close();
+      try {
+        mainThread.join();
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }, "stream-shutdown");
+    Runtime.getRuntime().addShutdownHook(shutdownHook);
+
+    try (StreamingAnalyzer analyzer = new StreamingAnalyzer(configuration)) {
+      logger.info("Streaming {} build records from {}.", configuration.getStreamFormat().name().toLowerCase(),
+          DetectorConfiguration.STDIN_STREAM_SOURCE.equals(configuration.getStreamSource())
+              ? "the standard input" : "\"" + configuration.getStreamSource() + "\"");
+      analyzer.consume(reader);
+    }
+    catch (IllegalArgumentException e) {
+      // Not exited here, because the shutdown hook waits for this thread.
+      logger.error("Could not start the streaming mode. {}", e.getMessage());
+    }
+    catch (IOException e) {
+      logger.error("Could not write the results of the stream.", e);
+    }
+    finally {
+      reader.close();
+    }
+
+    logger.info("{} lines have been read, of which {} were skipped. Check \"{}\" for the log file and your "
+        + "results.", reader.getNumLines(), reader.getNumInvalidLines(), configuration.getOutputFolderPath());
+    try {
+      Runtime.getRuntime().removeShutdownHook(shutdownHook);
+    }
+    catch (IllegalStateException e) {
+      // The JVM is already shutting down.
+    }
+  }
+
+  /**
+   * Parses the arguments of a mode without an input file and initializes the logger in its output
+   * folder.
+   */
+  private static DetectorConfiguration parseCommandConfiguration(String[] args) {
+    DetectorConfiguration configuration = null;
+    try {
+      configuration = new ArgumentParser().parseCommandArguments(args);
+    }
+    catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage());
+      printOptions();
+      System.exit(1);
+    }
+
+    System.setProperty("SkipFailedTestsDetectorOutputFolder", configuration.getOutputFolderPath());
+    logger = LoggerFactory.getLogger(SkipFailedTestsDetector.class);
+    return configuration;
+  }
+
+  private static void mergeShards(String outputFolderPath, String shardCountArg) {
+    Integer shardCount = NumberUtility.parseIntegerSafely(shardCountArg);
+    if (shardCount == null || shardCount < 1) {
+      System.out.println("The number of shards to merge must be a positive integer, but was \"" + shardCountArg
+          + "\".");
+      System.exit(1);
+    }
+
+    System.setProperty("SkipFailedTestsDetectorOutputFolder", outputFolderPath);
+    logger = LoggerFactory.getLogger(SkipFailedTestsDetector.class);
+    try {
+      new ShardMerger().merge(outputFolderPath, shardCount);
+      logger.info("The shards have been merged. Check \"{}\" for the merged results.", outputFolderPath);
+    }
+    catch (IOException e) {
+      logger.error("Could not merge the shards.", e);
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Answers a query from the lifecycle index of an analysis and writes the rows to
+   * {@code Results/lifecycle_<query>.csv}.
+   */
+  private static void queryLifecycle(String[] args) {
+    String outputFolderPath = args[1];
+    String query = args[2];
+    String option = args.length > 3 ? args[3] : null;
+    System.setProperty("SkipFailedTestsDetectorOutputFolder", outputFolderPath);
+    logger = LoggerFactory.getLogger(SkipFailedTestsDetector.class);
+    try {
+      long startTime = System.nanoTime();
+      TestLifecycleIndex index = TestLifecycleIndex.read(Paths.get(outputFolderPath, "Results",
+          TestLifecycleIndex.FILE_NAME));
+      long readMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+      startTime = System.nanoTime();
+      LifecycleQuery lifecycleQuery = new LifecycleQuery(index);
+      LifecycleQuery.Result result;
+      if (LifecycleQuery.REMOVED_AFTER_FAILURE.equals(query)
+          && (option == null || option.startsWith("--within="))) {
+        result = lifecycleQuery.findRemovedAfterFailure(option != null
+            ? Integer.parseInt(option.substring("--within=".length()))
+            : 1);
+      }
+      else if (LifecycleQuery.HISTORY.equals(query) && option != null && option.startsWith("--test=")) {
+        result = lifecycleQuery.findHistory(option.substring("--test=".length()));
+      }
+      else {
+        throw new IllegalArgumentException("Unknown lifecycle query. Run it with \"" + QUERY_LIFECYCLE_COMMAND
+            + " <output folder> " + LifecycleQuery.REMOVED_AFTER_FAILURE + " [--within=<n>]\" or \""
+            + QUERY_LIFECYCLE_COMMAND + " <output folder> " + LifecycleQuery.HISTORY + " --test=<name>\".");
+      }
+      long queryMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+      Path resultPath = Paths.get(outputFolderPath, "Results", "lifecycle_" + query + ".csv");
+      result.write(resultPath);
+      logger.info("Found {} rows in {} ms after reading the index in {} ms. Check \"{}\" for the rows.",
+          result.getRows().size(), queryMillis, readMillis, resultPath);
+    }
+    catch (IllegalArgumentException e) {
+      logger.error("Could not answer the lifecycle query. {}", e.getMessage());
+      System.exit(1);
+    }
+    catch (IOException e) {
+      logger.error("Could not answer the lifecycle query.", e);
+      System.exit(1);
+    }
+  }
+
+  private static DetectorConfiguration parseConfiguration(String[] args) {
+    try {
+      return new ArgumentParser().parseArguments(args);
+    }
+    catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage());
+      printOptions();
+      System.exit(1);
+      return null;
+    }
+  }
+
+  private static void printOptions() {
+    System.out.println("The following optional settings can be appended in the form --name=value:");
+    for (String optionDescription : ArgumentParser.OPTION_DESCRIPTIONS) {
+      System.out.println("  " + optionDescription);
+    }
   }
 
   private static void validateArgs(String[] args) {
-    if (args.length != 2) {
+    if (args.length < 2) {
       System.out.println("Make sure to run this program with the following arguments:");
       System.out.println("[1] Path to a valid CSV input file");
       System.out.println("[2] Path to the desired output folder");
+      System.out.println("[3..n] Optional settings");
+      System.out.println();
+      System.out.println("Run it with \"" + MERGE_SHARDS_COMMAND + " <output folder> <shard count>\" to merge the " +
+          "results of all shards that have been analyzed with --shard-index and --shard-count.");
+      System.out.println("Run it with \"" + SERVE_COMMAND + " <output folder> [optional settings]\" to analyze " +
+          "build pairs on demand over a local HTTP API.");
+      System.out.println("Run it with \"" + BENCHMARK_EXECUTORS_COMMAND + " <input file> <output folder> [optional " +
+          "settings]\" to compare the extraction throughput of the executor backends.");
+      System.out.println("Run it with \"" + STREAM_COMMAND + " <output folder> [optional settings]\" to analyze " +
+          "build records as they arrive on the standard input or in the file given by --stream-source.");
+      System.out.println("Run it with \"" + QUERY_LIFECYCLE_COMMAND + " <output folder> "
+          + LifecycleQuery.REMOVED_AFTER_FAILURE + " [--within=<n>]\" or \"" + QUERY_LIFECYCLE_COMMAND
+          + " <output folder> " + LifecycleQuery.HISTORY + " --test=<name>\" to query the index written with "
+          + "--lifecycle-index.");
       System.out.println();
       System.out.println("The CSV input file must be comma-separated and must contain the following headers:");
       System.out.println("gh_project_name,git_branch,tr_build_id,tr_prev_build," +
@@ -111,6 +411,8 @@ public class SkipFailedTestsDetector {
       System.out.println();
       System.out.println("Visit https://travistorrent.testroots.org/page_dataformat/ for a more " +
           "detailed description of all the variables needed in the input file.");
+      System.out.println();
+      printOptions();
       System.exit(1);
     }
 
@@ -0,0 +1,206 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.api;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.comparator.BuildComparator;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.Build;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.BuildAnalysisResult;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.DetectorConfiguration;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer.ResultSink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * <p>Entry point for using the detector as a library. The builds are analyzed like in the batch
+ * mode of the command line, but the results are published to a {@link Flow.Subscriber} instead of
+ * being written to the result files. The repositories are still cloned to the output folder of the
+ * configuration.</p>
+ *
+ * <p>The analysis starts on a separate thread once a subscriber has subscribed. A result is only
+ * published when the subscriber has requested it. Until then, the comparisons wait for the
+ * subscriber and the extraction of further builds waits for the comparisons, so that a slow
+ * subscriber throttles the analysis instead of letting results pile up in memory. The results are
+ * published one at a time. The results of a project are published in the order of branch and
+ * build ID, while the projects follow each other in the order in which they are analyzed.
+ * Cancelling the subscription stops the analysis after the builds that are currently being
+ * compared.</p>
+ *
+ * <p>The builds are read completely before the analysis starts, because the previous build of a
+ * build may appear anywhere in the input. Only the builds are held in memory, not their
+ * methods.</p>
+ */
+public class BuildAnalysisPublisher implements Flow.Publisher<BuildAnalysisResult> {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BuildAnalysisPublisher.class);
+
+  private final DetectorConfiguration configuration;
+  private final Iterator<? extends Build> builds;
+  private final AtomicBoolean subscribed = new AtomicBoolean(false);
+
+  /**
+   * @param configuration The configuration of the analysis. Its input file is ignored.
+   * @param builds The builds to analyze.
+   */
+  public BuildAnalysisPublisher(DetectorConfiguration configuration, Iterator<? extends Build> builds) {
+    if (configuration == null) {
+      throw new IllegalArgumentException("The configuration must not be null.");
+    }
+    if (builds == null) {
+      throw new IllegalArgumentException("The builds must not be null.");
+    }
+    this.configuration = configuration;
+    this.builds = builds;
+  }
+
+  /**
+   * @param configuration The configuration of the analysis. Its input file is ignored.
+   * @param builds The builds to analyze.
+   */
+  public BuildAnalysisPublisher(DetectorConfiguration configuration, Stream<? extends Build> builds) {
+    this(configuration, builds.iterator());
+  }
+
+  /**
+   * Starts the analysis for the subscriber. The builds can only be analyzed once, so any further
+   * subscriber receives an error.
+   *
+   * @param subscriber The subscriber that receives the results.
+   */
+  @Override
+  public void subscribe(Flow.Subscriber<? super BuildAnalysisResult> subscriber) {
+    if (subscriber == null) {
+      throw new NullPointerException("The subscriber must not be null.");
+    }
+
+    DemandSubscription subscription = new DemandSubscription();
+    if (!subscribed.compareAndSet(false, true)) {
+      subscription.cancel();
+      subscriber.onSubscribe(subscription);
+      subscriber.onError(new IllegalStateException("The builds have already been published to another subscriber."));
+      return;
+    }
+
+    subscriber.onSubscribe(subscription);
+    new Thread(() -> publish(subscriber, subscription), "build-analysis-publisher").start();
+  }
+
+  private void publish(Flow.Subscriber<? super BuildAnalysisResult> subscriber, DemandSubscription subscription) {
+    Throwable failure = null;
+    try {
+      List<Build> buildList = new ArrayList<>();
+      builds.forEachRemaining(buildList::add);
+      new BuildComparator(configuration).compareBuilds(buildList, new SubscriberSink(subscriber, subscription));
+    }
+    catch (CancellationException e) {
+      LOGGER.info("The analysis has been cancelled by the subscriber.");
+    }
+    catch (IOException | RuntimeException e) {
+      failure = e;
+    }
+
+    if (subscription.getInvalidRequest() != null) {
+      subscriber.onError(subscription.getInvalidRequest());
+    }
+    else if (subscription.isCancelled()) {
+      return;
+    }
+    else if (failure != null) {
+      LOGGER.error("The analysis has failed.", failure);
+      subscriber.onError(failure);
+    }
+    else {
+      subscriber.onComplete();
+    }
+  }
+
+  private static final class SubscriberSink implements ResultSink {
+
+    private final Flow.Subscriber<? super BuildAnalysisResult> subscriber;
+    private final DemandSubscription subscription;
+
+    private SubscriberSink(Flow.Subscriber<? super BuildAnalysisResult> subscriber, DemandSubscription subscription) {
+      this.subscriber = subscriber;
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void write(BuildAnalysisResult result) throws IOException {
+      subscription.awaitDemand();
+      subscriber.onNext(result);
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  private static final class DemandSubscription implements Flow.Subscription {
+
+    private long demand = 0;
+    private boolean cancelled = false;
+    private IllegalArgumentException invalidRequest = null;
+
+    @Override
+    public synchronized void request(long n) {
+      if (cancelled) {
+        return;
+      }
+
+      if (n <= 0) {
+        invalidRequest = new IllegalArgumentException("The number of requested results must be positive, but was "
+            + n + ".");
+        cancelled = true;
+      }
+      else {
+        // Saturates at Long.MAX_VALUE, which stands for an unbounded demand.
+        demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+      }
+      notifyAll();
+    }
+
+    @Override
+    public synchronized void cancel() {
+      cancelled = true;
+      notifyAll();
+    }
+
+    /**
+     * Waits until the subscriber has requested another result and takes it from the demand.
+     *
+     * @throws CancellationException if the subscription has been cancelled.
+     */
+    private synchronized void awaitDemand() throws InterruptedIOException {
+      try {
+        while (demand == 0 && !cancelled) {
+          wait();
+        }
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for the subscriber to request more results.");
+      }
+
+      if (cancelled) {
+        throw new CancellationException("The subscription has been cancelled.");
+      }
+      if (demand != Long.MAX_VALUE) {
+        demand--;
+      }
+    }
+
+    private synchronized boolean isCancelled() {
+      return cancelled;
+    }
+
+    private synchronized IllegalArgumentException getInvalidRequest() {
+      return invalidRequest;
+    }
+  }
+}
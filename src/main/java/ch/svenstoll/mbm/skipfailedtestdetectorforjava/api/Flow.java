@@ -0,0 +1,57 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.api;
+
+/**
+ * <p>The interfaces of reactive streams with demand signalling. They mirror
+ * {@code java.util.concurrent.Flow}, which is only available from Java 9 on, so that a subscriber
+ * can be adapted to it by delegation.</p>
+ *
+ * <p>A {@link Publisher} only calls {@link Subscriber#onNext(Object)} as often as the subscriber
+ * has requested through {@link Subscription#request(long)}. After all items have been published,
+ * it calls either {@link Subscriber#onComplete()} or {@link Subscriber#onError(Throwable)}, unless
+ * the subscription has been cancelled.</p>
+ */
+public final class Flow {
+
+  private Flow() {
+  }
+
+  public interface Publisher<T> {
+
+    /**
+     * @param subscriber The subscriber that receives the items.
+     */
+    void subscribe(Subscriber<? super T> subscriber);
+  }
+
+  public interface Subscriber<T> {
+
+    /**
+     * Called once before any other method of the subscriber.
+     *
+     * @param subscription The subscription to request items with.
+     */
+    void onSubscribe(Subscription subscription);
+
+    void onNext(T item);
+
+    void onError(Throwable throwable);
+
+    void onComplete();
+  }
+
+  public interface Subscription {
+
+    /**
+     * Adds to the number of items the subscriber is ready to receive. {@link Long#MAX_VALUE}
+     * requests all remaining items.
+     *
+     * @param n The number of additional items, which must be positive.
+     */
+    void request(long n);
+
+    /**
+     * Stops publishing. Items that are already being delivered may still arrive.
+     */
+    void cancel();
+  }
+}
@@ -0,0 +1,106 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.api;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.BuildAnalysisResult;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer.ResultSink;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer.ResultWriter;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Subscribes a {@link ResultSink} to a {@link BuildAnalysisPublisher}, e.g. a {@link ResultWriter}
+ * to get the same CSV result files as the command line. Results are requested in batches, so that
+ * the analysis never runs further ahead of the sink than one batch. The sink is closed once the
+ * analysis has ended.
+ */
+public class ResultSinkSubscriber implements Flow.Subscriber<BuildAnalysisResult> {
+
+  private final ResultSink resultSink;
+  private final long batchSize;
+  private final CountDownLatch finished = new CountDownLatch(1);
+  private Flow.Subscription subscription;
+  private long numReceivedResults = 0;
+  private volatile Throwable failure = null;
+
+  /**
+   * @param resultSink The sink that receives the results.
+   * @param batchSize The number of results that are requested at once.
+   */
+  public ResultSinkSubscriber(ResultSink resultSink, long batchSize) {
+    if (resultSink == null) {
+      throw new IllegalArgumentException("The result sink must not be null.");
+    }
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("The batch size must be positive.");
+    }
+    this.resultSink = resultSink;
+    this.batchSize = batchSize;
+  }
+
+  @Override
+  public void onSubscribe(Flow.Subscription subscription) {
+    this.subscription = subscription;
+    subscription.request(batchSize);
+  }
+
+  @Override
+  public void onNext(BuildAnalysisResult result) {
+    try {
+      resultSink.write(result);
+    }
+    catch (IOException e) {
+      subscription.cancel();
+      finish(e);
+      return;
+    }
+
+    numReceivedResults++;
+    if (numReceivedResults % batchSize == 0) {
+      subscription.request(batchSize);
+    }
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    finish(throwable);
+  }
+
+  @Override
+  public void onComplete() {
+    finish(null);
+  }
+
+  private void finish(Throwable throwable) {
+    failure = throwable;
+    try {
+      resultSink.close();
+    }
+    catch (IOException e) {
+      if (failure == null) {
+        failure = e;
+      }
+    }
+    finally {
+      finished.countDown();
+    }
+  }
+
+  /**
+   * Waits until the analysis has ended and the sink has been closed.
+   *
+   * @return the number of results that have been written to the sink.
+   * @throws IOException if the analysis or the sink has failed.
+   * @throws InterruptedException if the thread is interrupted while waiting.
+   */
+  public long await() throws IOException, InterruptedException {
+    finished.await();
+    Throwable analysisFailure = failure;
+    if (analysisFailure instanceof IOException) {
+      throw (IOException) analysisFailure;
+    }
+    else if (analysisFailure != null) {
+      throw new IOException("The analysis has failed.", analysisFailure);
+    }
+    return numReceivedResults;
+  }
+}
@@ -1,24 +1,59 @@
 package ch.svenstoll.mbm.skipfailedtestdetectorforjava.comparator;
 
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.detector.BuildPair;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.detector.DetectorEngine;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.detector.DetectorRegistry;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.detector.LegacySmellWarningDetector;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.detector.SmellDetector;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.extractor.ExtractionRegistry;
 import ch.svenstoll.mbm.skipfailedtestdetectorforjava.extractor.MethodExtractor;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.lifecycle.TestLifecycleIndex;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.BasicClassData;
 import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.Build;
 import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.BuildAnalysisResult;
 import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.BasicMethodData;
-import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.BooleanUtility;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.DetectorConfiguration;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.MethodTable;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.scheduler.BuildOrder;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.scheduler.CommitTopologyOrdering;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.scheduler.ConcurrencyGovernor;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.scheduler.ConcurrencyLimit;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.scheduler.ProjectCost;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.scheduler.ProjectPlanner;
 import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.CollectionUtility;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.FileUtility;
 import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.NumberUtility;
 import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.StringUtility;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVPrinter;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer.Checkpoint;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer.CheckpointJournal;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer.DetectorFindingWriter;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer.ProjectTiming;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer.ResultFileSorter;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer.ResultResequencer;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer.ResultSink;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer.ResultWriter;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Repository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import static ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.BooleanUtility.nvl;
@@ -26,72 +61,504 @@ import static ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.BooleanUtil
 public class BuildComparator {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(BuildComparator.class);
+  private static final String ALL_RESULTS_FILE_NAME = "all_results.csv";
+  private static final String SMELL_RESULTS_FILE_NAME = "smell_results.csv";
 
+  private final DetectorConfiguration configuration;
   private final String outputFolderPath;
+  private final CommitTopologyOrdering commitTopologyOrdering = new CommitTopologyOrdering();
+  private final ProjectPlanner projectPlanner = new ProjectPlanner();
+  private final AtomicLong numIdenticalCommitPairs = new AtomicLong();
+  private final AtomicLong numComparedClasses = new AtomicLong();
+  private final AtomicLong numChangedClasses = new AtomicLong();
+  private final DetectorEngine detectorEngine;
+  // Guards the work tree of a project against concurrent checkouts of on-demand comparisons.
+  private final Map<String, Object> extractionLocksByProject = new ConcurrentHashMap<>();
+  private TestLifecycleIndex lifecycleIndex = null;
+
+  public BuildComparator(DetectorConfiguration configuration) {
+    if (configuration == null) {
+      throw new IllegalArgumentException("The configuration must not be null.");
+    }
+    this.configuration = configuration;
+    this.outputFolderPath = configuration.getOutputFolderPath();
+    this.detectorEngine = new DetectorEngine(DetectorRegistry.selectDetectors(configuration.getDetectorSelection()));
+  }
+
+  /**
+   * Compares each build with its previous build and writes the results.
+   *
+   * @param builds The builds to compare.
+   * @return true if all builds have been compared and written, false if the analysis was aborted.
+   */
+  public boolean compareBuilds(List<Build> builds) {
+    String allResultsFilePath = outputFolderPath + "/Results/" + ALL_RESULTS_FILE_NAME;
+    String smellResultsFilePath = outputFolderPath + "/Results/" + SMELL_RESULTS_FILE_NAME;
+    String journalFilePath = outputFolderPath + "/Results/checkpoint_journal.csv";
+    Checkpoint checkpoint;
+    try {
+      checkpoint = readCheckpoint(journalFilePath, allResultsFilePath);
+    }
+    catch (IOException e) {
+      LOGGER.error("Could not read the checkpoint journal. The run will not be resumed.", e);
+      return false;
+    }
+    if (configuration.isLifecycleIndexed()) {
+      lifecycleIndex = openLifecycleIndex(checkpoint);
+    }
+    // A resumed run continues the rows that the interrupted run has started with.
+    Map<String, Long> startOffsetsByFile = checkpoint != null
+        ? checkpoint.getStartOffsetsByFile()
+        : readStartOffsets();
+
+    boolean complete = false;
+    try (ResultWriter resultWriter = new ResultWriter(allResultsFilePath, smellResultsFilePath, journalFilePath,
+        checkpoint, startOffsetsByFile, configuration);
+         DetectorFindingWriter findingWriter = new DetectorFindingWriter(getDetectorsFolderPath(),
+             detectorEngine.getDetectors(), checkpoint, resultWriter)) {
+      compareBuilds(builds, checkpoint, findingWriter);
+      complete = true;
+    }
+    catch (IOException e) {
+      LOGGER.error("Could not write build comparison to file.", e);
+    }
+    finally {
+      writeLifecycleIndex();
+    }
+
+    // The interrupted run may have used several workers, even if the resumed run does not.
+    if (configuration.getNumProjectThreads() > 1 || checkpoint != null) {
+      complete &= sortResultFiles(journalFilePath, startOffsetsByFile, complete);
+    }
+    return complete;
+  }
+
+  /**
+   * @return the length of every file that the run appends to by its name relative to the
+   *         {@code Results} folder.
+   */
+  private Map<String, Long> readStartOffsets() {
+    List<String> fileNames = new ArrayList<>(Arrays.asList(ALL_RESULTS_FILE_NAME, SMELL_RESULTS_FILE_NAME));
+    for (SmellDetector detector : detectorEngine.getDetectors()) {
+      fileNames.add(DetectorFindingWriter.getFileName(detector));
+    }
+    Map<String, Long> startOffsetsByFile = new LinkedHashMap<>();
+    for (String fileName : fileNames) {
+      File file = Paths.get(outputFolderPath, "Results", fileName).toFile();
+      startOffsetsByFile.put(fileName, file.length());
+    }
+    return startOffsetsByFile;
+  }
+
+  /**
+   * The rows of each project are written as soon as they are in order, so the projects appear in
+   * the order in which they have been analyzed. Only the rows that this run, or the run that it
+   * resumes, has written are rearranged. If the run has been aborted, the results are only
+   * rearranged up to its last checkpoint, so that the run can still be resumed from it.
+   *
+   * @return true if the order has been restored.
+   */
+  private boolean sortResultFiles(String journalFilePath, Map<String, Long> startOffsetsByFile, boolean complete) {
+    try {
+      long allResultsEndOffset = Long.MAX_VALUE;
+      long smellResultsEndOffset = Long.MAX_VALUE;
+      if (!complete) {
+        Checkpoint lastCheckpoint = CheckpointJournal.readLastCheckpoint(journalFilePath);
+        if (lastCheckpoint == null) {
+          return false;
+        }
+        allResultsEndOffset = lastCheckpoint.getAllResultsOffset();
+        smellResultsEndOffset = lastCheckpoint.getSmellResultsOffset();
+      }
+      ResultFileSorter.sort(Paths.get(outputFolderPath, "Results", ALL_RESULTS_FILE_NAME), Charset.defaultCharset(),
+          startOffsetsByFile.getOrDefault(ALL_RESULTS_FILE_NAME, 0L), allResultsEndOffset);
+      ResultFileSorter.sort(Paths.get(outputFolderPath, "Results", SMELL_RESULTS_FILE_NAME), Charset.defaultCharset(),
+          startOffsetsByFile.getOrDefault(SMELL_RESULTS_FILE_NAME, 0L), smellResultsEndOffset);
+      // Uncommitted findings of an aborted run are removed by the resumed run, whatever their order.
+      DetectorFindingWriter.sortFindings(getDetectorsFolderPath(), detectorEngine.getDetectors(), startOffsetsByFile);
+      return true;
+    }
+    catch (IOException e) {
+      LOGGER.error("Could not restore the order of the result files.", e);
+      return false;
+    }
+  }
+
+  private Path getLifecycleIndexPath() {
+    return Paths.get(outputFolderPath, "Results", TestLifecycleIndex.FILE_NAME);
+  }
+
+  /**
+   * Continues the lifecycle index of an interrupted run without the builds that are analyzed
+   * again. Builds that have been committed after the index was last written are missing in it, so
+   * the index is only complete again if the run is started from the beginning.
+   */
+  private TestLifecycleIndex openLifecycleIndex(Checkpoint checkpoint) {
+    if (checkpoint == null) {
+      return new TestLifecycleIndex();
+    }
 
-  public BuildComparator(String outputFolderPath) {
-    if (StringUtility.isNullOrEmpty(outputFolderPath)) {
-      throw new IllegalArgumentException("The outputFolderPath must not be null or empty.");
+    TestLifecycleIndex index = new TestLifecycleIndex();
+    Path indexPath = getLifecycleIndexPath();
+    if (Files.exists(indexPath)) {
+      try {
+        index = TestLifecycleIndex.read(indexPath);
+        index.removeUncommitted(checkpoint);
+      }
+      catch (IOException e) {
+        LOGGER.warn("Could not read the lifecycle index. A new index is started.", e);
+      }
+    }
+    int numIncompleteBranches = index.countIncompleteBranches(checkpoint);
+    if (numIncompleteBranches > 0) {
+      LOGGER.warn("The lifecycle index misses builds of {} branches that have been analyzed before the run was "
+          + "interrupted. Run the analysis without --resume to rebuild it.", numIncompleteBranches);
+    }
+    return index;
+  }
+
+  private void writeLifecycleIndex() {
+    if (lifecycleIndex == null) {
+      return;
+    }
+    try {
+      lifecycleIndex.write(getLifecycleIndexPath());
+      LOGGER.info("Wrote the lifecycle index of {} branches.", lifecycleIndex.getBranches().size());
     }
-    this.outputFolderPath = outputFolderPath;
+    catch (IOException e) {
+      LOGGER.error("Could not write the lifecycle index.", e);
+    }
+    lifecycleIndex = null;
   }
 
-  public void compareBuilds(List<Build> builds) {
-    String allResultsFilePath = outputFolderPath + "/Results/all_results.csv";
-    String smellResultsFilePath = outputFolderPath + "/Results/smell_results.csv";
-    CSVFormat allResultsCsvFormat = initializeResultFilePathAndCsvFormat(allResultsFilePath);
-    CSVFormat smellResultsCsvFormat = initializeResultFilePathAndCsvFormat(smellResultsFilePath);
-    MethodExtractor extractor = new MethodExtractor(outputFolderPath);
+  /**
+   * Compares each build with its previous build and hands the results to a sink in the order of
+   * the builds. The sink is not closed.
+   *
+   * @param builds The builds to compare. The list is sorted in place.
+   * @param resultSink The sink that receives the results.
+   * @throws IOException if the sink has failed.
+   */
+  public void compareBuilds(List<Build> builds, ResultSink resultSink) throws IOException {
+    compareBuilds(builds, null, resultSink);
+  }
 
-    try (FileWriter allResultsOut = new FileWriter(allResultsFilePath, true);
-         FileWriter smellResultsOut = new FileWriter(smellResultsFilePath, true);
-         CSVPrinter allResultsPrinter = new CSVPrinter(allResultsOut, allResultsCsvFormat);
-         CSVPrinter smellResultsPrinter = new CSVPrinter(smellResultsOut, smellResultsCsvFormat)) {
+  private void compareBuilds(List<Build> builds, Checkpoint checkpoint, ResultSink resultSink) throws IOException {
+    try (MethodExtractor extractor = new MethodExtractor(configuration);
+         ConcurrencyGovernor governor = new ConcurrencyGovernor(configuration)) {
+      governor.govern(extractor.getPendingFileLimit());
       prepareBuildComparison(builds);
       Map<Long, Build> buildsByBuildId = generateBuildByBuildIdMap(builds);
+      Map<String, List<Build>> buildsByProject = groupBuildsByProject(builds);
+      Map<String, ProjectTiming> previousTimings = readPreviousTimings();
+      List<ProjectCost> projectPlan = projectPlanner.plan(new ArrayList<>(buildsByProject.values()), previousTimings);
+      int numProjectThreads = Math.max(1, Math.min(configuration.getNumProjectThreads(), projectPlan.size()));
+      LOGGER.info("Planned {} projects for {} workers, {} of them with the timings of a previous run. The most "
+              + "expensive project is expected to take {} ms and all projects {} ms.", projectPlan.size(),
+          numProjectThreads, projectPlan.stream().filter(ProjectCost::isBasedOnTimings).count(),
+          projectPlan.isEmpty() ? 0 : projectPlan.get(0).getPredictedMillis(),
+          ProjectPlanner.predictMakespanMillis(projectPlan, numProjectThreads));
+
+      // A single worker takes the projects in the order of their names, so that its rows are
+      // already in order and the result files do not have to be rearranged.
+      List<ProjectCost> projectOrder = projectPlan;
+      if (numProjectThreads <= 1) {
+        Map<String, ProjectCost> costsByProject = projectPlan.stream()
+            .collect(Collectors.toMap(ProjectCost::getProjectName, cost -> cost));
+        projectOrder = buildsByProject.keySet().stream().map(costsByProject::get).collect(Collectors.toList());
+      }
+
+      // The repositories are prefetched in the order in which the projects are started.
+      extractor.registerBuilds(projectOrder.stream()
+          .flatMap(cost -> buildsByProject.get(cost.getProjectName()).stream())
+          .collect(Collectors.toList()));
 
-      Build lastAnalyzedBuild = null; // Used as a simple cache to prevent unnecessary extractions.
+      if (checkpoint != null) {
+        LOGGER.info("Skipping {} builds that have already been analyzed before the run was interrupted.",
+            builds.stream().filter(checkpoint::isCommitted).count());
+      }
+
+      ExtractionRegistry extractionRegistry = new ExtractionRegistry(extractor, configuration.getExtractionCacheBytes());
+      ComparisonMemo comparisonMemo = new ComparisonMemo();
+      long numPendingBuilds = 0;
+      long numExtractedBuilds = 0;
       for (Build buildT2 : builds) {
-        Build buildT1 = null;
-        if (lastAnalyzedBuild != null && buildT2.getPrevBuildId() != null) {
-          buildT1 = lastAnalyzedBuild.getBuildId() == buildT2.getPrevBuildId() ? lastAnalyzedBuild : null;
+        if (checkpoint == null || !checkpoint.isCommitted(buildT2)) {
+          Build buildT1 = buildsByBuildId.get(buildT2.getPrevBuildId());
+          numPendingBuilds++;
+          if (!requiresExtraction(buildT1, buildT2)) {
+            continue;
+          }
+          numExtractedBuilds++;
+          extractionRegistry.reference(buildT1);
+          extractionRegistry.reference(buildT2);
+          if (buildT1 != null) {
+            comparisonMemo.reference(buildT1, buildT2);
+          }
         }
-        if (buildT1 == null) {
-          buildT1 = buildsByBuildId.get(buildT2.getPrevBuildId());
+      }
+
+      if (configuration.isSmellCandidatesOnly()) {
+        LOGGER.info("{} of {} build pairs can have a smell and will be extracted. Only counts are written for the "
+            + "others.", numExtractedBuilds, numPendingBuilds);
+      }
+
+      ResultResequencer resultResequencer = new ResultResequencer(builds, resultSink);
+      Map<String, Long> actualMillisByProject = new ConcurrentHashMap<>();
+      long startTime = System.nanoTime();
+      try (ComparisonStage comparisonStage = new ComparisonStage(configuration.getNumComparisonThreads(),
+          resultResequencer)) {
+        analyzeProjects(projectOrder, numProjectThreads, governor, cost -> {
+          long projectStartTime = System.nanoTime();
+          compareProjectBuilds(buildsByProject.get(cost.getProjectName()), checkpoint, buildsByBuildId, extractor,
+              extractionRegistry, comparisonMemo, comparisonStage, resultResequencer);
+          extractor.finishProject(cost.getProjectName());
+          long actualMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - projectStartTime);
+          actualMillisByProject.put(cost.getProjectName(), actualMillis);
+          LOGGER.info("Analyzed the {} builds of {} in {} ms, {} ms were predicted.", cost.getNumBuilds(),
+              cost.getProjectName(), actualMillis, cost.getPredictedMillis());
+        });
+        comparisonStage.awaitCompletion();
+      }
+
+      logDeduplication(extractionRegistry, comparisonMemo);
+      LOGGER.info("Analyzed {} projects with {} workers in {} ms, {} ms were predicted. Final limits: {}.",
+          projectPlan.size(), numProjectThreads, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime),
+          ProjectPlanner.predictMakespanMillis(projectPlan, numProjectThreads), governor.describeLimits());
+      writeTimings(projectPlan, actualMillisByProject, previousTimings, checkpoint, extractor);
+      writeDetectorTimings();
+    }
+  }
+
+  private String getDetectorsFolderPath() {
+    return outputFolderPath + "/Results/" + DetectorFindingWriter.FOLDER_NAME;
+  }
+
+  private void writeDetectorTimings() {
+    if (detectorEngine.getDetectors().isEmpty()) {
+      return;
+    }
+    detectorEngine.logTimings();
+    try {
+      detectorEngine.writeTimings(Paths.get(getDetectorsFolderPath(), DetectorEngine.TIMINGS_FILE_NAME));
+    }
+    catch (IOException e) {
+      LOGGER.warn("Could not write the detector timings.", e);
+    }
+  }
+
+  private void compareProjectBuilds(List<Build> projectBuilds, Checkpoint checkpoint, Map<Long, Build> buildsByBuildId,
+                                    MethodExtractor extractor, ExtractionRegistry extractionRegistry,
+                                    ComparisonMemo comparisonMemo, ComparisonStage comparisonStage,
+                                    ResultResequencer resultResequencer) throws IOException {
+    for (Build buildT2 : orderProjectBuilds(projectBuilds, extractor)) {
+      // Builds that have been committed before the run was interrupted are only kept in the
+      // map so that they can still serve as previous build.
+      if (checkpoint != null && checkpoint.isCommitted(buildT2)) {
+        resultResequencer.skip(buildT2.getBuildId());
+        continue;
+      }
+
+      Build buildT1 = buildsByBuildId.get(buildT2.getPrevBuildId());
+      if (!requiresExtraction(buildT1, buildT2)) {
+        resultResequencer.write(buildT2.getBuildId(), buildT1 != null
+            ? calculateCountOnlyResult(buildT1, buildT2)
+            : compareConsecutiveBuilds(null, buildT2, comparisonMemo));
+        continue;
+      }
+
+      // Creating deep copies of the builds is essential here. Otherwise, the memory usage of
+      // the build list will keep on growing which can cause an out of memory exception if the
+      // there are thousands of builds to compare.
+      Build buildT1Copy = buildT1 != null ? new Build(buildT1) : null;
+      Build buildT2Copy = new Build(buildT2);
+
+      // Builds with the same trigger commit share a single extraction.
+      extractionRegistry.extractMethodsForBuild(buildT1Copy);
+      extractionRegistry.extractMethodsForBuild(buildT2Copy);
+
+      // The copies keep their methods even if the registry evicts them, so the comparison can
+      // run in the background while the next builds are extracted.
+      comparisonStage.submit(buildT2.getBuildId(), () -> {
+        BuildAnalysisResult result = compareConsecutiveBuilds(buildT1Copy, buildT2Copy, comparisonMemo);
+        if (buildT1Copy != null) {
+          comparisonMemo.release(buildT1Copy, buildT2Copy);
         }
+        return result;
+      });
+      extractionRegistry.release(buildT1Copy);
+      extractionRegistry.release(buildT2Copy);
+    }
+  }
+
+  /**
+   * Analyzes the projects in the planned order. With several workers, each worker takes the next
+   * project of the plan as soon as it is done with its previous one and the governor allows
+   * another concurrent project.
+   */
+  private void analyzeProjects(List<ProjectCost> projectPlan, int numProjectThreads, ConcurrencyGovernor governor,
+                               ProjectAnalysis analysis) throws IOException {
+    if (numProjectThreads <= 1) {
+      for (ProjectCost cost : projectPlan) {
+        analysis.analyze(cost);
+      }
+      return;
+    }
+
+    AtomicInteger numThreads = new AtomicInteger();
+    ExecutorService executorService = Executors.newFixedThreadPool(numProjectThreads, runnable -> {
+      Thread thread = new Thread(runnable, "project-worker-" + numThreads.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    ConcurrencyLimit projectLimit = new ConcurrencyLimit("concurrent projects", 1, numProjectThreads);
+    governor.govern(projectLimit);
+    try {
+      List<Future<Void>> projectFutures = new ArrayList<>();
+      for (ProjectCost cost : projectPlan) {
+        projectFutures.add(executorService.submit(() -> {
+          projectLimit.acquire();
+          try {
+            analysis.analyze(cost);
+          }
+          finally {
+            projectLimit.release();
+          }
+          return null;
+        }));
+      }
+      for (Future<Void> projectFuture : projectFutures) {
+        projectFuture.get();
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the projects to be analyzed.");
+    }
+    catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw (RuntimeException) cause;
+    }
+    finally {
+      executorService.shutdownNow();
+    }
+  }
 
-        // Creating deep copies of the builds is essential here. Otherwise, the memory usage of the
-        // build list will keep on growing which can cause an out of memory exception if the there
-        // are thousands of builds to compare.
-        Build buildT1Copy = buildT1 != null ? new Build(buildT1) : null;
-        Build buildT2Copy = new Build(buildT2);
+  private Map<String, ProjectTiming> readPreviousTimings() {
+    Path timingsPath = getPreviousTimingsPath();
+    if (!Files.exists(timingsPath)) {
+      if (configuration.getProjectTimingsFilePath() != null) {
+        LOGGER.warn("The timings file \"{}\" does not exist. The projects are planned with estimates only.",
+            timingsPath);
+      }
+      return Collections.emptyMap();
+    }
 
-        extractor.extractMethodsForBuild(buildT1Copy);
-        extractor.extractMethodsForBuild(buildT2Copy);
+    try {
+      return ProjectTiming.read(timingsPath);
+    }
+    catch (IOException e) {
+      LOGGER.warn("Could not read the timings of the previous run. The projects are planned with estimates only.", e);
+      return Collections.emptyMap();
+    }
+  }
 
-        compareConsecutiveBuilds(buildT1Copy, buildT2Copy, allResultsPrinter, smellResultsPrinter);
-        lastAnalyzedBuild = buildT2Copy;
+  private Path getPreviousTimingsPath() {
+    return configuration.getProjectTimingsFilePath() != null
+        ? Paths.get(configuration.getProjectTimingsFilePath())
+        : Paths.get(outputFolderPath, "Results", ProjectTiming.FILE_NAME);
+  }
 
-        allResultsPrinter.flush();
-        smellResultsPrinter.flush();
+  /**
+   * Records the timings of all projects that have been analyzed completely in this run. Projects
+   * that have been resumed from a checkpoint or whose repository is not available keep their
+   * previous timing.
+   */
+  private void writeTimings(List<ProjectCost> projectPlan, Map<String, Long> actualMillisByProject,
+                            Map<String, ProjectTiming> previousTimings, Checkpoint checkpoint,
+                            MethodExtractor extractor) {
+    Map<String, ProjectTiming> timingsByProject = new TreeMap<>(previousTimings);
+    for (ProjectCost cost : projectPlan) {
+      Long actualMillis = actualMillisByProject.get(cost.getProjectName());
+      if (actualMillis == null || extractor.hasRepositoryFailed(cost.getProjectName())
+          || (checkpoint != null && checkpoint.hasCommittedBuilds(cost.getProjectName()))) {
+        continue;
       }
+      timingsByProject.put(cost.getProjectName(), new ProjectTiming(cost.getProjectName(), cost.getNumBuilds(),
+          cost.getNumCommits(), cost.getNumTestsRun(), cost.getPredictedMillis(), actualMillis));
+    }
+
+    try {
+      ProjectTiming.write(Paths.get(outputFolderPath, "Results", ProjectTiming.FILE_NAME), timingsByProject.values());
     }
     catch (IOException e) {
-      LOGGER.error("Could not write build comparison to file.", e);
+      LOGGER.warn("Could not write the timings of the projects.", e);
     }
   }
 
-  private CSVFormat initializeResultFilePathAndCsvFormat(String filePath) {
-    CSVFormat csvFormat = CSVFormat.DEFAULT.withNullString("null");
-    if (!Files.exists(Paths.get(filePath))) {
-      csvFormat = csvFormat.withHeader(BuildAnalysisResult.CSV_HEADERS);
+  /**
+   * Compares a single build pair on demand, e.g. for a request of the daemon mode. The methods are
+   * extracted through a registry that is shared by all requests, so that commits that have been
+   * requested before are not extracted again. Only requests for the same project wait for each
+   * other during the extraction, because they share the work tree of the project. Requests for
+   * other projects and the comparisons themselves run concurrently.
+   *
+   * @param buildT1 The previous build or null.
+   * @param buildT2 The follow-up build.
+   * @param extractionRegistry The registry that is shared by all requests.
+   * @return the result of the comparison.
+   */
+  public BuildAnalysisResult compareBuildPair(Build buildT1, Build buildT2, ExtractionRegistry extractionRegistry) {
+    ComparisonMemo comparisonMemo = new ComparisonMemo();
+    if (!requiresExtraction(buildT1, buildT2)) {
+      return buildT1 != null
+          ? calculateCountOnlyResult(buildT1, buildT2)
+          : compareConsecutiveBuilds(null, buildT2, comparisonMemo);
+    }
+
+    Build buildT1Copy = buildT1 != null ? new Build(buildT1) : null;
+    Build buildT2Copy = new Build(buildT2);
+    extractionRegistry.reference(buildT1Copy);
+    extractionRegistry.reference(buildT2Copy);
+    try {
+      Object extractionLock = extractionLocksByProject.computeIfAbsent(
+          buildT2.getProjectBranchKey().getProjectName(), projectName -> new Object());
+      synchronized (extractionLock) {
+        extractionRegistry.extractMethodsForBuild(buildT1Copy);
+        extractionRegistry.extractMethodsForBuild(buildT2Copy);
+      }
+    }
+    finally {
+      extractionRegistry.release(buildT1Copy);
+      extractionRegistry.release(buildT2Copy);
+    }
+    return compareConsecutiveBuilds(buildT1Copy, buildT2Copy, comparisonMemo);
+  }
 
-      if (!Files.exists(Paths.get(filePath).getParent())) {
-        File resultFolder = new File(Paths.get(filePath).getParent().toString());
-        resultFolder.mkdirs();
+  private Checkpoint readCheckpoint(String journalFilePath, String allResultsFilePath) throws IOException {
+    if (!configuration.isResume()) {
+      if (Files.exists(Paths.get(allResultsFilePath))) {
+        LOGGER.warn("Results will be appended to the existing result files. Use --resume to continue "
+            + "an interrupted run instead.");
       }
+      return null;
+    }
+
+    Checkpoint checkpoint = CheckpointJournal.readLastCheckpoint(journalFilePath);
+    if (checkpoint == null) {
+      LOGGER.warn("No checkpoint has been found. The analysis starts from the beginning.");
+    }
+    else {
+      LOGGER.info("Resuming from the last checkpoint. {} projects and branches have been analyzed already.",
+          checkpoint.getLastBuildIdByPartition().size());
     }
-    return csvFormat;
+    return checkpoint;
   }
 
   private void prepareBuildComparison(List<Build> builds) {
@@ -110,6 +577,67 @@ public class BuildComparator {
     });
   }
 
+  /**
+   * Splits the sorted builds into consecutive groups that belong to the same project.
+   */
+  private Map<String, List<Build>> groupBuildsByProject(List<Build> builds) {
+    Map<String, List<Build>> buildsByProject = new LinkedHashMap<>();
+    for (Build build : builds) {
+      buildsByProject.computeIfAbsent(build.getProjectBranchKey().getProjectName(), project -> new ArrayList<>())
+          .add(build);
+    }
+    return buildsByProject;
+  }
+
+  /**
+   * Determines the order in which the builds of a project are extracted. The results are written
+   * in the original order regardless.
+   */
+  private List<Build> orderProjectBuilds(List<Build> projectBuilds, MethodExtractor extractor) {
+    if (configuration.getBuildOrder() != BuildOrder.TOPOLOGY || projectBuilds.size() < 2) {
+      return projectBuilds;
+    }
+
+    String projectName = projectBuilds.get(0).getProjectBranchKey().getProjectName();
+    try {
+      Repository repository = extractor.getRepository(projectName).getRepository();
+      List<Build> orderedBuilds = commitTopologyOrdering.orderBuilds(repository, projectBuilds);
+      LOGGER.info("Ordering the builds of {} along the commit graph changes the average tree diff between "
+              + "consecutive builds from {} to {} files.",
+          projectName,
+          String.format("%.1f", commitTopologyOrdering.calculateAverageTreeDiffSize(repository, projectBuilds)),
+          String.format("%.1f", commitTopologyOrdering.calculateAverageTreeDiffSize(repository, orderedBuilds)));
+      return orderedBuilds;
+    }
+    catch (IOException | GitAPIException e) {
+      LOGGER.warn("Could not order the builds of {} along the commit graph. They will be extracted in the "
+          + "order of their build IDs.", projectName);
+      return projectBuilds;
+    }
+  }
+
+  /**
+   * In the smell candidates only mode, methods are only extracted for build pairs that can appear
+   * in the smell results. A removed failed test requires failures in the previous build and a
+   * legacy smell warning only depends on the data of the input file, so both can be ruled out
+   * without looking at the source code.
+   */
+  private boolean requiresExtraction(Build buildT1, Build buildT2) {
+    if (!configuration.isSmellCandidatesOnly()) {
+      return true;
+    }
+    if (buildT1 == null) {
+      return false;
+    }
+
+    boolean buildT1HasFailures = (buildT1.getNumTestsFailed() != null && buildT1.getNumTestsFailed() > 0)
+        || !CollectionUtility.isNullOrEmpty(buildT1.getFailedMethods());
+    return buildT1HasFailures || nvl(LegacySmellWarningDetector.calculateWarning(buildT1.getStatus(),
+        calculateDeltaNumTestsRun(buildT1, buildT2),
+        calculateDeltaNumTestsFailed(buildT1, buildT2),
+        calculateDeltaNumTestsSkipped(buildT1, buildT2)));
+  }
+
   private Map<Long, Build> generateBuildByBuildIdMap(List<Build> builds) {
     Map<Long, Build> buildsByBuildId = new HashMap<>();
     for (Build build : builds) {
@@ -121,62 +649,84 @@ public class BuildComparator {
     return buildsByBuildId;
   }
 
-  private void compareConsecutiveBuilds(Build buildT1, Build buildT2, CSVPrinter allResultsPrinter, CSVPrinter smellResultsPrinter) throws IOException {
+  private void logDeduplication(ExtractionRegistry extractionRegistry, ComparisonMemo comparisonMemo) {
+    LOGGER.info("Extracted {} of {} requested builds ({}% deduplicated by trigger commit). The extraction cache "
+            + "had {} hits, {} misses and {} evictions and holds an estimated {}. Compared {} of {} build pairs ({}% "
+            + "deduplicated by commit pair).",
+        extractionRegistry.getNumExtractions(),
+        extractionRegistry.getNumRequests(),
+        formatDeduplicationRatio(extractionRegistry.getNumExtractions(), extractionRegistry.getNumRequests()),
+        extractionRegistry.getNumHits(),
+        extractionRegistry.getNumExtractions(),
+        extractionRegistry.getNumEvictions(),
+        FileUtility.formatBytes(extractionRegistry.getCachedBytes()),
+        comparisonMemo.getNumComparisons(),
+        comparisonMemo.getNumRequests(),
+        formatDeduplicationRatio(comparisonMemo.getNumComparisons(), comparisonMemo.getNumRequests()));
+    LOGGER.info("{} compared commit pairs had identical methods hashes. {} of {} compared classes had to be "
+            + "searched for missing test methods.",
+        numIdenticalCommitPairs.get(), numChangedClasses.get(), numComparedClasses.get());
+  }
+
+  private String formatDeduplicationRatio(long numComputed, long numRequested) {
+    return String.format("%.1f", numRequested > 0 ? 100.0 * (numRequested - numComputed) / numRequested : 0);
+  }
+
+  private BuildAnalysisResult compareConsecutiveBuilds(Build buildT1, Build buildT2, ComparisonMemo comparisonMemo) {
     if (buildT2 == null) {
       throw new IllegalArgumentException("The follow-up build must not be null.");
     }
 
     if (buildT1 == null) {
       LOGGER.warn(buildT2.toString() + " does not have a previous build.");
+      if (lifecycleIndex != null) {
+        lifecycleIndex.recordBranchStart(buildT2,
+            nvl(buildT2.getExtractionSuccessful()) ? collectTestMethodNames(buildT2) : null);
+      }
       String project = buildT2.getProjectBranchKey().getProjectName();
       String branch = buildT2.getProjectBranchKey().getBranch();
-      BuildAnalysisResult.BuildAnalysisBuilder.aBuildAnalysisResult()
+      return BuildAnalysisResult.BuildAnalysisBuilder.aBuildAnalysisResult()
           .withAnalysisOk(false)
           .withProject(project)
           .withBranchT2(branch)
           .withBuildIdT2(buildT2.getBuildId())
           .withTriggerCommitT2(buildT2.getTriggerCommit())
-          .create()
-          .printToCsv(allResultsPrinter);
-      return;
+          .create();
     }
 
-    BuildAnalysisResult result = calculateBuildAnalysisResult(buildT1, buildT2);
-    result.printToCsv(allResultsPrinter);
-
-    if (result.isAnalysisOk() && (BooleanUtility.nvl(result.getLegacySmellWarning())
-        || (result.getNumRemovedFailedTests() != null && result.getNumRemovedFailedTests() >= 1))) {
-      result.printToCsv(smellResultsPrinter);
-    }
+    return calculateBuildAnalysisResult(buildT1, buildT2, comparisonMemo);
   }
 
-  private BuildAnalysisResult calculateBuildAnalysisResult(Build buildT1, Build buildT2) {
-    Set<BasicMethodData> allMethodsT1 = collectAllMethodsForBuild(buildT1);
-    Set<BasicMethodData> allMethodsT2 = collectAllMethodsForBuild(buildT2);
-
-    Set<BasicMethodData> testMethodsT1 = allMethodsT1.stream()
-        .filter(BasicMethodData::isTestMethod).collect(Collectors.toSet());
-    Set<BasicMethodData> testMethodsT2 = allMethodsT2.stream()
-        .filter(BasicMethodData::isTestMethod).collect(Collectors.toSet());
-
-    Integer deltaRunVsExtractedT1 = NumberUtility.calculateDelta(buildT1.getNumTestsRun(), testMethodsT1.size());
-    Integer deltaRunVsExtractedT2 = NumberUtility.calculateDelta(buildT2.getNumTestsRun(), testMethodsT2.size());
+  private BuildAnalysisResult calculateBuildAnalysisResult(Build buildT1, Build buildT2, ComparisonMemo comparisonMemo) {
+    CommitComparison commitComparison = comparisonMemo.compare(buildT1, buildT2, () -> compareCommits(buildT1, buildT2));
+    int numTestMethodsT1 = commitComparison.getNumTestMethodsT1();
+    int numTestMethodsT2 = commitComparison.getNumTestMethodsT2();
+    Map<BasicMethodData, Boolean> testMethodsNotInT1 = commitComparison.getTestMethodsNotInT1();
+    Map<BasicMethodData, Boolean> testMethodsNotInT2 = commitComparison.getTestMethodsNotInT2();
 
-    Map<BasicMethodData, Boolean> testMethodsNotInT1 = calculateTestMethodsInAButNotInB(testMethodsT2, testMethodsT1, allMethodsT1);
-    Map<BasicMethodData, Boolean> testMethodsNotInT2 = calculateTestMethodsInAButNotInB(testMethodsT1, testMethodsT2, allMethodsT2);
+    Integer deltaRunVsExtractedT1 = NumberUtility.calculateDelta(buildT1.getNumTestsRun(), numTestMethodsT1);
+    Integer deltaRunVsExtractedT2 = NumberUtility.calculateDelta(buildT2.getNumTestsRun(), numTestMethodsT2);
 
+    // The methods are sorted, because the iteration order of the sets depends on the order in
+    // which the files have been parsed.
     String concatenatedMethodsNotInT2 = StringUtility.concatStrings(testMethodsNotInT2.keySet().stream()
         .map(BasicMethodData::getQualifiedName)
+        .sorted()
         .collect(Collectors.toList()), "#");
 
     Integer deltaNumTestsRun = calculateDeltaNumTestsRun(buildT1, buildT2);
     Integer deltaNumTestsOk = calculateDeltaNumTestsOk(buildT1, buildT2);
     Integer deltaNumTestsFailed = calculateDeltaNumTestsFailed(buildT1, buildT2);
     Integer deltaNumTestsSkipped = calculateDeltaNumTestsSkipped(buildT1, buildT2);
-    List<String> removedFailedMethods = calculateRemovedFailedMethods(buildT1.getFailedMethods(), testMethodsNotInT2);
+    boolean analysisOk = calculateAnalysisOk(buildT1, buildT2);
+    BuildPair buildPair = new BuildPair(buildT1, buildT2, commitComparison, analysisOk);
+    List<String> removedFailedMethods = buildPair.findFailedInT1(testMethodsNotInT2.keySet());
+    if (lifecycleIndex != null) {
+      lifecycleIndex.recordPair(buildPair, () -> collectTestMethodNames(buildT2));
+    }
 
     return BuildAnalysisResult.BuildAnalysisBuilder.aBuildAnalysisResult()
-        .withAnalysisOk(calculateAnalysisOk(buildT1, buildT2))
+        .withAnalysisOk(analysisOk)
         .withProject(buildT2.getProjectBranchKey().getProjectName())
         .withBranchT2(buildT2.getProjectBranchKey().getBranch())
         .withBuildIdT2(buildT2.getBuildId())
@@ -184,8 +734,8 @@ public class BuildComparator {
         .andBranchT1(buildT1.getProjectBranchKey().getBranch())
         .andBuildIdT1(buildT1.getBuildId())
         .andTriggerCommitT1(buildT1.getTriggerCommit())
-        .andNumTestMethodsExtractedT1(testMethodsT1.size())
-        .andNumTestMethodsExtractedT2(testMethodsT2.size())
+        .andNumTestMethodsExtractedT1(numTestMethodsT1)
+        .andNumTestMethodsExtractedT2(numTestMethodsT2)
         .andDeltaRunVsExtractedT1(deltaRunVsExtractedT1)
         .andDeltaRunVsExtractedT2(deltaRunVsExtractedT2)
         .andNumTestMethodsNotInT1(testMethodsNotInT1.size())
@@ -195,13 +745,167 @@ public class BuildComparator {
         .andDeltaTestsOk(deltaNumTestsOk)
         .andDeltaTestsFailed(deltaNumTestsFailed)
         .andDeltaTestsSkipped(deltaNumTestsSkipped)
-        .andLegacySmellWarning(calculateLegacySmellWarning(buildT1.getStatus(), deltaNumTestsRun, deltaNumTestsFailed, deltaNumTestsSkipped))
-        .andNumFailedMethodsNotExtracted(calculateNumFailedMethodsNotExtracted(buildT1.getFailedMethods(), testMethodsT1))
+        .andLegacySmellWarning(LegacySmellWarningDetector.calculateWarning(buildT1.getStatus(), deltaNumTestsRun, deltaNumTestsFailed, deltaNumTestsSkipped))
+        .andNumFailedMethodsNotExtracted(calculateNumFailedMethodsNotExtracted(buildT1.getFailedMethods(), commitComparison.getTestMethodT1Matcher()))
         .andNumRemovedFailedTests(removedFailedMethods.size())
         .andRemovedFailedTests(StringUtility.concatStrings(removedFailedMethods, "#"))
+        .andDetectorFindings(detectorEngine.evaluate(buildPair))
+        .create();
+  }
+
+  /**
+   * Calculates a result from the data of the input file only. All values that depend on extracted
+   * methods are left empty and the analysis is not marked as ok. Because the previous build does
+   * not have any failed tests, no failed test can have been removed.
+   */
+  private BuildAnalysisResult calculateCountOnlyResult(Build buildT1, Build buildT2) {
+    Integer deltaNumTestsRun = calculateDeltaNumTestsRun(buildT1, buildT2);
+    Integer deltaNumTestsFailed = calculateDeltaNumTestsFailed(buildT1, buildT2);
+    Integer deltaNumTestsSkipped = calculateDeltaNumTestsSkipped(buildT1, buildT2);
+    BuildPair buildPair = new BuildPair(buildT1, buildT2, null, false);
+    if (lifecycleIndex != null) {
+      lifecycleIndex.recordPair(buildPair, () -> null);
+    }
+
+    return BuildAnalysisResult.BuildAnalysisBuilder.aBuildAnalysisResult()
+        .withAnalysisOk(false)
+        .withProject(buildT2.getProjectBranchKey().getProjectName())
+        .withBranchT2(buildT2.getProjectBranchKey().getBranch())
+        .withBuildIdT2(buildT2.getBuildId())
+        .withTriggerCommitT2(buildT2.getTriggerCommit())
+        .andBranchT1(buildT1.getProjectBranchKey().getBranch())
+        .andBuildIdT1(buildT1.getBuildId())
+        .andTriggerCommitT1(buildT1.getTriggerCommit())
+        .andDeltaTestsRun(deltaNumTestsRun)
+        .andDeltaTestsOk(calculateDeltaNumTestsOk(buildT1, buildT2))
+        .andDeltaTestsFailed(deltaNumTestsFailed)
+        .andDeltaTestsSkipped(deltaNumTestsSkipped)
+        .andLegacySmellWarning(LegacySmellWarningDetector.calculateWarning(buildT1.getStatus(), deltaNumTestsRun, deltaNumTestsFailed, deltaNumTestsSkipped))
+        .andNumFailedMethodsNotExtracted(0)
+        .andNumRemovedFailedTests(0)
+        .andRemovedFailedTests("")
+        .andDetectorFindings(detectorEngine.evaluate(buildPair))
         .create();
   }
 
+  /**
+   * If the methods hashes of both builds are equal, their methods are regarded as identical and
+   * only the methods of build T1 are collected. Otherwise, only the classes whose hashes differ
+   * are searched for test methods that are missing in the other build.
+   */
+  private CommitComparison compareCommits(Build buildT1, Build buildT2) {
+    if (buildT1.getMethodTable() != null || buildT2.getMethodTable() != null) {
+      return compareMethodTables(buildT1, buildT2);
+    }
+
+    Set<BasicMethodData> allMethodsT1 = collectAllMethodsForBuild(buildT1);
+    Set<BasicMethodData> testMethodsT1 = allMethodsT1.stream()
+        .filter(BasicMethodData::isTestMethod).collect(Collectors.toSet());
+    Predicate<String> testMethodT1Matcher = text -> testMethodsT1.stream()
+        .anyMatch(testMethod -> testMethod.getQualifiedName().contains(text));
+
+    if (haveEqualMethodsHashes(buildT1, buildT2)) {
+      return new CommitComparison(testMethodsT1.size(), testMethodsT1.size(), new HashMap<>(), new HashMap<>(),
+          new HashSet<>(), testMethodT1Matcher);
+    }
+
+    Set<BasicMethodData> allMethodsT2 = collectAllMethodsForBuild(buildT2);
+    Set<BasicMethodData> testMethodsT2 = allMethodsT2.stream()
+        .filter(BasicMethodData::isTestMethod).collect(Collectors.toSet());
+
+    List<BasicMethodData> changedTestMethodsT1 = collectTestMethodsOfChangedClasses(buildT1, buildT2);
+    return new CommitComparison(
+        testMethodsT1.size(),
+        testMethodsT2.size(),
+        calculateTestMethodsInAButNotInB(collectTestMethodsOfChangedClasses(buildT2, buildT1), testMethodsT1, allMethodsT1),
+        calculateTestMethodsInAButNotInB(changedTestMethodsT1, testMethodsT2, allMethodsT2),
+        calculateTestMethodsIgnoredInB(changedTestMethodsT1, allMethodsT2),
+        testMethodT1Matcher);
+  }
+
+  /**
+   * Compares the method tables of two builds with a merge join, so that only the methods that
+   * differ are turned into objects. A build whose extraction has failed has an empty table.
+   */
+  private CommitComparison compareMethodTables(Build buildT1, Build buildT2) {
+    MethodTable tableT1 = getMethodTable(buildT1);
+    MethodTable tableT2 = getMethodTable(buildT2);
+    if (haveEqualMethodsHashes(buildT1, buildT2)) {
+      return new CommitComparison(tableT1.getNumTestMethods(), tableT1.getNumTestMethods(), new HashMap<>(),
+          new HashMap<>(), new HashSet<>(), tableT1::containsTestMethodMatching);
+    }
+
+    MethodTable.Comparison comparison = MethodTable.compare(tableT1, tableT2);
+    return new CommitComparison(
+        tableT1.getNumTestMethods(),
+        tableT2.getNumTestMethods(),
+        comparison.getTestMethodsNotInT1(),
+        comparison.getTestMethodsNotInT2(),
+        comparison.getTestMethodsIgnoredInT2(),
+        tableT1::containsTestMethodMatching);
+  }
+
+  /**
+   * A run stores the methods of all builds in tables or none, so a build without a table is a
+   * build whose extraction has failed.
+   */
+  private static MethodTable getMethodTable(Build build) {
+    return build.getMethodTable() != null ? build.getMethodTable() : MethodTable.EMPTY;
+  }
+
+  private boolean haveEqualMethodsHashes(Build buildT1, Build buildT2) {
+    if (buildT1.getMethodsHash() != null && buildT1.getMethodsHash().equals(buildT2.getMethodsHash())) {
+      numIdenticalCommitPairs.incrementAndGet();
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Collects the test methods of all classes in build A that are missing in build B or whose
+   * methods hash differs. Other classes contain the same methods in both builds.
+   */
+  private List<BasicMethodData> collectTestMethodsOfChangedClasses(Build buildA, Build buildB) {
+    List<BasicMethodData> testMethods = new ArrayList<>();
+    if (buildA.getMethodsByClass() == null) {
+      return testMethods;
+    }
+
+    Map<String, Long> methodsHashByClassB = new HashMap<>();
+    if (buildB.getMethodsByClass() != null) {
+      for (BasicClassData classData : buildB.getMethodsByClass().keySet()) {
+        methodsHashByClassB.put(classData.getQualifiedName(), classData.getMethodsHash());
+      }
+    }
+
+    for (Map.Entry<BasicClassData, List<BasicMethodData>> entry : buildA.getMethodsByClass().entrySet()) {
+      Long methodsHashA = entry.getKey().getMethodsHash();
+      numComparedClasses.incrementAndGet();
+      if (methodsHashA != null && methodsHashA.equals(methodsHashByClassB.get(entry.getKey().getQualifiedName()))) {
+        continue;
+      }
+
+      numChangedClasses.incrementAndGet();
+      for (BasicMethodData method : entry.getValue()) {
+        if (nvl(method.isTestMethod())) {
+          testMethods.add(method);
+        }
+      }
+    }
+    return testMethods;
+  }
+
+  private List<String> collectTestMethodNames(Build build) {
+    if (build.getMethodTable() != null) {
+      return build.getMethodTable().getTestMethodNames();
+    }
+    return collectAllMethodsForBuild(build).stream()
+        .filter(method -> nvl(method.isTestMethod()))
+        .map(BasicMethodData::getQualifiedName)
+        .distinct()
+        .collect(Collectors.toList());
+  }
+
   private Set<BasicMethodData> collectAllMethodsForBuild(Build build) {
     Set<BasicMethodData> allMethods = new HashSet<>();
     if (build.getMethodsByClass() != null) {
@@ -217,14 +921,14 @@ public class BuildComparator {
    * This can be used to detect if a test method was only skipped and not removed entirely (by
    * adding @Ignore or removing @Test for instance).
    *
-   * @param testMethodsA The set of test methods from build A
+   * @param testMethodsA The test methods from build A that may be missing in build B
    * @param testMethodsB The set of test methods from build B
    * @param allMethodsB The set of all method from build B
    * @return a map where the keys are test methods that are not in {@code testMethodsB} and the
    *         values indicate whether these test methods are contained in {@code allMethodsB}
    *         instead.
    */
-  private Map<BasicMethodData, Boolean> calculateTestMethodsInAButNotInB(Set<BasicMethodData> testMethodsA,
+  private Map<BasicMethodData, Boolean> calculateTestMethodsInAButNotInB(Collection<BasicMethodData> testMethodsA,
                                                                          Set<BasicMethodData> testMethodsB,
                                                                          Set<BasicMethodData> allMethodsB) {
     Map<BasicMethodData, Boolean> testMethodsNotInB = new HashMap<>();
@@ -236,6 +940,29 @@ public class BuildComparator {
     return testMethodsNotInB;
   }
 
+  /**
+   * A test method is ignored in build B if it is annotated with {@code @Ignore} there, which also
+   * makes it lose its test method status, or with {@code @Disabled}, which keeps it a test method.
+   * Test methods that are already ignored in build A are not ignored anew.
+   *
+   * @param testMethodsA The test methods of the changed classes of build A.
+   * @param allMethodsB The set of all methods from build B.
+   * @return the test methods of build A that are ignored in build B.
+   */
+  private Set<BasicMethodData> calculateTestMethodsIgnoredInB(Collection<BasicMethodData> testMethodsA,
+                                                              Set<BasicMethodData> allMethodsB) {
+    Set<BasicMethodData> ignoredMethodsB = allMethodsB.stream()
+        .filter(method -> nvl(method.isIgnoredMethod()))
+        .collect(Collectors.toSet());
+    Set<BasicMethodData> testMethodsIgnoredInB = new HashSet<>();
+    for (BasicMethodData method : testMethodsA) {
+      if (!nvl(method.isIgnoredMethod()) && ignoredMethodsB.contains(method)) {
+        testMethodsIgnoredInB.add(method);
+      }
+    }
+    return testMethodsIgnoredInB;
+  }
+
   private Integer calculateDeltaNumTestsRun(Build buildT1, Build buildT2) {
     return NumberUtility.calculateDelta(buildT2.getNumTestsRun(), buildT1.getNumTestsRun());
   }
@@ -252,53 +979,28 @@ public class BuildComparator {
     return NumberUtility.calculateDelta(buildT2.getNumTestsSkipped(), buildT1.getNumTestsSkipped());
   }
 
-  private Boolean calculateLegacySmellWarning(String buildT1Status, Integer deltaNumTestsRun, Integer deltaNumTestsFailed, Integer deltaNumTestsSkipped) {
-    if (buildT1Status == null || deltaNumTestsRun == null || deltaNumTestsFailed == null || deltaNumTestsSkipped == null) {
-      return null;
-    }
-    boolean buildT1Passed = buildT1Status.equalsIgnoreCase("passed");
-    boolean skippedTestMethods = deltaNumTestsFailed < 0 && (deltaNumTestsRun < 0 || deltaNumTestsSkipped > 0);
-
-    return !buildT1Passed && skippedTestMethods;
-  }
-
-  private int calculateNumFailedMethodsNotExtracted(List<String> failedMethods, Set<BasicMethodData> testMethods) {
+  private int calculateNumFailedMethodsNotExtracted(List<String> failedMethods, Predicate<String> testMethodMatcher) {
     if (CollectionUtility.isNullOrEmpty(failedMethods)) {
       return 0;
     }
 
     int numFailedMethodsNotExtracted = failedMethods.size();
     for (String failedMethod : failedMethods) {
-      for (BasicMethodData testMethod : testMethods) {
-        if (testMethod.getQualifiedName().contains(failedMethod)) {
-          numFailedMethodsNotExtracted--;
-          break;
-        }
+      if (testMethodMatcher.test(failedMethod)) {
+        numFailedMethodsNotExtracted--;
       }
     }
 
     return numFailedMethodsNotExtracted;
   }
 
-  private List<String> calculateRemovedFailedMethods(List<String> failedMethodsT1,
-                                                     Map<BasicMethodData, Boolean> testMethodsNotInT2) {
-    if (CollectionUtility.isNullOrEmpty(failedMethodsT1)) {
-      return Collections.emptyList();
-    }
-
-    List<String> removedFailedMethods = new ArrayList<>();
-    for (BasicMethodData removedMethod : testMethodsNotInT2.keySet()) {
-      for (String failedMethod : failedMethodsT1) {
-        if (removedMethod.getQualifiedName().contains(failedMethod)) {
-          removedFailedMethods.add(removedMethod.getQualifiedName());
-          break;
-        }
-      }
-    }
-    return removedFailedMethods;
-  }
-
   private boolean calculateAnalysisOk(Build buildT1, Build buildT2) {
     return nvl(buildT1.getExtractionSuccessful()) && nvl(buildT2.getExtractionSuccessful());
   }
+
+  @FunctionalInterface
+  private interface ProjectAnalysis {
+
+    void analyze(ProjectCost cost) throws IOException;
+  }
 }
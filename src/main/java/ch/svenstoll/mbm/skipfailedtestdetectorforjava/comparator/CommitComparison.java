@@ -0,0 +1,68 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.comparator;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.BasicMethodData;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * The part of a build comparison that only depends on the methods extracted for the two trigger
+ * commits and not on the build data from the input file.
+ */
+public class CommitComparison {
+
+  private final int numTestMethodsT1;
+  private final int numTestMethodsT2;
+  private final Map<BasicMethodData, Boolean> testMethodsNotInT1;
+  private final Map<BasicMethodData, Boolean> testMethodsNotInT2;
+  private final Set<BasicMethodData> testMethodsIgnoredInT2;
+  private final Predicate<String> testMethodT1Matcher;
+
+  /**
+   * @param numTestMethodsT1 The number of distinct test methods of T1.
+   * @param numTestMethodsT2 The number of distinct test methods of T2.
+   * @param testMethodsNotInT1 The test methods of T2 that are not test methods of T1.
+   * @param testMethodsNotInT2 The test methods of T1 that are not test methods of T2.
+   * @param testMethodsIgnoredInT2 The test methods of T1 that are ignored in T2.
+   * @param testMethodT1Matcher Tests whether the qualified name of a test method of T1 contains a
+   *                            text.
+   */
+  public CommitComparison(int numTestMethodsT1,
+                          int numTestMethodsT2,
+                          Map<BasicMethodData, Boolean> testMethodsNotInT1,
+                          Map<BasicMethodData, Boolean> testMethodsNotInT2,
+                          Set<BasicMethodData> testMethodsIgnoredInT2,
+                          Predicate<String> testMethodT1Matcher) {
+    this.numTestMethodsT1 = numTestMethodsT1;
+    this.numTestMethodsT2 = numTestMethodsT2;
+    this.testMethodsNotInT1 = testMethodsNotInT1;
+    this.testMethodsNotInT2 = testMethodsNotInT2;
+    this.testMethodsIgnoredInT2 = testMethodsIgnoredInT2;
+    this.testMethodT1Matcher = testMethodT1Matcher;
+  }
+
+  public int getNumTestMethodsT1() {
+    return numTestMethodsT1;
+  }
+
+  public int getNumTestMethodsT2() {
+    return numTestMethodsT2;
+  }
+
+  public Map<BasicMethodData, Boolean> getTestMethodsNotInT1() {
+    return testMethodsNotInT1;
+  }
+
+  public Map<BasicMethodData, Boolean> getTestMethodsNotInT2() {
+    return testMethodsNotInT2;
+  }
+
+  public Set<BasicMethodData> getTestMethodsIgnoredInT2() {
+    return testMethodsIgnoredInT2;
+  }
+
+  public Predicate<String> getTestMethodT1Matcher() {
+    return testMethodT1Matcher;
+  }
+}
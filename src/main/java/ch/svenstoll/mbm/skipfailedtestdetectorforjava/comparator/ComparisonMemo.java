@@ -0,0 +1,127 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.comparator;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.Build;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.ProjectCommitKey;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the {@link CommitComparison} of two trigger commits for as long as pending builds
+ * still compare the same two commits. Uses follow the same protocol as in the
+ * {@link ch.svenstoll.mbm.skipfailedtestdetectorforjava.extractor.ExtractionRegistry}. The memo
+ * may be used from several threads. If two threads compare the same commits at the same time, one
+ * of them waits for the other.
+ */
+public class ComparisonMemo {
+
+  private final Map<CommitPair, ComparisonEntry> entriesByCommitPair = new HashMap<>();
+  private long numRequests = 0;
+  private long numComparisons = 0;
+
+  /**
+   * Announces that two builds will be compared.
+   *
+   * @param buildT1 The previous build.
+   * @param buildT2 The follow-up build.
+   */
+  public synchronized void reference(Build buildT1, Build buildT2) {
+    entriesByCommitPair.computeIfAbsent(new CommitPair(buildT1, buildT2), key -> new ComparisonEntry()).numReferences++;
+  }
+
+  /**
+   * @param buildT1 The previous build.
+   * @param buildT2 The follow-up build.
+   * @param comparison Compares the commits if they have not been compared before.
+   * @return the comparison of the trigger commits of both builds.
+   */
+  public CommitComparison compare(Build buildT1, Build buildT2, Supplier<CommitComparison> comparison) {
+    CompletableFuture<CommitComparison> commitComparison;
+    boolean compareCommits = false;
+    synchronized (this) {
+      numRequests++;
+      ComparisonEntry entry = entriesByCommitPair.get(new CommitPair(buildT1, buildT2));
+      if (entry != null && entry.comparison != null) {
+        commitComparison = entry.comparison;
+      }
+      else {
+        commitComparison = new CompletableFuture<>();
+        compareCommits = true;
+        numComparisons++;
+        if (entry != null) {
+          entry.comparison = commitComparison;
+        }
+      }
+    }
+
+    if (compareCommits) {
+      try {
+        commitComparison.complete(comparison.get());
+      }
+      catch (RuntimeException | Error e) {
+        commitComparison.completeExceptionally(e);
+        throw e;
+      }
+    }
+    return commitComparison.join();
+  }
+
+  /**
+   * Gives back a use that has been announced with {@link #reference(Build, Build)}.
+   *
+   * @param buildT1 The previous build.
+   * @param buildT2 The follow-up build.
+   */
+  public synchronized void release(Build buildT1, Build buildT2) {
+    CommitPair key = new CommitPair(buildT1, buildT2);
+    ComparisonEntry entry = entriesByCommitPair.get(key);
+    if (entry != null && --entry.numReferences <= 0) {
+      entriesByCommitPair.remove(key);
+    }
+  }
+
+  public synchronized long getNumRequests() {
+    return numRequests;
+  }
+
+  public synchronized long getNumComparisons() {
+    return numComparisons;
+  }
+
+  private static final class ComparisonEntry {
+
+    private int numReferences = 0;
+    private CompletableFuture<CommitComparison> comparison;
+  }
+
+  private static final class CommitPair {
+
+    private final ProjectCommitKey commitT1;
+    private final ProjectCommitKey commitT2;
+
+    private CommitPair(Build buildT1, Build buildT2) {
+      this.commitT1 = buildT1.getProjectCommitKey();
+      this.commitT2 = buildT2.getProjectCommitKey();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      CommitPair that = (CommitPair) o;
+      return commitT1.equals(that.commitT1) && commitT2.equals(that.commitT2);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(commitT1, commitT2);
+    }
+  }
+}
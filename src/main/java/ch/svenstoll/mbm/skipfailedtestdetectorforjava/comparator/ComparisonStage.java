@@ -0,0 +1,121 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.comparator;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.BuildAnalysisResult;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer.ResultResequencer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * <p>Compares builds on a pool of worker threads while the calling thread continues with the
+ * extraction of the next builds. The results are handed to a {@link ResultResequencer}, so the
+ * results of every project are written in the original order regardless of which comparison
+ * finishes first.</p>
+ *
+ * <p>The number of pending comparisons is bounded, because each of them holds the extracted
+ * methods of two builds. With a single thread, comparisons run directly on the calling thread.</p>
+ */
+public class ComparisonStage implements Closeable {
+
+  private static final int PENDING_COMPARISONS_PER_THREAD = 2;
+
+  private final ExecutorService executorService;
+  private final ResultResequencer resultResequencer;
+  private final int maxPendingComparisons;
+  private final Semaphore pendingComparisons;
+  private volatile Throwable failure = null;
+
+  public ComparisonStage(int numThreads, ResultResequencer resultResequencer) {
+    this.resultResequencer = resultResequencer;
+    this.maxPendingComparisons = Math.max(1, numThreads) * PENDING_COMPARISONS_PER_THREAD;
+    this.pendingComparisons = new Semaphore(maxPendingComparisons);
+    this.executorService = numThreads <= 1 ? null : Executors.newFixedThreadPool(numThreads, runnable -> {
+      Thread thread = new Thread(runnable, "build-comparator");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Schedules a comparison and waits only if too many comparisons are pending.
+   *
+   * @param buildIdT2 The follow-up build that is compared.
+   * @param comparison Calculates the result of the comparison.
+   * @throws IOException if a previous comparison or writing its result has failed.
+   */
+  public void submit(long buildIdT2, Supplier<BuildAnalysisResult> comparison) throws IOException {
+    rethrowFailure();
+    if (executorService == null) {
+      resultResequencer.write(buildIdT2, comparison.get());
+      return;
+    }
+
+    try {
+      pendingComparisons.acquire();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for a comparison to finish.");
+    }
+
+    executorService.execute(() -> {
+      try {
+        resultResequencer.write(buildIdT2, comparison.get());
+      }
+      catch (Throwable e) {
+        synchronized (this) {
+          if (failure == null) {
+            failure = e;
+          }
+        }
+      }
+      finally {
+        pendingComparisons.release();
+      }
+    });
+  }
+
+  /**
+   * Waits until all scheduled comparisons have finished.
+   *
+   * @throws IOException if a comparison or writing its result has failed.
+   */
+  public void awaitCompletion() throws IOException {
+    if (executorService != null) {
+      try {
+        pendingComparisons.acquire(maxPendingComparisons);
+        pendingComparisons.release(maxPendingComparisons);
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for the comparisons to finish.");
+      }
+    }
+    rethrowFailure();
+  }
+
+  private void rethrowFailure() throws IOException {
+    Throwable comparisonFailure = failure;
+    if (comparisonFailure instanceof IOException) {
+      throw new IOException("A comparison has failed.", comparisonFailure);
+    }
+    else if (comparisonFailure instanceof RuntimeException) {
+      throw (RuntimeException) comparisonFailure;
+    }
+    else if (comparisonFailure instanceof Error) {
+      throw (Error) comparisonFailure;
+    }
+  }
+
+  @Override
+  public void close() {
+    if (executorService != null) {
+      executorService.shutdownNow();
+    }
+  }
+}
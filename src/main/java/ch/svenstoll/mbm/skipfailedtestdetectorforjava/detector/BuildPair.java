@@ -0,0 +1,144 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.detector;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.comparator.CommitComparison;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.BasicMethodData;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.Build;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.CollectionUtility;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.NumberUtility;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The input of a {@link SmellDetector}: two consecutive builds with the data of the input file
+ * and, if their methods have been extracted, the comparison of the methods of their trigger
+ * commits. The comparison only holds the test methods that differ between both commits.
+ */
+public class BuildPair {
+
+  private final Build buildT1;
+  private final Build buildT2;
+  private final CommitComparison commitComparison;
+  private final boolean analysisOk;
+
+  /**
+   * @param buildT1 The previous build.
+   * @param buildT2 The follow-up build.
+   * @param commitComparison The comparison of the methods of both trigger commits or null if the
+   *                         methods have not been extracted.
+   * @param analysisOk true if the methods of both builds have been extracted successfully.
+   */
+  public BuildPair(Build buildT1, Build buildT2, CommitComparison commitComparison, boolean analysisOk) {
+    this.buildT1 = buildT1;
+    this.buildT2 = buildT2;
+    this.commitComparison = commitComparison;
+    this.analysisOk = analysisOk;
+  }
+
+  public Build getBuildT1() {
+    return buildT1;
+  }
+
+  public Build getBuildT2() {
+    return buildT2;
+  }
+
+  /**
+   * @return true if the methods of both builds have been extracted and compared successfully.
+   */
+  public boolean hasMethods() {
+    return commitComparison != null && analysisOk;
+  }
+
+  /**
+   * @return the comparison of the methods or null if the methods have not been extracted.
+   */
+  public CommitComparison getCommitComparison() {
+    return commitComparison;
+  }
+
+  public Integer getDeltaTestsRun() {
+    return NumberUtility.calculateDelta(buildT2.getNumTestsRun(), buildT1.getNumTestsRun());
+  }
+
+  public Integer getDeltaTestsFailed() {
+    return NumberUtility.calculateDelta(buildT2.getNumTestsFailed(), buildT1.getNumTestsFailed());
+  }
+
+  public Integer getDeltaTestsSkipped() {
+    return NumberUtility.calculateDelta(buildT2.getNumTestsSkipped(), buildT1.getNumTestsSkipped());
+  }
+
+  /**
+   * @return the test methods of T1 that are not test methods of T2 anymore, no matter whether
+   *         they have been deleted, ignored or turned into other methods.
+   */
+  public Set<BasicMethodData> getTestMethodsNotInT2() {
+    return commitComparison != null ? commitComparison.getTestMethodsNotInT2().keySet() : Collections.emptySet();
+  }
+
+  /**
+   * @return the test methods of T1 of which no method with the same name is left in T2.
+   */
+  public Set<BasicMethodData> getTestMethodsDeletedInT2() {
+    return filterTestMethodsNotInT2(false);
+  }
+
+  /**
+   * @return the test methods of T1 that still exist in T2, but are neither test methods nor
+   *         ignored there, e.g. because their {@code @Test} annotation has been removed.
+   */
+  public Set<BasicMethodData> getTestMethodsConvertedInT2() {
+    Set<BasicMethodData> convertedMethods = filterTestMethodsNotInT2(true);
+    convertedMethods.removeAll(getTestMethodsIgnoredInT2());
+    return convertedMethods;
+  }
+
+  /**
+   * @return the test methods of T1 that are ignored in T2.
+   */
+  public Set<BasicMethodData> getTestMethodsIgnoredInT2() {
+    return commitComparison != null ? commitComparison.getTestMethodsIgnoredInT2() : Collections.emptySet();
+  }
+
+  private Set<BasicMethodData> filterTestMethodsNotInT2(boolean stillMethodInT2) {
+    if (commitComparison == null) {
+      return Collections.emptySet();
+    }
+    return commitComparison.getTestMethodsNotInT2().entrySet().stream()
+        .filter(entry -> entry.getValue() == stillMethodInT2)
+        .map(Map.Entry::getKey)
+        .collect(Collectors.toSet());
+  }
+
+  /**
+   * A method has failed in T1 if its qualified name contains the name of a failed test of T1,
+   * because the input file names failed tests less precisely than the extraction.
+   *
+   * @param methods The methods to look for.
+   * @return the qualified names of the methods that have failed in T1, sorted.
+   */
+  public List<String> findFailedInT1(Collection<BasicMethodData> methods) {
+    List<String> failedMethodsT1 = buildT1.getFailedMethods();
+    if (CollectionUtility.isNullOrEmpty(failedMethodsT1)) {
+      return Collections.emptyList();
+    }
+
+    List<String> failedMethods = new ArrayList<>();
+    for (BasicMethodData method : methods) {
+      for (String failedMethod : failedMethodsT1) {
+        if (method.getQualifiedName().contains(failedMethod)) {
+          failedMethods.add(method.getQualifiedName());
+          break;
+        }
+      }
+    }
+    Collections.sort(failedMethods);
+    return failedMethods;
+  }
+}
@@ -0,0 +1,48 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.detector;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.BasicMethodData;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.StringUtility;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Detects test methods that still exist in T2, but are no test methods anymore, e.g. because
+ * their {@code @Test} annotation has been removed. Such a test is silently skipped by the build.
+ */
+public class ConvertedTestDetector implements SmellDetector {
+
+  public static final String NAME = "converted-test";
+  private static final String[] HEADERS = {"num_converted_tests", "converted_tests", "num_failed_converted_tests"};
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public String[] getHeaders() {
+    return HEADERS;
+  }
+
+  @Override
+  public boolean requiresMethods() {
+    return true;
+  }
+
+  @Override
+  public List<Object> detect(BuildPair pair) {
+    Set<BasicMethodData> convertedMethods = pair.getTestMethodsConvertedInT2();
+    if (convertedMethods.isEmpty()) {
+      return null;
+    }
+    List<String> convertedMethodNames = convertedMethods.stream()
+        .map(BasicMethodData::getQualifiedName)
+        .sorted()
+        .collect(Collectors.toList());
+    return Arrays.asList(convertedMethods.size(), StringUtility.concatStrings(convertedMethodNames, "#"),
+        pair.findFailedInT1(convertedMethods).size());
+  }
+}
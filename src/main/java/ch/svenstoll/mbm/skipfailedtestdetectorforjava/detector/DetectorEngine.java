@@ -0,0 +1,117 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.detector;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.DetectorFinding;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Evaluates the selected detectors for every build pair and measures how long each of them takes.
+ * The engine may be used from several threads.
+ */
+public class DetectorEngine {
+
+  public static final String TIMINGS_FILE_NAME = "detector_timings.csv";
+  private static final Logger LOGGER = LoggerFactory.getLogger(DetectorEngine.class);
+  private static final String[] TIMINGS_CSV_HEADERS = {"detector", "evaluated_pairs", "findings", "total_ms",
+      "mean_us"};
+
+  private final List<TimedDetector> detectors;
+
+  /**
+   * @param detectors The detectors to evaluate, in the order of their findings.
+   */
+  public DetectorEngine(List<SmellDetector> detectors) {
+    this.detectors = detectors.stream().map(TimedDetector::new).collect(Collectors.toList());
+  }
+
+  /**
+   * @return the detectors that are evaluated.
+   */
+  public List<SmellDetector> getDetectors() {
+    return detectors.stream().map(timedDetector -> timedDetector.detector).collect(Collectors.toList());
+  }
+
+  /**
+   * Evaluates all detectors that can be evaluated for a build pair. Detectors that require the
+   * methods are skipped if the pair has none.
+   *
+   * @param pair The build pair.
+   * @return the findings in the order of the detectors.
+   */
+  public List<DetectorFinding> evaluate(BuildPair pair) {
+    if (detectors.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    List<DetectorFinding> findings = new ArrayList<>();
+    for (TimedDetector timedDetector : detectors) {
+      if (timedDetector.detector.requiresMethods() && !pair.hasMethods()) {
+        continue;
+      }
+
+      long startTime = System.nanoTime();
+      List<Object> values = timedDetector.detector.detect(pair);
+      timedDetector.nanos.addAndGet(System.nanoTime() - startTime);
+      timedDetector.numEvaluations.incrementAndGet();
+      if (values != null) {
+        timedDetector.numFindings.incrementAndGet();
+        findings.add(new DetectorFinding(timedDetector.detector.getName(), values));
+      }
+    }
+    return findings;
+  }
+
+  public void logTimings() {
+    for (TimedDetector timedDetector : detectors) {
+      LOGGER.info("Detector {} found {} of {} evaluated build pairs in {} ms.", timedDetector.detector.getName(),
+          timedDetector.numFindings.get(), timedDetector.numEvaluations.get(),
+          TimeUnit.NANOSECONDS.toMillis(timedDetector.nanos.get()));
+    }
+  }
+
+  /**
+   * Replaces the timings file with the timings of this run.
+   *
+   * @param timingsPath The path of the timings file.
+   * @throws IOException if the file cannot be written.
+   */
+  public void writeTimings(Path timingsPath) throws IOException {
+    Files.createDirectories(timingsPath.toAbsolutePath().getParent());
+    try (Writer writer = Files.newBufferedWriter(timingsPath, StandardCharsets.UTF_8);
+         CSVPrinter printer = new CSVPrinter(writer, CSVFormat.DEFAULT.withHeader(TIMINGS_CSV_HEADERS))) {
+      for (TimedDetector timedDetector : detectors) {
+        long numEvaluations = timedDetector.numEvaluations.get();
+        long nanos = timedDetector.nanos.get();
+        printer.printRecord(timedDetector.detector.getName(), numEvaluations, timedDetector.numFindings.get(),
+            TimeUnit.NANOSECONDS.toMillis(nanos),
+            numEvaluations > 0 ? TimeUnit.NANOSECONDS.toMicros(nanos / numEvaluations) : 0);
+      }
+    }
+  }
+
+  private static final class TimedDetector {
+
+    private final SmellDetector detector;
+    private final AtomicLong nanos = new AtomicLong();
+    private final AtomicLong numEvaluations = new AtomicLong();
+    private final AtomicLong numFindings = new AtomicLong();
+
+    private TimedDetector(SmellDetector detector) {
+      this.detector = detector;
+    }
+  }
+}
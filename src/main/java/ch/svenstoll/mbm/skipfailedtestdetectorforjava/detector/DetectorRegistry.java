@@ -0,0 +1,71 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.detector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * Knows the built-in detectors and the detectors that are registered as a service of
+ * {@link SmellDetector} on the class path, and selects the ones to evaluate.
+ */
+public class DetectorRegistry {
+
+  public static final String ALL = "all";
+  public static final String NONE = "none";
+
+  /**
+   * @return the built-in detectors followed by the discovered ones, by name.
+   * @throws IllegalArgumentException if two detectors have the same name.
+   */
+  public static Map<String, SmellDetector> discoverDetectors() {
+    List<SmellDetector> detectors = new ArrayList<>(Arrays.asList(
+        new RemovedFailedTestDetector(),
+        new LegacySmellWarningDetector(),
+        new IgnoredFailedTestDetector(),
+        new ConvertedTestDetector(),
+        new MassTestDeletionDetector()));
+    ServiceLoader.load(SmellDetector.class).forEach(detectors::add);
+
+    Map<String, SmellDetector> detectorsByName = new LinkedHashMap<>();
+    for (SmellDetector detector : detectors) {
+      if (detectorsByName.put(detector.getName(), detector) != null) {
+        throw new IllegalArgumentException("More than one detector is named \"" + detector.getName() + "\".");
+      }
+    }
+    return detectorsByName;
+  }
+
+  /**
+   * @param selection {@link #ALL}, {@link #NONE} or a comma separated list of detector names.
+   * @return the selected detectors in the order of the registry.
+   * @throws IllegalArgumentException if a name is unknown.
+   */
+  public static List<SmellDetector> selectDetectors(String selection) {
+    Map<String, SmellDetector> detectorsByName = discoverDetectors();
+    if (ALL.equalsIgnoreCase(selection.trim())) {
+      return new ArrayList<>(detectorsByName.values());
+    }
+    if (NONE.equalsIgnoreCase(selection.trim())) {
+      return new ArrayList<>();
+    }
+
+    List<String> names = new ArrayList<>();
+    for (String name : selection.split(",")) {
+      if (!detectorsByName.containsKey(name.trim())) {
+        throw new IllegalArgumentException("Unknown detector \"" + name.trim() + "\". Available detectors: "
+            + String.join(", ", detectorsByName.keySet()) + ".");
+      }
+      names.add(name.trim());
+    }
+    List<SmellDetector> detectors = new ArrayList<>();
+    detectorsByName.forEach((name, detector) -> {
+      if (names.contains(name)) {
+        detectors.add(detector);
+      }
+    });
+    return detectors;
+  }
+}
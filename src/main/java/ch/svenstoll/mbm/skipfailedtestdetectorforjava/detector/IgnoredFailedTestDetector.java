@@ -0,0 +1,40 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.detector;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.StringUtility;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Detects tests that failed in T1 and have been annotated with {@code @Ignore} or
+ * {@code @Disabled} in T2 instead of being fixed.
+ */
+public class IgnoredFailedTestDetector implements SmellDetector {
+
+  public static final String NAME = "ignored-failed-test";
+  private static final String[] HEADERS = {"num_ignored_failed_tests", "ignored_failed_tests"};
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public String[] getHeaders() {
+    return HEADERS;
+  }
+
+  @Override
+  public boolean requiresMethods() {
+    return true;
+  }
+
+  @Override
+  public List<Object> detect(BuildPair pair) {
+    List<String> ignoredFailedMethods = pair.findFailedInT1(pair.getTestMethodsIgnoredInT2());
+    if (ignoredFailedMethods.isEmpty()) {
+      return null;
+    }
+    return Arrays.asList(ignoredFailedMethods.size(), StringUtility.concatStrings(ignoredFailedMethods, "#"));
+  }
+}
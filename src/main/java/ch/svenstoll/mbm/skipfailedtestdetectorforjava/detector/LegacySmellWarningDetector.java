@@ -0,0 +1,57 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.detector;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Detects the smell from the test counts of the input file alone: the previous build did not
+ * pass and fewer tests failed in the follow-up build, while fewer tests have been run or more
+ * tests have been skipped.
+ */
+public class LegacySmellWarningDetector implements SmellDetector {
+
+  public static final String NAME = "legacy-smell-warning";
+  private static final String[] HEADERS = {"status_t1", "delta_tests_run", "delta_tests_failed",
+      "delta_tests_skipped"};
+
+  /**
+   * @return whether the counts indicate the smell or null if a count is unknown.
+   */
+  public static Boolean calculateWarning(String buildT1Status, Integer deltaNumTestsRun, Integer deltaNumTestsFailed,
+                                         Integer deltaNumTestsSkipped) {
+    if (buildT1Status == null || deltaNumTestsRun == null || deltaNumTestsFailed == null || deltaNumTestsSkipped == null) {
+      return null;
+    }
+    boolean buildT1Passed = buildT1Status.equalsIgnoreCase("passed");
+    boolean skippedTestMethods = deltaNumTestsFailed < 0 && (deltaNumTestsRun < 0 || deltaNumTestsSkipped > 0);
+
+    return !buildT1Passed && skippedTestMethods;
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public String[] getHeaders() {
+    return HEADERS;
+  }
+
+  @Override
+  public boolean requiresMethods() {
+    return false;
+  }
+
+  @Override
+  public List<Object> detect(BuildPair pair) {
+    String statusT1 = pair.getBuildT1().getStatus();
+    Integer deltaTestsRun = pair.getDeltaTestsRun();
+    Integer deltaTestsFailed = pair.getDeltaTestsFailed();
+    Integer deltaTestsSkipped = pair.getDeltaTestsSkipped();
+    if (!Boolean.TRUE.equals(calculateWarning(statusT1, deltaTestsRun, deltaTestsFailed, deltaTestsSkipped))) {
+      return null;
+    }
+    return Arrays.asList(statusT1, deltaTestsRun, deltaTestsFailed, deltaTestsSkipped);
+  }
+}
@@ -0,0 +1,51 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.detector;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.BasicMethodData;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Detects build pairs that delete a large part of the test methods of T1 at once, which hides
+ * failures as effectively as skipping the tests.
+ */
+public class MassTestDeletionDetector implements SmellDetector {
+
+  public static final String NAME = "mass-test-deletion";
+  private static final String[] HEADERS = {"num_test_methods_t1", "num_deleted_tests", "deleted_share",
+      "num_failed_deleted_tests"};
+  // Both thresholds must be reached, so that neither a few deleted tests of a small project nor a
+  // small share of a large project count as a mass deletion.
+  private static final int MIN_DELETED_TESTS = 10;
+  private static final double MIN_DELETED_SHARE = 0.2;
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public String[] getHeaders() {
+    return HEADERS;
+  }
+
+  @Override
+  public boolean requiresMethods() {
+    return true;
+  }
+
+  @Override
+  public List<Object> detect(BuildPair pair) {
+    int numTestMethodsT1 = pair.getCommitComparison().getNumTestMethodsT1();
+    Set<BasicMethodData> deletedTests = pair.getTestMethodsDeletedInT2();
+    int numDeletedTests = deletedTests.size();
+    if (numDeletedTests < MIN_DELETED_TESTS || numDeletedTests < numTestMethodsT1 * MIN_DELETED_SHARE) {
+      return null;
+    }
+    return Arrays.asList(numTestMethodsT1, numDeletedTests,
+        String.format(Locale.ROOT, "%.4f", (double) numDeletedTests / numTestMethodsT1),
+        pair.findFailedInT1(deletedTests).size());
+  }
+}
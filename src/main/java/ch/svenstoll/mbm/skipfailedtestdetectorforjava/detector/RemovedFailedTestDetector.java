@@ -0,0 +1,40 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.detector;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.StringUtility;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Detects the smell of the tool: a test that failed in T1 is not a test method of T2 anymore,
+ * because it has been deleted, ignored or turned into another method.
+ */
+public class RemovedFailedTestDetector implements SmellDetector {
+
+  public static final String NAME = "removed-failed-test";
+  private static final String[] HEADERS = {"num_removed_failed_tests", "removed_failed_tests"};
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public String[] getHeaders() {
+    return HEADERS;
+  }
+
+  @Override
+  public boolean requiresMethods() {
+    return true;
+  }
+
+  @Override
+  public List<Object> detect(BuildPair pair) {
+    List<String> removedFailedMethods = pair.findFailedInT1(pair.getTestMethodsNotInT2());
+    if (removedFailedMethods.isEmpty()) {
+      return null;
+    }
+    return Arrays.asList(removedFailedMethods.size(), StringUtility.concatStrings(removedFailedMethods, "#"));
+  }
+}
@@ -0,0 +1,41 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.detector;
+
+import java.util.List;
+
+/**
+ * <p>Detects an anti-pattern in a pair of consecutive builds. All detectors are evaluated in the
+ * same pass over the builds, so the methods of a commit are extracted and compared only once no
+ * matter how many detectors are registered. Each detector writes its findings to its own file
+ * {@code Results/Detectors/<name>.csv}.</p>
+ *
+ * <p>Besides the built-in detectors of {@link DetectorRegistry}, further detectors are discovered
+ * with a {@link java.util.ServiceLoader}. Detectors are evaluated by several threads at the same
+ * time and must therefore be thread-safe.</p>
+ */
+public interface SmellDetector {
+
+  /**
+   * @return the unique name of the detector in lower case with hyphens, e.g.
+   *         {@code removed-failed-test}. It is also the name of the output file.
+   */
+  String getName();
+
+  /**
+   * @return the headers of the columns of a finding. The columns that identify the build pair
+   *         are added in front of them.
+   */
+  String[] getHeaders();
+
+  /**
+   * @return true if the detector needs the extracted methods. Such a detector is not evaluated
+   *         for build pairs whose methods have not been extracted successfully.
+   */
+  boolean requiresMethods();
+
+  /**
+   * @param pair The build pair to examine.
+   * @return the values of the columns of a finding in the order of {@link #getHeaders()} or null
+   *         if the anti-pattern has not been found.
+   */
+  List<Object> detect(BuildPair pair);
+}
@@ -0,0 +1,41 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.extractor;
+
+/**
+ * Determines how the repository of a project is made available for the extraction.
+ */
+public enum CloneStrategy {
+
+  /**
+   * Clones all branches including a work tree. Every build is checked out before its methods are
+   * extracted.
+   */
+  FULL,
+
+  /**
+   * Clones all branches into a bare repository. Source files are read directly from the object
+   * database, so no work tree is written.
+   */
+  BARE,
+
+  /**
+   * Creates a bare repository and only fetches the trigger commits of the builds (including their
+   * history), but no other branches, tags or pull request refs.
+   */
+  COMMITS,
+
+  /**
+   * Uses an existing local repository that the URI template points to in place. Nothing is
+   * copied and the repository is only read from. Its source files are read from the object
+   * database, so a work tree of the repository is neither checked out nor cleaned.
+   */
+  MIRROR;
+
+  public static CloneStrategy fromString(String value) {
+    for (CloneStrategy strategy : values()) {
+      if (strategy.name().equalsIgnoreCase(value)) {
+        return strategy;
+      }
+    }
+    throw new IllegalArgumentException("Unknown clone strategy \"" + value + "\".");
+  }
+}
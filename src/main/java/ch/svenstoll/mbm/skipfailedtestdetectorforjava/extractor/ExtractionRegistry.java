@@ -0,0 +1,246 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.extractor;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.BasicClassData;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.BasicMethodData;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.Build;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.MethodTable;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.ProjectCommitKey;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Shares extracted methods between all builds of a project that have the same trigger commit,
+ * e.g. restarted builds or a commit that has been pushed to several branches. The methods of a
+ * commit are only extracted once and handed to every build that references the commit.</p>
+ *
+ * <p>Every use of a commit should be announced with {@link #reference(Build)} before the analysis
+ * starts and be given back with {@link #release(Build)} once the build has been compared. The
+ * extracted methods are kept in a cache whose size is bounded by an estimate of their memory
+ * usage. If the cache is full, methods that no pending build references anymore are evicted
+ * first and the least recently used ones after that. An evicted commit is extracted again if it
+ * is needed later on. The methods are shared and must therefore not be modified after the
+ * extraction. Methods that are stored in a {@link MethodTable} are accounted with the size of the
+ * table.</p>
+ *
+ * <p>The registry can be used by several threads, e.g. by workers that analyze different projects
+ * at the same time. A commit is extracted without holding the lock of the registry, while another
+ * thread that requests the same commit in the meantime waits for that extraction.</p>
+ */
+public class ExtractionRegistry {
+
+  /**
+   * Rough size of a method object and its references apart from its name.
+   */
+  private static final int METHOD_OVERHEAD_BYTES = 96;
+
+  private final MethodExtractor extractor;
+  private final long maxCachedBytes;
+  // In access order, so that the least recently used commit comes first.
+  private final Map<ProjectCommitKey, ExtractionEntry> entriesByCommit = new LinkedHashMap<>(16, 0.75f, true);
+  private long cachedBytes = 0;
+  private long numRequests = 0;
+  private long numExtractions = 0;
+  private long numEvictions = 0;
+
+  /**
+   * @param extractor The extractor for commits that are not cached.
+   * @param maxCachedBytes The estimated memory in bytes the cached methods may use.
+   */
+  public ExtractionRegistry(MethodExtractor extractor, long maxCachedBytes) {
+    this.extractor = extractor;
+    this.maxCachedBytes = maxCachedBytes;
+  }
+
+  /**
+   * Announces that the methods of a build will be needed.
+   *
+   * @param build The build or null.
+   */
+  public synchronized void reference(Build build) {
+    if (build != null) {
+      entriesByCommit.computeIfAbsent(build.getProjectCommitKey(), key -> new ExtractionEntry()).numReferences++;
+    }
+  }
+
+  /**
+   * Sets the methods of a build, extracting them only if they are not cached.
+   *
+   * @param build The build or null.
+   */
+  public void extractMethodsForBuild(Build build) {
+    if (build == null || build.getExtractionSuccessful() != null) {
+      return;
+    }
+
+    ProjectCommitKey key = build.getProjectCommitKey();
+    synchronized (this) {
+      numRequests++;
+      ExtractionEntry entry;
+      while ((entry = entriesByCommit.get(key)) != null && entry.extracting) {
+        try {
+          wait();
+        }
+        catch (InterruptedException e) {
+          // The extraction of the other thread is not awaited, the commit is extracted once more.
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
+      if (entry != null && entry.extractionSuccessful != null) {
+        build.setMethodsByClass(entry.methodsByClass);
+        build.setMethodsHash(entry.methodsHash);
+        build.setMethodTable(entry.methodTable);
+        build.setExtractionSuccessful(entry.extractionSuccessful);
+        return;
+      }
+
+      if (entry == null) {
+        entry = new ExtractionEntry();
+        entriesByCommit.put(key, entry);
+      }
+      entry.extracting = true;
+      numExtractions++;
+    }
+
+    try {
+      extractor.extractMethodsForBuild(build);
+    }
+    finally {
+      synchronized (this) {
+        // The entry may have been released in the meantime if another thread held the last reference.
+        ExtractionEntry entry = entriesByCommit.computeIfAbsent(key, commitKey -> new ExtractionEntry());
+        entry.extracting = false;
+        if (build.getExtractionSuccessful() != null) {
+          entry.methodsByClass = build.getMethodsByClass();
+          entry.methodsHash = build.getMethodsHash();
+          entry.methodTable = build.getMethodTable();
+          entry.extractionSuccessful = build.getExtractionSuccessful();
+          entry.estimatedBytes = build.getMethodTable() != null
+              ? build.getMethodTable().getSizeBytes()
+              : estimateBytes(build.getMethodsByClass());
+          cachedBytes += entry.estimatedBytes;
+          evictIfOverBudget();
+        }
+        notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Gives back a use that has been announced with {@link #reference(Build)}.
+   *
+   * @param build The build or null.
+   */
+  public synchronized void release(Build build) {
+    if (build == null) {
+      return;
+    }
+
+    ProjectCommitKey key = build.getProjectCommitKey();
+    ExtractionEntry entry = entriesByCommit.get(key);
+    if (entry != null && entry.numReferences > 0) {
+      entry.numReferences--;
+      if (entry.numReferences == 0 && entry.extractionSuccessful == null && !entry.extracting) {
+        entriesByCommit.remove(key);
+      }
+    }
+  }
+
+  /**
+   * The estimate is the number of methods times their average name length in bytes plus a fixed
+   * overhead per method.
+   */
+  private long estimateBytes(Map<BasicClassData, List<BasicMethodData>> methodsByClass) {
+    if (methodsByClass == null) {
+      return 0;
+    }
+
+    long numMethods = 0;
+    long totalNameLength = 0;
+    for (List<BasicMethodData> methods : methodsByClass.values()) {
+      for (BasicMethodData method : methods) {
+        numMethods++;
+        totalNameLength += method.getQualifiedName() != null ? method.getQualifiedName().length() : 0;
+      }
+    }
+    long averageNameLength = numMethods > 0 ? totalNameLength / numMethods : 0;
+    return numMethods * (averageNameLength * Character.BYTES + METHOD_OVERHEAD_BYTES);
+  }
+
+  private void evictIfOverBudget() {
+    evict(false);
+    evict(true);
+  }
+
+  private void evict(boolean referencedEntries) {
+    Iterator<ExtractionEntry> iterator = entriesByCommit.values().iterator();
+    while (cachedBytes > maxCachedBytes && iterator.hasNext()) {
+      ExtractionEntry entry = iterator.next();
+      if (entry.extractionSuccessful == null || (entry.numReferences > 0) != referencedEntries) {
+        continue;
+      }
+
+      cachedBytes -= entry.estimatedBytes;
+      numEvictions++;
+      if (entry.numReferences > 0) {
+        entry.methodsByClass = null;
+        entry.methodsHash = null;
+        entry.methodTable = null;
+        entry.extractionSuccessful = null;
+        entry.estimatedBytes = 0;
+      }
+      else {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * @return the number of builds whose methods have been requested.
+   */
+  public synchronized long getNumRequests() {
+    return numRequests;
+  }
+
+  /**
+   * @return the number of requests that have been served from the cache.
+   */
+  public synchronized long getNumHits() {
+    return numRequests - numExtractions;
+  }
+
+  /**
+   * @return the number of requests that required an extraction.
+   */
+  public synchronized long getNumExtractions() {
+    return numExtractions;
+  }
+
+  /**
+   * @return the number of extracted commits that have been evicted from the cache.
+   */
+  public synchronized long getNumEvictions() {
+    return numEvictions;
+  }
+
+  /**
+   * @return the estimated memory in bytes used by the cached methods.
+   */
+  public synchronized long getCachedBytes() {
+    return cachedBytes;
+  }
+
+  private static final class ExtractionEntry {
+
+    private int numReferences = 0;
+    private boolean extracting = false;
+    private Map<BasicClassData, List<BasicMethodData>> methodsByClass;
+    private Long methodsHash;
+    private MethodTable methodTable;
+    private Boolean extractionSuccessful;
+    private long estimatedBytes = 0;
+  }
+}
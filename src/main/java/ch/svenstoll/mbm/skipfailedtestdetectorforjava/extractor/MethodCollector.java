@@ -0,0 +1,14 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.extractor;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.BasicClassData;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.BasicMethodData;
+
+/**
+ * Receives the methods that the {@link MethodVisitor} extracts. The files of a commit are parsed
+ * concurrently, so methods may be added from several threads.
+ */
+@FunctionalInterface
+public interface MethodCollector {
+
+  void addMethod(BasicClassData classData, BasicMethodData methodData);
+}
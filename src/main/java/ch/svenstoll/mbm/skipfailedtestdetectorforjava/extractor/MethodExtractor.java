@@ -3,6 +3,12 @@ package ch.svenstoll.mbm.skipfailedtestdetectorforjava.extractor;
 import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.BasicClassData;
 import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.BasicMethodData;
 import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.Build;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.DetectorConfiguration;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.MethodTable;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.scheduler.ConcurrencyLimit;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.scheduler.WorkExecutors;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.FileUtility;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.HashUtility;
 import com.github.javaparser.JavaParser;
 import com.github.javaparser.ParseProblemException;
 import com.github.javaparser.TokenMgrException;
@@ -12,39 +18,139 @@ import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.ResetCommand;
 import org.eclipse.jgit.api.Status;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.WindowCacheStats;
+import org.eclipse.jgit.treewalk.TreeWalk;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
-import java.io.FileInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.BooleanUtility.nvl;
 
-public class MethodExtractor {
+public class MethodExtractor implements Closeable {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(MethodExtractor.class);
+  // Bounds the file contents that have been read but not parsed yet.
+  private static final int MAX_PENDING_FILES = 1024;
 
-  private final String outputFolderPath;
+  private final RepositoryCloner repositoryCloner;
+  private final RepositoryStore repositoryStore;
+  private final RepositoryPrefetcher repositoryPrefetcher;
+  private final AtomicLong numExtractions = new AtomicLong();
+  private final AtomicLong extractionNanos = new AtomicLong();
+  private final boolean discoverSourceRoots;
+  private final MethodStorage methodStorage;
+  private final SourceRootDiscovery sourceRootDiscovery = new SourceRootDiscovery();
+  private final AtomicLong numScopedFiles = new AtomicLong();
+  private final AtomicLong numAvoidedScopeFiles = new AtomicLong();
+  private final AtomicLong numParsedFiles = new AtomicLong();
+  private final WorkExecutors workExecutors;
+  private final ConcurrencyLimit pendingFiles = new ConcurrencyLimit("pending files",
+      Math.min(MAX_PENDING_FILES, Runtime.getRuntime().availableProcessors()), MAX_PENDING_FILES);
 
-  public MethodExtractor(String outputFolderPath) {
-    this.outputFolderPath = outputFolderPath;
+  public MethodExtractor(DetectorConfiguration configuration) {
+    this(configuration, WorkExecutors.create(configuration));
+  }
+
+  /**
+   * @param configuration The configuration of the run.
+   * @param workExecutors The executors that read and parse the files. They are shut down when the
+   *                      extractor is closed.
+   */
+  public MethodExtractor(DetectorConfiguration configuration, WorkExecutors workExecutors) {
+    WindowCacheInstaller.install(configuration.getGitCacheMemory());
+    this.workExecutors = workExecutors;
+    this.repositoryCloner = new RepositoryCloner(configuration);
+    this.repositoryStore = new RepositoryStore(repositoryCloner, configuration);
+    this.repositoryPrefetcher = new RepositoryPrefetcher(repositoryCloner, repositoryStore, configuration);
+    this.discoverSourceRoots = configuration.isDiscoverSourceRoots();
+    this.methodStorage = configuration.getMethodStorage();
+  }
+
+  /**
+   * Makes the builds known before the extraction starts, so that their repositories can be
+   * prepared more efficiently.
+   *
+   * @param builds The sorted builds that will be analyzed.
+   */
+  public void registerBuilds(List<Build> builds) {
+    repositoryStore.registerProjects(builds.stream()
+        .map(build -> build.getProjectBranchKey().getProjectName())
+        .collect(Collectors.toCollection(LinkedHashSet::new)));
+    repositoryCloner.registerBuilds(builds);
+    repositoryPrefetcher.registerBuilds(builds);
+  }
+
+  /**
+   * Marks all builds of a project as analyzed, so that its repository can be released.
+   *
+   * @param projectName The project.
+   */
+  public void finishProject(String projectName) {
+    repositoryPrefetcher.finishProject(projectName);
+  }
+
+  /**
+   * @param projectName The project.
+   * @return true if the repository of the project could not be cloned or opened.
+   */
+  public boolean hasRepositoryFailed(String projectName) {
+    return repositoryPrefetcher.hasFailed(projectName);
+  }
+
+  /**
+   * @return the limit of the files that have been submitted for reading and parsing but not
+   *         parsed yet, which may be lowered while the heap is under pressure.
+   */
+  public ConcurrencyLimit getPendingFileLimit() {
+    return pendingFiles;
+  }
+
+  /**
+   * @param projectName The project.
+   * @return the repository of the project.
+   * @throws IOException if the repository cannot be opened or cloned.
+   * @throws GitAPIException if the repository cannot be cloned.
+   */
+  public Git getRepository(String projectName) throws IOException, GitAPIException {
+    return repositoryPrefetcher.getRepository(projectName);
   }
 
   /**
    * All methods contained in Java files where the word {@code test} (case ignored) occurs in the
-   * file path will be extracted.
+   * file path will be extracted. If source root discovery is enabled, only the Java files below the
+   * test source roots declared in the build files of the commit are extracted instead.
    *
    * @param build
    *     The build for which methods will be extracted.
@@ -55,97 +161,369 @@ public class MethodExtractor {
     }
 
     String projectName = build.getProjectBranchKey().getProjectName();
+    if (repositoryPrefetcher.hasFailed(projectName)) {
+      build.setExtractionSuccessful(false);
+      return;
+    }
+
     Git git;
     try {
-      git = cloneProjectRepository(projectName);
+      git = repositoryPrefetcher.getRepository(projectName);
     }
     catch (GitAPIException | IOException e) {
-      LOGGER.error("Failed to find or clone GitHub repository for {}.", projectName, e);
+      // The prefetcher has already logged the cause.
       build.setExtractionSuccessful(false);
       return;
     }
 
+    long startTime = System.nanoTime();
     extractMethodsForBuildInternal(git, build);
+    extractionNanos.addAndGet(System.nanoTime() - startTime);
+    numExtractions.incrementAndGet();
   }
 
-  private Git cloneProjectRepository(String projectName) throws GitAPIException, IOException {
-    String projectPath = getProjectPath(projectName);
-    if (!Files.exists(Paths.get(projectPath))) {
-      LOGGER.info("Cloning repository for {}.", projectName);
-      return Git.cloneRepository()
-          .setURI(getGitURI(projectName))
-          .setDirectory(new File(projectPath))
-          .call();
+  private void extractMethodsForBuildInternal(Git git, Build build) {
+    try {
+      LOGGER.info("Extracting methods for {}.", build);
+      if (methodStorage == MethodStorage.HEAP) {
+        final Map<BasicClassData, List<BasicMethodData>> methodsByClass = new ConcurrentHashMap<>();
+        extractMethods(git, build, (classData, methodData) -> addMethod(methodsByClass, classData, methodData));
+        mergeDuplicateMethods(methodsByClass);
+        checkForExtendedTestMethods(methodsByClass);
+        build.setMethodsHash(calculateMethodsHashes(methodsByClass));
+        build.setMethodsByClass(methodsByClass);
+      }
+      else {
+        MethodTable.Builder tableBuilder = new MethodTable.Builder();
+        extractMethods(git, build, tableBuilder::addMethod);
+        tableBuilder.markExtendedTestMethods(new TypeIndex(tableBuilder.getClasses())::resolveParentClass);
+        build.setMethodsHash(tableBuilder.calculateMethodsHashes());
+        build.setMethodTable(createMethodTable(build, tableBuilder));
+      }
+      build.setExtractionSuccessful(true);
     }
-    else {
-      return Git.open(new File(projectPath));
+    catch (Exception e) {
+      LOGGER.error("Error during method extraction for {}.", build, e);
+      build.setExtractionSuccessful(false);
     }
   }
 
-  private String getProjectPath(String projectName) {
-    String projectPath = projectName.replace("/", "#");
-    return outputFolderPath + "/Repositories/" + projectPath;
+  private void extractMethods(Git git, Build build, MethodCollector methodCollector)
+      throws GitAPIException, IOException, InterruptedException {
+    List<CompletableFuture<Void>> extractions = new ArrayList<>();
+    try {
+      if (git.getRepository().isBare()) {
+        submitExtractionsFromObjectDatabase(git, build, extractions, methodCollector);
+      }
+      else {
+        submitExtractionsFromWorkTree(git, build, extractions, methodCollector);
+      }
+    }
+    finally {
+      // The files must not be read any longer once the next commit is checked out.
+      awaitExtractions(extractions);
+    }
   }
 
-  private String getGitURI(String projectName) {
-    return "https://github.com/" + projectName + ".git";
+  private static void addMethod(Map<BasicClassData, List<BasicMethodData>> methodsByClass, BasicClassData classData,
+                                BasicMethodData methodData) {
+    synchronized (methodsByClass) {
+      methodsByClass.computeIfAbsent(classData, key -> new ArrayList<>()).add(methodData);
+    }
   }
 
-  private void extractMethodsForBuildInternal(Git git, Build build) {
+  /**
+   * Stores the methods in a table of the configured storage. If its buffer cannot be allocated,
+   * the table is created on the heap, so that all builds of the run can be compared with a merge
+   * join.
+   */
+  private MethodTable createMethodTable(Build build, MethodTable.Builder tableBuilder) throws IOException {
     try {
-      LOGGER.info("Extracting methods for {}.", build);
-      // There are cases where files are left behind after a checkout. The working directory must be
-      // in a clean state so that checkout will not fail.
-      Status status = git.status().call();
-      if (status.hasUncommittedChanges() || !status.isClean()) {
-        git.gc();
-        git.clean().setForce(true).call();
-        git.reset().setMode(ResetCommand.ResetType.HARD).call();
-        git.stashCreate().setIncludeUntracked(true).call();
+      return tableBuilder.create(methodStorage::allocate);
+    }
+    catch (IOException e) {
+      LOGGER.warn("Could not store the methods of {} in a table of the configured storage. They are stored in a "
+          + "table on the heap.", build, e);
+    }
+    return tableBuilder.create(ByteBuffer::allocate);
+  }
+
+  /**
+   * Merges the methods of a class that have the same qualified name with the same rule as the
+   * method tables, so that the storages extract the same methods.
+   */
+  private void mergeDuplicateMethods(Map<BasicClassData, List<BasicMethodData>> methodsByClass) {
+    for (Map.Entry<BasicClassData, List<BasicMethodData>> entry : methodsByClass.entrySet()) {
+      Map<String, BasicMethodData> methodsByName = new LinkedHashMap<>();
+      for (BasicMethodData method : entry.getValue()) {
+        BasicMethodData mergedMethod = methodsByName.putIfAbsent(method.getQualifiedName(), method);
+        if (mergedMethod != null) {
+          mergedMethod.mergeDuplicate(method);
+        }
       }
+      if (methodsByName.size() < entry.getValue().size()) {
+        entry.setValue(new ArrayList<>(methodsByName.values()));
+      }
+    }
+  }
 
-      git.checkout().setName(build.getTriggerCommit()).call();
+  private void submitExtractionsFromWorkTree(Git git, Build build, List<CompletableFuture<Void>> extractions,
+                                             MethodCollector methodCollector)
+      throws GitAPIException, IOException, InterruptedException {
+    // There are cases where files are left behind after a checkout. The working directory must be
+    // in a clean state so that checkout will not fail.
+    Status status = git.status().call();
+    if (status.hasUncommittedChanges() || !status.isClean()) {
+      git.gc();
+      git.clean().setForce(true).call();
+      git.reset().setMode(ResetCommand.ResetType.HARD).call();
+      git.stashCreate().setIncludeUntracked(true).call();
+    }
 
-      int availableProcessors = Runtime.getRuntime().availableProcessors();
-      final ExecutorService executorService = Executors.newFixedThreadPool(availableProcessors);
-      final Map<BasicClassData, List<BasicMethodData>> methodsByClass = new ConcurrentHashMap<>();
+    git.checkout().setName(build.getTriggerCommit()).call();
 
-      Files.walk(Paths.get(git.getRepository().getWorkTree().toString()))
-          .filter(path -> path.toString().toLowerCase().contains("test"))
+    Path workTreePath = Paths.get(git.getRepository().getWorkTree().toString());
+    ExtractionScope scope = createExtractionScope(path -> {
+      Path filePath = workTreePath.resolve(path);
+      return Files.isRegularFile(filePath) ? new String(Files.readAllBytes(filePath), StandardCharsets.UTF_8) : null;
+    });
+    List<Path> paths;
+    try (Stream<Path> files = Files.walk(workTreePath)) {
+      paths = files
           .filter(path -> path.getFileName().toString().toLowerCase().endsWith(".java"))
-          .forEach(path -> executorService.execute(() -> extractMethodsFromFile(path, methodsByClass)));
-      executorService.shutdown();
-      executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+          .filter(path -> scope.includes(path.toString(), workTreePath.relativize(path).toString().replace('\\', '/')))
+          .collect(Collectors.toList());
+    }
+    for (Path path : paths) {
+      submitExtraction(path.toString(), () -> Files.readAllBytes(path), extractions, methodCollector);
+    }
+    scope.logSummary(build);
+  }
 
-      checkForExtendedTestMethods(methodsByClass);
-      build.setMethodsByClass(methodsByClass);
-      build.setExtractionSuccessful(true);
+  /**
+   * Reads the Java files of the trigger commit directly from the object database of a bare
+   * repository. The same paths as for a work tree are considered.
+   */
+  private void submitExtractionsFromObjectDatabase(Git git, Build build, List<CompletableFuture<Void>> extractions,
+                                                   MethodCollector methodCollector)
+      throws GitAPIException, IOException, InterruptedException {
+    repositoryCloner.ensureCommitAvailable(git, build.getTriggerCommit());
+
+    Repository repository = git.getRepository();
+    ObjectId commitId = repository.resolve(build.getTriggerCommit() + "^{commit}");
+    if (commitId == null) {
+      throw new IOException("Commit " + build.getTriggerCommit() + " is not available.");
     }
-    catch (Exception e) {
-      LOGGER.error("Error during method extraction for {}.", build, e);
-      build.setExtractionSuccessful(false);
+
+    try (RevWalk revWalk = new RevWalk(repository);
+         TreeWalk treeWalk = new TreeWalk(repository)) {
+      RevTree tree = revWalk.parseCommit(commitId).getTree();
+      ExtractionScope scope = createExtractionScope(path -> {
+        try (TreeWalk fileWalk = TreeWalk.forPath(repository, path, tree)) {
+          return fileWalk != null && (fileWalk.getRawMode(0) & FileMode.TYPE_MASK) == FileMode.TYPE_FILE
+              ? new String(fileWalk.getObjectReader().open(fileWalk.getObjectId(0)).getBytes(), StandardCharsets.UTF_8)
+              : null;
+        }
+      });
+      treeWalk.addTree(tree);
+      treeWalk.setRecursive(true);
+      while (treeWalk.next()) {
+        String path = treeWalk.getPathString();
+        if (path.toLowerCase().endsWith(".java") && (treeWalk.getRawMode(0) & FileMode.TYPE_MASK) == FileMode.TYPE_FILE
+            && scope.includes(path, path)) {
+          ObjectId objectId = treeWalk.getObjectId(0);
+          submitExtraction(path, () -> {
+            // Object readers are not thread-safe, so each read opens its own.
+            try (ObjectReader objectReader = repository.newObjectReader()) {
+              return objectReader.open(objectId).getBytes();
+            }
+          }, extractions, methodCollector);
+        }
+      }
+      scope.logSummary(build);
+    }
+  }
+
+  private ExtractionScope createExtractionScope(SourceRootDiscovery.BuildFileReader reader) {
+    if (!discoverSourceRoots) {
+      return new ExtractionScope(Collections.emptyList(), false);
+    }
+    return new ExtractionScope(sourceRootDiscovery.discoverTestSourceRoots(reader), true);
+  }
+
+  /**
+   * Reads a file on the I/O executor and parses it on the CPU executor. Waits while too many files
+   * are pending, so that the contents of a large commit are not held in memory all at once.
+   */
+  private void submitExtraction(String path, SourceReader sourceReader, List<CompletableFuture<Void>> extractions,
+                                MethodCollector methodCollector)
+      throws InterruptedException {
+    pendingFiles.acquire();
+    CompletableFuture<Void> extraction;
+    try {
+      extraction = CompletableFuture
+          .supplyAsync(() -> readSource(path, sourceReader), workExecutors.getIoExecutor())
+          .thenAcceptAsync(content -> extractMethodsFromSource(path, new ByteArrayInputStream(content), methodCollector),
+              workExecutors.getCpuExecutor());
+    }
+    catch (RuntimeException e) {
+      pendingFiles.release();
+      throw e;
+    }
+    extraction.whenComplete((result, e) -> pendingFiles.release());
+    extractions.add(extraction);
+  }
+
+  private byte[] readSource(String path, SourceReader sourceReader) {
+    try {
+      return sourceReader.read();
+    }
+    catch (IOException e) {
+      throw new RuntimeException("I/O exception while trying to extract methods for \"" + path + "\".", e);
     }
   }
 
-  private void extractMethodsFromFile(Path path, final Map<BasicClassData, List<BasicMethodData>> methodsByClass) {
-    try (FileInputStream inputStream = new FileInputStream(path.toFile())){
+  private void awaitExtractions(List<CompletableFuture<Void>> extractions) {
+    for (CompletableFuture<Void> extraction : extractions) {
+      try {
+        extraction.join();
+      }
+      catch (CompletionException | CancellationException e) {
+        LOGGER.error("Could not extract the methods of a file.", e.getCause() != null ? e.getCause() : e);
+      }
+    }
+  }
+
+  private void extractMethodsFromSource(String path, InputStream inputStream, MethodCollector methodCollector) {
+    numParsedFiles.incrementAndGet();
+    try {
       CompilationUnit compilationUnit = JavaParser.parse(inputStream);
       String packageName = "";
       if (compilationUnit.getPackageDeclaration().isPresent()) {
         packageName = compilationUnit.getPackageDeclaration().get().getNameAsString();
       }
 
-      MethodVisitorArgument arg = new MethodVisitorArgument(packageName, methodsByClass, hasJUnitImports(compilationUnit));
+      Map<String, String> importedTypesBySimpleName = new HashMap<>();
+      List<String> onDemandImports = new ArrayList<>();
+      for (ImportDeclaration importDeclaration : compilationUnit.getImports()) {
+        if (importDeclaration.isAsterisk()) {
+          onDemandImports.add(importDeclaration.getNameAsString());
+        }
+        else if (!importDeclaration.isStatic()) {
+          importedTypesBySimpleName.put(importDeclaration.getName().getIdentifier(), importDeclaration.getNameAsString());
+        }
+      }
+
+      MethodVisitorArgument arg = new MethodVisitorArgument(packageName, methodCollector, hasJUnitImports(compilationUnit),
+          importedTypesBySimpleName, onDemandImports);
       compilationUnit.accept(new MethodVisitor(), arg);
     }
     catch (TokenMgrException | ParseProblemException e) {
       // Because there are cases where projects keep invalid Java files for testing purposes (e.g.
       // SonarQube, Checkstyle or Qulice), these exceptions are simply caught and logged, but will
       // not result in a failed build analysis.
-      LOGGER.warn("Could not parse \"{}\".", path.toString());
+      LOGGER.warn("Could not parse \"{}\".", path);
     }
-    catch (IOException e) {
-      throw new RuntimeException("I/O exception while trying to extract methods for \"" + path.toString() + "\".", e);
+  }
+
+  @Override
+  public void close() {
+    logStatistics();
+    repositoryPrefetcher.close();
+    repositoryStore.close();
+    workExecutors.close();
+  }
+
+  /**
+   * @return the number of Java files that have been parsed.
+   */
+  public long getNumParsedFiles() {
+    return numParsedFiles.get();
+  }
+
+  @FunctionalInterface
+  private interface SourceReader {
+
+    byte[] read() throws IOException;
+  }
+
+  /**
+   * Decides which Java files of a commit are parsed. Without test source roots, all files whose
+   * path contains {@code test} are parsed. Otherwise, only the files below the test source roots
+   * are parsed, and the files that would have been parsed in addition are counted.
+   */
+  private final class ExtractionScope {
+
+    private final List<String> testSourceRoots;
+    private final boolean discovery;
+    private int numParsedFiles = 0;
+    private int numAvoidedFiles = 0;
+
+    private ExtractionScope(List<String> testSourceRoots, boolean discovery) {
+      this.testSourceRoots = testSourceRoots;
+      this.discovery = discovery;
+    }
+
+    /**
+     * @param heuristicPath The path that is checked for {@code test}.
+     * @param relativePath The path relative to the root of the repository, separated by {@code /}.
+     * @return whether the Java file is parsed.
+     */
+    private boolean includes(String heuristicPath, String relativePath) {
+      boolean matchesHeuristic = heuristicPath.toLowerCase().contains("test");
+      boolean included = testSourceRoots.isEmpty()
+          ? matchesHeuristic
+          : testSourceRoots.stream().anyMatch(relativePath::startsWith);
+      if (included) {
+        numParsedFiles++;
+      }
+      else if (matchesHeuristic) {
+        numAvoidedFiles++;
+      }
+      return included;
+    }
+
+    private void logSummary(Build build) {
+      if (!discovery) {
+        return;
+      }
+
+      if (testSourceRoots.isEmpty()) {
+        LOGGER.info("No test source roots could be derived for {}. Parsing {} files with \"test\" in their path.",
+            build, numParsedFiles);
+      }
+      else {
+        LOGGER.info("Parsing {} files in the test source roots {} for {}, which avoids {} files with \"test\" in "
+            + "their path.", numParsedFiles, testSourceRoots, build, numAvoidedFiles);
+      }
+      numScopedFiles.addAndGet(numParsedFiles);
+      numAvoidedScopeFiles.addAndGet(numAvoidedFiles);
+    }
+  }
+
+  /**
+   * JGit does not count hits of its window cache, so only the number of open pack files and the
+   * bytes they occupy in the cache are reported besides the reuse of repository handles.
+   */
+  private void logStatistics() {
+    long extractions = numExtractions.get();
+    long requests = repositoryPrefetcher.getNumRepositoryRequests();
+    long reusedHandles = Math.max(0, requests - repositoryPrefetcher.getNumRepositoryOpens());
+    LOGGER.info("Extracted methods for {} builds in {} ms ({} ms per build). Open repository handles were "
+            + "reused for {} of {} requests ({}%). The JGit window cache holds {} open pack files with {}.",
+        extractions,
+        TimeUnit.NANOSECONDS.toMillis(extractionNanos.get()),
+        extractions > 0 ? TimeUnit.NANOSECONDS.toMillis(extractionNanos.get() / extractions) : 0,
+        reusedHandles,
+        requests,
+        requests > 0 ? String.format("%.1f", 100.0 * reusedHandles / requests) : "0.0",
+        WindowCacheStats.getOpenFiles(),
+        FileUtility.formatBytes(WindowCacheStats.getOpenBytes()));
+    LOGGER.info("Parsed {} files, which were read with the {} backend.", numParsedFiles.get(),
+        workExecutors.getBackend().name().replace('_', '-').toLowerCase());
+    if (discoverSourceRoots) {
+      LOGGER.info("The discovered test source roots avoided parsing {} files. {} files were parsed.",
+          numAvoidedScopeFiles.get(), numScopedFiles.get());
     }
   }
 
@@ -164,44 +542,42 @@ public class MethodExtractor {
   }
 
   private void checkForExtendedTestMethods(Map<BasicClassData, List<BasicMethodData>> methodsByClass) {
-    Map<String, List<BasicClassData>> classDataBySimpleClassName = generateClassDataBySimpleClassNameMap(methodsByClass);
+    TypeIndex typeIndex = new TypeIndex(methodsByClass.keySet());
     for (List<BasicMethodData> methods : methodsByClass.values()) {
       for (BasicMethodData method : methods) {
         if (!nvl(method.isTestMethod()) && !nvl(method.isAbstractMethod()) && nvl(method.isChildMethod())) {
-          findExtendedTestMethods(method, classDataBySimpleClassName, methodsByClass);
+          findExtendedTestMethods(method, typeIndex, methodsByClass);
         }
       }
     }
   }
 
-  private void findExtendedTestMethods(BasicMethodData method,
-                                       Map<String, List<BasicClassData>> classDataBySimpleClassName,
+  /**
+   * Follows the resolved parent classes of the class of a method and collects the methods with
+   * the same signature. If one of them is a test method, the methods that override it are test
+   * methods as well.
+   */
+  private void findExtendedTestMethods(BasicMethodData method, TypeIndex typeIndex,
                                        Map<BasicClassData, List<BasicMethodData>> methodsByClass) {
     List<BasicMethodData> methodChain = new ArrayList<>();
     methodChain.add(method);
 
-    String simpleParentClassName = method.getBasicClassData().getParentClass();
-    List<BasicClassData> potentialParentClasses = classDataBySimpleClassName.get(simpleParentClassName);
-    while (potentialParentClasses != null && potentialParentClasses.size() > 0) {
-      List<BasicClassData> newPotentialParentClasses = null;
-      parentClassLoop: for (BasicClassData potentialParentClass : potentialParentClasses) {
-        List<BasicMethodData> potentialParentClassMethods = methodsByClass.get(potentialParentClass);
-        for (BasicMethodData potentialParentClassMethod : potentialParentClassMethods) {
-          if (method.getSignature().equals(potentialParentClassMethod.getSignature())) {
-            methodChain.add(potentialParentClassMethod);
-            newPotentialParentClasses = classDataBySimpleClassName.get(potentialParentClass.getParentClass());
-            break parentClassLoop;
-          }
-        }
+    Set<BasicClassData> visitedClasses = new HashSet<>();
+    visitedClasses.add(method.getBasicClassData());
+    BasicClassData parentClass = typeIndex.resolveParentClass(method.getBasicClassData());
+    while (parentClass != null) {
+      if (!visitedClasses.add(parentClass)) {
+        LOGGER.info("Loop detected while searching for parent classes of: {}", method.getBasicClassData());
+        break;
       }
 
-      if (newPotentialParentClasses != null && newPotentialParentClasses.equals(potentialParentClasses)) {
-        LOGGER.info("Loop detected while searching for potential parent classes for: {}", newPotentialParentClasses);
-        potentialParentClasses = null;
-      }
-      else {
-        potentialParentClasses = newPotentialParentClasses;
+      for (BasicMethodData parentClassMethod : methodsByClass.get(parentClass)) {
+        if (method.getSignature().equals(parentClassMethod.getSignature())) {
+          methodChain.add(parentClassMethod);
+          break;
+        }
       }
+      parentClass = typeIndex.resolveParentClass(parentClass);
     }
 
     boolean testMethodEncountered = false;
@@ -215,24 +591,21 @@ public class MethodExtractor {
     }
   }
 
-  private Map<String, List<BasicClassData>> generateClassDataBySimpleClassNameMap(Map<BasicClassData, List<BasicMethodData>> methodsByClass) {
-    Map<String, List<BasicClassData>> classDataBySimpleClassName = new HashMap<>();
-
-    for (BasicClassData classData : methodsByClass.keySet()) {
-      if (classData.getSimpleName() == null) {
-        continue;
-      }
-      List<BasicClassData> classes = classDataBySimpleClassName.get(classData.getSimpleName());
-      if (classes == null) {
-        classes = new ArrayList<>();
-        classes.add(classData);
-        classDataBySimpleClassName.put(classData.getSimpleName(), classes);
-      }
-      else {
-        classes.add(classData);
+  /**
+   * Sets the methods hash of every class and returns their sum. Adding up the hashes makes them
+   * independent of the order in which the files have been parsed.
+   */
+  private long calculateMethodsHashes(Map<BasicClassData, List<BasicMethodData>> methodsByClass) {
+    long rootHash = 0;
+    for (Map.Entry<BasicClassData, List<BasicMethodData>> entry : methodsByClass.entrySet()) {
+      long classHash = 0;
+      for (BasicMethodData method : entry.getValue()) {
+        classHash += HashUtility.hashMethod(method.getQualifiedName(), nvl(method.isTestMethod()),
+            nvl(method.isIgnoredMethod()));
       }
+      entry.getKey().setMethodsHash(classHash);
+      rootHash += classHash;
     }
-
-    return classDataBySimpleClassName;
+    return rootHash;
   }
 }
@@ -0,0 +1,72 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.extractor;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.MethodTable;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Determines where the methods extracted for a commit are kept until its builds have been
+ * compared.
+ */
+public enum MethodStorage {
+
+  /**
+   * Keeps an object per class and method on the heap.
+   */
+  HEAP,
+
+  /**
+   * Writes the methods into a {@link MethodTable} in a direct buffer outside of the heap.
+   */
+  DIRECT,
+
+  /**
+   * Writes the methods into a {@link MethodTable} in a memory-mapped temporary file, so that the
+   * operating system can page it out.
+   */
+  MAPPED;
+
+  /**
+   * @param capacity The size of the buffer in bytes.
+   * @return a buffer for a {@link MethodTable}.
+   * @throws IOException if the temporary file cannot be mapped.
+   */
+  public ByteBuffer allocate(int capacity) throws IOException {
+    switch (this) {
+      case DIRECT:
+        return ByteBuffer.allocateDirect(capacity);
+      case MAPPED:
+        return map(capacity);
+      default:
+        return ByteBuffer.allocate(capacity);
+    }
+  }
+
+  private ByteBuffer map(int capacity) throws IOException {
+    Path path = Files.createTempFile("method-table", ".bin");
+    try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+      return file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+    finally {
+      // The mapping stays valid until the buffer is garbage collected. On systems that do not
+      // allow to delete a mapped file, it is deleted on exit instead.
+      if (!path.toFile().delete()) {
+        path.toFile().deleteOnExit();
+      }
+    }
+  }
+
+  public static MethodStorage fromString(String value) {
+    for (MethodStorage storage : values()) {
+      if (storage.name().replace('_', '-').equalsIgnoreCase(value)) {
+        return storage;
+      }
+    }
+    throw new IllegalArgumentException("Unknown method storage \"" + value + "\".");
+  }
+}
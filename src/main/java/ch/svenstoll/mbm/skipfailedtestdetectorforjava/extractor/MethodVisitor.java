@@ -21,7 +21,7 @@ public class MethodVisitor extends VoidVisitorAdapter<MethodVisitorArgument> {
       return;
     }
 
-    BasicClassData classData = calculateBasicClassData(arg.getPackageName(), declaration.getParentNode().get());
+    BasicClassData classData = calculateBasicClassData(arg, declaration.getParentNode().get());
     String methodSignature = declaration.getSignature().asString();
     String qualifiedMethodName = classData.getQualifiedName() + "." + methodSignature;
 
@@ -30,32 +30,22 @@ public class MethodVisitor extends VoidVisitorAdapter<MethodVisitorArgument> {
     methodData.setIsChildMethod(isChildMethod(declaration));
     methodData.setIsTestMethod(isTestMethod(declaration, arg.hasJUnitImports()));
     methodData.setIsAbstract(declaration.isAbstract());
+    methodData.setIsIgnoredMethod(isIgnoredMethod(declaration));
 
-    final Map<BasicClassData, List<BasicMethodData>> methodsByClass = arg.getMethodsByClass();
-    addBasicMethodData(methodsByClass, classData, methodData);
+    arg.getMethodCollector().addMethod(classData, methodData);
 
     super.visit(declaration, arg);
   }
 
-  private synchronized void addBasicMethodData(
-      Map<BasicClassData, List<BasicMethodData>> methodsByClass,
-      BasicClassData classData,
-      BasicMethodData methodData) {
-    List<BasicMethodData> methods = methodsByClass.get(classData);
-    if (methods == null) {
-      methods = new ArrayList<>();
-      methods.add(methodData);
-      methodsByClass.put(classData, methods);
-    }
-    else {
-      methods.add(methodData);
-    }
-  }
-
   private boolean isChildMethod(MethodDeclaration declaration) {
     return declaration.getAnnotationByName("Override").isPresent();
   }
 
+  private boolean isIgnoredMethod(MethodDeclaration declaration) {
+    return declaration.getAnnotationByName("Ignore").isPresent()
+        || declaration.getAnnotationByName("Disabled").isPresent();
+  }
+
   private boolean isTestMethod(MethodDeclaration method, boolean hasJUnitImports) {
     if (method.getAnnotationByName("Ignore").isPresent()) {
       return false;
@@ -69,11 +59,12 @@ public class MethodVisitor extends VoidVisitorAdapter<MethodVisitorArgument> {
     return isJUnit3TestMethod || isJUnit4TestMethod || isJUnit5TestMethod;
   }
 
-  private BasicClassData calculateBasicClassData(String packageName, Node node) {
+  private BasicClassData calculateBasicClassData(MethodVisitorArgument arg, Node node) {
     if (node == null) {
       throw new IllegalArgumentException();
     }
 
+    String packageName = arg.getPackageName();
     Node currentNode = node;
     String simpleClassName = getSimpleClassName(node);
     String parentClassName = getParentClassName(node);
@@ -104,9 +95,54 @@ public class MethodVisitor extends VoidVisitorAdapter<MethodVisitorArgument> {
 
     BasicClassData classData = new BasicClassData(qualifiedClassName.toString(), simpleClassName);
     classData.setParentClass(parentClassName);
+    if (node instanceof ClassOrInterfaceDeclaration) {
+      NodeList<ClassOrInterfaceType> extendedTypes = ((ClassOrInterfaceDeclaration) node).getExtendedTypes();
+      if (extendedTypes.isNonEmpty()) {
+        classData.setParentClassCandidates(
+            calculateParentClassCandidates(extendedTypes.get(0), qualifiedClassName.toString(), arg));
+      }
+    }
     return classData;
   }
 
+  /**
+   * Lists the qualified names an extended type may refer to in the order of Java's scoping rules:
+   * member types of the class and its enclosing classes, single-type imports, the own package and
+   * imports on demand. A name that is written in qualified form may also be complete already.
+   */
+  private List<String> calculateParentClassCandidates(ClassOrInterfaceType extendedType, String qualifiedClassName,
+                                                      MethodVisitorArgument arg) {
+    Deque<String> nameSegments = new ArrayDeque<>();
+    ClassOrInterfaceType currentType = extendedType;
+    while (currentType != null) {
+      nameSegments.addFirst(currentType.getName().getIdentifier());
+      currentType = currentType.getScope().orElse(null);
+    }
+    String writtenName = String.join(".", nameSegments);
+    String firstSegment = nameSegments.getFirst();
+    String remainingSegments = writtenName.substring(firstSegment.length());
+
+    Set<String> candidates = new LinkedHashSet<>();
+    String packagePrefix = StringUtility.isNullOrEmpty(arg.getPackageName()) ? "" : arg.getPackageName() + ".";
+    String enclosingClassName = qualifiedClassName;
+    while (enclosingClassName.length() > packagePrefix.length()) {
+      candidates.add(enclosingClassName + "." + writtenName);
+      int lastDot = enclosingClassName.lastIndexOf('.');
+      enclosingClassName = lastDot >= 0 ? enclosingClassName.substring(0, lastDot) : "";
+    }
+
+    String importedType = arg.getImportedTypesBySimpleName().get(firstSegment);
+    if (importedType != null) {
+      candidates.add(importedType + remainingSegments);
+    }
+    candidates.add(packagePrefix + writtenName);
+    for (String onDemandImport : arg.getOnDemandImports()) {
+      candidates.add(onDemandImport + "." + writtenName);
+    }
+    candidates.add(writtenName);
+    return new ArrayList<>(candidates);
+  }
+
   private String getSimpleClassName(Node node) {
     if (node == null) {
       return null;
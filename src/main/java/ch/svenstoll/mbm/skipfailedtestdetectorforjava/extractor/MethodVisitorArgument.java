@@ -1,34 +1,53 @@
 package ch.svenstoll.mbm.skipfailedtestdetectorforjava.extractor;
 
-import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.BasicClassData;
-import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.BasicMethodData;
-
 import java.util.List;
 import java.util.Map;
 
 public class MethodVisitorArgument {
 
   private final String packageName;
-  private final Map<BasicClassData, List<BasicMethodData>> methodsByClass;
+  private final MethodCollector methodCollector;
   private final boolean hasJUnitImports;
-
+  private final Map<String, String> importedTypesBySimpleName;
+  private final List<String> onDemandImports;
+
+  /**
+   * @param packageName The package of the compilation unit.
+   * @param methodCollector The collector to which the methods are added.
+   * @param hasJUnitImports Whether the compilation unit imports JUnit.
+   * @param importedTypesBySimpleName The qualified names of single-type imports by their simple
+   *                                  name.
+   * @param onDemandImports The packages or types whose members are imported on demand.
+   */
   public MethodVisitorArgument(String packageName,
-                               Map<BasicClassData, List<BasicMethodData>> methodsByClass,
-                               boolean hasJUnitImports) {
+                               MethodCollector methodCollector,
+                               boolean hasJUnitImports,
+                               Map<String, String> importedTypesBySimpleName,
+                               List<String> onDemandImports) {
     this.packageName = packageName;
-    this.methodsByClass = methodsByClass;
+    this.methodCollector = methodCollector;
     this.hasJUnitImports = hasJUnitImports;
+    this.importedTypesBySimpleName = importedTypesBySimpleName;
+    this.onDemandImports = onDemandImports;
   }
 
   public String getPackageName() {
     return packageName;
   }
 
-  public Map<BasicClassData, List<BasicMethodData>> getMethodsByClass() {
-    return methodsByClass;
+  public MethodCollector getMethodCollector() {
+    return methodCollector;
   }
 
   public boolean hasJUnitImports() {
     return hasJUnitImports;
   }
+
+  public Map<String, String> getImportedTypesBySimpleName() {
+    return importedTypesBySimpleName;
+  }
+
+  public List<String> getOnDemandImports() {
+    return onDemandImports;
+  }
 }
@@ -0,0 +1,238 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.extractor;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.Build;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.DetectorConfiguration;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.FileUtility;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.transport.RefSpec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Makes the repository of a project available according to the configured {@link CloneStrategy}.
+ * The location of the remote repository is derived from the configured URI template, in which
+ * {@code {project}}, {@code {owner}} and {@code {name}} are replaced with the full project name,
+ * the owner and the repository name respectively.
+ */
+public class RepositoryCloner {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RepositoryCloner.class);
+  private static final String REMOTE_NAME = "origin";
+  private static final String BRANCHES_REF_SPEC = "+refs/heads/*:refs/remotes/origin/*";
+  private static final int MAX_COMMITS_PER_FETCH = 100;
+
+  private final String outputFolderPath;
+  private final CloneStrategy cloneStrategy;
+  private final String gitUriTemplate;
+  private final Map<String, Set<String>> triggerCommitsByProject = new ConcurrentHashMap<>();
+
+  public RepositoryCloner(DetectorConfiguration configuration) {
+    this.outputFolderPath = configuration.getOutputFolderPath();
+    this.cloneStrategy = configuration.getCloneStrategy();
+    this.gitUriTemplate = configuration.getGitUriTemplate();
+  }
+
+  /**
+   * Registers the trigger commits of builds so that {@link CloneStrategy#COMMITS} can fetch them
+   * all at once when the repository is created.
+   *
+   * @param builds The builds that will be analyzed.
+   */
+  public void registerBuilds(Collection<Build> builds) {
+    for (Build build : builds) {
+      triggerCommitsByProject
+          .computeIfAbsent(build.getProjectBranchKey().getProjectName(), project -> ConcurrentHashMap.newKeySet())
+          .add(build.getTriggerCommit());
+    }
+  }
+
+  /**
+   * @param projectName The project.
+   * @return true if {@link #cloneProjectRepository(String)} will download the repository, false if
+   *         it opens an existing one.
+   */
+  public boolean requiresClone(String projectName) {
+    return cloneStrategy != CloneStrategy.MIRROR && !Files.exists(Paths.get(getProjectPath(projectName)));
+  }
+
+  public Git cloneProjectRepository(String projectName) throws GitAPIException, IOException {
+    if (cloneStrategy == CloneStrategy.MIRROR) {
+      return openMirror(projectName);
+    }
+
+    String projectPath = getProjectPath(projectName);
+    if (Files.exists(Paths.get(projectPath))) {
+      return Git.open(new File(projectPath));
+    }
+
+    LOGGER.info("Cloning repository for {} ({}).", projectName, cloneStrategy);
+    long startTime = System.nanoTime();
+    Git git;
+    switch (cloneStrategy) {
+      case BARE:
+        git = Git.cloneRepository()
+            .setURI(getGitURI(projectName))
+            .setDirectory(new File(projectPath))
+            .setBare(true)
+            .call();
+        break;
+      case COMMITS:
+        git = Git.init()
+            .setDirectory(new File(projectPath))
+            .setBare(true)
+            .call();
+        StoredConfig config = git.getRepository().getConfig();
+        config.setString("remote", REMOTE_NAME, "url", getGitURI(projectName));
+        config.save();
+        fetchMissingCommits(git, triggerCommitsByProject.getOrDefault(projectName, Collections.emptySet()));
+        break;
+      default:
+        git = Git.cloneRepository()
+            .setURI(getGitURI(projectName))
+            .setDirectory(new File(projectPath))
+            .call();
+    }
+
+    LOGGER.info("Cloned repository for {} in {} ms. It uses {} on disk.",
+        projectName,
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime),
+        FileUtility.formatBytes(FileUtility.calculateSize(Paths.get(projectPath))));
+    return git;
+  }
+
+  /**
+   * Opens the repository of a mirror without its work tree, even if it has been checked out. The
+   * extraction therefore reads the source files from the object database and never checks out,
+   * resets or cleans the mirror.
+   */
+  private Git openMirror(String projectName) throws IOException {
+    File mirrorPath = new File(getLocalPath(getGitURI(projectName)));
+    File gitDir = new File(mirrorPath, Constants.DOT_GIT);
+    Repository repository = new FileRepositoryBuilder()
+        .setGitDir(gitDir.isDirectory() ? gitDir : mirrorPath)
+        .setBare()
+        .setMustExist(true)
+        .build();
+    return new MirrorGit(repository);
+  }
+
+  /**
+   * Makes sure that a commit is available in a repository created with
+   * {@link CloneStrategy#COMMITS}. Repositories created with other strategies are not changed.
+   *
+   * @param git The repository.
+   * @param commit The commit that is about to be read.
+   * @throws GitAPIException if the commit cannot be fetched.
+   * @throws IOException if the object database cannot be read.
+   */
+  public void ensureCommitAvailable(Git git, String commit) throws GitAPIException, IOException {
+    if (cloneStrategy == CloneStrategy.COMMITS) {
+      fetchMissingCommits(git, Collections.singleton(commit));
+    }
+  }
+
+  private void fetchMissingCommits(Git git, Set<String> commits) throws GitAPIException, IOException {
+    List<RefSpec> missingCommits = findMissingCommits(git.getRepository(), commits);
+    if (missingCommits.isEmpty()) {
+      return;
+    }
+
+    boolean branchesFetched = false;
+    for (int i = 0; i < missingCommits.size(); i += MAX_COMMITS_PER_FETCH) {
+      List<RefSpec> batch = missingCommits.subList(i, Math.min(i + MAX_COMMITS_PER_FETCH, missingCommits.size()));
+      try {
+        git.fetch().setRemote(REMOTE_NAME).setRefSpecs(batch).call();
+      }
+      catch (GitAPIException e) {
+        // A single commit that is no longer available on the remote lets the whole batch fail. Some
+        // remotes also refuse to send commits that are not the tip of a ref. The branches are
+        // therefore fetched once, which makes most commits available without any further requests.
+        if (!branchesFetched) {
+          LOGGER.info("Fetching {} commits at once failed. The branches will be fetched instead.", batch.size());
+          git.fetch().setRemote(REMOTE_NAME).setRefSpecs(new RefSpec(BRANCHES_REF_SPEC)).call();
+          branchesFetched = true;
+        }
+        fetchCommitsIndividually(git, findMissingCommits(git.getRepository(), getSources(batch)));
+      }
+    }
+  }
+
+  private List<RefSpec> findMissingCommits(Repository repository, Collection<String> commits) throws IOException {
+    List<RefSpec> missingCommits = new ArrayList<>();
+    for (String commit : commits) {
+      if (ObjectId.isId(commit) && !repository.hasObject(ObjectId.fromString(commit))) {
+        // The commits are stored as refs so that they are not removed by a garbage collection.
+        missingCommits.add(new RefSpec(commit + ":refs/builds/" + commit));
+      }
+    }
+    return missingCommits;
+  }
+
+  private List<String> getSources(List<RefSpec> refSpecs) {
+    List<String> sources = new ArrayList<>();
+    for (RefSpec refSpec : refSpecs) {
+      sources.add(refSpec.getSource());
+    }
+    return sources;
+  }
+
+  private void fetchCommitsIndividually(Git git, List<RefSpec> refSpecs) {
+    for (RefSpec refSpec : refSpecs) {
+      try {
+        git.fetch().setRemote(REMOTE_NAME).setRefSpecs(refSpec).call();
+      }
+      catch (GitAPIException e) {
+        LOGGER.warn("Could not fetch commit {}.", refSpec.getSource());
+      }
+    }
+  }
+
+  public String getProjectPath(String projectName) {
+    String projectPath = projectName.replace("/", "#");
+    return outputFolderPath + "/Repositories/" + projectPath;
+  }
+
+  private String getGitURI(String projectName) {
+    int separatorIndex = projectName.indexOf('/');
+    String owner = separatorIndex >= 0 ? projectName.substring(0, separatorIndex) : projectName;
+    String name = separatorIndex >= 0 ? projectName.substring(separatorIndex + 1) : projectName;
+    return gitUriTemplate
+        .replace("{project}", projectName)
+        .replace("{owner}", owner)
+        .replace("{name}", name);
+  }
+
+  private String getLocalPath(String uri) {
+    return uri.startsWith("file://") ? uri.substring("file://".length()) : uri;
+  }
+
+  /**
+   * Closes its repository when it is closed, like the instances of {@link Git#open(File)}.
+   */
+  private static final class MirrorGit extends Git {
+
+    private MirrorGit(Repository repository) {
+      super(repository);
+    }
+
+    @Override
+    public void close() {
+      super.close();
+      getRepository().close();
+    }
+  }
+}
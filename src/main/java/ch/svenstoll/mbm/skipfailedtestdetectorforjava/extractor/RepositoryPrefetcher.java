@@ -0,0 +1,263 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.extractor;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.Build;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.DetectorConfiguration;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.FileUtility;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Prepares repositories ahead of the extraction. Whenever the repository of a project is
+ * requested, the repositories of the next projects in the order of the registered builds are
+ * cloned in the background, so that the extraction does not stall on the network for every new
+ * project.</p>
+ *
+ * <p>The number of concurrent clones is bounded and the average download rate can be capped.
+ * Projects whose repository could not be cloned are remembered and not retried.</p>
+ *
+ * <p>Once a later project has been requested, the repositories of the projects before it are
+ * released as soon as they have been marked as finished. Projects that are analyzed at the same
+ * time therefore keep their repositories until their last build is done.</p>
+ */
+public class RepositoryPrefetcher implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RepositoryPrefetcher.class);
+
+  private final RepositoryCloner repositoryCloner;
+  private final RepositoryStore repositoryStore;
+  private final int numPrefetchedRepositories;
+  private final long maxBytesPerSecond;
+  private final ExecutorService executorService;
+  private final List<String> projectOrder = new ArrayList<>();
+  private final Map<String, Integer> projectIndexByName = new HashMap<>();
+  private final Map<String, Future<Git>> repositoriesByProject = new ConcurrentHashMap<>();
+  private final Map<String, Exception> failuresByProject = new ConcurrentHashMap<>();
+  private final Set<String> finishedProjects = new HashSet<>();
+  private final AtomicLong numRepositoryRequests = new AtomicLong();
+  private final AtomicLong numRepositoryOpens = new AtomicLong();
+  private int currentProjectIndex = -1;
+  private long nextCloneStartNanos = System.nanoTime();
+
+  public RepositoryPrefetcher(RepositoryCloner repositoryCloner, RepositoryStore repositoryStore,
+                              DetectorConfiguration configuration) {
+    this.repositoryCloner = repositoryCloner;
+    this.repositoryStore = repositoryStore;
+    this.numPrefetchedRepositories = configuration.getNumPrefetchedRepositories();
+    this.maxBytesPerSecond = configuration.getMaxPrefetchBytesPerSecond();
+    this.executorService = Executors.newFixedThreadPool(Math.max(1, configuration.getNumPrefetchThreads()), runnable -> {
+      Thread thread = new Thread(runnable, "repository-prefetcher");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Registers the order in which the projects will be analyzed.
+   *
+   * @param builds The sorted builds that will be analyzed.
+   */
+  public synchronized void registerBuilds(List<Build> builds) {
+    for (Build build : builds) {
+      String projectName = build.getProjectBranchKey().getProjectName();
+      if (!projectIndexByName.containsKey(projectName)) {
+        projectIndexByName.put(projectName, projectOrder.size());
+        projectOrder.add(projectName);
+      }
+    }
+  }
+
+  /**
+   * Returns the repository of a project, waiting for it if it is still being cloned, and starts
+   * cloning the repositories of the following projects.
+   *
+   * @param projectName The project.
+   * @return the repository of the project.
+   * @throws IOException if the repository cannot be cloned or has failed to be cloned before.
+   * @throws GitAPIException if the repository cannot be cloned.
+   */
+  public Git getRepository(String projectName) throws IOException, GitAPIException {
+    Exception previousFailure = failuresByProject.get(projectName);
+    if (previousFailure != null) {
+      throw new IOException("The repository for " + projectName + " could not be cloned before.", previousFailure);
+    }
+
+    numRepositoryRequests.incrementAndGet();
+    Future<Git> repository = scheduleWithLookahead(projectName);
+    try {
+      return repository.get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the repository of " + projectName + ".");
+    }
+    catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof GitAPIException) {
+        throw (GitAPIException) cause;
+      }
+      throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+    }
+  }
+
+  /**
+   * @param projectName The project.
+   * @return true if cloning the repository of the project has already failed.
+   */
+  public boolean hasFailed(String projectName) {
+    return failuresByProject.containsKey(projectName);
+  }
+
+  /**
+   * @return the number of times a repository has been requested.
+   */
+  public long getNumRepositoryRequests() {
+    return numRepositoryRequests.get();
+  }
+
+  /**
+   * @return the number of times a repository has been cloned or opened. All other requests have
+   *         been served by a handle that was already open.
+   */
+  public long getNumRepositoryOpens() {
+    return numRepositoryOpens.get();
+  }
+
+  /**
+   * Marks all builds of a project as analyzed. Its repository is released right away if a later
+   * project has already been requested, and otherwise as soon as one is.
+   *
+   * @param projectName The project.
+   */
+  public synchronized void finishProject(String projectName) {
+    finishedProjects.add(projectName);
+    Integer projectIndex = projectIndexByName.get(projectName);
+    if (projectIndex != null && projectIndex < currentProjectIndex) {
+      releaseRepository(projectName);
+    }
+  }
+
+  private synchronized Future<Git> scheduleWithLookahead(String projectName) {
+    Integer projectIndex = projectIndexByName.get(projectName);
+    if (projectIndex != null && projectIndex > currentProjectIndex) {
+      releaseRepositories(currentProjectIndex, projectIndex);
+      currentProjectIndex = projectIndex;
+      int lastPrefetchedIndex = Math.min(projectIndex + numPrefetchedRepositories, projectOrder.size() - 1);
+      for (int i = projectIndex + 1; i <= lastPrefetchedIndex; i++) {
+        schedule(projectOrder.get(i));
+      }
+    }
+    return schedule(projectName);
+  }
+
+  private Future<Git> schedule(String projectName) {
+    return repositoriesByProject.computeIfAbsent(projectName,
+        project -> executorService.submit(() -> cloneRepository(project)));
+  }
+
+  /**
+   * Closes the repositories of finished projects that come before the current project, because the
+   * builds are processed in the registered order, and hands them back to the
+   * {@link RepositoryStore}.
+   */
+  private void releaseRepositories(int fromIndex, int toIndex) {
+    for (int i = Math.max(fromIndex, 0); i < toIndex; i++) {
+      if (finishedProjects.contains(projectOrder.get(i))) {
+        releaseRepository(projectOrder.get(i));
+      }
+    }
+  }
+
+  private void releaseRepository(String projectName) {
+    Future<Git> repository = repositoriesByProject.remove(projectName);
+    if (repository != null && repository.isDone() && !repository.isCancelled()) {
+      try {
+        repository.get().close();
+        repositoryStore.release(projectName);
+      }
+      catch (InterruptedException | ExecutionException e) {
+        // Failed clones do not hold any resources.
+      }
+    }
+  }
+
+  private Git cloneRepository(String projectName) throws Exception {
+    try {
+      // Opening a repository that already exists does not download anything.
+      boolean cloning = repositoryCloner.requiresClone(projectName);
+      if (cloning) {
+        waitForByteRateLimit();
+      }
+      numRepositoryOpens.incrementAndGet();
+      Git git = repositoryCloner.cloneProjectRepository(projectName);
+      if (cloning) {
+        recordDownloadedBytes(projectName);
+      }
+      repositoryStore.acquire(projectName);
+      return git;
+    }
+    catch (Exception e) {
+      LOGGER.error("Failed to find or clone repository for {}. Its builds will be skipped.", projectName, e);
+      failuresByProject.put(projectName, e);
+      throw e;
+    }
+  }
+
+  private void waitForByteRateLimit() throws InterruptedException {
+    if (maxBytesPerSecond <= 0) {
+      return;
+    }
+
+    long waitNanos;
+    synchronized (this) {
+      waitNanos = nextCloneStartNanos - System.nanoTime();
+    }
+    if (waitNanos > 0) {
+      LOGGER.info("Waiting {} ms before the next clone to stay below {} per second.",
+          TimeUnit.NANOSECONDS.toMillis(waitNanos), FileUtility.formatBytes(maxBytesPerSecond));
+      TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+  }
+
+  /**
+   * JGit does not offer a hook to throttle a transfer. The size of a clone is therefore measured
+   * afterwards and the start of the next clone is delayed until the average rate is met again.
+   */
+  private void recordDownloadedBytes(String projectName) {
+    if (maxBytesPerSecond <= 0) {
+      return;
+    }
+
+    long bytes = FileUtility.calculateSize(Paths.get(repositoryCloner.getProjectPath(projectName)));
+    long delayNanos = (long) (bytes * (double) TimeUnit.SECONDS.toNanos(1) / maxBytesPerSecond);
+    synchronized (this) {
+      nextCloneStartNanos = Math.max(nextCloneStartNanos, System.nanoTime()) + delayNanos;
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    executorService.shutdownNow();
+    projectOrder.forEach(this::releaseRepository);
+    for (Future<Git> repository : repositoriesByProject.values()) {
+      if (repository.isDone() && !repository.isCancelled()) {
+        try {
+          repository.get().close();
+        }
+        catch (InterruptedException | ExecutionException e) {
+          // Failed clones do not hold any resources.
+        }
+      }
+    }
+    repositoriesByProject.clear();
+  }
+}
@@ -0,0 +1,33 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.extractor;
+
+/**
+ * Determines what happens to the repository of a project once all of its builds have been
+ * analyzed.
+ */
+public enum RepositoryRetention {
+
+  /**
+   * Keeps the repository as it is.
+   */
+  KEEP,
+
+  /**
+   * Deletes the work tree and only keeps the Git directory. The work tree is restored if the
+   * repository is used again.
+   */
+  RELEASE_WORK_TREE,
+
+  /**
+   * Deletes the work tree and repacks all objects into a single pack.
+   */
+  REPACK;
+
+  public static RepositoryRetention fromString(String value) {
+    for (RepositoryRetention retention : values()) {
+      if (retention.name().replace('_', '-').equalsIgnoreCase(value)) {
+        return retention;
+      }
+    }
+    throw new IllegalArgumentException("Unknown repository retention \"" + value + "\".");
+  }
+}
@@ -0,0 +1,285 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.extractor;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.DetectorConfiguration;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.FileUtility;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * <p>Keeps track of the repositories in the {@code Repositories} folder and of the disk space they
+ * use. A repository is in use from the moment it has been cloned or opened until all builds of its
+ * project have been analyzed. Afterwards, it is handled according to the configured
+ * {@link RepositoryRetention}.</p>
+ *
+ * <p>If a disk budget is configured, the least recently used repositories that are not in use
+ * are deleted as soon as the budget is exceeded. Repositories that already exist from previous
+ * runs are taken into account as well, but the ones of projects that are still to be analyzed are
+ * pinned until they have been released, so that they are not deleted and cloned again. All changes
+ * on disk are made on a single background thread, so that the extraction is not held up by
+ * them.</p>
+ *
+ * <p>Repositories used in place with {@link CloneStrategy#MIRROR} are never changed.</p>
+ */
+public class RepositoryStore implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RepositoryStore.class);
+  private static final String GIT_DIRECTORY = ".git";
+
+  private final RepositoryCloner repositoryCloner;
+  private final RepositoryRetention retention;
+  private final long diskBudgetBytes;
+  private final boolean managed;
+  private final ExecutorService executorService;
+  // In access order, so that the least recently used repository comes first.
+  private final Map<String, RepositoryEntry> entriesByProject = new LinkedHashMap<>(16, 0.75f, true);
+  private boolean budgetExceededReported = false;
+
+  public RepositoryStore(RepositoryCloner repositoryCloner, DetectorConfiguration configuration) {
+    this.repositoryCloner = repositoryCloner;
+    this.retention = configuration.getRepositoryRetention();
+    this.diskBudgetBytes = configuration.getRepositoryDiskBudget();
+    this.managed = configuration.getCloneStrategy() != CloneStrategy.MIRROR;
+    this.executorService = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "repository-store");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    if (managed && diskBudgetBytes > 0) {
+      registerExistingRepositories(Paths.get(configuration.getOutputFolderPath(), "Repositories"));
+    }
+  }
+
+  private void registerExistingRepositories(Path repositoriesPath) {
+    if (!Files.isDirectory(repositoriesPath)) {
+      return;
+    }
+
+    List<Path> repositoryPaths;
+    try (Stream<Path> paths = Files.list(repositoriesPath)) {
+      repositoryPaths = paths
+          .filter(Files::isDirectory)
+          .sorted(Comparator.comparingLong(path -> path.toFile().lastModified()))
+          .collect(Collectors.toList());
+    }
+    catch (IOException e) {
+      LOGGER.warn("Could not list the existing repositories. They do not count towards the disk budget.", e);
+      return;
+    }
+
+    long totalBytes = 0;
+    synchronized (this) {
+      for (Path repositoryPath : repositoryPaths) {
+        String projectName = repositoryPath.getFileName().toString().replace('#', '/');
+        RepositoryEntry entry = new RepositoryEntry();
+        entry.sizeBytes = FileUtility.calculateSize(repositoryPath);
+        entriesByProject.put(projectName, entry);
+        totalBytes += entry.sizeBytes;
+      }
+    }
+    LOGGER.info("{} repositories from previous runs use {} of the disk budget of {}.",
+        repositoryPaths.size(), FileUtility.formatBytes(totalBytes), FileUtility.formatBytes(diskBudgetBytes));
+  }
+
+  /**
+   * Pins the repositories of the projects that are going to be analyzed until they have been
+   * released and evicts the other repositories from previous runs that exceed the disk budget.
+   * Must be called before any of the repositories is cloned or opened.
+   *
+   * @param projectNames The projects of the builds that will be analyzed.
+   */
+  public void registerProjects(Collection<String> projectNames) {
+    if (!managed) {
+      return;
+    }
+
+    synchronized (this) {
+      for (String projectName : projectNames) {
+        entriesByProject.computeIfAbsent(projectName, project -> new RepositoryEntry()).pinned = true;
+      }
+    }
+    // Evicted synchronously, because none of the repositories may be opened in the meantime.
+    evictIfOverBudget();
+  }
+
+  /**
+   * Marks the repository of a project as in use. Must be called after the repository has been
+   * cloned or opened.
+   *
+   * @param projectName The project.
+   */
+  public void acquire(String projectName) {
+    if (!managed) {
+      return;
+    }
+
+    long sizeBytes = FileUtility.calculateSize(Paths.get(repositoryCloner.getProjectPath(projectName)));
+    synchronized (this) {
+      RepositoryEntry entry = entriesByProject.computeIfAbsent(projectName, project -> new RepositoryEntry());
+      entry.sizeBytes = sizeBytes;
+      entry.inUse = true;
+    }
+    executorService.execute(this::evictIfOverBudget);
+  }
+
+  /**
+   * Marks the repository of a project as no longer in use. The handle to the repository must have
+   * been closed already.
+   *
+   * @param projectName The project whose builds have all been analyzed.
+   */
+  public void release(String projectName) {
+    if (!managed) {
+      return;
+    }
+
+    synchronized (this) {
+      RepositoryEntry entry = entriesByProject.get(projectName);
+      if (entry == null) {
+        return;
+      }
+      entry.inUse = false;
+      entry.pinned = false;
+    }
+    executorService.execute(() -> {
+      compact(projectName);
+      evictIfOverBudget();
+    });
+  }
+
+  private void compact(String projectName) {
+    if (retention == RepositoryRetention.KEEP) {
+      return;
+    }
+
+    Path projectPath = Paths.get(repositoryCloner.getProjectPath(projectName));
+    synchronized (this) {
+      RepositoryEntry entry = entriesByProject.get(projectName);
+      if (entry == null || entry.inUse) {
+        return;
+      }
+    }
+
+    long sizeBeforeBytes = FileUtility.calculateSize(projectPath);
+    try (Git git = Git.open(projectPath.toFile())) {
+      if (!git.getRepository().isBare()) {
+        deleteWorkTree(projectPath);
+      }
+      if (retention == RepositoryRetention.REPACK) {
+        git.gc().call();
+      }
+    }
+    catch (IOException | GitAPIException e) {
+      LOGGER.warn("Could not compact the repository for {}.", projectName, e);
+    }
+
+    long sizeAfterBytes = FileUtility.calculateSize(projectPath);
+    synchronized (this) {
+      RepositoryEntry entry = entriesByProject.get(projectName);
+      if (entry != null) {
+        entry.sizeBytes = sizeAfterBytes;
+      }
+    }
+    LOGGER.info("Compacted the repository for {} from {} to {}.",
+        projectName, FileUtility.formatBytes(sizeBeforeBytes), FileUtility.formatBytes(sizeAfterBytes));
+  }
+
+  private void deleteWorkTree(Path projectPath) throws IOException {
+    try (Stream<Path> paths = Files.list(projectPath)) {
+      List<Path> workTreePaths = paths
+          .filter(path -> !GIT_DIRECTORY.equals(path.getFileName().toString()))
+          .collect(Collectors.toList());
+      for (Path path : workTreePaths) {
+        FileUtility.deleteRecursively(path);
+      }
+    }
+  }
+
+  private void evictIfOverBudget() {
+    if (diskBudgetBytes <= 0) {
+      return;
+    }
+
+    List<String> evictedProjects = new ArrayList<>();
+    long totalBytes;
+    synchronized (this) {
+      totalBytes = getTotalBytes();
+      Iterator<Map.Entry<String, RepositoryEntry>> iterator = entriesByProject.entrySet().iterator();
+      while (totalBytes > diskBudgetBytes && iterator.hasNext()) {
+        Map.Entry<String, RepositoryEntry> entry = iterator.next();
+        if (!entry.getValue().inUse && !entry.getValue().pinned) {
+          iterator.remove();
+          evictedProjects.add(entry.getKey());
+          totalBytes -= entry.getValue().sizeBytes;
+        }
+      }
+    }
+
+    for (String projectName : evictedProjects) {
+      try {
+        FileUtility.deleteRecursively(Paths.get(repositoryCloner.getProjectPath(projectName)));
+        LOGGER.info("Evicted the repository for {} to stay within the disk budget of {}.",
+            projectName, FileUtility.formatBytes(diskBudgetBytes));
+      }
+      catch (IOException e) {
+        LOGGER.warn("Could not delete the repository for {}.", projectName, e);
+      }
+    }
+
+    if (totalBytes > diskBudgetBytes && !budgetExceededReported) {
+      budgetExceededReported = true;
+      LOGGER.warn("The repositories in use or still needed take up {}, which exceeds the disk budget of {}.",
+          FileUtility.formatBytes(totalBytes), FileUtility.formatBytes(diskBudgetBytes));
+    }
+  }
+
+  /**
+   * @return the disk space used by all known repositories in bytes.
+   */
+  public synchronized long getTotalBytes() {
+    long totalBytes = 0;
+    for (RepositoryEntry entry : entriesByProject.values()) {
+      totalBytes += entry.sizeBytes;
+    }
+    return totalBytes;
+  }
+
+  /**
+   * Waits until all pending compactions and evictions have been completed.
+   */
+  @Override
+  public void close() {
+    executorService.shutdown();
+    try {
+      executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (managed) {
+      LOGGER.info("The tracked repositories use {} on disk.", FileUtility.formatBytes(getTotalBytes()));
+    }
+  }
+
+  private static final class RepositoryEntry {
+
+    private long sizeBytes;
+    private boolean inUse;
+    // Set for the projects of the current input until their repositories are released.
+    private boolean pinned;
+  }
+}
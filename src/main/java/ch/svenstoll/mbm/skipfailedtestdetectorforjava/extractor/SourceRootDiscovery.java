@@ -0,0 +1,310 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.extractor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <p>Derives the test source roots of a commit from its Maven or Gradle build files. For Maven,
+ * the {@code modules}, the {@code testSourceDirectory} and test sources added by the
+ * {@code build-helper-maven-plugin} of every {@code pom.xml} are evaluated. For Gradle, the
+ * projects included in {@code settings.gradle} and the {@code srcDir} declarations of test source
+ * sets in their {@code build.gradle} files are evaluated.</p>
+ *
+ * <p>The build files are not evaluated like Maven or Gradle would. Property references and
+ * anything that is computed by a script are ignored, so the result is a best effort.</p>
+ */
+public class SourceRootDiscovery {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SourceRootDiscovery.class);
+  private static final String DEFAULT_TEST_SOURCE_DIRECTORY = "src/test/java";
+  private static final int MAX_MODULE_DEPTH = 10;
+  private static final Pattern GRADLE_INCLUDE_PATTERN = Pattern.compile("^\\s*include\\b((?:[^\\n]*,[ \\t]*\\n)*[^\\n]*)", Pattern.MULTILINE);
+  private static final Pattern QUOTED_STRING_PATTERN = Pattern.compile("[\"']([^\"']+)[\"']");
+  private static final Pattern GRADLE_SRC_DIR_PATTERN = Pattern.compile("\\bsrcDirs?\\b[^\\n]*");
+
+  /**
+   * Reads a file of the commit.
+   */
+  @FunctionalInterface
+  public interface BuildFileReader {
+
+    /**
+     * @param path The path of the file relative to the root of the repository, separated by
+     *             {@code /}.
+     * @return the content of the file or null if it does not exist.
+     * @throws IOException if the file exists but cannot be read.
+     */
+    String read(String path) throws IOException;
+  }
+
+  /**
+   * @param reader The reader for the files of the commit.
+   * @return the test source roots relative to the root of the repository, each ending with
+   *         {@code /}, or an empty list if there is no build file from which they can be derived.
+   */
+  public List<String> discoverTestSourceRoots(BuildFileReader reader) {
+    Set<String> roots = new TreeSet<>();
+    try {
+      if (reader.read("pom.xml") != null) {
+        collectMavenTestSourceRoots(reader, "", roots, new HashSet<>(), 0);
+      }
+      else if (reader.read("build.gradle") != null || reader.read("build.gradle.kts") != null
+          || reader.read("settings.gradle") != null || reader.read("settings.gradle.kts") != null) {
+        collectGradleTestSourceRoots(reader, roots);
+      }
+    }
+    catch (IOException e) {
+      LOGGER.warn("Could not read the build files to derive the test source roots.", e);
+      return Collections.emptyList();
+    }
+    return new ArrayList<>(roots);
+  }
+
+  private void collectMavenTestSourceRoots(BuildFileReader reader, String modulePath, Set<String> roots,
+                                           Set<String> visitedModules, int depth) throws IOException {
+    if (depth > MAX_MODULE_DEPTH || !visitedModules.add(modulePath)) {
+      return;
+    }
+
+    String pom = reader.read(modulePath + "pom.xml");
+    if (pom == null) {
+      return;
+    }
+
+    Element project;
+    try {
+      project = parseXml(pom).getDocumentElement();
+    }
+    catch (SAXException | ParserConfigurationException e) {
+      LOGGER.warn("Could not parse \"{}pom.xml\".", modulePath);
+      return;
+    }
+
+    String testSourceDirectory = null;
+    Element build = getChild(project, "build");
+    if (build != null) {
+      Element element = getChild(build, "testSourceDirectory");
+      testSourceDirectory = element != null ? element.getTextContent() : null;
+      collectBuildHelperTestSources(build, modulePath, roots);
+    }
+    addRoot(roots, modulePath, testSourceDirectory != null ? testSourceDirectory : DEFAULT_TEST_SOURCE_DIRECTORY);
+
+    List<Element> moduleLists = new ArrayList<>(getChildren(project, "modules"));
+    Element profiles = getChild(project, "profiles");
+    if (profiles != null) {
+      for (Element profile : getChildren(profiles, "profile")) {
+        moduleLists.addAll(getChildren(profile, "modules"));
+      }
+    }
+    for (Element modules : moduleLists) {
+      for (Element module : getChildren(modules, "module")) {
+        String childPath = normalizePath(modulePath + module.getTextContent().trim());
+        if (childPath != null) {
+          // A module may also point to a pom file instead of its folder.
+          if (childPath.endsWith(".xml")) {
+            childPath = childPath.substring(0, childPath.lastIndexOf('/') + 1);
+          }
+          collectMavenTestSourceRoots(reader, childPath.isEmpty() || childPath.endsWith("/") ? childPath : childPath + "/",
+              roots, visitedModules, depth + 1);
+        }
+      }
+    }
+  }
+
+  private void collectBuildHelperTestSources(Element build, String modulePath, Set<String> roots) {
+    Element plugins = getChild(build, "plugins");
+    if (plugins == null) {
+      return;
+    }
+
+    for (Element plugin : getChildren(plugins, "plugin")) {
+      Element artifactId = getChild(plugin, "artifactId");
+      Element executions = getChild(plugin, "executions");
+      if (artifactId == null || !"build-helper-maven-plugin".equals(artifactId.getTextContent().trim())
+          || executions == null) {
+        continue;
+      }
+
+      for (Element execution : getChildren(executions, "execution")) {
+        Element goals = getChild(execution, "goals");
+        Element configuration = getChild(execution, "configuration");
+        boolean addsTestSources = goals != null && getChildren(goals, "goal").stream()
+            .anyMatch(goal -> "add-test-source".equals(goal.getTextContent().trim()));
+        Element sources = configuration != null ? getChild(configuration, "sources") : null;
+        if (addsTestSources && sources != null) {
+          for (Element source : getChildren(sources, "source")) {
+            addRoot(roots, modulePath, source.getTextContent());
+          }
+        }
+      }
+    }
+  }
+
+  private void collectGradleTestSourceRoots(BuildFileReader reader, Set<String> roots) throws IOException {
+    List<String> projectPaths = new ArrayList<>();
+    projectPaths.add("");
+    String settings = readFirst(reader, "settings.gradle", "settings.gradle.kts");
+    if (settings != null) {
+      Matcher includeMatcher = GRADLE_INCLUDE_PATTERN.matcher(stripComments(settings));
+      while (includeMatcher.find()) {
+        Matcher projectMatcher = QUOTED_STRING_PATTERN.matcher(includeMatcher.group(1));
+        while (projectMatcher.find()) {
+          String projectPath = normalizePath(projectMatcher.group(1).replaceAll("^:+", "").replace(':', '/'));
+          if (projectPath != null && !projectPath.isEmpty()) {
+            projectPaths.add(projectPath + "/");
+          }
+        }
+      }
+    }
+
+    for (String projectPath : projectPaths) {
+      addRoot(roots, projectPath, DEFAULT_TEST_SOURCE_DIRECTORY);
+      String buildFile = readFirst(reader, projectPath + "build.gradle", projectPath + "build.gradle.kts");
+      if (buildFile != null) {
+        for (String sourceDirectory : findGradleTestSourceDirectories(stripComments(buildFile))) {
+          addRoot(roots, projectPath, sourceDirectory);
+        }
+      }
+    }
+  }
+
+  /**
+   * Collects the quoted paths of {@code srcDir} and {@code srcDirs} declarations that belong to a
+   * source set whose name contains {@code test}, e.g. {@code sourceSets { test { java { ... } } } },
+   * {@code sourceSets.integrationTest.java.srcDir ...} or
+   * {@code sourceSets { getByName("test") { ... } } }. Resource folders are skipped.
+   */
+  private List<String> findGradleTestSourceDirectories(String buildFile) {
+    List<String> sourceDirectories = new ArrayList<>();
+    Deque<String> blockNames = new ArrayDeque<>();
+    int statementStart = 0;
+    for (int i = 0; i < buildFile.length(); i++) {
+      char c = buildFile.charAt(i);
+      if (c == '{') {
+        blockNames.push(buildFile.substring(statementStart, i).trim().toLowerCase());
+        statementStart = i + 1;
+      }
+      else if (c == '}' || c == '\n' || c == ';') {
+        collectSourceDirectories(buildFile.substring(statementStart, i), blockNames, sourceDirectories);
+        if (c == '}' && !blockNames.isEmpty()) {
+          blockNames.pop();
+        }
+        statementStart = i + 1;
+      }
+    }
+    return sourceDirectories;
+  }
+
+  private void collectSourceDirectories(String statement, Deque<String> blockNames, List<String> sourceDirectories) {
+    Matcher srcDirMatcher = GRADLE_SRC_DIR_PATTERN.matcher(statement);
+    if (!srcDirMatcher.find()) {
+      return;
+    }
+
+    String context = String.join(" ", blockNames) + " " + statement.substring(0, srcDirMatcher.start()).toLowerCase();
+    if (context.contains("sourcesets") && context.contains("test") && !context.contains("resources")) {
+      Matcher pathMatcher = QUOTED_STRING_PATTERN.matcher(srcDirMatcher.group());
+      while (pathMatcher.find()) {
+        sourceDirectories.add(pathMatcher.group(1));
+      }
+    }
+  }
+
+  private String readFirst(BuildFileReader reader, String... paths) throws IOException {
+    for (String path : paths) {
+      String content = reader.read(path);
+      if (content != null) {
+        return content;
+      }
+    }
+    return null;
+  }
+
+  private String stripComments(String script) {
+    return script.replaceAll("(?s)/\\*.*?\\*/", "").replaceAll("(?m)^\\s*//.*$", "");
+  }
+
+  private void addRoot(Set<String> roots, String modulePath, String directory) {
+    String trimmed = directory.trim().replace('\\', '/')
+        .replaceFirst("^\\$\\{(project\\.)?basedir}/?", "");
+    // Other property references or absolute paths cannot be resolved.
+    if (trimmed.isEmpty() || trimmed.contains("${") || trimmed.startsWith("/")) {
+      return;
+    }
+
+    String root = normalizePath(modulePath + trimmed);
+    if (root != null && !root.isEmpty()) {
+      roots.add(root.endsWith("/") ? root : root + "/");
+    }
+  }
+
+  /**
+   * Resolves {@code .} and {@code ..} segments.
+   *
+   * @return the normalized path or null if it points outside of the repository.
+   */
+  private String normalizePath(String path) {
+    Deque<String> segments = new ArrayDeque<>();
+    for (String segment : path.split("/")) {
+      if (segment.isEmpty() || segment.equals(".")) {
+        continue;
+      }
+      if (segment.equals("..")) {
+        if (segments.isEmpty()) {
+          return null;
+        }
+        segments.removeLast();
+      }
+      else {
+        segments.addLast(segment);
+      }
+    }
+    return String.join("/", segments);
+  }
+
+  private Document parseXml(String xml) throws ParserConfigurationException, SAXException, IOException {
+    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+    // The build files come from arbitrary repositories, so external entities must not be resolved.
+    factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+    factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+    factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+    factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+    factory.setExpandEntityReferences(false);
+    DocumentBuilder documentBuilder = factory.newDocumentBuilder();
+    documentBuilder.setErrorHandler(null);
+    return documentBuilder.parse(new InputSource(new StringReader(xml)));
+  }
+
+  private Element getChild(Element parent, String name) {
+    List<Element> children = getChildren(parent, name);
+    return children.isEmpty() ? null : children.get(0);
+  }
+
+  private List<Element> getChildren(Element parent, String name) {
+    List<Element> children = new ArrayList<>();
+    NodeList nodes = parent.getChildNodes();
+    for (int i = 0; i < nodes.getLength(); i++) {
+      Node node = nodes.item(i);
+      if (node.getNodeType() == Node.ELEMENT_NODE && name.equals(node.getNodeName())) {
+        children.add((Element) node);
+      }
+    }
+    return children;
+  }
+}
@@ -0,0 +1,43 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.extractor;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.BasicClassData;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Index of the extracted classes of a commit by their qualified name. Resolves the class a class
+ * extends by looking up its parent class candidates, which have been derived from the package
+ * declaration and the imports of its compilation unit.
+ */
+public class TypeIndex {
+
+  private final Map<String, BasicClassData> classDataByQualifiedName;
+
+  /**
+   * @param classes The extracted classes of a commit.
+   */
+  public TypeIndex(Collection<BasicClassData> classes) {
+    this.classDataByQualifiedName = new HashMap<>(classes.size() * 2);
+    for (BasicClassData classData : classes) {
+      classDataByQualifiedName.put(classData.getQualifiedName(), classData);
+    }
+  }
+
+  /**
+   * @param classData The class whose parent class is resolved.
+   * @return the first parent class candidate that has been extracted or null if the class does not
+   *         extend another class or the parent class is not part of the commit, e.g. because it
+   *         comes from a dependency.
+   */
+  public BasicClassData resolveParentClass(BasicClassData classData) {
+    for (String candidate : classData.getParentClassCandidates()) {
+      BasicClassData parentClass = classDataByQualifiedName.get(candidate);
+      if (parentClass != null) {
+        return parentClass;
+      }
+    }
+    return null;
+  }
+}
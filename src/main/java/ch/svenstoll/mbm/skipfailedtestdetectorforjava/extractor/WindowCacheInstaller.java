@@ -0,0 +1,64 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.extractor;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.FileUtility;
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Configures the process-wide cache JGit uses to read pack files. The cache is shared by all
+ * repositories and threads, so its size is derived from a single memory budget and installed only
+ * once per process.
+ */
+public class WindowCacheInstaller {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(WindowCacheInstaller.class);
+  private static final int MIN_WINDOW_SIZE = 8 * WindowCacheConfig.KB;
+  private static final int MAX_WINDOW_SIZE = WindowCacheConfig.MB;
+  private static final int MIN_OPEN_FILES = 128;
+  private static final int MAX_OPEN_FILES = 4096;
+
+  private static boolean installed = false;
+
+  /**
+   * Installs the window cache unless it has been installed before.
+   *
+   * @param memoryBudget The memory in bytes available for reading pack files or 0 to keep the
+   *                     defaults of JGit.
+   */
+  public static synchronized void install(long memoryBudget) {
+    if (installed || memoryBudget <= 0) {
+      return;
+    }
+
+    WindowCacheConfig config = createConfig(memoryBudget);
+    config.install();
+    installed = true;
+    LOGGER.info("Installed a shared JGit window cache of {} with {} KB windows, up to {} open pack files, "
+            + "a delta base cache of {} per reader and memory-mapped pack access.",
+        FileUtility.formatBytes(config.getPackedGitLimit()),
+        config.getPackedGitWindowSize() / WindowCacheConfig.KB,
+        config.getPackedGitOpenFiles(),
+        FileUtility.formatBytes(config.getDeltaBaseCacheLimit()));
+  }
+
+  /**
+   * One eighth of the budget is used for the delta base cache, the rest for pack windows. The
+   * window size grows with the budget so that the cache holds about a thousand windows.
+   */
+  static WindowCacheConfig createConfig(long memoryBudget) {
+    long deltaBaseCacheLimit = Math.min(memoryBudget / 8, Integer.MAX_VALUE);
+    long packedGitLimit = memoryBudget - deltaBaseCacheLimit;
+    int windowSize = Integer.highestOneBit((int) Math.max(MIN_WINDOW_SIZE,
+        Math.min(MAX_WINDOW_SIZE, packedGitLimit / 1024)));
+    int openFiles = (int) Math.max(MIN_OPEN_FILES, Math.min(MAX_OPEN_FILES, packedGitLimit / (4 * WindowCacheConfig.MB)));
+
+    WindowCacheConfig config = new WindowCacheConfig();
+    config.setPackedGitMMAP(true);
+    config.setPackedGitLimit(Math.max(packedGitLimit, windowSize));
+    config.setPackedGitWindowSize(windowSize);
+    config.setPackedGitOpenFiles(openFiles);
+    config.setDeltaBaseCacheLimit((int) deltaBaseCacheLimit);
+    return config;
+  }
+}
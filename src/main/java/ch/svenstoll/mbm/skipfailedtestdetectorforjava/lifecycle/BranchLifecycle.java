@@ -0,0 +1,61 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.lifecycle;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.ProjectBranchKey;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * The builds of a branch and the events of every test method on it.
+ */
+public class BranchLifecycle {
+
+  private final ProjectBranchKey projectBranchKey;
+  private final NavigableMap<Long, BuildRecord> buildsById = new TreeMap<>();
+  private final Map<String, List<TestEvent>> eventsByTest = new HashMap<>();
+
+  public BranchLifecycle(ProjectBranchKey projectBranchKey) {
+    this.projectBranchKey = projectBranchKey;
+  }
+
+  public ProjectBranchKey getProjectBranchKey() {
+    return projectBranchKey;
+  }
+
+  /**
+   * @return the builds of the branch by their ID in ascending order.
+   */
+  public NavigableMap<Long, BuildRecord> getBuildsById() {
+    return buildsById;
+  }
+
+  /**
+   * @return the events by the qualified name of the test method. The events are ordered by build
+   *         once the index has been written or read.
+   */
+  public Map<String, List<TestEvent>> getEventsByTest() {
+    return eventsByTest;
+  }
+
+  void addEvent(String testMethod, TestEvent event) {
+    eventsByTest.computeIfAbsent(testMethod, key -> new ArrayList<>(1)).add(event);
+  }
+
+  /**
+   * Orders the events of every test method by build and removes duplicates.
+   */
+  void normalize() {
+    for (List<TestEvent> events : eventsByTest.values()) {
+      events.sort(TestEvent.ORDER);
+      for (int i = events.size() - 1; i > 0; i--) {
+        if (events.get(i).equals(events.get(i - 1))) {
+          events.remove(i);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.lifecycle;
+
+import java.util.List;
+
+/**
+ * The data of a build that the queries of a {@link TestLifecycleIndex} need besides the events.
+ */
+public class BuildRecord {
+
+  private final long buildId;
+  private final Long prevBuildId;
+  private final List<String> failedTests;
+  private final boolean methodsIndexed;
+
+  /**
+   * @param buildId The ID of the build.
+   * @param prevBuildId The ID of the previous build or null.
+   * @param failedTests The names of the failed tests from the input file.
+   * @param methodsIndexed true if the events of the build are known, which requires the methods of
+   *                       the build and of its previous build to have been extracted.
+   */
+  public BuildRecord(long buildId, Long prevBuildId, List<String> failedTests, boolean methodsIndexed) {
+    this.buildId = buildId;
+    this.prevBuildId = prevBuildId;
+    this.failedTests = failedTests;
+    this.methodsIndexed = methodsIndexed;
+  }
+
+  public long getBuildId() {
+    return buildId;
+  }
+
+  public Long getPrevBuildId() {
+    return prevBuildId;
+  }
+
+  public List<String> getFailedTests() {
+    return failedTests;
+  }
+
+  public boolean isMethodsIndexed() {
+    return methodsIndexed;
+  }
+
+  /**
+   * A failed test matches a test method if the qualified name of the method contains it, as in
+   * the comparison of the builds.
+   *
+   * @param testMethod The qualified name of a test method.
+   * @return true if the test method has failed in the build.
+   */
+  public boolean hasFailed(String testMethod) {
+    for (String failedTest : failedTests) {
+      if (testMethod.contains(failedTest)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,33 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.lifecycle;
+
+/**
+ * A change of a test method between a build and its previous build on the same branch. The
+ * events are stored by their ordinal, so new events must be appended.
+ */
+public enum LifecycleEvent {
+  /**
+   * The method has become a test method, either because it is new or because it has been a
+   * method without {@code @Test} or an ignored test before.
+   */
+  APPEARED,
+  /**
+   * The test method has been annotated with {@code @Ignore} or {@code @Disabled}.
+   */
+  IGNORED,
+  /**
+   * The test method still exists, but is neither a test method nor ignored anymore.
+   */
+  CONVERTED,
+  /**
+   * No method with the name of the test method is left.
+   */
+  DELETED;
+
+  /**
+   * @return true if the test method is not run anymore after the event.
+   */
+  public boolean isRemoval() {
+    return this != APPEARED;
+  }
+
+}
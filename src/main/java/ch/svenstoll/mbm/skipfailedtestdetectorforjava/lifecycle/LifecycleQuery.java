@@ -0,0 +1,146 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.lifecycle;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Answers questions about the history of test methods from a {@link TestLifecycleIndex} alone.
+ * Every query returns rows that can be written to a CSV file.
+ */
+public class LifecycleQuery {
+
+  public static final String REMOVED_AFTER_FAILURE = "removed-after-failure";
+  public static final String HISTORY = "history";
+  private static final String[] REMOVED_AFTER_FAILURE_HEADERS = {
+      "project", "branch", "test_method", "event", "build_id", "failed_build_id", "builds_since_failure"};
+  private static final String[] HISTORY_HEADERS = {"project", "branch", "test_method", "event", "build_id"};
+
+  // The project, the branch, the test method and the build are the first five columns of every
+  // query, with the event in between.
+  private static final Comparator<List<Object>> ROW_ORDER = Comparator
+      .comparing((List<Object> row) -> (String) row.get(0))
+      .thenComparing(row -> (String) row.get(1))
+      .thenComparing(row -> (String) row.get(2))
+      .thenComparingLong(row -> (Long) row.get(4));
+
+  private final TestLifecycleIndex index;
+  private final Map<Long, BuildRecord> buildsById = new HashMap<>();
+
+  public LifecycleQuery(TestLifecycleIndex index) {
+    this.index = index;
+    // The previous build of the first build of a branch is on another branch.
+    for (BranchLifecycle branch : index.getBranches()) {
+      buildsById.putAll(branch.getBuildsById());
+    }
+  }
+
+  /**
+   * Finds the test methods that have been ignored, converted or deleted in a build while they had
+   * failed in one of the builds before.
+   *
+   * @param maxBuildsSinceFailure The number of previous builds in which a failure is looked for,
+   *                              1 for the previous build only.
+   * @return a row per removal with the closest previous build in which the test method failed.
+   */
+  public Result findRemovedAfterFailure(int maxBuildsSinceFailure) {
+    if (maxBuildsSinceFailure < 1) {
+      throw new IllegalArgumentException("At least one previous build must be searched for failures.");
+    }
+
+    List<List<Object>> rows = new ArrayList<>();
+    for (BranchLifecycle branch : index.getBranches()) {
+      for (Map.Entry<String, List<TestEvent>> entry : branch.getEventsByTest().entrySet()) {
+        for (TestEvent event : entry.getValue()) {
+          if (!event.getEvent().isRemoval()) {
+            continue;
+          }
+
+          BuildRecord build = buildsById.get(event.getBuildId());
+          for (int numBuilds = 1; numBuilds <= maxBuildsSinceFailure && build != null; numBuilds++) {
+            build = build.getPrevBuildId() != null ? buildsById.get(build.getPrevBuildId()) : null;
+            if (build != null && build.hasFailed(entry.getKey())) {
+              rows.add(Arrays.asList(branch.getProjectBranchKey().getProjectName(),
+                  branch.getProjectBranchKey().getBranch(), entry.getKey(), format(event.getEvent()),
+                  event.getBuildId(), build.getBuildId(), numBuilds));
+              break;
+            }
+          }
+        }
+      }
+    }
+    rows.sort(ROW_ORDER);
+    return new Result(REMOVED_AFTER_FAILURE_HEADERS, rows);
+  }
+
+  /**
+   * @param testMethodFragment A part of the qualified name of the test methods.
+   * @return a row per event of the matching test methods.
+   */
+  public Result findHistory(String testMethodFragment) {
+    List<List<Object>> rows = new ArrayList<>();
+    for (BranchLifecycle branch : index.getBranches()) {
+      for (Map.Entry<String, List<TestEvent>> entry : branch.getEventsByTest().entrySet()) {
+        if (!entry.getKey().contains(testMethodFragment)) {
+          continue;
+        }
+        for (TestEvent event : entry.getValue()) {
+          rows.add(Arrays.asList(branch.getProjectBranchKey().getProjectName(),
+              branch.getProjectBranchKey().getBranch(), entry.getKey(), format(event.getEvent()),
+              event.getBuildId()));
+        }
+      }
+    }
+    rows.sort(ROW_ORDER);
+    return new Result(HISTORY_HEADERS, rows);
+  }
+
+  private static String format(LifecycleEvent event) {
+    return event.name().toLowerCase().replace('_', '-');
+  }
+
+  /**
+   * The rows of a query.
+   */
+  public static final class Result {
+
+    private final String[] headers;
+    private final List<List<Object>> rows;
+
+    private Result(String[] headers, List<List<Object>> rows) {
+      this.headers = headers;
+      this.rows = rows;
+    }
+
+    public List<List<Object>> getRows() {
+      return rows;
+    }
+
+    /**
+     * Replaces a CSV file with the rows.
+     *
+     * @param resultPath The path of the file.
+     * @throws IOException if the file cannot be written.
+     */
+    public void write(Path resultPath) throws IOException {
+      Files.createDirectories(resultPath.toAbsolutePath().getParent());
+      try (Writer writer = Files.newBufferedWriter(resultPath, StandardCharsets.UTF_8);
+           CSVPrinter printer = new CSVPrinter(writer, CSVFormat.DEFAULT.withHeader(headers))) {
+        for (List<Object> row : rows) {
+          printer.printRecord(row);
+        }
+      }
+    }
+  }
+}
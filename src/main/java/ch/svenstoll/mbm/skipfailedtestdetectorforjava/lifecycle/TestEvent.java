@@ -0,0 +1,46 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.lifecycle;
+
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * An event of a test method in a build.
+ */
+public final class TestEvent {
+
+  static final Comparator<TestEvent> ORDER = Comparator.comparingLong(TestEvent::getBuildId)
+      .thenComparing(TestEvent::getEvent);
+
+  private final long buildId;
+  private final LifecycleEvent event;
+
+  public TestEvent(long buildId, LifecycleEvent event) {
+    this.buildId = buildId;
+    this.event = event;
+  }
+
+  public long getBuildId() {
+    return buildId;
+  }
+
+  public LifecycleEvent getEvent() {
+    return event;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    TestEvent that = (TestEvent) o;
+    return buildId == that.buildId && event == that.event;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(buildId, event);
+  }
+}
@@ -0,0 +1,347 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.lifecycle;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.detector.BuildPair;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.BasicMethodData;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.Build;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.ProjectBranchKey;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer.Checkpoint;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * <p>Records for every branch when each test method has appeared, has been ignored or converted
+ * into another method and has been deleted. The index is built incrementally from the build pairs
+ * of an analysis, which are compared once anyway, so its queries can be answered without
+ * extracting any methods again. Pairs may be recorded in any order and from several threads.</p>
+ *
+ * <p>The first build of a branch, i.e. a build without a previous build or whose previous build
+ * is on another branch, records all its test methods as appeared. Every other build records the
+ * differences to its previous build. The events of a build are only known if the methods of both
+ * builds have been extracted successfully, which is recorded as well.</p>
+ *
+ * <p>The index is stored in {@code Results/test_lifecycle.idx}, a binary file with a table of all
+ * distinct names followed by the builds and events of every branch, whose numbers are written as
+ * variable-length integers and build IDs as differences to their predecessors.</p>
+ */
+public class TestLifecycleIndex {
+
+  public static final String FILE_NAME = "test_lifecycle.idx";
+  private static final int MAGIC = 0x544c4958;
+  private static final int VERSION = 1;
+  private static final int METHODS_INDEXED_FLAG = 1;
+
+  private final Map<ProjectBranchKey, BranchLifecycle> branches = new LinkedHashMap<>();
+  // Most names occur on many branches, so they are shared instead of being stored once per branch.
+  private final Map<String, String> canonicalNames = new HashMap<>();
+
+  /**
+   * Records the first build of a branch.
+   *
+   * @param build The build.
+   * @param testMethods The qualified names of the test methods of the build or null if its methods
+   *                    have not been extracted successfully.
+   */
+  public synchronized void recordBranchStart(Build build, Collection<String> testMethods) {
+    BranchLifecycle branch = getOrCreateBranch(build.getProjectBranchKey());
+    recordBuild(branch, build, testMethods != null);
+    if (testMethods != null) {
+      for (String testMethod : testMethods) {
+        branch.addEvent(canonicalize(testMethod), new TestEvent(build.getBuildId(), LifecycleEvent.APPEARED));
+      }
+    }
+  }
+
+  /**
+   * Records the follow-up build of a pair.
+   *
+   * @param pair The compared builds.
+   * @param testMethodsT2 Supplies the qualified names of the test methods of T2 if the pair starts
+   *                      a branch.
+   */
+  public void recordPair(BuildPair pair, Supplier<Collection<String>> testMethodsT2) {
+    Build buildT1 = pair.getBuildT1();
+    Build buildT2 = pair.getBuildT2();
+    if (buildT1 == null || !buildT1.getProjectBranchKey().equals(buildT2.getProjectBranchKey())) {
+      recordBranchStart(buildT2, Boolean.TRUE.equals(buildT2.getExtractionSuccessful()) ? testMethodsT2.get() : null);
+      return;
+    }
+
+    synchronized (this) {
+      BranchLifecycle branch = getOrCreateBranch(buildT2.getProjectBranchKey());
+      recordBuild(branch, buildT2, pair.hasMethods());
+      if (!pair.hasMethods()) {
+        return;
+      }
+      recordEvents(branch, buildT2, LifecycleEvent.APPEARED, pair.getCommitComparison().getTestMethodsNotInT1().keySet());
+      recordEvents(branch, buildT2, LifecycleEvent.IGNORED, pair.getTestMethodsIgnoredInT2());
+      recordEvents(branch, buildT2, LifecycleEvent.CONVERTED, pair.getTestMethodsConvertedInT2());
+      recordEvents(branch, buildT2, LifecycleEvent.DELETED, pair.getTestMethodsDeletedInT2());
+    }
+  }
+
+  private BranchLifecycle getOrCreateBranch(ProjectBranchKey projectBranchKey) {
+    return branches.computeIfAbsent(projectBranchKey, BranchLifecycle::new);
+  }
+
+  private void recordBuild(BranchLifecycle branch, Build build, boolean methodsIndexed) {
+    List<String> failedTests = new ArrayList<>();
+    if (build.getFailedMethods() != null) {
+      build.getFailedMethods().forEach(failedTest -> failedTests.add(canonicalize(failedTest)));
+    }
+    branch.getBuildsById().put(build.getBuildId(),
+        new BuildRecord(build.getBuildId(), build.getPrevBuildId(), failedTests, methodsIndexed));
+  }
+
+  private void recordEvents(BranchLifecycle branch, Build build, LifecycleEvent event,
+                            Collection<BasicMethodData> methods) {
+    for (BasicMethodData method : methods) {
+      branch.addEvent(canonicalize(method.getQualifiedName()), new TestEvent(build.getBuildId(), event));
+    }
+  }
+
+  private String canonicalize(String name) {
+    String canonicalName = canonicalNames.putIfAbsent(name, name);
+    return canonicalName != null ? canonicalName : name;
+  }
+
+  /**
+   * Removes the builds and events that have been recorded after a checkpoint, because their
+   * pairs are analyzed again when the run is resumed.
+   *
+   * @param checkpoint The checkpoint the run is resumed from.
+   */
+  public synchronized void removeUncommitted(Checkpoint checkpoint) {
+    for (BranchLifecycle branch : branches.values()) {
+      ProjectBranchKey key = branch.getProjectBranchKey();
+      branch.getBuildsById().keySet().removeIf(buildId -> !checkpoint.isCommitted(key, buildId));
+      Iterator<List<TestEvent>> iterator = branch.getEventsByTest().values().iterator();
+      while (iterator.hasNext()) {
+        List<TestEvent> events = iterator.next();
+        events.removeIf(event -> !checkpoint.isCommitted(key, event.getBuildId()));
+        if (events.isEmpty()) {
+          iterator.remove();
+        }
+      }
+    }
+    branches.values().removeIf(branch -> branch.getBuildsById().isEmpty());
+  }
+
+  /**
+   * @param checkpoint The checkpoint a run is resumed from.
+   * @return the number of branches whose last committed build has not been recorded, e.g. because
+   *         the index has not been written before the run was interrupted.
+   */
+  public synchronized int countIncompleteBranches(Checkpoint checkpoint) {
+    int numIncompleteBranches = 0;
+    for (Map.Entry<ProjectBranchKey, Long> entry : checkpoint.getLastBuildIdByPartition().entrySet()) {
+      BranchLifecycle branch = branches.get(entry.getKey());
+      if (branch == null || branch.getBuildsById().lastKey() < entry.getValue()) {
+        numIncompleteBranches++;
+      }
+    }
+    return numIncompleteBranches;
+  }
+
+  /**
+   * Adds the branches of another index, e.g. of another shard of the same analysis.
+   *
+   * @param other The index whose branches are added.
+   * @throws IllegalArgumentException if a branch is contained in both indexes.
+   */
+  public synchronized void addBranches(TestLifecycleIndex other) {
+    for (BranchLifecycle branch : other.getBranches()) {
+      if (branches.putIfAbsent(branch.getProjectBranchKey(), branch) != null) {
+        throw new IllegalArgumentException("The branch " + branch.getProjectBranchKey()
+            + " is contained in both indexes.");
+      }
+    }
+  }
+
+  /**
+   * @return the branches in the order in which they have been recorded or read.
+   */
+  public synchronized Collection<BranchLifecycle> getBranches() {
+    return Collections.unmodifiableCollection(new ArrayList<>(branches.values()));
+  }
+
+  /**
+   * Replaces an index file atomically.
+   *
+   * @param indexPath The path of the index file.
+   * @throws IOException if the file cannot be written.
+   */
+  public synchronized void write(Path indexPath) throws IOException {
+    Map<String, Integer> stringIndexes = new LinkedHashMap<>();
+    for (BranchLifecycle branch : branches.values()) {
+      branch.normalize();
+      stringIndexes.putIfAbsent(branch.getProjectBranchKey().getProjectName(), stringIndexes.size());
+      stringIndexes.putIfAbsent(branch.getProjectBranchKey().getBranch(), stringIndexes.size());
+      for (BuildRecord build : branch.getBuildsById().values()) {
+        build.getFailedTests().forEach(failedTest -> stringIndexes.putIfAbsent(failedTest, stringIndexes.size()));
+      }
+      branch.getEventsByTest().keySet().forEach(testMethod -> stringIndexes.putIfAbsent(testMethod,
+          stringIndexes.size()));
+    }
+
+    Files.createDirectories(indexPath.toAbsolutePath().getParent());
+    Path temporaryPath = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryPath),
+        1024 * 1024))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      writeVarLong(out, stringIndexes.size());
+      for (String string : stringIndexes.keySet()) {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+      }
+
+      writeVarLong(out, branches.size());
+      for (BranchLifecycle branch : branches.values()) {
+        writeVarLong(out, stringIndexes.get(branch.getProjectBranchKey().getProjectName()));
+        writeVarLong(out, stringIndexes.get(branch.getProjectBranchKey().getBranch()));
+        writeVarLong(out, branch.getBuildsById().size());
+        long previousBuildId = 0;
+        for (BuildRecord build : branch.getBuildsById().values()) {
+          writeVarLong(out, build.getBuildId() - previousBuildId);
+          previousBuildId = build.getBuildId();
+          // 0 stands for a build without a previous build.
+          writeVarLong(out, build.getPrevBuildId() != null ? build.getPrevBuildId() + 1 : 0);
+          out.writeByte(build.isMethodsIndexed() ? METHODS_INDEXED_FLAG : 0);
+          writeVarLong(out, build.getFailedTests().size());
+          for (String failedTest : build.getFailedTests()) {
+            writeVarLong(out, stringIndexes.get(failedTest));
+          }
+        }
+
+        writeVarLong(out, branch.getEventsByTest().size());
+        for (Map.Entry<String, List<TestEvent>> entry : branch.getEventsByTest().entrySet()) {
+          writeVarLong(out, stringIndexes.get(entry.getKey()));
+          writeVarLong(out, entry.getValue().size());
+          long previousEventBuildId = 0;
+          for (TestEvent event : entry.getValue()) {
+            out.writeByte(event.getEvent().ordinal());
+            writeVarLong(out, event.getBuildId() - previousEventBuildId);
+            previousEventBuildId = event.getBuildId();
+          }
+        }
+      }
+    }
+    Files.move(temporaryPath, indexPath, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * @param indexPath The path of an index file.
+   * @return the index.
+   * @throws IOException if the file cannot be read or is not an index.
+   */
+  public static TestLifecycleIndex read(Path indexPath) throws IOException {
+    TestLifecycleIndex index = new TestLifecycleIndex();
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath),
+        1024 * 1024))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("\"" + indexPath + "\" is not a lifecycle index.");
+      }
+      int version = in.readInt();
+      if (version != VERSION) {
+        throw new IOException("The lifecycle index \"" + indexPath + "\" has the unsupported version " + version + ".");
+      }
+
+      String[] strings = new String[readCount(in)];
+      for (int i = 0; i < strings.length; i++) {
+        byte[] bytes = new byte[readCount(in)];
+        in.readFully(bytes);
+        strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        index.canonicalNames.put(strings[i], strings[i]);
+      }
+
+      LifecycleEvent[] events = LifecycleEvent.values();
+      int numBranches = readCount(in);
+      for (int i = 0; i < numBranches; i++) {
+        BranchLifecycle branch = index.getOrCreateBranch(new ProjectBranchKey(strings[readCount(in)],
+            strings[readCount(in)]));
+        int numBuilds = readCount(in);
+        long buildId = 0;
+        for (int j = 0; j < numBuilds; j++) {
+          buildId += readVarLong(in);
+          long prevBuildId = readVarLong(in);
+          boolean methodsIndexed = (in.readByte() & METHODS_INDEXED_FLAG) != 0;
+          List<String> failedTests = new ArrayList<>();
+          int numFailedTests = readCount(in);
+          for (int k = 0; k < numFailedTests; k++) {
+            failedTests.add(strings[readCount(in)]);
+          }
+          branch.getBuildsById().put(buildId, new BuildRecord(buildId, prevBuildId > 0 ? prevBuildId - 1 : null,
+              failedTests, methodsIndexed));
+        }
+
+        int numTests = readCount(in);
+        for (int j = 0; j < numTests; j++) {
+          String testMethod = strings[readCount(in)];
+          int numEvents = readCount(in);
+          List<TestEvent> testEvents = new ArrayList<>(numEvents);
+          long eventBuildId = 0;
+          for (int k = 0; k < numEvents; k++) {
+            int ordinal = in.readUnsignedByte();
+            eventBuildId += readVarLong(in);
+            if (ordinal >= events.length) {
+              throw new IOException("The lifecycle index \"" + indexPath + "\" contains an unknown event.");
+            }
+            testEvents.add(new TestEvent(eventBuildId, events[ordinal]));
+          }
+          branch.getEventsByTest().put(testMethod, testEvents);
+        }
+      }
+    }
+    catch (EOFException | ArrayIndexOutOfBoundsException | NegativeArraySizeException e) {
+      throw new IOException("The lifecycle index \"" + indexPath + "\" is truncated or corrupt.", e);
+    }
+    return index;
+  }
+
+  private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+    while ((value & ~0x7fL) != 0) {
+      out.writeByte((int) ((value & 0x7f) | 0x80));
+      value >>>= 7;
+    }
+    out.writeByte((int) value);
+  }
+
+  private static long readVarLong(DataInputStream in) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.readUnsignedByte();
+      value |= (long) (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("A number of the lifecycle index is too long.");
+  }
+
+  private static int readCount(DataInputStream in) throws IOException {
+    long count = readVarLong(in);
+    if (count > Integer.MAX_VALUE) {
+      throw new IOException("A count of the lifecycle index is too large.");
+    }
+    return (int) count;
+  }
+}
@@ -1,5 +1,7 @@
 package ch.svenstoll.mbm.skipfailedtestdetectorforjava.model;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 
 public class BasicClassData {
@@ -7,6 +9,8 @@ public class BasicClassData {
   private final String qualifiedName;
   private final String simpleName;
   private String parentClass = null;
+  private List<String> parentClassCandidates = Collections.emptyList();
+  private Long methodsHash = null;
 
   public BasicClassData(String qualifiedName, String simpleName) {
     this.qualifiedName = qualifiedName;
@@ -21,6 +25,8 @@ public class BasicClassData {
   public BasicClassData(BasicClassData basicClassData) {
     this (basicClassData.qualifiedName, basicClassData.simpleName);
     this.parentClass = basicClassData.parentClass;
+    this.parentClassCandidates = basicClassData.parentClassCandidates;
+    this.methodsHash = basicClassData.methodsHash;
   }
 
   public String getQualifiedName() {
@@ -39,6 +45,31 @@ public class BasicClassData {
     this.parentClass = parentClass;
   }
 
+  /**
+   * @return the qualified names the extended class may have according to the enclosing classes,
+   *         the imports and the package of the class, in the order in which Java resolves them.
+   */
+  public List<String> getParentClassCandidates() {
+    return parentClassCandidates;
+  }
+
+  public void setParentClassCandidates(List<String> parentClassCandidates) {
+    this.parentClassCandidates = parentClassCandidates;
+  }
+
+  /**
+   * @return a hash over the qualified names of all methods of the class and whether they are test
+   *         methods, which does not depend on the order of the methods, or null if it has not been
+   *         calculated.
+   */
+  public Long getMethodsHash() {
+    return methodsHash;
+  }
+
+  public void setMethodsHash(Long methodsHash) {
+    this.methodsHash = methodsHash;
+  }
+
   @Override
   public String toString() {
     return qualifiedName;
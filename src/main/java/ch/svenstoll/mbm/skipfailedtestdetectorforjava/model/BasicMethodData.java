@@ -10,6 +10,7 @@ public class BasicMethodData {
   private Boolean isTestMethod = null;
   private Boolean isChildMethod = null;
   private Boolean isAbstractMethod = null;
+  private Boolean isIgnoredMethod = null;
 
   public BasicMethodData(String qualifiedName, String signature, BasicClassData basicClassData) {
     this.qualifiedName = qualifiedName;
@@ -29,6 +30,7 @@ public class BasicMethodData {
     this.isTestMethod = basicMethodData.isTestMethod;
     this.isChildMethod = basicMethodData.isChildMethod;
     this.isAbstractMethod = basicMethodData.isAbstractMethod;
+    this.isIgnoredMethod = basicMethodData.isIgnoredMethod;
   }
 
   public String getQualifiedName() {
@@ -67,6 +69,38 @@ public class BasicMethodData {
     this.isAbstractMethod = isAbstract;
   }
 
+  /**
+   * @return whether the method is annotated with {@code @Ignore} or {@code @Disabled}.
+   */
+  public Boolean isIgnoredMethod() {
+    return isIgnoredMethod;
+  }
+
+  public void setIsIgnoredMethod(Boolean ignored) {
+    this.isIgnoredMethod = ignored;
+  }
+
+  /**
+   * Merges another occurrence of the qualified name into this method, e.g. of a class that is
+   * declared in two files. The method then has every flag that one of the occurrences has, which
+   * is also how {@link MethodTable.Builder} merges the rows of a qualified name.
+   *
+   * @param duplicate Another method with the same qualified name.
+   */
+  public void mergeDuplicate(BasicMethodData duplicate) {
+    isTestMethod = or(isTestMethod, duplicate.isTestMethod);
+    isChildMethod = or(isChildMethod, duplicate.isChildMethod);
+    isAbstractMethod = or(isAbstractMethod, duplicate.isAbstractMethod);
+    isIgnoredMethod = or(isIgnoredMethod, duplicate.isIgnoredMethod);
+  }
+
+  private static Boolean or(Boolean a, Boolean b) {
+    if (a == null || b == null) {
+      return a != null ? a : b;
+    }
+    return a || b;
+  }
+
   @Override
   public String toString() {
     return qualifiedName;
@@ -18,6 +18,8 @@ public class Build {
   private final List<String> failedMethods;
   private Map<BasicClassData, List<BasicMethodData>> methodsByClass;
   private Boolean extractionSuccessful;
+  private Long methodsHash;
+  private MethodTable methodTable;
 
   private Build(
       ProjectBranchKey projectBranchKey,
@@ -79,6 +81,9 @@ public class Build {
     this.failedMethods = failedMethodsCopy;
     this.methodsByClass = copyMethodsByClassFromBuild(build);
     this.extractionSuccessful = build.extractionSuccessful;
+    this.methodsHash = build.methodsHash;
+    // The table is immutable and can therefore be shared.
+    this.methodTable = build.methodTable;
   }
 
   private Map<BasicClassData, List<BasicMethodData>> copyMethodsByClassFromBuild(Build build) {
@@ -111,6 +116,10 @@ public class Build {
     return projectBranchKey;
   }
 
+  public ProjectCommitKey getProjectCommitKey() {
+    return new ProjectCommitKey(projectBranchKey.getProjectName(), triggerCommit);
+  }
+
   public long getBuildId() {
     return buildId;
   }
@@ -163,6 +172,31 @@ public class Build {
     this.methodsByClass = methodsByClass;
   }
 
+  /**
+   * @return the sum of the methods hashes of all classes or null if the methods have not been
+   *         extracted.
+   * @see BasicClassData#getMethodsHash()
+   */
+  public Long getMethodsHash() {
+    return methodsHash;
+  }
+
+  public void setMethodsHash(Long methodsHash) {
+    this.methodsHash = methodsHash;
+  }
+
+  /**
+   * @return the extracted methods if they are stored in a table instead of
+   *         {@link #getMethodsByClass()} or null.
+   */
+  public MethodTable getMethodTable() {
+    return methodTable;
+  }
+
+  public void setMethodTable(MethodTable methodTable) {
+    this.methodTable = methodTable;
+  }
+
   @Override
   public String toString() {
     return projectBranchKey.toString() + "#" + getBuildId();
@@ -1,9 +1,14 @@
 package ch.svenstoll.mbm.skipfailedtestdetectorforjava.model;
 
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.BooleanUtility;
 import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.StringUtility;
 import org.apache.commons.csv.CSVPrinter;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public final class BuildAnalysisResult {
 
@@ -55,6 +60,7 @@ public final class BuildAnalysisResult {
   private final Integer numRemovedFailedTests;
   private final String removedFailedTests;
   private final boolean analysisOk;
+  private final List<DetectorFinding> detectorFindings;
 
   private BuildAnalysisResult(String project,
                              String branchT1,
@@ -78,7 +84,8 @@ public final class BuildAnalysisResult {
                              Integer numFailedMethodsNotExtracted,
                              Integer numRemovedFailedTests,
                              String removedFailedTests,
-                             boolean analysisOk) {
+                             boolean analysisOk,
+                             List<DetectorFinding> detectorFindings) {
     if (StringUtility.isNullOrEmpty(project) || StringUtility.isNullOrEmpty(branchT2)) {
       throw new IllegalArgumentException("Project name and branch of follow-up build must not be null or empty.");
     }
@@ -106,10 +113,27 @@ public final class BuildAnalysisResult {
     this.numRemovedFailedTests = numRemovedFailedTests;
     this.removedFailedTests = removedFailedTests;
     this.analysisOk = analysisOk;
+    this.detectorFindings = detectorFindings;
   }
 
   public void printToCsv(CSVPrinter csvPrinter) throws IOException {
-    csvPrinter.printRecord(
+    csvPrinter.printRecord(getValues());
+  }
+
+  /**
+   * @return the values of the result by their column in the result files.
+   */
+  public Map<String, Object> toMap() {
+    Object[] values = getValues();
+    Map<String, Object> valuesByColumn = new LinkedHashMap<>();
+    for (int i = 0; i < CSV_HEADERS.length; i++) {
+      valuesByColumn.put(CSV_HEADERS[i], values[i]);
+    }
+    return valuesByColumn;
+  }
+
+  private Object[] getValues() {
+    return new Object[]{
         getProject(),
         getBranchT1(),
         getBranchT2(),
@@ -132,7 +156,16 @@ public final class BuildAnalysisResult {
         getNumFailedMethodsNotExtracted(),
         getNumRemovedFailedTests(),
         getRemovedFailedTests(),
-        isAnalysisOk());
+        isAnalysisOk()};
+  }
+
+  /**
+   * @return true if a failed test has been removed in the follow-up build or if the legacy smell
+   *         warning of CI-ODOR applies. Only results of successful analyses are considered.
+   */
+  public boolean hasSmell() {
+    return analysisOk && (BooleanUtility.nvl(legacySmellWarning)
+        || (numRemovedFailedTests != null && numRemovedFailedTests >= 1));
   }
 
   public String getProject() {
@@ -227,6 +260,13 @@ public final class BuildAnalysisResult {
     return analysisOk;
   }
 
+  /**
+   * @return the findings of the detectors, which are not part of the result files.
+   */
+  public List<DetectorFinding> getDetectorFindings() {
+    return detectorFindings;
+  }
+
   public static final class BuildAnalysisBuilder implements AnalysisOkBuildAnalysisBuilder,
       ProjectBuildAnalysisBuilder, BranchBuildAnalysisBuilder, BuildIdT2BuildAnalysisBuilder,
       TriggerCommitT2BuildAnalysisBuilder, FinalBuildAnalysisBuilder {
@@ -256,6 +296,7 @@ public final class BuildAnalysisResult {
     private Integer numRemovedFailedTests = null;
     private String removedFailedTests = null;
     private boolean analysisOk;
+    private List<DetectorFinding> detectorFindings = Collections.emptyList();
 
     private BuildAnalysisBuilder() {
     }
@@ -408,6 +449,12 @@ public final class BuildAnalysisResult {
       return this;
     }
 
+    @Override
+    public FinalBuildAnalysisBuilder andDetectorFindings(List<DetectorFinding> detectorFindings) {
+      this.detectorFindings = detectorFindings;
+      return this;
+    }
+
     @Override
     public BuildAnalysisResult create() {
       return new BuildAnalysisResult(
@@ -433,7 +480,8 @@ public final class BuildAnalysisResult {
           numFailedMethodsNotExtracted,
           numRemovedFailedTests,
           removedFailedTests,
-          analysisOk);
+          analysisOk,
+          detectorFindings);
     }
   }
 
@@ -497,6 +545,8 @@ public final class BuildAnalysisResult {
 
     FinalBuildAnalysisBuilder andRemovedFailedTests(String removedFailedTests);
 
+    FinalBuildAnalysisBuilder andDetectorFindings(List<DetectorFinding> detectorFindings);
+
     BuildAnalysisResult create();
   }
 }
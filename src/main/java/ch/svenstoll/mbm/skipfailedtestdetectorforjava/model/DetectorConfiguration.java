@@ -0,0 +1,855 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.model;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.extractor.CloneStrategy;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.extractor.MethodStorage;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.extractor.RepositoryRetention;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.scheduler.BuildOrder;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.scheduler.ExecutorBackend;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.scheduler.ShardAssignment;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.stream.StreamFormat;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.StringUtility;
+
+public final class DetectorConfiguration {
+
+  public static final int DEFAULT_RESULT_QUEUE_CAPACITY = 1024;
+  public static final int DEFAULT_RESULT_BUFFER_SIZE = 1024 * 1024;
+  public static final int DEFAULT_RESULT_FLUSH_ROWS = 500;
+  public static final long DEFAULT_RESULT_FLUSH_INTERVAL_MILLIS = 5000;
+  public static final int DEFAULT_RESULT_CHECKPOINT_ROWS = 5000;
+  public static final String DEFAULT_GIT_URI_TEMPLATE = "https://github.com/{project}.git";
+  public static final int DEFAULT_NUM_PREFETCHED_REPOSITORIES = 2;
+  public static final int DEFAULT_NUM_PREFETCH_THREADS = 2;
+  public static final long DEFAULT_EXTRACTION_CACHE_BYTES = 256L * 1024 * 1024;
+  public static final int DEFAULT_SERVER_PORT = 8080;
+  public static final String STDIN_STREAM_SOURCE = "-";
+  public static final long DEFAULT_STREAM_WINDOW_MILLIS = 60000;
+  public static final long DEFAULT_SAMPLE_SEED = 1;
+  public static final double DEFAULT_SAMPLE_CONFIDENCE = 0.95;
+  public static final int IO_THREADS_PER_PROCESSOR = 4;
+  public static final double DEFAULT_MAX_HEAP_OCCUPANCY = 0.85;
+  public static final long DEFAULT_MIN_FREE_DISK_BYTES = 1024L * 1024 * 1024;
+  public static final String DEFAULT_DETECTOR_SELECTION = "all";
+
+  private final String inputFilePath;
+  private final String outputFolderPath;
+  private final String baseOutputFolderPath;
+  private final int resultQueueCapacity;
+  private final int resultBufferSize;
+  private final int resultFlushRows;
+  private final long resultFlushIntervalMillis;
+  private final int resultCheckpointRows;
+  private final boolean resume;
+  private final CloneStrategy cloneStrategy;
+  private final String gitUriTemplate;
+  private final int numPrefetchedRepositories;
+  private final int numPrefetchThreads;
+  private final long maxPrefetchBytesPerSecond;
+  private final BuildOrder buildOrder;
+  private final RepositoryRetention repositoryRetention;
+  private final long repositoryDiskBudget;
+  private final long gitCacheMemory;
+  private final boolean smellCandidatesOnly;
+  private final long extractionCacheBytes;
+  private final int numComparisonThreads;
+  private final boolean discoverSourceRoots;
+  private final MethodStorage methodStorage;
+  private final int shardIndex;
+  private final int shardCount;
+  private final int serverPort;
+  private final int maxConcurrentRequests;
+  private final String streamSource;
+  private final StreamFormat streamFormat;
+  private final long streamWindowMillis;
+  private final ExecutorBackend executorBackend;
+  private final int numIoThreads;
+  private final int numProjectThreads;
+  private final String projectTimingsFilePath;
+  private final int sampleSize;
+  private final long sampleSeed;
+  private final double sampleConfidence;
+  private final double maxHeapOccupancy;
+  private final long minFreeDiskBytes;
+  private final String detectorSelection;
+  private final boolean lifecycleIndexed;
+
+  private DetectorConfiguration(ConfigurationBuilder builder) {
+    if (StringUtility.isNullOrEmpty(builder.outputFolderPath)) {
+      throw new IllegalArgumentException("The outputFolderPath must not be null or empty.");
+    }
+    if (builder.cloneStrategy == null || StringUtility.isNullOrEmpty(builder.gitUriTemplate)) {
+      throw new IllegalArgumentException("The clone strategy and the Git URI template must not be null or empty.");
+    }
+    if (builder.buildOrder == null) {
+      throw new IllegalArgumentException("The build order must not be null.");
+    }
+    if (builder.repositoryRetention == null || builder.repositoryDiskBudget < 0) {
+      throw new IllegalArgumentException("The repository retention must not be null and the disk budget must not be "
+          + "negative.");
+    }
+    if (builder.gitCacheMemory < 0 || builder.extractionCacheBytes < 0) {
+      throw new IllegalArgumentException("Cache sizes must not be negative.");
+    }
+    if (builder.methodStorage == null) {
+      throw new IllegalArgumentException("The method storage must not be null.");
+    }
+    if (builder.executorBackend == null || builder.numIoThreads < 1) {
+      throw new IllegalArgumentException("The executor backend must not be null and at least one I/O thread is "
+          + "required.");
+    }
+    if (builder.maxHeapOccupancy < 0 || builder.maxHeapOccupancy >= 1 || builder.minFreeDiskBytes < 0) {
+      throw new IllegalArgumentException("The maximum heap occupancy must be between 0 and 1 and the minimum free "
+          + "disk space must not be negative.");
+    }
+    if (builder.numProjectThreads < 1) {
+      throw new IllegalArgumentException("At least one project thread is required.");
+    }
+    if (builder.numComparisonThreads < 1) {
+      throw new IllegalArgumentException("At least one comparison thread is required.");
+    }
+    if (builder.resultQueueCapacity < 1 || builder.resultBufferSize < 1 || builder.resultFlushRows < 1
+        || builder.resultFlushIntervalMillis < 1 || builder.resultCheckpointRows < 1) {
+      throw new IllegalArgumentException("Result writer settings must be positive numbers.");
+    }
+    if (builder.numPrefetchedRepositories < 0 || builder.numPrefetchThreads < 1
+        || builder.maxPrefetchBytesPerSecond < 0) {
+      throw new IllegalArgumentException("Prefetch settings must not be negative and at least one thread is required.");
+    }
+
+    this.inputFilePath = builder.inputFilePath;
+    this.baseOutputFolderPath = builder.outputFolderPath;
+    // The shard options are validated when the folder of the shard is resolved.
+    this.outputFolderPath = builder.shardCount != 1 || builder.shardIndex != 0
+        ? ShardAssignment.getShardFolderPath(builder.outputFolderPath, builder.shardIndex, builder.shardCount)
+        : builder.outputFolderPath;
+    this.resultQueueCapacity = builder.resultQueueCapacity;
+    this.resultBufferSize = builder.resultBufferSize;
+    this.resultFlushRows = builder.resultFlushRows;
+    this.resultFlushIntervalMillis = builder.resultFlushIntervalMillis;
+    this.resultCheckpointRows = builder.resultCheckpointRows;
+    this.resume = builder.resume;
+    this.cloneStrategy = builder.cloneStrategy;
+    this.gitUriTemplate = builder.gitUriTemplate;
+    this.numPrefetchedRepositories = builder.numPrefetchedRepositories;
+    this.numPrefetchThreads = builder.numPrefetchThreads;
+    this.maxPrefetchBytesPerSecond = builder.maxPrefetchBytesPerSecond;
+    this.buildOrder = builder.buildOrder;
+    this.repositoryRetention = builder.repositoryRetention;
+    this.repositoryDiskBudget = builder.repositoryDiskBudget;
+    this.gitCacheMemory = builder.gitCacheMemory;
+    this.smellCandidatesOnly = builder.smellCandidatesOnly;
+    this.extractionCacheBytes = builder.extractionCacheBytes;
+    this.numComparisonThreads = builder.numComparisonThreads;
+    this.discoverSourceRoots = builder.discoverSourceRoots;
+    this.methodStorage = builder.methodStorage;
+    this.shardIndex = builder.shardIndex;
+    this.shardCount = builder.shardCount;
+    this.serverPort = builder.serverPort;
+    this.maxConcurrentRequests = builder.maxConcurrentRequests;
+    this.streamSource = builder.streamSource;
+    this.streamFormat = builder.streamFormat;
+    this.streamWindowMillis = builder.streamWindowMillis;
+    this.executorBackend = builder.executorBackend;
+    this.numIoThreads = builder.numIoThreads;
+    this.numProjectThreads = builder.numProjectThreads;
+    this.projectTimingsFilePath = builder.projectTimingsFilePath;
+    this.sampleSize = builder.sampleSize;
+    this.sampleSeed = builder.sampleSeed;
+    this.sampleConfidence = builder.sampleConfidence;
+    this.maxHeapOccupancy = builder.maxHeapOccupancy;
+    this.minFreeDiskBytes = builder.minFreeDiskBytes;
+    this.detectorSelection = builder.detectorSelection;
+    this.lifecycleIndexed = builder.lifecycleIndexed;
+  }
+
+  public String getInputFilePath() {
+    return inputFilePath;
+  }
+
+  /**
+   * @return the folder for the results, repositories and logs of this process, which is a
+   *         separate folder per shard if sharding is enabled.
+   */
+  public String getOutputFolderPath() {
+    return outputFolderPath;
+  }
+
+  /**
+   * @return the output folder given on the command line.
+   */
+  public String getBaseOutputFolderPath() {
+    return baseOutputFolderPath;
+  }
+
+  /**
+   * @return the maximum number of results that may wait for the result writer before the
+   *         comparison loop is slowed down.
+   */
+  public int getResultQueueCapacity() {
+    return resultQueueCapacity;
+  }
+
+  /**
+   * @return the size in characters of the buffer placed in front of each result file.
+   */
+  public int getResultBufferSize() {
+    return resultBufferSize;
+  }
+
+  /**
+   * @return the number of rows after which buffered results are handed to the operating system.
+   */
+  public int getResultFlushRows() {
+    return resultFlushRows;
+  }
+
+  /**
+   * @return the maximum time in milliseconds a written row may stay in the buffer.
+   */
+  public long getResultFlushIntervalMillis() {
+    return resultFlushIntervalMillis;
+  }
+
+  /**
+   * @return the number of rows after which the result files are forced to the storage device.
+   */
+  public int getResultCheckpointRows() {
+    return resultCheckpointRows;
+  }
+
+  /**
+   * @return true if the run continues from the last checkpoint of an interrupted run.
+   */
+  public boolean isResume() {
+    return resume;
+  }
+
+  public CloneStrategy getCloneStrategy() {
+    return cloneStrategy;
+  }
+
+  /**
+   * @return the location of a project's remote repository, where {@code {project}},
+   *         {@code {owner}} and {@code {name}} are placeholders.
+   */
+  public String getGitUriTemplate() {
+    return gitUriTemplate;
+  }
+
+  /**
+   * @return the number of following projects whose repositories are cloned in the background.
+   */
+  public int getNumPrefetchedRepositories() {
+    return numPrefetchedRepositories;
+  }
+
+  public int getNumPrefetchThreads() {
+    return numPrefetchThreads;
+  }
+
+  /**
+   * @return the maximum average number of bytes per second that may be cloned or 0 if unlimited.
+   */
+  public long getMaxPrefetchBytesPerSecond() {
+    return maxPrefetchBytesPerSecond;
+  }
+
+  /**
+   * @return the order in which the builds of a project are extracted.
+   */
+  public BuildOrder getBuildOrder() {
+    return buildOrder;
+  }
+
+  /**
+   * @return what happens to a repository once all builds of its project have been analyzed.
+   */
+  public RepositoryRetention getRepositoryRetention() {
+    return repositoryRetention;
+  }
+
+  /**
+   * @return the disk space in bytes the repositories may use before the least recently used
+   *         ones are deleted or 0 if unlimited.
+   */
+  public long getRepositoryDiskBudget() {
+    return repositoryDiskBudget;
+  }
+
+  /**
+   * @return the memory in bytes for the shared JGit pack file cache or 0 to keep the defaults
+   *         of JGit.
+   */
+  public long getGitCacheMemory() {
+    return gitCacheMemory;
+  }
+
+  /**
+   * @return true if methods are only extracted for build pairs that can have a smell.
+   */
+  public boolean isSmellCandidatesOnly() {
+    return smellCandidatesOnly;
+  }
+
+  /**
+   * @return the estimated memory in bytes the cached methods of extracted commits may use.
+   */
+  public long getExtractionCacheBytes() {
+    return extractionCacheBytes;
+  }
+
+  /**
+   * @return the number of threads that compare extracted builds. With a single thread,
+   *         builds are compared on the thread that extracts them.
+   */
+  public int getNumComparisonThreads() {
+    return numComparisonThreads;
+  }
+
+  /**
+   * @return whether only the test source roots declared in the Maven or Gradle build files of a
+   *         commit are parsed instead of all Java files with {@code test} in their path.
+   */
+  public boolean isDiscoverSourceRoots() {
+    return discoverSourceRoots;
+  }
+
+  /**
+   * @return where the methods extracted for a commit are kept until its builds have been
+   *         compared.
+   */
+  public MethodStorage getMethodStorage() {
+    return methodStorage;
+  }
+
+  /**
+   * @return the index of the shard of the projects analyzed by this process, starting at 0.
+   */
+  public int getShardIndex() {
+    return shardIndex;
+  }
+
+  /**
+   * @return the number of shards the projects are split into. A count of 1 disables sharding.
+   */
+  public int getShardCount() {
+    return shardCount;
+  }
+
+  /**
+   * @return whether shard options other than the default shard 0 of 1 have been given.
+   */
+  public boolean isSharded() {
+    return shardCount != 1 || shardIndex != 0;
+  }
+
+  /**
+   * @return the port on which the daemon mode listens for requests.
+   */
+  public int getServerPort() {
+    return serverPort;
+  }
+
+  /**
+   * @return the number of requests the daemon mode analyzes at the same time.
+   */
+  public int getMaxConcurrentRequests() {
+    return maxConcurrentRequests;
+  }
+
+  /**
+   * @return the file that is followed in streaming mode or {@code -} for the standard input.
+   */
+  public String getStreamSource() {
+    return streamSource;
+  }
+
+  /**
+   * @return the format of the build records in streaming mode.
+   */
+  public StreamFormat getStreamFormat() {
+    return streamFormat;
+  }
+
+  /**
+   * @return how long a build waits for its previous build in streaming mode.
+   */
+  public long getStreamWindowMillis() {
+    return streamWindowMillis;
+  }
+
+  /**
+   * @return the backend for the blocking repository work of the extraction.
+   */
+  public ExecutorBackend getExecutorBackend() {
+    return executorBackend;
+  }
+
+  /**
+   * @return the number of threads for blocking repository work if they run in a bounded pool.
+   */
+  public int getNumIoThreads() {
+    return numIoThreads;
+  }
+
+  /**
+   * @return the number of projects that are analyzed at the same time.
+   */
+  public int getNumProjectThreads() {
+    return numProjectThreads;
+  }
+
+  /**
+   * @return the timings of a previous run the projects are planned with or null to use the
+   *         timings in the output folder if there are any.
+   */
+  public String getProjectTimingsFilePath() {
+    return projectTimingsFilePath;
+  }
+
+  /**
+   * @return the number of build pairs that are drawn in sampling mode. A size of 0 disables
+   *         sampling.
+   */
+  public int getSampleSize() {
+    return sampleSize;
+  }
+
+  /**
+   * @return whether a sample size has been given. It is validated by the sampling mode.
+   */
+  public boolean isSampled() {
+    return sampleSize != 0;
+  }
+
+  /**
+   * @return the seed of the random generator that draws the sample.
+   */
+  public long getSampleSeed() {
+    return sampleSeed;
+  }
+
+  /**
+   * @return the confidence level of the intervals of the estimated smell rates.
+   */
+  public double getSampleConfidence() {
+    return sampleConfidence;
+  }
+
+  /**
+   * @return the share of the heap that may stay occupied after a garbage collection before
+   *         the number of concurrent extractions and projects is lowered. 0 disables the
+   *         limit.
+   */
+  public double getMaxHeapOccupancy() {
+    return maxHeapOccupancy;
+  }
+
+  /**
+   * @return the disk space that must stay free in the output folder before the number of
+   *         concurrent extractions and projects is lowered. 0 disables the limit.
+   */
+  public long getMinFreeDiskBytes() {
+    return minFreeDiskBytes;
+  }
+
+  /**
+   * @return all, none or a comma separated list of the detectors that are evaluated for every
+   *         build pair.
+   */
+  public String getDetectorSelection() {
+    return detectorSelection;
+  }
+
+  /**
+   * @return true if a lifecycle index of the test methods of every branch is written
+   *         to Results/test_lifecycle.idx.
+   */
+  public boolean isLifecycleIndexed() {
+    return lifecycleIndexed;
+  }
+
+  public static class ConfigurationBuilder implements InputFileConfigurationBuilder,
+      OutputFolderConfigurationBuilder, FinalConfigurationBuilder {
+
+    private String inputFilePath;
+    private String outputFolderPath;
+    private int resultQueueCapacity = DEFAULT_RESULT_QUEUE_CAPACITY;
+    private int resultBufferSize = DEFAULT_RESULT_BUFFER_SIZE;
+    private int resultFlushRows = DEFAULT_RESULT_FLUSH_ROWS;
+    private long resultFlushIntervalMillis = DEFAULT_RESULT_FLUSH_INTERVAL_MILLIS;
+    private int resultCheckpointRows = DEFAULT_RESULT_CHECKPOINT_ROWS;
+    private boolean resume = false;
+    private CloneStrategy cloneStrategy = CloneStrategy.FULL;
+    private String gitUriTemplate = DEFAULT_GIT_URI_TEMPLATE;
+    private int numPrefetchedRepositories = DEFAULT_NUM_PREFETCHED_REPOSITORIES;
+    private int numPrefetchThreads = DEFAULT_NUM_PREFETCH_THREADS;
+    private long maxPrefetchBytesPerSecond = 0;
+    private BuildOrder buildOrder = BuildOrder.BUILD_ID;
+    private RepositoryRetention repositoryRetention = RepositoryRetention.KEEP;
+    private long repositoryDiskBudget = 0;
+    private long gitCacheMemory = 0;
+    private boolean smellCandidatesOnly = false;
+    private long extractionCacheBytes = DEFAULT_EXTRACTION_CACHE_BYTES;
+    private int numComparisonThreads = Runtime.getRuntime().availableProcessors();
+    private boolean discoverSourceRoots = false;
+    private MethodStorage methodStorage = MethodStorage.HEAP;
+    private int shardIndex = 0;
+    private int shardCount = 1;
+    private int serverPort = DEFAULT_SERVER_PORT;
+    private int maxConcurrentRequests = Runtime.getRuntime().availableProcessors();
+    private String streamSource = STDIN_STREAM_SOURCE;
+    private StreamFormat streamFormat = StreamFormat.CSV;
+    private long streamWindowMillis = DEFAULT_STREAM_WINDOW_MILLIS;
+    private ExecutorBackend executorBackend = ExecutorBackend.AUTO;
+    private int numIoThreads = IO_THREADS_PER_PROCESSOR * Runtime.getRuntime().availableProcessors();
+    private int numProjectThreads = 1;
+    private String projectTimingsFilePath = null;
+    private int sampleSize = 0;
+    private long sampleSeed = DEFAULT_SAMPLE_SEED;
+    private double sampleConfidence = DEFAULT_SAMPLE_CONFIDENCE;
+    private double maxHeapOccupancy = DEFAULT_MAX_HEAP_OCCUPANCY;
+    private long minFreeDiskBytes = DEFAULT_MIN_FREE_DISK_BYTES;
+    private String detectorSelection = DEFAULT_DETECTOR_SELECTION;
+    private boolean lifecycleIndexed = false;
+
+    private ConfigurationBuilder() {
+    }
+
+    public static InputFileConfigurationBuilder aConfiguration() {
+      return new ConfigurationBuilder();
+    }
+
+    @Override
+    public OutputFolderConfigurationBuilder withInputFilePath(String inputFilePath) {
+      this.inputFilePath = inputFilePath;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder withOutputFolderPath(String outputFolderPath) {
+      this.outputFolderPath = outputFolderPath;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andResultQueueCapacity(int resultQueueCapacity) {
+      this.resultQueueCapacity = resultQueueCapacity;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andResultBufferSize(int resultBufferSize) {
+      this.resultBufferSize = resultBufferSize;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andResultFlushRows(int resultFlushRows) {
+      this.resultFlushRows = resultFlushRows;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andResultFlushIntervalMillis(long resultFlushIntervalMillis) {
+      this.resultFlushIntervalMillis = resultFlushIntervalMillis;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andResultCheckpointRows(int resultCheckpointRows) {
+      this.resultCheckpointRows = resultCheckpointRows;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andResume(boolean resume) {
+      this.resume = resume;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andCloneStrategy(CloneStrategy cloneStrategy) {
+      this.cloneStrategy = cloneStrategy;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andGitUriTemplate(String gitUriTemplate) {
+      this.gitUriTemplate = gitUriTemplate;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andNumPrefetchedRepositories(int numPrefetchedRepositories) {
+      this.numPrefetchedRepositories = numPrefetchedRepositories;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andNumPrefetchThreads(int numPrefetchThreads) {
+      this.numPrefetchThreads = numPrefetchThreads;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andMaxPrefetchBytesPerSecond(long maxPrefetchBytesPerSecond) {
+      this.maxPrefetchBytesPerSecond = maxPrefetchBytesPerSecond;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andBuildOrder(BuildOrder buildOrder) {
+      this.buildOrder = buildOrder;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andRepositoryRetention(RepositoryRetention repositoryRetention) {
+      this.repositoryRetention = repositoryRetention;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andRepositoryDiskBudget(long repositoryDiskBudget) {
+      this.repositoryDiskBudget = repositoryDiskBudget;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andGitCacheMemory(long gitCacheMemory) {
+      this.gitCacheMemory = gitCacheMemory;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andSmellCandidatesOnly(boolean smellCandidatesOnly) {
+      this.smellCandidatesOnly = smellCandidatesOnly;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andExtractionCacheBytes(long extractionCacheBytes) {
+      this.extractionCacheBytes = extractionCacheBytes;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andNumComparisonThreads(int numComparisonThreads) {
+      this.numComparisonThreads = numComparisonThreads;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andDiscoverSourceRoots(boolean discoverSourceRoots) {
+      this.discoverSourceRoots = discoverSourceRoots;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andMethodStorage(MethodStorage methodStorage) {
+      this.methodStorage = methodStorage;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andShardIndex(int shardIndex) {
+      this.shardIndex = shardIndex;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andShardCount(int shardCount) {
+      this.shardCount = shardCount;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andServerPort(int serverPort) {
+      this.serverPort = serverPort;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andMaxConcurrentRequests(int maxConcurrentRequests) {
+      this.maxConcurrentRequests = maxConcurrentRequests;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andStreamSource(String streamSource) {
+      this.streamSource = streamSource;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andStreamFormat(StreamFormat streamFormat) {
+      this.streamFormat = streamFormat;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andStreamWindowMillis(long streamWindowMillis) {
+      this.streamWindowMillis = streamWindowMillis;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andExecutorBackend(ExecutorBackend executorBackend) {
+      this.executorBackend = executorBackend;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andNumIoThreads(int numIoThreads) {
+      this.numIoThreads = numIoThreads;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andNumProjectThreads(int numProjectThreads) {
+      this.numProjectThreads = numProjectThreads;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andProjectTimingsFilePath(String projectTimingsFilePath) {
+      this.projectTimingsFilePath = projectTimingsFilePath;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andSampleSize(int sampleSize) {
+      this.sampleSize = sampleSize;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andSampleSeed(long sampleSeed) {
+      this.sampleSeed = sampleSeed;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andSampleConfidence(double sampleConfidence) {
+      this.sampleConfidence = sampleConfidence;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andMaxHeapOccupancy(double maxHeapOccupancy) {
+      this.maxHeapOccupancy = maxHeapOccupancy;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andMinFreeDiskBytes(long minFreeDiskBytes) {
+      this.minFreeDiskBytes = minFreeDiskBytes;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andDetectorSelection(String detectorSelection) {
+      this.detectorSelection = detectorSelection;
+      return this;
+    }
+
+    @Override
+    public FinalConfigurationBuilder andLifecycleIndexed(boolean lifecycleIndexed) {
+      this.lifecycleIndexed = lifecycleIndexed;
+      return this;
+    }
+
+    @Override
+    public DetectorConfiguration create() {
+      return new DetectorConfiguration(this);
+    }
+  }
+
+  public interface InputFileConfigurationBuilder {
+    OutputFolderConfigurationBuilder withInputFilePath(String inputFilePath);
+  }
+
+  public interface OutputFolderConfigurationBuilder {
+    FinalConfigurationBuilder withOutputFolderPath(String outputFolderPath);
+  }
+
+  public interface FinalConfigurationBuilder {
+    FinalConfigurationBuilder andResultQueueCapacity(int resultQueueCapacity);
+
+    FinalConfigurationBuilder andResultBufferSize(int resultBufferSize);
+
+    FinalConfigurationBuilder andResultFlushRows(int resultFlushRows);
+
+    FinalConfigurationBuilder andResultFlushIntervalMillis(long resultFlushIntervalMillis);
+
+    FinalConfigurationBuilder andResultCheckpointRows(int resultCheckpointRows);
+
+    FinalConfigurationBuilder andResume(boolean resume);
+
+    FinalConfigurationBuilder andCloneStrategy(CloneStrategy cloneStrategy);
+
+    FinalConfigurationBuilder andGitUriTemplate(String gitUriTemplate);
+
+    FinalConfigurationBuilder andNumPrefetchedRepositories(int numPrefetchedRepositories);
+
+    FinalConfigurationBuilder andNumPrefetchThreads(int numPrefetchThreads);
+
+    FinalConfigurationBuilder andMaxPrefetchBytesPerSecond(long maxPrefetchBytesPerSecond);
+
+    FinalConfigurationBuilder andBuildOrder(BuildOrder buildOrder);
+
+    FinalConfigurationBuilder andRepositoryRetention(RepositoryRetention repositoryRetention);
+
+    FinalConfigurationBuilder andRepositoryDiskBudget(long repositoryDiskBudget);
+
+    FinalConfigurationBuilder andGitCacheMemory(long gitCacheMemory);
+
+    FinalConfigurationBuilder andSmellCandidatesOnly(boolean smellCandidatesOnly);
+
+    FinalConfigurationBuilder andExtractionCacheBytes(long extractionCacheBytes);
+
+    FinalConfigurationBuilder andNumComparisonThreads(int numComparisonThreads);
+
+    FinalConfigurationBuilder andDiscoverSourceRoots(boolean discoverSourceRoots);
+
+    FinalConfigurationBuilder andMethodStorage(MethodStorage methodStorage);
+
+    FinalConfigurationBuilder andShardIndex(int shardIndex);
+
+    FinalConfigurationBuilder andShardCount(int shardCount);
+
+    FinalConfigurationBuilder andServerPort(int serverPort);
+
+    FinalConfigurationBuilder andMaxConcurrentRequests(int maxConcurrentRequests);
+
+    FinalConfigurationBuilder andStreamSource(String streamSource);
+
+    FinalConfigurationBuilder andStreamFormat(StreamFormat streamFormat);
+
+    FinalConfigurationBuilder andStreamWindowMillis(long streamWindowMillis);
+
+    FinalConfigurationBuilder andExecutorBackend(ExecutorBackend executorBackend);
+
+    FinalConfigurationBuilder andNumIoThreads(int numIoThreads);
+
+    FinalConfigurationBuilder andNumProjectThreads(int numProjectThreads);
+
+    FinalConfigurationBuilder andProjectTimingsFilePath(String projectTimingsFilePath);
+
+    FinalConfigurationBuilder andSampleSize(int sampleSize);
+
+    FinalConfigurationBuilder andSampleSeed(long sampleSeed);
+
+    FinalConfigurationBuilder andSampleConfidence(double sampleConfidence);
+
+    FinalConfigurationBuilder andMaxHeapOccupancy(double maxHeapOccupancy);
+
+    FinalConfigurationBuilder andMinFreeDiskBytes(long minFreeDiskBytes);
+
+    FinalConfigurationBuilder andDetectorSelection(String detectorSelection);
+
+    FinalConfigurationBuilder andLifecycleIndexed(boolean lifecycleIndexed);
+
+    DetectorConfiguration create();
+  }
+}
@@ -0,0 +1,25 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.model;
+
+import java.util.List;
+
+/**
+ * The values a {@link ch.svenstoll.mbm.skipfailedtestdetectorforjava.detector.SmellDetector} has found in a build pair.
+ */
+public class DetectorFinding {
+
+  private final String detectorName;
+  private final List<Object> values;
+
+  public DetectorFinding(String detectorName, List<Object> values) {
+    this.detectorName = detectorName;
+    this.values = values;
+  }
+
+  public String getDetectorName() {
+    return detectorName;
+  }
+
+  public List<Object> getValues() {
+    return values;
+  }
+}
@@ -0,0 +1,618 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.model;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.HashUtility;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * <p>Compact, immutable table of the methods extracted for a commit, which is stored in a single
+ * {@link ByteBuffer} instead of one object per method. If the buffer is allocated outside of the
+ * heap, the size of the heap does not depend on the number of extracted methods.</p>
+ *
+ * <p>The buffer holds a row per method with the position of its qualified name, its class and its
+ * flags, followed by a row per class and a string table with the UTF-8 encoded names. The method
+ * rows are sorted by the bytes of the qualified names and contain every name only once, so that
+ * two tables can be compared with a single merge join. The rows are collected by a
+ * {@link Builder} while the methods are extracted.</p>
+ */
+public class MethodTable {
+
+  public static final MethodTable EMPTY = new MethodTable(ByteBuffer.allocate(0), 0, 0, 0);
+
+  private static final int METHOD_ROW_BYTES = 13;
+  private static final int CLASS_ROW_BYTES = 16;
+  private static final byte TEST_METHOD_FLAG = 1;
+  private static final byte CHILD_METHOD_FLAG = 2;
+  private static final byte ABSTRACT_METHOD_FLAG = 4;
+  private static final byte IGNORED_METHOD_FLAG = 8;
+
+  private final ByteBuffer buffer;
+  private final int numMethods;
+  private final int numClasses;
+  private final int numTestMethods;
+
+  /**
+   * Allocates the buffer for a table.
+   */
+  @FunctionalInterface
+  public interface BufferAllocator {
+
+    ByteBuffer allocate(int capacity) throws IOException;
+  }
+
+  private MethodTable(ByteBuffer buffer, int numMethods, int numClasses, int numTestMethods) {
+    this.buffer = buffer;
+    this.numMethods = numMethods;
+    this.numClasses = numClasses;
+    this.numTestMethods = numTestMethods;
+  }
+
+  private static byte calculateFlags(BasicMethodData method) {
+    byte flags = 0;
+    if (Boolean.TRUE.equals(method.isTestMethod())) {
+      flags |= TEST_METHOD_FLAG;
+    }
+    if (Boolean.TRUE.equals(method.isChildMethod())) {
+      flags |= CHILD_METHOD_FLAG;
+    }
+    if (Boolean.TRUE.equals(method.isAbstractMethod())) {
+      flags |= ABSTRACT_METHOD_FLAG;
+    }
+    if (Boolean.TRUE.equals(method.isIgnoredMethod())) {
+      flags |= IGNORED_METHOD_FLAG;
+    }
+    return flags;
+  }
+
+  private static byte[] encode(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static int putBytes(ByteBuffer buffer, int position, byte[] bytes) {
+    for (int i = 0; i < bytes.length; i++) {
+      buffer.put(position + i, bytes[i]);
+    }
+    return position + bytes.length;
+  }
+
+  /**
+   * Compares the qualified names of two method rows of possibly different tables byte by byte.
+   */
+  private static int compareNames(MethodTable tableA, int rowA, MethodTable tableB, int rowB) {
+    int positionA = tableA.getNamePosition(rowA);
+    int positionB = tableB.getNamePosition(rowB);
+    int lengthA = tableA.getNameLength(rowA);
+    int lengthB = tableB.getNameLength(rowB);
+    int length = Math.min(lengthA, lengthB);
+    for (int i = 0; i < length; i++) {
+      int difference = (tableA.buffer.get(positionA + i) & 0xff) - (tableB.buffer.get(positionB + i) & 0xff);
+      if (difference != 0) {
+        return difference;
+      }
+    }
+    return lengthA - lengthB;
+  }
+
+  /**
+   * Compares the test methods of two tables with a merge join. Only the methods that are missing
+   * in the other table are turned into objects.
+   *
+   * @param tableT1 The table of the earlier commit.
+   * @param tableT2 The table of the later commit.
+   * @return the test methods of T1 that are not test methods in T2 and vice versa. The values
+   *         indicate whether the method exists in the other table, but is not a test method there.
+   *         In addition, the test methods of T1 that are ignored in T2, be it with {@code @Ignore}
+   *         or with {@code @Disabled}.
+   */
+  public static Comparison compare(MethodTable tableT1, MethodTable tableT2) {
+    Map<BasicMethodData, Boolean> testMethodsNotInT1 = new HashMap<>();
+    Map<BasicMethodData, Boolean> testMethodsNotInT2 = new HashMap<>();
+    Set<BasicMethodData> testMethodsIgnoredInT2 = new HashSet<>();
+    int rowT1 = 0;
+    int rowT2 = 0;
+    while (rowT1 < tableT1.numMethods || rowT2 < tableT2.numMethods) {
+      int comparison;
+      if (rowT1 >= tableT1.numMethods) {
+        comparison = 1;
+      }
+      else if (rowT2 >= tableT2.numMethods) {
+        comparison = -1;
+      }
+      else {
+        comparison = compareNames(tableT1, rowT1, tableT2, rowT2);
+      }
+
+      if (comparison < 0) {
+        if (tableT1.isTestMethod(rowT1)) {
+          testMethodsNotInT2.put(tableT1.createMethodData(rowT1), false);
+        }
+        rowT1++;
+      }
+      else if (comparison > 0) {
+        if (tableT2.isTestMethod(rowT2)) {
+          testMethodsNotInT1.put(tableT2.createMethodData(rowT2), false);
+        }
+        rowT2++;
+      }
+      else {
+        boolean testMethodT1 = tableT1.isTestMethod(rowT1);
+        boolean testMethodT2 = tableT2.isTestMethod(rowT2);
+        // @Ignore turns a test method into a method, while @Disabled keeps it a test method.
+        boolean ignoredInT2 = testMethodT1 && !tableT1.isIgnoredMethod(rowT1)
+            && tableT2.isIgnoredMethod(rowT2);
+        if (testMethodT1 && !testMethodT2) {
+          BasicMethodData methodData = tableT1.createMethodData(rowT1);
+          testMethodsNotInT2.put(methodData, true);
+          if (ignoredInT2) {
+            testMethodsIgnoredInT2.add(methodData);
+          }
+        }
+        else if (!testMethodT1 && testMethodT2) {
+          testMethodsNotInT1.put(tableT2.createMethodData(rowT2), true);
+        }
+        else if (ignoredInT2) {
+          testMethodsIgnoredInT2.add(tableT1.createMethodData(rowT1));
+        }
+        rowT1++;
+        rowT2++;
+      }
+    }
+    return new Comparison(testMethodsNotInT1, testMethodsNotInT2, testMethodsIgnoredInT2);
+  }
+
+  /**
+   * @param fragment The text to search for.
+   * @return whether the qualified name of a test method contains the text.
+   */
+  public boolean containsTestMethodMatching(String fragment) {
+    byte[] bytes = encode(fragment);
+    for (int row = 0; row < numMethods; row++) {
+      if (isTestMethod(row) && contains(getNamePosition(row), getNameLength(row), bytes)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the qualified names of the distinct test methods.
+   */
+  public List<String> getTestMethodNames() {
+    List<String> testMethodNames = new ArrayList<>(numTestMethods);
+    for (int row = 0; row < numMethods; row++) {
+      if (isTestMethod(row)) {
+        testMethodNames.add(readString(getNamePosition(row), getNameLength(row)));
+      }
+    }
+    return testMethodNames;
+  }
+
+  private boolean contains(int position, int length, byte[] bytes) {
+    for (int start = 0; start <= length - bytes.length; start++) {
+      int i = 0;
+      while (i < bytes.length && buffer.get(position + start + i) == bytes[i]) {
+        i++;
+      }
+      if (i == bytes.length) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private int getNamePosition(int row) {
+    return buffer.getInt(row * METHOD_ROW_BYTES);
+  }
+
+  private int getNameLength(int row) {
+    return buffer.getInt(row * METHOD_ROW_BYTES + 4);
+  }
+
+  private boolean isTestMethod(int row) {
+    return (buffer.get(row * METHOD_ROW_BYTES + 12) & TEST_METHOD_FLAG) != 0;
+  }
+
+  private boolean isIgnoredMethod(int row) {
+    return (buffer.get(row * METHOD_ROW_BYTES + 12) & IGNORED_METHOD_FLAG) != 0;
+  }
+
+  private String readString(int position, int length) {
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = buffer.get(position + i);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private BasicMethodData createMethodData(int row) {
+    int classRowPosition = numMethods * METHOD_ROW_BYTES + buffer.getInt(row * METHOD_ROW_BYTES + 8) * CLASS_ROW_BYTES;
+    String className = readString(buffer.getInt(classRowPosition), buffer.getInt(classRowPosition + 4));
+    String qualifiedName = readString(getNamePosition(row), getNameLength(row));
+    String signature = qualifiedName.substring(Math.min(className.length() + 1, qualifiedName.length()));
+
+    BasicClassData classData = new BasicClassData(className, null);
+    classData.setMethodsHash(buffer.getLong(classRowPosition + 8));
+    BasicMethodData methodData = new BasicMethodData(qualifiedName, signature, classData);
+    byte flags = buffer.get(row * METHOD_ROW_BYTES + 12);
+    methodData.setIsTestMethod((flags & TEST_METHOD_FLAG) != 0);
+    methodData.setIsChildMethod((flags & CHILD_METHOD_FLAG) != 0);
+    methodData.setIsAbstract((flags & ABSTRACT_METHOD_FLAG) != 0);
+    methodData.setIsIgnoredMethod((flags & IGNORED_METHOD_FLAG) != 0);
+    return methodData;
+  }
+
+  /**
+   * @return the number of distinct methods.
+   */
+  public int getNumMethods() {
+    return numMethods;
+  }
+
+  /**
+   * @return the number of distinct test methods.
+   */
+  public int getNumTestMethods() {
+    return numTestMethods;
+  }
+
+  /**
+   * @return the number of classes.
+   */
+  public int getNumClasses() {
+    return numClasses;
+  }
+
+  /**
+   * @return the size of the buffer in bytes.
+   */
+  public int getSizeBytes() {
+    return buffer.capacity();
+  }
+
+  /**
+   * <p>Collects the methods of a commit while they are extracted, so that they do not have to be
+   * kept as objects until the table is created. The qualified names are appended to a single byte
+   * array and the other columns to primitive arrays. Methods can be added from several
+   * threads.</p>
+   *
+   * <p>The rows are sorted by name once all methods have been added. A qualified name that occurs
+   * more than once, e.g. of a class that is declared in two files, is merged into a single row with
+   * the flags of all its occurrences, like {@link BasicMethodData#mergeDuplicate(BasicMethodData)}
+   * merges the methods on the heap.</p>
+   */
+  public static final class Builder {
+
+    private final List<BasicClassData> classes = new ArrayList<>();
+    private final Map<BasicClassData, Integer> classIndexes = new HashMap<>();
+    private byte[] names = new byte[4096];
+    private int namesLength = 0;
+    private int[] namePositions = new int[256];
+    private int[] nameLengths = new int[256];
+    private int[] rowClassIndexes = new int[256];
+    private byte[] rowFlags = new byte[256];
+    private int numRows = 0;
+    private boolean sorted = false;
+    private boolean overflowed = false;
+
+    /**
+     * @param classData The class of the method.
+     * @param method The extracted method.
+     */
+    public synchronized void addMethod(BasicClassData classData, BasicMethodData method) {
+      if (sorted) {
+        throw new IllegalStateException("Methods cannot be added once the rows have been sorted.");
+      }
+      byte[] name = encode(method.getQualifiedName());
+      if ((long) namesLength + name.length > Integer.MAX_VALUE - 8 || numRows == Integer.MAX_VALUE - 8) {
+        overflowed = true;
+        return;
+      }
+
+      Integer classIndex = classIndexes.get(classData);
+      if (classIndex == null) {
+        classIndex = classes.size();
+        classes.add(classData);
+        classIndexes.put(classData, classIndex);
+      }
+      if (namesLength + name.length > names.length) {
+        names = Arrays.copyOf(names, (int) Math.min(Integer.MAX_VALUE - 8,
+            Math.max((long) namesLength + name.length, 2L * names.length)));
+      }
+      if (numRows == namePositions.length) {
+        int capacity = (int) Math.min(Integer.MAX_VALUE - 8, 2L * numRows);
+        namePositions = Arrays.copyOf(namePositions, capacity);
+        nameLengths = Arrays.copyOf(nameLengths, capacity);
+        rowClassIndexes = Arrays.copyOf(rowClassIndexes, capacity);
+        rowFlags = Arrays.copyOf(rowFlags, capacity);
+      }
+      System.arraycopy(name, 0, names, namesLength, name.length);
+      namePositions[numRows] = namesLength;
+      nameLengths[numRows] = name.length;
+      rowClassIndexes[numRows] = classIndex;
+      rowFlags[numRows] = calculateFlags(method);
+      namesLength += name.length;
+      numRows++;
+    }
+
+    /**
+     * @return the classes of the added methods.
+     */
+    public synchronized List<BasicClassData> getClasses() {
+      return Collections.unmodifiableList(new ArrayList<>(classes));
+    }
+
+    /**
+     * Turns the methods that override a test method of a parent class into test methods, together
+     * with the methods in between. The parent classes are followed as long as they have been
+     * extracted.
+     *
+     * @param parentClassResolver Resolves the parent class of a class or returns null.
+     */
+    public synchronized void markExtendedTestMethods(Function<BasicClassData, BasicClassData> parentClassResolver) {
+      sortRows();
+      for (int row = 0; row < numRows; row++) {
+        byte flags = rowFlags[row];
+        if ((flags & (TEST_METHOD_FLAG | ABSTRACT_METHOD_FLAG)) == 0 && (flags & CHILD_METHOD_FLAG) != 0) {
+          markExtendedTestMethod(row, parentClassResolver);
+        }
+      }
+    }
+
+    private void markExtendedTestMethod(int row, Function<BasicClassData, BasicClassData> parentClassResolver) {
+      BasicClassData classData = classes.get(rowClassIndexes[row]);
+      String qualifiedName = new String(names, namePositions[row], nameLengths[row], StandardCharsets.UTF_8);
+      String signature = qualifiedName.substring(Math.min(classData.getQualifiedName().length() + 1,
+          qualifiedName.length()));
+      List<Integer> methodChain = new ArrayList<>();
+      methodChain.add(row);
+
+      Set<BasicClassData> visitedClasses = new HashSet<>();
+      visitedClasses.add(classData);
+      BasicClassData parentClass = parentClassResolver.apply(classData);
+      while (parentClass != null && visitedClasses.add(parentClass)) {
+        int parentRow = findRow(encode(parentClass.getQualifiedName() + "." + signature));
+        if (parentRow >= 0) {
+          methodChain.add(parentRow);
+        }
+        parentClass = parentClassResolver.apply(parentClass);
+      }
+
+      boolean testMethodEncountered = false;
+      for (int i = methodChain.size() - 1; i >= 0; i--) {
+        int chainRow = methodChain.get(i);
+        if ((rowFlags[chainRow] & TEST_METHOD_FLAG) != 0) {
+          testMethodEncountered = true;
+        }
+        else if (testMethodEncountered) {
+          rowFlags[chainRow] |= TEST_METHOD_FLAG;
+        }
+      }
+    }
+
+    /**
+     * Sets the methods hash of every class to the sum of the hashes of its methods.
+     *
+     * @return the sum of the methods hashes of all classes.
+     */
+    public synchronized long calculateMethodsHashes() {
+      sortRows();
+      long[] classHashes = new long[classes.size()];
+      for (int row = 0; row < numRows; row++) {
+        String qualifiedName = new String(names, namePositions[row], nameLengths[row], StandardCharsets.UTF_8);
+        classHashes[rowClassIndexes[row]] += HashUtility.hashMethod(qualifiedName,
+            (rowFlags[row] & TEST_METHOD_FLAG) != 0, (rowFlags[row] & IGNORED_METHOD_FLAG) != 0);
+      }
+      long rootHash = 0;
+      for (int i = 0; i < classes.size(); i++) {
+        classes.get(i).setMethodsHash(classHashes[i]);
+        rootHash += classHashes[i];
+      }
+      return rootHash;
+    }
+
+    /**
+     * Writes the methods into a table. The methods hashes of the classes are taken over as they
+     * are.
+     *
+     * @param allocator The allocator for the buffer of the table.
+     * @return the table.
+     * @throws IOException if the buffer cannot be allocated or the methods do not fit into it.
+     */
+    public synchronized MethodTable create(BufferAllocator allocator) throws IOException {
+      sortRows();
+      List<byte[]> classNames = new ArrayList<>(classes.size());
+      long stringBytes = 0;
+      for (int row = 0; row < numRows; row++) {
+        stringBytes += nameLengths[row];
+      }
+      for (BasicClassData classData : classes) {
+        byte[] className = encode(classData.getQualifiedName());
+        classNames.add(className);
+        stringBytes += className.length;
+      }
+      long capacity = (long) numRows * METHOD_ROW_BYTES + (long) classes.size() * CLASS_ROW_BYTES + stringBytes;
+      if (overflowed || capacity > Integer.MAX_VALUE) {
+        throw new IOException("The methods of " + classes.size() + " classes do not fit into a single buffer.");
+      }
+
+      ByteBuffer buffer = allocator.allocate((int) capacity);
+      int stringPosition = numRows * METHOD_ROW_BYTES + classes.size() * CLASS_ROW_BYTES;
+      int numTestMethods = 0;
+      for (int row = 0; row < numRows; row++) {
+        int rowPosition = row * METHOD_ROW_BYTES;
+        buffer.putInt(rowPosition, stringPosition);
+        buffer.putInt(rowPosition + 4, nameLengths[row]);
+        buffer.putInt(rowPosition + 8, rowClassIndexes[row]);
+        buffer.put(rowPosition + 12, rowFlags[row]);
+        for (int i = 0; i < nameLengths[row]; i++) {
+          buffer.put(stringPosition + i, names[namePositions[row] + i]);
+        }
+        stringPosition += nameLengths[row];
+        if ((rowFlags[row] & TEST_METHOD_FLAG) != 0) {
+          numTestMethods++;
+        }
+      }
+      for (int i = 0; i < classes.size(); i++) {
+        Long methodsHash = classes.get(i).getMethodsHash();
+        int rowPosition = numRows * METHOD_ROW_BYTES + i * CLASS_ROW_BYTES;
+        buffer.putInt(rowPosition, stringPosition);
+        buffer.putInt(rowPosition + 4, classNames.get(i).length);
+        buffer.putLong(rowPosition + 8, methodsHash != null ? methodsHash : 0);
+        stringPosition = putBytes(buffer, stringPosition, classNames.get(i));
+      }
+      return new MethodTable(buffer, numRows, classes.size(), numTestMethods);
+    }
+
+    /**
+     * Sorts the rows by the bytes of their names and merges the rows of the same name, once all
+     * methods have been added.
+     */
+    private void sortRows() {
+      if (sorted) {
+        return;
+      }
+      sorted = true;
+
+      int[] order = new int[numRows];
+      for (int i = 0; i < numRows; i++) {
+        order[i] = i;
+      }
+      mergeSort(order, new int[numRows], 0, numRows);
+
+      int[] sortedPositions = new int[numRows];
+      int[] sortedLengths = new int[numRows];
+      int[] sortedClassIndexes = new int[numRows];
+      byte[] sortedFlags = new byte[numRows];
+      int numUniqueRows = 0;
+      for (int row : order) {
+        if (numUniqueRows > 0 && compareNames(sortedPositions[numUniqueRows - 1], sortedLengths[numUniqueRows - 1],
+            namePositions[row], nameLengths[row]) == 0) {
+          sortedFlags[numUniqueRows - 1] |= rowFlags[row];
+          continue;
+        }
+        sortedPositions[numUniqueRows] = namePositions[row];
+        sortedLengths[numUniqueRows] = nameLengths[row];
+        sortedClassIndexes[numUniqueRows] = rowClassIndexes[row];
+        sortedFlags[numUniqueRows] = rowFlags[row];
+        numUniqueRows++;
+      }
+      namePositions = sortedPositions;
+      nameLengths = sortedLengths;
+      rowClassIndexes = sortedClassIndexes;
+      rowFlags = sortedFlags;
+      numRows = numUniqueRows;
+    }
+
+    /**
+     * A stable merge sort of row indexes, which keeps the rows as primitive values.
+     */
+    private void mergeSort(int[] rows, int[] buffer, int from, int to) {
+      if (to - from < 2) {
+        return;
+      }
+      int middle = (from + to) >>> 1;
+      mergeSort(rows, buffer, from, middle);
+      mergeSort(rows, buffer, middle, to);
+      if (compareRows(rows[middle - 1], rows[middle]) <= 0) {
+        return;
+      }
+
+      System.arraycopy(rows, from, buffer, from, to - from);
+      int left = from;
+      int right = middle;
+      for (int i = from; i < to; i++) {
+        if (right >= to || (left < middle && compareRows(buffer[left], buffer[right]) <= 0)) {
+          rows[i] = buffer[left++];
+        }
+        else {
+          rows[i] = buffer[right++];
+        }
+      }
+    }
+
+    private int compareRows(int rowA, int rowB) {
+      return compareNames(namePositions[rowA], nameLengths[rowA], namePositions[rowB], nameLengths[rowB]);
+    }
+
+    private int compareNames(int positionA, int lengthA, int positionB, int lengthB) {
+      int length = Math.min(lengthA, lengthB);
+      for (int i = 0; i < length; i++) {
+        int difference = (names[positionA + i] & 0xff) - (names[positionB + i] & 0xff);
+        if (difference != 0) {
+          return difference;
+        }
+      }
+      return lengthA - lengthB;
+    }
+
+    /**
+     * @return the sorted row with the name or -1 if there is none.
+     */
+    private int findRow(byte[] name) {
+      int low = 0;
+      int high = numRows - 1;
+      while (low <= high) {
+        int middle = (low + high) >>> 1;
+        int comparison = compareWith(name, middle);
+        if (comparison > 0) {
+          low = middle + 1;
+        }
+        else if (comparison < 0) {
+          high = middle - 1;
+        }
+        else {
+          return middle;
+        }
+      }
+      return -1;
+    }
+
+    /**
+     * Compares a name with the name of a sorted row.
+     */
+    private int compareWith(byte[] name, int row) {
+      int length = Math.min(name.length, nameLengths[row]);
+      for (int i = 0; i < length; i++) {
+        int difference = (name[i] & 0xff) - (names[namePositions[row] + i] & 0xff);
+        if (difference != 0) {
+          return difference;
+        }
+      }
+      return name.length - nameLengths[row];
+    }
+  }
+
+  /**
+   * The test methods that are missing in one of two compared tables.
+   */
+  public static final class Comparison {
+
+    private final Map<BasicMethodData, Boolean> testMethodsNotInT1;
+    private final Map<BasicMethodData, Boolean> testMethodsNotInT2;
+    private final Set<BasicMethodData> testMethodsIgnoredInT2;
+
+    private Comparison(Map<BasicMethodData, Boolean> testMethodsNotInT1,
+                       Map<BasicMethodData, Boolean> testMethodsNotInT2,
+                       Set<BasicMethodData> testMethodsIgnoredInT2) {
+      this.testMethodsNotInT1 = testMethodsNotInT1;
+      this.testMethodsNotInT2 = testMethodsNotInT2;
+      this.testMethodsIgnoredInT2 = testMethodsIgnoredInT2;
+    }
+
+    public Map<BasicMethodData, Boolean> getTestMethodsNotInT1() {
+      return testMethodsNotInT1;
+    }
+
+    public Map<BasicMethodData, Boolean> getTestMethodsNotInT2() {
+      return testMethodsNotInT2;
+    }
+
+    public Set<BasicMethodData> getTestMethodsIgnoredInT2() {
+      return testMethodsIgnoredInT2;
+    }
+  }
+}
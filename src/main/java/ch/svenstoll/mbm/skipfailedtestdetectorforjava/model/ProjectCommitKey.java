@@ -0,0 +1,50 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.model;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.StringUtility;
+
+import java.util.Objects;
+
+public class ProjectCommitKey {
+
+  private final String projectName;
+  private final String commit;
+
+  public ProjectCommitKey(String projectName, String commit) {
+    if (StringUtility.isNullOrEmpty(projectName) || StringUtility.isNullOrEmpty(commit)) {
+      throw new IllegalArgumentException("Project name and commit must not be null or empty.");
+    }
+
+    this.projectName = projectName;
+    this.commit = commit;
+  }
+
+  public String getProjectName() {
+    return projectName;
+  }
+
+  public String getCommit() {
+    return commit;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    ProjectCommitKey that = (ProjectCommitKey) o;
+    return projectName.equals(that.projectName) && commit.equals(that.commit);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(projectName, commit);
+  }
+
+  @Override
+  public String toString() {
+    return projectName + "@" + commit;
+  }
+}
@@ -0,0 +1,286 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.parser;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.detector.DetectorRegistry;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.extractor.CloneStrategy;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.extractor.MethodStorage;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.extractor.RepositoryRetention;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.DetectorConfiguration;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.scheduler.BuildOrder;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.scheduler.ExecutorBackend;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.stream.StreamFormat;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.NumberUtility;
+
+/**
+ * Transforms the command line arguments into a {@link DetectorConfiguration}. The first two
+ * arguments are always the input file and the output folder, or {@code --serve} or
+ * {@code --stream} and the output folder in daemon or streaming mode. All following arguments are
+ * optional and must be given in the form {@code --name=value}. Flags may omit the value. Options
+ * that only apply to one mode are validated by that mode.
+ */
+public class ArgumentParser {
+
+  public static final String[] OPTION_DESCRIPTIONS = {
+      "--result-queue-capacity=<n>      Results that may wait for the writer (default: "
+          + DetectorConfiguration.DEFAULT_RESULT_QUEUE_CAPACITY + ")",
+      "--result-buffer-size=<chars>     Buffer size per result file (default: "
+          + DetectorConfiguration.DEFAULT_RESULT_BUFFER_SIZE + ")",
+      "--result-flush-rows=<n>          Rows after which results are flushed (default: "
+          + DetectorConfiguration.DEFAULT_RESULT_FLUSH_ROWS + ")",
+      "--result-flush-interval-ms=<ms>  Maximum time between flushes (default: "
+          + DetectorConfiguration.DEFAULT_RESULT_FLUSH_INTERVAL_MILLIS + ")",
+      "--result-checkpoint-rows=<n>     Rows after which results are synced to disk (default: "
+          + DetectorConfiguration.DEFAULT_RESULT_CHECKPOINT_ROWS + ")",
+      "--resume                         Continue an interrupted run from its last checkpoint",
+      "--clone-strategy=<strategy>      full, bare, commits or mirror (default: full)",
+      "--git-uri-template=<uri>         Location of the repositories, {project}, {owner} and {name} are "
+          + "replaced (default: " + DetectorConfiguration.DEFAULT_GIT_URI_TEMPLATE + ")",
+      "--prefetch-repositories=<n>      Following projects cloned in the background (default: "
+          + DetectorConfiguration.DEFAULT_NUM_PREFETCHED_REPOSITORIES + ")",
+      "--prefetch-threads=<n>           Concurrent clones (default: "
+          + DetectorConfiguration.DEFAULT_NUM_PREFETCH_THREADS + ")",
+      "--prefetch-max-bytes-per-second=<bytes>  Average clone rate cap, 0 for unlimited (default: 0)",
+      "--build-order=<order>            build-id or topology to follow the commit graph (default: build-id)",
+      "--repository-retention=<mode>    keep, release-work-tree or repack once a project is done (default: keep)",
+      "--repository-disk-budget=<bytes> Disk space for repositories before the least recently used are deleted, "
+          + "0 for unlimited (default: 0)",
+      "--git-cache-memory=<bytes>       Memory for the shared JGit pack file cache, 0 for the JGit defaults "
+          + "(default: 0)",
+      "--smell-candidates-only          Only extract build pairs that can have a smell, write counts for the others",
+      "--extraction-cache-size=<bytes>  Estimated memory for the methods of extracted commits (default: "
+          + DetectorConfiguration.DEFAULT_EXTRACTION_CACHE_BYTES + ")",
+      "--project-threads=<n>            Projects analyzed at the same time, the most expensive first (default: 1)",
+      "--project-timings=<file>         Timings of a previous run to plan with (default: the timings in the output "
+          + "folder)",
+      "--max-heap-occupancy=<share>     Heap share occupied after garbage collection before fewer extractions and "
+          + "projects run at the same time, 0 to disable (default: " + DetectorConfiguration.DEFAULT_MAX_HEAP_OCCUPANCY
+          + ")",
+      "--min-free-disk=<bytes>          Free disk space in the output folder before fewer extractions and projects "
+          + "run at the same time, 0 to disable (default: " + DetectorConfiguration.DEFAULT_MIN_FREE_DISK_BYTES + ")",
+      "--comparison-threads=<n>         Threads that compare extracted builds (default: number of processors)",
+      "--executor-backend=<backend>     auto, virtual-threads or bounded-pool for blocking repository reads "
+          + "(default: auto)",
+      "--io-threads=<n>                 Threads of the bounded pool for blocking repository reads (default: "
+          + DetectorConfiguration.IO_THREADS_PER_PROCESSOR + " per processor)",
+      "--discover-source-roots          Only parse the test source roots declared in pom.xml or build.gradle",
+      "--method-storage=<mode>          heap, direct or mapped storage for extracted methods (default: heap)",
+      "--shard-index=<i>, --shard-count=<n>  Only analyze the projects of shard i of n in a separate folder "
+          + "(default: 0 of 1)",
+      "--detectors=<list>               all, none or a comma separated list of detectors whose findings are written "
+          + "to Results/Detectors (default: " + DetectorConfiguration.DEFAULT_DETECTOR_SELECTION + ")",
+      "--lifecycle-index                Index when each test method has appeared, has been ignored or removed in "
+          + "Results/test_lifecycle.idx",
+      "--sample-size=<n>                Only analyze a stratified random sample of n build pairs and estimate the "
+          + "smell rates (default: 0 for all build pairs)",
+      "--sample-seed=<seed>             Seed of the random sample (default: "
+          + DetectorConfiguration.DEFAULT_SAMPLE_SEED + ")",
+      "--sample-confidence=<level>      Confidence level of the estimated smell rates (default: "
+          + DetectorConfiguration.DEFAULT_SAMPLE_CONFIDENCE + ")",
+      "--server-port=<port>             Port of the local HTTP API in daemon mode (default: "
+          + DetectorConfiguration.DEFAULT_SERVER_PORT + ")",
+      "--server-max-requests=<n>        Requests analyzed at the same time in daemon mode (default: number of "
+          + "processors)",
+      "--stream-source=<file>           File followed in streaming mode (default: - for the standard input)",
+      "--stream-format=<format>         csv or json records per line in streaming mode (default: csv)",
+      "--stream-window-ms=<ms>          Time a build waits for its previous build in streaming mode (default: "
+          + DetectorConfiguration.DEFAULT_STREAM_WINDOW_MILLIS + ")"};
+
+  public DetectorConfiguration parseArguments(String[] args) {
+    if (args == null || args.length < 2) {
+      throw new IllegalArgumentException("The input file and the output folder must be specified.");
+    }
+
+    DetectorConfiguration.FinalConfigurationBuilder builder = DetectorConfiguration.ConfigurationBuilder
+        .aConfiguration()
+        .withInputFilePath(args[0])
+        .withOutputFolderPath(args[1]);
+    return parseOptions(builder, args);
+  }
+
+  /**
+   * Parses the arguments of the daemon or the streaming mode, which do not have an input file.
+   *
+   * @param args [0]: {@code --serve} or {@code --stream}, [1]: Path to the output folder, [2..n]:
+   *             Optional settings
+   * @return the configuration without an input file.
+   */
+  public DetectorConfiguration parseCommandArguments(String[] args) {
+    if (args == null || args.length < 2) {
+      throw new IllegalArgumentException("The output folder must be specified.");
+    }
+
+    DetectorConfiguration.FinalConfigurationBuilder builder = DetectorConfiguration.ConfigurationBuilder
+        .aConfiguration()
+        .withInputFilePath(null)
+        .withOutputFolderPath(args[1]);
+    return parseOptions(builder, args);
+  }
+
+  private DetectorConfiguration parseOptions(DetectorConfiguration.FinalConfigurationBuilder builder, String[] args) {
+    for (int i = 2; i < args.length; i++) {
+      String arg = args[i];
+      if (!arg.startsWith("--")) {
+        throw new IllegalArgumentException("Unexpected argument \"" + arg + "\".");
+      }
+
+      int separatorIndex = arg.indexOf('=');
+      String name = separatorIndex >= 0 ? arg.substring(2, separatorIndex) : arg.substring(2);
+      String value = separatorIndex >= 0 ? arg.substring(separatorIndex + 1) : null;
+      switch (name) {
+        case "result-queue-capacity":
+          builder.andResultQueueCapacity(parseInteger(name, value));
+          break;
+        case "result-buffer-size":
+          builder.andResultBufferSize(parseInteger(name, value));
+          break;
+        case "result-flush-rows":
+          builder.andResultFlushRows(parseInteger(name, value));
+          break;
+        case "result-flush-interval-ms":
+          builder.andResultFlushIntervalMillis(parseLong(name, value));
+          break;
+        case "result-checkpoint-rows":
+          builder.andResultCheckpointRows(parseInteger(name, value));
+          break;
+        case "resume":
+          builder.andResume(parseFlag(name, value));
+          break;
+        case "clone-strategy":
+          builder.andCloneStrategy(CloneStrategy.fromString(value));
+          break;
+        case "git-uri-template":
+          builder.andGitUriTemplate(value);
+          break;
+        case "prefetch-repositories":
+          builder.andNumPrefetchedRepositories(parseInteger(name, value));
+          break;
+        case "prefetch-threads":
+          builder.andNumPrefetchThreads(parseInteger(name, value));
+          break;
+        case "prefetch-max-bytes-per-second":
+          builder.andMaxPrefetchBytesPerSecond(parseLong(name, value));
+          break;
+        case "build-order":
+          builder.andBuildOrder(BuildOrder.fromString(value));
+          break;
+        case "repository-retention":
+          builder.andRepositoryRetention(RepositoryRetention.fromString(value));
+          break;
+        case "repository-disk-budget":
+          builder.andRepositoryDiskBudget(parseLong(name, value));
+          break;
+        case "git-cache-memory":
+          builder.andGitCacheMemory(parseLong(name, value));
+          break;
+        case "smell-candidates-only":
+          builder.andSmellCandidatesOnly(parseFlag(name, value));
+          break;
+        case "discover-source-roots":
+          builder.andDiscoverSourceRoots(parseFlag(name, value));
+          break;
+        case "method-storage":
+          builder.andMethodStorage(MethodStorage.fromString(value));
+          break;
+        case "shard-index":
+          builder.andShardIndex(parseInteger(name, value));
+          break;
+        case "shard-count":
+          builder.andShardCount(parseInteger(name, value));
+          break;
+        case "detectors":
+          // Unknown detectors are rejected before the analysis starts.
+          DetectorRegistry.selectDetectors(value);
+          builder.andDetectorSelection(value);
+          break;
+        case "lifecycle-index":
+          builder.andLifecycleIndexed(parseFlag(name, value));
+          break;
+        case "sample-size":
+          builder.andSampleSize(parseInteger(name, value));
+          break;
+        case "sample-seed":
+          builder.andSampleSeed(parseLong(name, value));
+          break;
+        case "sample-confidence":
+          builder.andSampleConfidence(parseDouble(name, value));
+          break;
+        case "extraction-cache-size":
+          builder.andExtractionCacheBytes(parseLong(name, value));
+          break;
+        case "project-threads":
+          builder.andNumProjectThreads(parseInteger(name, value));
+          break;
+        case "project-timings":
+          builder.andProjectTimingsFilePath(value);
+          break;
+        case "max-heap-occupancy":
+          builder.andMaxHeapOccupancy(parseDouble(name, value));
+          break;
+        case "min-free-disk":
+          builder.andMinFreeDiskBytes(parseLong(name, value));
+          break;
+        case "comparison-threads":
+          builder.andNumComparisonThreads(parseInteger(name, value));
+          break;
+        case "executor-backend":
+          builder.andExecutorBackend(ExecutorBackend.fromString(value));
+          break;
+        case "io-threads":
+          builder.andNumIoThreads(parseInteger(name, value));
+          break;
+        case "server-port":
+          builder.andServerPort(parseInteger(name, value));
+          break;
+        case "server-max-requests":
+          builder.andMaxConcurrentRequests(parseInteger(name, value));
+          break;
+        case "stream-source":
+          builder.andStreamSource(value);
+          break;
+        case "stream-format":
+          builder.andStreamFormat(StreamFormat.fromString(value));
+          break;
+        case "stream-window-ms":
+          builder.andStreamWindowMillis(parseLong(name, value));
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown option \"--" + name + "\".");
+      }
+    }
+
+    return builder.create();
+  }
+
+  private boolean parseFlag(String name, String value) {
+    if (value == null || "true".equalsIgnoreCase(value)) {
+      return true;
+    }
+    else if ("false".equalsIgnoreCase(value)) {
+      return false;
+    }
+    throw new IllegalArgumentException("The option \"--" + name + "\" only accepts true or false.");
+  }
+
+  private int parseInteger(String name, String value) {
+    Integer parsedValue = NumberUtility.parseIntegerSafely(value);
+    if (parsedValue == null) {
+      throw new IllegalArgumentException("The option \"--" + name + "\" requires a valid number.");
+    }
+    return parsedValue;
+  }
+
+  private double parseDouble(String name, String value) {
+    Double parsedValue = NumberUtility.parseDoubleSafely(value);
+    if (parsedValue == null) {
+      throw new IllegalArgumentException("The option \"--" + name + "\" requires a valid number.");
+    }
+    return parsedValue;
+  }
+
+  private long parseLong(String name, String value) {
+    Long parsedValue = NumberUtility.parseLongSafely(value);
+    if (parsedValue == null) {
+      throw new IllegalArgumentException("The option \"--" + name + "\" requires a valid number.");
+    }
+    return parsedValue;
+  }
+}
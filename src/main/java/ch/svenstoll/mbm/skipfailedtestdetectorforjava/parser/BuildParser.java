@@ -11,10 +11,12 @@ import org.apache.commons.csv.CSVRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.io.Reader;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class BuildParser {
@@ -82,17 +84,74 @@ public class BuildParser {
   }
 
   public Build transformRecordToBuild(CSVRecord csvRecord) {
-    String project = csvRecord.get("gh_project_name");
-    String branch = csvRecord.get("git_branch");
-    String buildId = csvRecord.get("tr_build_id");
-    String prevBuildId = csvRecord.get("tr_prev_build");
-    String triggerCommit = csvRecord.get("git_trigger_commit");
-    String status = csvRecord.get("tr_status");
-    String numTestsRun = csvRecord.get("tr_log_num_tests_run");
-    String numTestsOk = csvRecord.get("tr_log_num_tests_ok");
-    String numTestsFailed = csvRecord.get("tr_log_num_tests_failed");
-    String numTestsSkipped = csvRecord.get("tr_log_num_tests_skipped");
-    String failedMethods = csvRecord.get("tr_log_tests_failed");
+    return transformToBuild(csvRecord::get);
+  }
+
+  /**
+   * @param valuesByHeader The values of a build by the headers of the input file.
+   * @return the build.
+   * @throws IllegalArgumentException if a required value is missing or invalid.
+   */
+  public Build transformValuesToBuild(Map<String, String> valuesByHeader) {
+    return transformToBuild(valuesByHeader::get);
+  }
+
+  /**
+   * @param object A JSON object with the headers of the input file as keys. Failed tests may also
+   *               be given as an array instead of a string separated by {@code #}.
+   * @return the build.
+   * @throws IllegalArgumentException if a required value is missing or invalid.
+   */
+  public Build transformObjectToBuild(Map<?, ?> object) {
+    Map<String, String> valuesByHeader = new HashMap<>();
+    for (Map.Entry<?, ?> entry : object.entrySet()) {
+      Object value = entry.getValue();
+      if (value instanceof Collection) {
+        value = StringUtility.concatStrings(((Collection<?>) value).stream()
+            .map(String::valueOf)
+            .collect(Collectors.toList()), "#");
+      }
+      valuesByHeader.put(String.valueOf(entry.getKey()), value != null ? value.toString() : null);
+    }
+    return transformValuesToBuild(valuesByHeader);
+  }
+
+  /**
+   * @param line A line of the input file without the header.
+   * @return the build.
+   * @throws IOException if the line cannot be parsed as CSV.
+   * @throws IllegalArgumentException if a required value is missing or invalid.
+   */
+  public Build transformLineToBuild(String line) throws IOException {
+    try (CSVParser csvParser = CSVParser.parse(line, CSVFormat.DEFAULT.withHeader(HEADERS).withIgnoreSurroundingSpaces())) {
+      List<CSVRecord> records = csvParser.getRecords();
+      if (records.size() != 1) {
+        throw new IllegalArgumentException("The line must contain exactly one build.");
+      }
+      return transformRecordToBuild(records.get(0));
+    }
+  }
+
+  /**
+   * @param line A line of the input file.
+   * @return true if the line is the header of the input file.
+   */
+  public boolean isHeaderLine(String line) {
+    return line.trim().startsWith(HEADERS[0] + ",");
+  }
+
+  private Build transformToBuild(Function<String, String> valueByHeader) {
+    String project = valueByHeader.apply("gh_project_name");
+    String branch = valueByHeader.apply("git_branch");
+    String buildId = valueByHeader.apply("tr_build_id");
+    String prevBuildId = valueByHeader.apply("tr_prev_build");
+    String triggerCommit = valueByHeader.apply("git_trigger_commit");
+    String status = valueByHeader.apply("tr_status");
+    String numTestsRun = valueByHeader.apply("tr_log_num_tests_run");
+    String numTestsOk = valueByHeader.apply("tr_log_num_tests_ok");
+    String numTestsFailed = valueByHeader.apply("tr_log_num_tests_failed");
+    String numTestsSkipped = valueByHeader.apply("tr_log_num_tests_skipped");
+    String failedMethods = valueByHeader.apply("tr_log_tests_failed");
 
     return Build.BuildBuilder.aBuild()
         .withProjectBranch(new ProjectBranchKey(project, branch))
@@ -108,7 +167,12 @@ public class BuildParser {
         .create();
   }
 
-  private boolean hasExtractionErrors(Build build) {
+  /**
+   * @param build A parsed build.
+   * @return true if the failed methods of the build have not been extracted correctly from the
+   *         build log.
+   */
+  public boolean hasExtractionErrors(Build build) {
     if (CollectionUtility.isNullOrEmpty(build.getFailedMethods())) {
       return false;
     }
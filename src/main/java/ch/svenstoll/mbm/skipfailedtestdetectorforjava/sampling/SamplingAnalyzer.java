@@ -0,0 +1,148 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.sampling;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.comparator.BuildComparator;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.extractor.ExtractionRegistry;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.extractor.MethodExtractor;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.Build;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.BuildAnalysisResult;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.DetectorConfiguration;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer.ResultWriter;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer.SmellRateEstimate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Analyzes a stratified random sample of the build pairs of the input file instead of all of
+ * them, in order to estimate how common the smell is within minutes. Only the drawn pairs are
+ * extracted and compared. Their results are written to {@code Results/sample_results.csv} and
+ * {@code Results/sample_smell_results.csv}, which are replaced by every sample, and the estimated
+ * rates of every stratum, of the pairs with and without failed tests and of all pairs are written
+ * to {@code Results/sample_estimates.csv}.</p>
+ *
+ * @see StratifiedSampler
+ * @see SmellRateEstimator
+ */
+public class SamplingAnalyzer {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SamplingAnalyzer.class);
+
+  private final DetectorConfiguration configuration;
+  private final StratifiedSampler sampler = new StratifiedSampler();
+
+  public SamplingAnalyzer(DetectorConfiguration configuration) {
+    if (configuration == null) {
+      throw new IllegalArgumentException("The configuration must not be null.");
+    }
+    if (configuration.getSampleSize() < 1
+        || !(configuration.getSampleConfidence() > 0 && configuration.getSampleConfidence() < 1)) {
+      throw new IllegalArgumentException("The sample size must be positive and the confidence level must be between "
+          + "0 and 1.");
+    }
+    if (configuration.isSharded()) {
+      throw new IllegalArgumentException("Sampling cannot be combined with sharding.");
+    }
+    this.configuration = configuration;
+  }
+
+  /**
+   * @param builds The builds of the input file.
+   * @return the estimates of every stratum followed by the estimates of the groups of strata.
+   * @throws IOException if the results cannot be written.
+   */
+  public List<SmellRateEstimate> analyze(List<Build> builds) throws IOException {
+    long startTime = System.nanoTime();
+    List<Stratum> strata = sampler.draw(builds, configuration.getSampleSize(), configuration.getSampleSeed());
+    Map<Long, Build> buildsByBuildId = new HashMap<>();
+    builds.forEach(build -> buildsByBuildId.put(build.getBuildId(), build));
+    LOGGER.info("Drew {} of {} build pairs from {} strata with seed {}.",
+        strata.stream().mapToLong(stratum -> stratum.getSampledBuilds().size()).sum(),
+        strata.stream().mapToLong(Stratum::getPopulationSize).sum(), strata.size(), configuration.getSampleSeed());
+
+    String resultsFolderPath = configuration.getOutputFolderPath() + "/Results/";
+    Files.deleteIfExists(Paths.get(resultsFolderPath, "sample_results.csv"));
+    Files.deleteIfExists(Paths.get(resultsFolderPath, "sample_smell_results.csv"));
+    Files.deleteIfExists(Paths.get(resultsFolderPath, "sample_checkpoint_journal.csv"));
+
+    BuildComparator comparator = new BuildComparator(configuration);
+    try (MethodExtractor extractor = new MethodExtractor(configuration);
+         ResultWriter resultWriter = new ResultWriter(resultsFolderPath + "sample_results.csv",
+             resultsFolderPath + "sample_smell_results.csv", resultsFolderPath + "sample_checkpoint_journal.csv",
+             null, configuration)) {
+      extractor.registerBuilds(collectExtractedBuilds(strata, buildsByBuildId));
+      ExtractionRegistry extractionRegistry = new ExtractionRegistry(extractor,
+          configuration.getExtractionCacheBytes());
+
+      String previousProjectName = null;
+      for (Stratum stratum : strata) {
+        if (previousProjectName != null && !previousProjectName.equals(stratum.getProjectName())) {
+          extractor.finishProject(previousProjectName);
+        }
+        previousProjectName = stratum.getProjectName();
+
+        for (Build buildT2 : stratum.getSampledBuilds()) {
+          BuildAnalysisResult result = comparator.compareBuildPair(buildsByBuildId.get(buildT2.getPrevBuildId()),
+              buildT2, extractionRegistry);
+          stratum.record(result);
+          resultWriter.write(result);
+        }
+      }
+    }
+
+    List<SmellRateEstimate> estimates = estimate(strata);
+    SmellRateEstimate.write(Paths.get(resultsFolderPath, SmellRateEstimate.FILE_NAME), estimates);
+    SmellRateEstimate overallEstimate = estimates.get(estimates.size() - 1);
+    LOGGER.info("Analyzed the sample in {} ms. Estimated smell rate: {}, estimated rate of removed failed tests: {} "
+            + "at a confidence level of {}.", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime),
+        overallEstimate.getSmellRate(), overallEstimate.getRemovedFailedTestRate(),
+        configuration.getSampleConfidence());
+    return estimates;
+  }
+
+  /**
+   * @return the drawn builds and their previous builds, ordered by project and build ID so that
+   *         the repositories are opened one after the other.
+   */
+  private List<Build> collectExtractedBuilds(List<Stratum> strata, Map<Long, Build> buildsByBuildId) {
+    Map<Long, Build> extractedBuildsById = new LinkedHashMap<>();
+    for (Stratum stratum : strata) {
+      for (Build buildT2 : stratum.getSampledBuilds()) {
+        Build buildT1 = buildsByBuildId.get(buildT2.getPrevBuildId());
+        extractedBuildsById.put(buildT1.getBuildId(), buildT1);
+        extractedBuildsById.put(buildT2.getBuildId(), buildT2);
+      }
+    }
+    List<Build> extractedBuilds = new ArrayList<>(extractedBuildsById.values());
+    extractedBuilds.sort(Comparator.comparing((Build build) -> build.getProjectBranchKey().getProjectName())
+        .thenComparingLong(Build::getBuildId));
+    return extractedBuilds;
+  }
+
+  private List<SmellRateEstimate> estimate(List<Stratum> strata) {
+    SmellRateEstimator estimator = new SmellRateEstimator(configuration.getSampleConfidence());
+    List<SmellRateEstimate> estimates = new ArrayList<>();
+    for (Stratum stratum : strata) {
+      estimates.add(estimator.estimate(stratum.getProjectName(), String.valueOf(stratum.isT1HasFailures()),
+          Collections.singletonList(stratum)));
+    }
+    for (boolean t1HasFailures : new boolean[]{false, true}) {
+      estimates.add(estimator.estimate(SmellRateEstimate.ALL, String.valueOf(t1HasFailures), strata.stream()
+          .filter(stratum -> stratum.isT1HasFailures() == t1HasFailures)
+          .collect(Collectors.toList())));
+    }
+    estimates.add(estimator.estimate(SmellRateEstimate.ALL, SmellRateEstimate.ALL, strata));
+    return estimates;
+  }
+}
@@ -0,0 +1,116 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.sampling;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer.SmellRateEstimate;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer.SmellRateEstimate.Interval;
+
+import java.util.List;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Estimates the smell rates of strata and groups of strata from the results of their drawn
+ * build pairs. The rate of a group is the average of the rates of its strata, weighted by their
+ * number of pairs, so that the proportional allocation of small strata does not distort it.
+ * Strata without an observation are left out and the weights of the others are scaled up.</p>
+ *
+ * <p>The confidence interval is a Wilson score interval, which stays within 0 and 1 and does not
+ * collapse if no smell has been observed. For a group, the number of observations is replaced by
+ * the effective sample size of the stratified estimate. The variance includes the finite
+ * population correction, so an interval narrows as a stratum is sampled completely.</p>
+ */
+public class SmellRateEstimator {
+
+  private static final double[] A = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+      1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00};
+  private static final double[] B = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+      6.680131188771972e+01, -1.328068155288572e+01};
+  private static final double[] C = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+      -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00};
+  private static final double[] D = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+      3.754408661907416e+00};
+  private static final double LOWER_REGION = 0.02425;
+
+  private final double z;
+
+  /**
+   * @param confidence The confidence level of the intervals, between 0 and 1.
+   */
+  public SmellRateEstimator(double confidence) {
+    if (!(confidence > 0 && confidence < 1)) {
+      throw new IllegalArgumentException("The confidence level must be between 0 and 1.");
+    }
+    this.z = -inverseNormal((1 - confidence) / 2);
+  }
+
+  /**
+   * @param project The project of the strata or {@link SmellRateEstimate#ALL}.
+   * @param t1HasFailures The failure state of the strata or {@link SmellRateEstimate#ALL}.
+   * @param strata The strata whose pairs the estimate refers to.
+   * @return the estimated rates of the strata.
+   */
+  public SmellRateEstimate estimate(String project, String t1HasFailures, List<Stratum> strata) {
+    return new SmellRateEstimate(project, t1HasFailures,
+        strata.stream().mapToLong(Stratum::getPopulationSize).sum(),
+        strata.stream().mapToLong(stratum -> stratum.getSampledBuilds().size()).sum(),
+        strata.stream().mapToLong(Stratum::getNumFailedAnalyses).sum(),
+        strata.stream().mapToLong(Stratum::getNumSmells).sum(),
+        estimateRate(strata, Stratum::getNumSmells),
+        strata.stream().mapToLong(Stratum::getNumRemovedFailedTests).sum(),
+        estimateRate(strata, Stratum::getNumRemovedFailedTests));
+  }
+
+  private Interval estimateRate(List<Stratum> strata, ToIntFunction<Stratum> numMatches) {
+    List<Stratum> observedStrata = strata.stream()
+        .filter(stratum -> stratum.getNumObservations() > 0)
+        .collect(Collectors.toList());
+    if (observedStrata.isEmpty()) {
+      return new Interval(null, null, null);
+    }
+
+    double populationSize = observedStrata.stream().mapToLong(Stratum::getPopulationSize).sum();
+    double rate = 0;
+    double variance = 0;
+    long numObservations = 0;
+    boolean complete = true;
+    for (Stratum stratum : observedStrata) {
+      double weight = stratum.getPopulationSize() / populationSize;
+      double n = stratum.getNumObservations();
+      double stratumRate = numMatches.applyAsInt(stratum) / n;
+      double finitePopulationCorrection = Math.max(0, 1 - n / stratum.getPopulationSize());
+      rate += weight * stratumRate;
+      variance += weight * weight * finitePopulationCorrection * stratumRate * (1 - stratumRate) / n;
+      numObservations += stratum.getNumObservations();
+      complete &= finitePopulationCorrection == 0;
+    }
+
+    if (complete) {
+      return new Interval(rate, rate, rate);
+    }
+    double effectiveSampleSize = variance > 0 ? rate * (1 - rate) / variance : numObservations;
+    return wilson(rate, effectiveSampleSize);
+  }
+
+  private Interval wilson(double rate, double n) {
+    double zSquared = z * z;
+    double denominator = 1 + zSquared / n;
+    double center = (rate + zSquared / (2 * n)) / denominator;
+    double halfWidth = z / denominator * Math.sqrt(rate * (1 - rate) / n + zSquared / (4 * n * n));
+    return new Interval(rate, Math.max(0, center - halfWidth), Math.min(1, center + halfWidth));
+  }
+
+  /**
+   * The quantile function of the standard normal distribution for probabilities up to 0.5, using
+   * the rational approximation of Peter J. Acklam with a relative error below 1.15e-9.
+   */
+  private static double inverseNormal(double p) {
+    if (p < LOWER_REGION) {
+      double q = Math.sqrt(-2 * Math.log(p));
+      return (((((C[0] * q + C[1]) * q + C[2]) * q + C[3]) * q + C[4]) * q + C[5])
+          / ((((D[0] * q + D[1]) * q + D[2]) * q + D[3]) * q + 1);
+    }
+    double q = p - 0.5;
+    double r = q * q;
+    return (((((A[0] * r + A[1]) * r + A[2]) * r + A[3]) * r + A[4]) * r + A[5]) * q
+        / (((((B[0] * r + B[1]) * r + B[2]) * r + B[3]) * r + B[4]) * r + 1);
+  }
+}
@@ -0,0 +1,147 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.sampling;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.Build;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * <p>Draws a stratified random sample of build pairs. A build pair is a build together with its
+ * previous build, which must be part of the input. The pairs are stratified by project and by
+ * whether the previous build has failed tests, as only those pairs can have removed a failed
+ * test.</p>
+ *
+ * <p>The sample size is allocated to the strata in proportion to their number of pairs, after
+ * every stratum has received one pair if the sample size allows it. Within a stratum, the pairs
+ * are drawn without replacement. The strata and their pairs are visited in a fixed order, so the
+ * same input, sample size and seed always result in the same sample.</p>
+ */
+public class StratifiedSampler {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(StratifiedSampler.class);
+
+  /**
+   * @param builds All builds of the input file.
+   * @param sampleSize The number of build pairs to draw.
+   * @param seed The seed of the random generator.
+   * @return the strata ordered by project, those without failed tests first, with their drawn
+   *         pairs.
+   */
+  public List<Stratum> draw(List<Build> builds, int sampleSize, long seed) {
+    List<Stratum> strata = stratify(builds);
+    int[] allocation = allocate(strata, sampleSize);
+
+    Random random = new Random(seed);
+    for (int i = 0; i < strata.size(); i++) {
+      Stratum stratum = strata.get(i);
+      List<Build> candidates = new ArrayList<>(stratum.getPopulationBuilds());
+      // Partial Fisher-Yates shuffle: the first allocated positions hold the drawn pairs.
+      for (int j = 0; j < allocation[i]; j++) {
+        int k = j + random.nextInt(candidates.size() - j);
+        Build drawnBuild = candidates.get(k);
+        candidates.set(k, candidates.get(j));
+        candidates.set(j, drawnBuild);
+      }
+      List<Build> sampledBuilds = new ArrayList<>(candidates.subList(0, allocation[i]));
+      sampledBuilds.sort(Comparator.comparingLong(Build::getBuildId));
+      stratum.setSampledBuilds(sampledBuilds);
+    }
+    return strata;
+  }
+
+  private List<Stratum> stratify(List<Build> builds) {
+    Map<Long, Build> buildsByBuildId = new TreeMap<>();
+    builds.forEach(build -> buildsByBuildId.put(build.getBuildId(), build));
+
+    Map<String, Stratum> strataByKey = new TreeMap<>();
+    for (Build buildT2 : buildsByBuildId.values()) {
+      Build buildT1 = buildT2.getPrevBuildId() != null ? buildsByBuildId.get(buildT2.getPrevBuildId()) : null;
+      if (buildT1 == null) {
+        continue;
+      }
+
+      String projectName = buildT2.getProjectBranchKey().getProjectName();
+      boolean t1HasFailures = hasFailures(buildT1);
+      strataByKey.computeIfAbsent(projectName + '\n' + t1HasFailures,
+          key -> new Stratum(projectName, t1HasFailures)).addPopulationBuild(buildT2);
+    }
+    return new ArrayList<>(strataByKey.values());
+  }
+
+  private boolean hasFailures(Build build) {
+    return (build.getNumTestsFailed() != null && build.getNumTestsFailed() > 0)
+        || (build.getFailedMethods() != null && !build.getFailedMethods().isEmpty());
+  }
+
+  private int[] allocate(List<Stratum> strata, int sampleSize) {
+    int[] allocation = new int[strata.size()];
+    long populationSize = strata.stream().mapToLong(Stratum::getPopulationSize).sum();
+    if (sampleSize >= populationSize) {
+      LOGGER.info("The sample size {} covers all {} build pairs.", sampleSize, populationSize);
+      for (int i = 0; i < strata.size(); i++) {
+        allocation[i] = strata.get(i).getPopulationSize();
+      }
+      return allocation;
+    }
+
+    long remaining = sampleSize;
+    if (sampleSize >= strata.size()) {
+      for (int i = 0; i < strata.size(); i++) {
+        allocation[i] = 1;
+      }
+      remaining -= strata.size();
+    }
+    else {
+      LOGGER.warn("The sample size {} is smaller than the {} strata. Strata without a drawn pair are left out of "
+          + "the estimates.", sampleSize, strata.size());
+    }
+
+    while (remaining > 0) {
+      long openPopulationSize = 0;
+      for (int i = 0; i < strata.size(); i++) {
+        if (allocation[i] < strata.get(i).getPopulationSize()) {
+          openPopulationSize += strata.get(i).getPopulationSize();
+        }
+      }
+
+      long numAllocated = 0;
+      double[] remainders = new double[strata.size()];
+      for (int i = 0; i < strata.size(); i++) {
+        int capacity = strata.get(i).getPopulationSize() - allocation[i];
+        if (capacity <= 0) {
+          remainders[i] = -1;
+          continue;
+        }
+        double share = (double) remaining * strata.get(i).getPopulationSize() / openPopulationSize;
+        int wholeShare = (int) Math.min(Math.floor(share), capacity);
+        allocation[i] += wholeShare;
+        numAllocated += wholeShare;
+        remainders[i] = share - Math.floor(share);
+      }
+
+      if (numAllocated == 0) {
+        // Every share is below one pair: the largest remainders receive one pair each.
+        List<Integer> openIndexes = new ArrayList<>();
+        for (int i = 0; i < strata.size(); i++) {
+          if (remainders[i] >= 0) {
+            openIndexes.add(i);
+          }
+        }
+        openIndexes.sort(Comparator.comparingDouble((Integer i) -> remainders[i]).reversed()
+            .thenComparingInt(i -> i));
+        for (int i = 0; i < openIndexes.size() && numAllocated < remaining; i++) {
+          allocation[openIndexes.get(i)]++;
+          numAllocated++;
+        }
+      }
+      remaining -= numAllocated;
+    }
+    return allocation;
+  }
+}
@@ -0,0 +1,101 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.sampling;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.Build;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.BuildAnalysisResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The build pairs of a project whose previous builds either all have or all do not have failed
+ * tests, together with the pairs that have been drawn from them and the results of their
+ * comparison.
+ */
+public class Stratum {
+
+  private final String projectName;
+  private final boolean t1HasFailures;
+  private final List<Build> populationBuilds = new ArrayList<>();
+  private List<Build> sampledBuilds = Collections.emptyList();
+  private int numFailedAnalyses = 0;
+  private int numSmells = 0;
+  private int numRemovedFailedTests = 0;
+
+  public Stratum(String projectName, boolean t1HasFailures) {
+    this.projectName = projectName;
+    this.t1HasFailures = t1HasFailures;
+  }
+
+  void addPopulationBuild(Build buildT2) {
+    populationBuilds.add(buildT2);
+  }
+
+  void setSampledBuilds(List<Build> sampledBuilds) {
+    this.sampledBuilds = Collections.unmodifiableList(new ArrayList<>(sampledBuilds));
+  }
+
+  /**
+   * Counts the result of a sampled build pair. Pairs whose analysis has failed do not count as
+   * observations, because it is unknown whether they have a smell.
+   *
+   * @param result The result of comparing a sampled build pair.
+   */
+  public void record(BuildAnalysisResult result) {
+    if (!result.isAnalysisOk()) {
+      numFailedAnalyses++;
+      return;
+    }
+    if (result.hasSmell()) {
+      numSmells++;
+    }
+    if (result.getNumRemovedFailedTests() != null && result.getNumRemovedFailedTests() >= 1) {
+      numRemovedFailedTests++;
+    }
+  }
+
+  public String getProjectName() {
+    return projectName;
+  }
+
+  public boolean isT1HasFailures() {
+    return t1HasFailures;
+  }
+
+  /**
+   * @return the follow-up builds of all build pairs of the stratum, ordered by build ID.
+   */
+  public List<Build> getPopulationBuilds() {
+    return populationBuilds;
+  }
+
+  public int getPopulationSize() {
+    return populationBuilds.size();
+  }
+
+  /**
+   * @return the follow-up builds of the drawn build pairs, ordered by build ID.
+   */
+  public List<Build> getSampledBuilds() {
+    return sampledBuilds;
+  }
+
+  /**
+   * @return the number of drawn build pairs whose analysis has succeeded.
+   */
+  public int getNumObservations() {
+    return sampledBuilds.size() - numFailedAnalyses;
+  }
+
+  public int getNumFailedAnalyses() {
+    return numFailedAnalyses;
+  }
+
+  public int getNumSmells() {
+    return numSmells;
+  }
+
+  public int getNumRemovedFailedTests() {
+    return numRemovedFailedTests;
+  }
+}
@@ -0,0 +1,28 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.scheduler;
+
+/**
+ * Determines the order in which the builds of a project are extracted. The results are always
+ * written in the order of project, branch and build ID.
+ */
+public enum BuildOrder {
+
+  /**
+   * Extracts the builds of each branch in the order of their build IDs.
+   */
+  BUILD_ID,
+
+  /**
+   * Extracts the builds of a project along the commit graph, so that consecutive extractions
+   * touch adjacent commits.
+   */
+  TOPOLOGY;
+
+  public static BuildOrder fromString(String value) {
+    for (BuildOrder order : values()) {
+      if (order.name().replace('_', '-').equalsIgnoreCase(value)) {
+        return order;
+      }
+    }
+    throw new IllegalArgumentException("Unknown build order \"" + value + "\".");
+  }
+}
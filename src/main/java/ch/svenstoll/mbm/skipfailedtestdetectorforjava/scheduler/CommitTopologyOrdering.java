@@ -0,0 +1,128 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.scheduler;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.Build;
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Orders the builds of a project along its commit graph. Parents are visited before their
+ * children and JGit's topological sort keeps lines of development together, so consecutive builds
+ * mostly differ by a few commits even if they belong to different branches.
+ */
+public class CommitTopologyOrdering {
+
+  /**
+   * @param repository The repository of the project.
+   * @param builds The builds of the project in their original order.
+   * @return the builds ordered along the commit graph. Builds whose trigger commit is not available
+   *         in the repository keep their original order and are put at the end.
+   * @throws IOException if the commit graph cannot be read.
+   */
+  public List<Build> orderBuilds(Repository repository, List<Build> builds) throws IOException {
+    Map<AnyObjectId, List<Build>> buildsByCommit = new HashMap<>();
+    List<Build> unresolvedBuilds = new ArrayList<>();
+    List<Build> orderedBuilds = new ArrayList<>(builds.size());
+
+    try (RevWalk revWalk = new RevWalk(repository)) {
+      revWalk.sort(RevSort.TOPO, true);
+      revWalk.sort(RevSort.REVERSE, true);
+      for (Build build : builds) {
+        RevCommit commit = parseCommit(revWalk, build.getTriggerCommit());
+        if (commit == null) {
+          unresolvedBuilds.add(build);
+        }
+        else {
+          buildsByCommit.computeIfAbsent(commit.copy(), key -> new ArrayList<>()).add(build);
+          revWalk.markStart(commit);
+        }
+      }
+
+      for (RevCommit commit : revWalk) {
+        List<Build> buildsOfCommit = buildsByCommit.remove(commit);
+        if (buildsOfCommit != null) {
+          orderedBuilds.addAll(buildsOfCommit);
+        }
+      }
+    }
+
+    orderedBuilds.addAll(unresolvedBuilds);
+    return orderedBuilds;
+  }
+
+  /**
+   * Calculates how many files differ on average between the trigger commits of consecutive builds.
+   * Builds whose trigger commit is not available in the repository are ignored.
+   *
+   * @param repository The repository of the project.
+   * @param builds The builds in the order in which they are extracted.
+   * @return the average number of differing files per step or 0 if there are less than two steps.
+   * @throws IOException if the trees cannot be read.
+   */
+  public double calculateAverageTreeDiffSize(Repository repository, List<Build> builds) throws IOException {
+    long numDifferingFiles = 0;
+    int numSteps = 0;
+
+    try (RevWalk revWalk = new RevWalk(repository)) {
+      RevCommit previousCommit = null;
+      for (Build build : builds) {
+        RevCommit commit = parseCommit(revWalk, build.getTriggerCommit());
+        if (commit == null) {
+          continue;
+        }
+
+        if (previousCommit != null) {
+          numDifferingFiles += countDifferingFiles(repository, previousCommit, commit);
+          numSteps++;
+        }
+        previousCommit = commit;
+      }
+    }
+
+    return numSteps > 0 ? (double) numDifferingFiles / numSteps : 0;
+  }
+
+  private int countDifferingFiles(Repository repository, RevCommit commitA, RevCommit commitB) throws IOException {
+    if (commitA.equals(commitB)) {
+      return 0;
+    }
+
+    try (TreeWalk treeWalk = new TreeWalk(repository)) {
+      treeWalk.addTree(commitA.getTree());
+      treeWalk.addTree(commitB.getTree());
+      treeWalk.setRecursive(true);
+      treeWalk.setFilter(TreeFilter.ANY_DIFF);
+      int numDifferingFiles = 0;
+      while (treeWalk.next()) {
+        numDifferingFiles++;
+      }
+      return numDifferingFiles;
+    }
+  }
+
+  private RevCommit parseCommit(RevWalk revWalk, String commit) throws IOException {
+    if (commit == null || !ObjectId.isId(commit)) {
+      return null;
+    }
+
+    try {
+      return revWalk.parseCommit(ObjectId.fromString(commit));
+    }
+    catch (MissingObjectException | IncorrectObjectTypeException e) {
+      return null;
+    }
+  }
+}
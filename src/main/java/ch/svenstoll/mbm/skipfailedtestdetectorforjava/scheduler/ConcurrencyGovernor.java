@@ -0,0 +1,235 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.scheduler;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.DetectorConfiguration;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.FileUtility;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Lowers and raises {@link ConcurrencyLimit}s depending on the pressure on the heap and on the
+ * disk of the output folder, so that a long run slows down instead of failing with an
+ * {@link OutOfMemoryError} or a full disk.</p>
+ *
+ * <p>The heap is judged by its occupancy after a garbage collection, as the occupancy before one
+ * says little about the memory that is actually needed. A collection usage threshold is set on
+ * the tenured heap pools, so that a collection that leaves them above the threshold lowers the
+ * limits right away. In addition, the occupancy and the free disk space are checked
+ * periodically. Under pressure, all limits are halved, at most once per check. Once the heap has
+ * stayed clearly below the threshold and enough disk space is free for several checks, the limits
+ * are raised step by step again.</p>
+ */
+public class ConcurrencyGovernor implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ConcurrencyGovernor.class);
+  private static final long CHECK_INTERVAL_MILLIS = 2000;
+  private static final int RELIEVED_CHECKS_BEFORE_RAISE = 5;
+  // The occupancy must fall below this share of the threshold before the limits are raised again.
+  private static final double RELIEF_FACTOR = 0.8;
+
+  private final double maxHeapOccupancy;
+  private final long minFreeDiskBytes;
+  private final Path outputFolderPath;
+  private final List<ConcurrencyLimit> limits = new CopyOnWriteArrayList<>();
+  private final List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+  private final NotificationListener thresholdListener = (notification, handback) -> {
+    if (MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType())) {
+      check(true);
+    }
+  };
+  private final Thread checkThread;
+  private long lastLoweringMillis = 0;
+  private int numRelievedChecks = 0;
+  private boolean minimumLogged = false;
+
+  /**
+   * Starts watching the heap and the disk. The governor does nothing until limits are added.
+   *
+   * @param configuration The configuration with the heap threshold, the minimum free disk space
+   *                      and the output folder.
+   */
+  public ConcurrencyGovernor(DetectorConfiguration configuration) {
+    this.maxHeapOccupancy = configuration.getMaxHeapOccupancy();
+    this.minFreeDiskBytes = configuration.getMinFreeDiskBytes();
+    this.outputFolderPath = Paths.get(configuration.getOutputFolderPath());
+
+    if (maxHeapOccupancy > 0) {
+      for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+        long maxBytes = pool.getUsage().getMax();
+        // Only the tenured pools support a usage threshold. The young pools are emptied by every
+        // collection and their survivors say nothing about the memory that is needed.
+        if (pool.getType() == MemoryType.HEAP && pool.isUsageThresholdSupported()
+            && pool.isCollectionUsageThresholdSupported() && maxBytes > 0) {
+          pool.setCollectionUsageThreshold((long) (maxBytes * maxHeapOccupancy));
+          heapPools.add(pool);
+        }
+      }
+    }
+    if (!heapPools.isEmpty()) {
+      ((NotificationEmitter) ManagementFactory.getMemoryMXBean())
+          .addNotificationListener(thresholdListener, null, null);
+    }
+
+    this.checkThread = new Thread(this::checkPeriodically, "concurrency-governor");
+    this.checkThread.setDaemon(true);
+    this.checkThread.start();
+  }
+
+  /**
+   * @param limit A limit that is lowered under pressure and raised again afterwards.
+   */
+  public void govern(ConcurrencyLimit limit) {
+    limits.add(limit);
+  }
+
+  private void checkPeriodically() {
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        Thread.sleep(CHECK_INTERVAL_MILLIS);
+        check(false);
+      }
+    }
+    catch (InterruptedException e) {
+      // The governor has been closed.
+    }
+  }
+
+  /**
+   * @param afterCollection true if a garbage collection has just left a heap pool above the
+   *                        threshold, which justifies lowering the limits again before the next
+   *                        periodic check.
+   */
+  private synchronized void check(boolean afterCollection) {
+    if (limits.isEmpty()) {
+      return;
+    }
+
+    double heapOccupancy = readHeapOccupancyAfterCollection();
+    long freeDiskBytes = readFreeDiskBytes();
+    boolean heapPressure = maxHeapOccupancy > 0 && heapOccupancy >= maxHeapOccupancy;
+    boolean diskPressure = minFreeDiskBytes > 0 && freeDiskBytes >= 0 && freeDiskBytes < minFreeDiskBytes;
+    long nowMillis = System.currentTimeMillis();
+
+    if (heapPressure || diskPressure) {
+      numRelievedChecks = 0;
+      if (!afterCollection && nowMillis - lastLoweringMillis < CHECK_INTERVAL_MILLIS) {
+        return;
+      }
+      lastLoweringMillis = nowMillis;
+      String reason = heapPressure
+          ? String.format(Locale.ROOT, "The heap is %.0f%% occupied after garbage collection, above %.0f%%",
+              heapOccupancy * 100, maxHeapOccupancy * 100)
+          : "Only " + FileUtility.formatBytes(freeDiskBytes) + " of disk space are free in \"" + outputFolderPath
+              + "\", below " + FileUtility.formatBytes(minFreeDiskBytes);
+      List<String> changes = changeLimits(ConcurrencyLimit::lower);
+      if (!changes.isEmpty()) {
+        minimumLogged = false;
+        LOGGER.warn("{}. Lowering {}.", reason, String.join(", ", changes));
+      }
+      else if (!minimumLogged) {
+        minimumLogged = true;
+        LOGGER.warn("{}, but all limits are already at their minimum.", reason);
+      }
+      return;
+    }
+
+    boolean heapRelieved = maxHeapOccupancy <= 0 || heapOccupancy < maxHeapOccupancy * RELIEF_FACTOR;
+    if (!heapRelieved || ++numRelievedChecks < RELIEVED_CHECKS_BEFORE_RAISE) {
+      return;
+    }
+    numRelievedChecks = 0;
+    List<String> changes = changeLimits(ConcurrencyLimit::raise);
+    if (!changes.isEmpty()) {
+      LOGGER.info(String.format(Locale.ROOT, "The heap is %.0f%% occupied after garbage collection and enough disk "
+          + "space is free. Raising %s.", heapOccupancy * 100, String.join(", ", changes)));
+    }
+  }
+
+  private List<String> changeLimits(Predicate<ConcurrencyLimit> change) {
+    List<String> changes = new ArrayList<>();
+    for (ConcurrencyLimit limit : limits) {
+      int previousLimit = limit.getLimit();
+      if (change.test(limit)) {
+        changes.add(limit.getName() + " from " + previousLimit + " to " + limit.getLimit());
+      }
+    }
+    return changes;
+  }
+
+  /**
+   * @return the highest share of a heap pool that is still used after the last garbage
+   *         collection, or 0 if it is unknown.
+   */
+  private double readHeapOccupancyAfterCollection() {
+    double occupancy = 0;
+    for (MemoryPoolMXBean pool : heapPools) {
+      MemoryUsage collectionUsage = pool.getCollectionUsage();
+      long maxBytes = pool.getUsage().getMax();
+      if (collectionUsage != null && maxBytes > 0) {
+        occupancy = Math.max(occupancy, (double) collectionUsage.getUsed() / maxBytes);
+      }
+    }
+    return occupancy;
+  }
+
+  /**
+   * @return the usable space of the file store of the output folder or -1 if it is unknown.
+   */
+  private long readFreeDiskBytes() {
+    try {
+      Path existingPath = outputFolderPath.toAbsolutePath();
+      while (existingPath != null && !Files.exists(existingPath)) {
+        existingPath = existingPath.getParent();
+      }
+      return existingPath != null ? Files.getFileStore(existingPath).getUsableSpace() : -1;
+    }
+    catch (IOException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * @return the current limits, e.g. for a summary at the end of a run.
+   */
+  public String describeLimits() {
+    return limits.stream()
+        .map(limit -> limit.getName() + " " + limit.getLimit() + " of " + limit.getMaxLimit())
+        .collect(Collectors.joining(", "));
+  }
+
+  @Override
+  public void close() {
+    checkThread.interrupt();
+    if (!heapPools.isEmpty()) {
+      try {
+        ((NotificationEmitter) ManagementFactory.getMemoryMXBean()).removeNotificationListener(thresholdListener);
+      }
+      catch (ListenerNotFoundException e) {
+        // Nothing to remove.
+      }
+      for (MemoryPoolMXBean pool : heapPools) {
+        // A threshold of 0 disables the notifications of the pool.
+        pool.setCollectionUsageThreshold(0);
+      }
+    }
+  }
+}
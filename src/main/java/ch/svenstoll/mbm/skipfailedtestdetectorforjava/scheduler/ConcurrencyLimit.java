@@ -0,0 +1,91 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.scheduler;
+
+/**
+ * A limit on the number of tasks of a kind that run at the same time, which can be lowered and
+ * raised while tasks are running. Lowering the limit does not interrupt running tasks, but new
+ * tasks wait until enough of them have finished.
+ */
+public class ConcurrencyLimit {
+
+  private final String name;
+  private final int minLimit;
+  private final int maxLimit;
+  private int limit;
+  private int numRunning = 0;
+
+  /**
+   * @param name The name of the tasks for the log, e.g. {@code concurrent projects}.
+   * @param minLimit The lowest limit.
+   * @param maxLimit The highest and initial limit.
+   */
+  public ConcurrencyLimit(String name, int minLimit, int maxLimit) {
+    if (minLimit < 1 || maxLimit < minLimit) {
+      throw new IllegalArgumentException("The limits must be at least 1 and the maximum must not be lower than the "
+          + "minimum.");
+    }
+    this.name = name;
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.limit = maxLimit;
+  }
+
+  /**
+   * Waits until fewer tasks than the limit are running.
+   *
+   * @throws InterruptedException if the thread is interrupted while waiting.
+   */
+  public synchronized void acquire() throws InterruptedException {
+    while (numRunning >= limit) {
+      wait();
+    }
+    numRunning++;
+  }
+
+  public synchronized void release() {
+    numRunning--;
+    notifyAll();
+  }
+
+  /**
+   * Halves the limit, but not below the minimum.
+   *
+   * @return true if the limit has changed.
+   */
+  public synchronized boolean lower() {
+    return setLimit(Math.max(minLimit, limit / 2));
+  }
+
+  /**
+   * Raises the limit by an eighth of the maximum, at least by one, but not above the maximum.
+   *
+   * @return true if the limit has changed.
+   */
+  public synchronized boolean raise() {
+    return setLimit(Math.min(maxLimit, limit + Math.max(1, maxLimit / 8)));
+  }
+
+  private boolean setLimit(int newLimit) {
+    if (newLimit == limit) {
+      return false;
+    }
+    limit = newLimit;
+    notifyAll();
+    return true;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public synchronized int getLimit() {
+    return limit;
+  }
+
+  public int getMaxLimit() {
+    return maxLimit;
+  }
+
+  public synchronized boolean isAtMinimum() {
+    return limit == minLimit;
+  }
+}
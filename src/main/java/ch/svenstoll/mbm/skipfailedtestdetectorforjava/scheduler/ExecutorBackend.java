@@ -0,0 +1,32 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.scheduler;
+
+/**
+ * Determines on which threads the blocking repository work of the extraction runs. Parsing always
+ * runs on a pool with one thread per processor.
+ */
+public enum ExecutorBackend {
+
+  /**
+   * Uses virtual threads if the JVM supports them and a bounded pool otherwise.
+   */
+  AUTO,
+
+  /**
+   * Runs each blocking read on its own virtual thread. Requires Java 21 or later.
+   */
+  VIRTUAL_THREADS,
+
+  /**
+   * Runs the blocking reads on a fixed number of platform threads.
+   */
+  BOUNDED_POOL;
+
+  public static ExecutorBackend fromString(String value) {
+    for (ExecutorBackend backend : values()) {
+      if (backend.name().replace('_', '-').equalsIgnoreCase(value)) {
+        return backend;
+      }
+    }
+    throw new IllegalArgumentException("Unknown executor backend \"" + value + "\".");
+  }
+}
@@ -0,0 +1,176 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.scheduler;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.extractor.MethodExtractor;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.Build;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.DetectorConfiguration;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.ProjectCommitKey;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.BooleanUtility.nvl;
+
+/**
+ * <p>Measures the extraction throughput of each executor backend on the same builds. Every trigger
+ * commit of the input is extracted once per measurement, while the comparison and the result files
+ * are left out.</p>
+ *
+ * <p>All repositories are cloned before the first measurement, so that only reading and parsing
+ * are measured. The backends take turns over several rounds and the fastest round of each backend
+ * is reported, so that neither the warm-up of the JVM nor the file system cache favour the backend
+ * that runs last.</p>
+ */
+public class ExecutorBenchmark {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ExecutorBenchmark.class);
+  private static final int NUM_ROUNDS = 2;
+
+  private final DetectorConfiguration configuration;
+
+  public ExecutorBenchmark(DetectorConfiguration configuration) {
+    if (configuration == null) {
+      throw new IllegalArgumentException("The configuration must not be null.");
+    }
+    this.configuration = configuration;
+  }
+
+  /**
+   * @param builds The builds of the input file.
+   * @return the fastest measurement of each backend that is supported by the JVM.
+   */
+  public List<Measurement> run(List<Build> builds) {
+    List<Build> commitBuilds = selectBuildsWithDistinctCommits(builds);
+    List<ExecutorBackend> backends = new ArrayList<>();
+    if (WorkExecutors.isVirtualThreadsSupported()) {
+      backends.add(ExecutorBackend.VIRTUAL_THREADS);
+    }
+    else {
+      LOGGER.warn("Virtual threads are not supported by Java {}, so only the bounded pool is measured.",
+          System.getProperty("java.version"));
+    }
+    backends.add(ExecutorBackend.BOUNDED_POOL);
+
+    LOGGER.info("Benchmarking {} with {} commits of {} builds over {} rounds.",
+        backends.stream().map(backend -> backend.name().replace('_', '-').toLowerCase()).collect(Collectors.joining(", ")),
+        commitBuilds.size(), builds.size(), NUM_ROUNDS);
+    prepareRepositories(commitBuilds);
+
+    Map<ExecutorBackend, Measurement> fastestMeasurements = new EnumMap<>(ExecutorBackend.class);
+    for (int round = 1; round <= NUM_ROUNDS; round++) {
+      for (ExecutorBackend backend : backends) {
+        Measurement measurement = measure(backend, commitBuilds);
+        LOGGER.info("Round {} of {}: {}", round, NUM_ROUNDS, measurement);
+        fastestMeasurements.merge(backend, measurement,
+            (measurement1, measurement2) -> measurement1.nanos <= measurement2.nanos ? measurement1 : measurement2);
+      }
+    }
+
+    for (Measurement measurement : fastestMeasurements.values()) {
+      LOGGER.info("Fastest round with {}", measurement);
+    }
+    return new ArrayList<>(fastestMeasurements.values());
+  }
+
+  /**
+   * Keeps the first build of every trigger commit, ordered by project so that the repositories
+   * are opened one after the other.
+   */
+  private List<Build> selectBuildsWithDistinctCommits(List<Build> builds) {
+    Set<ProjectCommitKey> commits = new HashSet<>();
+    List<Build> commitBuilds = new ArrayList<>();
+    for (Build build : builds) {
+      if (commits.add(new ProjectCommitKey(build.getProjectBranchKey().getProjectName(), build.getTriggerCommit()))) {
+        commitBuilds.add(build);
+      }
+    }
+    commitBuilds.sort(Comparator.comparing((Build build) -> build.getProjectBranchKey().getProjectName())
+        .thenComparingLong(Build::getBuildId));
+    return commitBuilds;
+  }
+
+  private void prepareRepositories(List<Build> builds) {
+    Set<String> projectNames = new LinkedHashSet<>();
+    builds.forEach(build -> projectNames.add(build.getProjectBranchKey().getProjectName()));
+    try (MethodExtractor extractor = new MethodExtractor(configuration,
+        WorkExecutors.create(ExecutorBackend.BOUNDED_POOL, 1))) {
+      extractor.registerBuilds(builds);
+      for (String projectName : projectNames) {
+        try {
+          extractor.getRepository(projectName);
+        }
+        catch (IOException | GitAPIException e) {
+          LOGGER.warn("Could not prepare the repository of {}. Its builds will fail in every round.", projectName);
+        }
+      }
+    }
+  }
+
+  private Measurement measure(ExecutorBackend backend, List<Build> builds) {
+    try (MethodExtractor extractor = new MethodExtractor(configuration,
+        WorkExecutors.create(backend, configuration.getNumIoThreads()))) {
+      extractor.registerBuilds(builds);
+      long numFailedBuilds = 0;
+      long startTime = System.nanoTime();
+      for (Build build : builds) {
+        // The copy is dropped after the extraction, so that the methods of all commits are never
+        // held at the same time.
+        Build buildCopy = new Build(build);
+        extractor.extractMethodsForBuild(buildCopy);
+        if (!nvl(buildCopy.getExtractionSuccessful())) {
+          numFailedBuilds++;
+        }
+      }
+      return new Measurement(backend, builds.size(), numFailedBuilds, extractor.getNumParsedFiles(),
+          System.nanoTime() - startTime);
+    }
+  }
+
+  public static final class Measurement {
+
+    private final ExecutorBackend backend;
+    private final long numBuilds;
+    private final long numFailedBuilds;
+    private final long numParsedFiles;
+    private final long nanos;
+
+    private Measurement(ExecutorBackend backend, long numBuilds, long numFailedBuilds, long numParsedFiles,
+                        long nanos) {
+      this.backend = backend;
+      this.numBuilds = numBuilds;
+      this.numFailedBuilds = numFailedBuilds;
+      this.numParsedFiles = numParsedFiles;
+      this.nanos = nanos;
+    }
+
+    public ExecutorBackend getBackend() {
+      return backend;
+    }
+
+    public double getBuildsPerSecond() {
+      return nanos > 0 ? numBuilds * 1e9 / nanos : 0;
+    }
+
+    public double getFilesPerSecond() {
+      return nanos > 0 ? numParsedFiles * 1e9 / nanos : 0;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s extracted %d commits (%d failed) with %d files in %d ms, %.1f commits/s and %.1f "
+              + "files/s", backend.name().replace('_', '-').toLowerCase(), numBuilds, numFailedBuilds, numParsedFiles,
+          TimeUnit.NANOSECONDS.toMillis(nanos), getBuildsPerSecond(), getFilesPerSecond());
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.scheduler;
+
+/**
+ * The size of a project in the input and the time its analysis is expected to take.
+ */
+public class ProjectCost {
+
+  private final String projectName;
+  private final long numBuilds;
+  private final long numCommits;
+  private final long numTestsRun;
+  private final long predictedMillis;
+  private final boolean basedOnTimings;
+
+  public ProjectCost(String projectName, long numBuilds, long numCommits, long numTestsRun, long predictedMillis,
+                     boolean basedOnTimings) {
+    this.projectName = projectName;
+    this.numBuilds = numBuilds;
+    this.numCommits = numCommits;
+    this.numTestsRun = numTestsRun;
+    this.predictedMillis = predictedMillis;
+    this.basedOnTimings = basedOnTimings;
+  }
+
+  public String getProjectName() {
+    return projectName;
+  }
+
+  public long getNumBuilds() {
+    return numBuilds;
+  }
+
+  /**
+   * @return the number of distinct trigger commits, each of which is extracted once.
+   */
+  public long getNumCommits() {
+    return numCommits;
+  }
+
+  /**
+   * @return the sum of the tests run by the builds of the distinct trigger commits.
+   */
+  public long getNumTestsRun() {
+    return numTestsRun;
+  }
+
+  public long getPredictedMillis() {
+    return predictedMillis;
+  }
+
+  /**
+   * @return true if the prediction is derived from the timing of a previous run of the project.
+   */
+  public boolean isBasedOnTimings() {
+    return basedOnTimings;
+  }
+}
@@ -0,0 +1,106 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.scheduler;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.Build;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer.ProjectTiming;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * <p>Plans the order in which the projects are analyzed: the most expensive projects first. The
+ * workers take the projects in this order, so that a large project does not start last and keep a
+ * single worker busy while all others are idle (longest processing time first).</p>
+ *
+ * <p>Without a previous timing, the cost of a project is estimated from the input. Every distinct
+ * trigger commit is extracted once, which takes a fixed time plus a time per test that its build
+ * has run, as the number of tests indicates the number of test files that are parsed. Every build
+ * is compared once. If a previous run has recorded the time a project took, that time is scaled by
+ * the change of the estimate since then. The estimates of the projects without a timing are
+ * calibrated with the ratio between the recorded times and the estimates of the projects that have
+ * one.</p>
+ */
+public class ProjectPlanner {
+
+  private static final double MILLIS_PER_COMMIT = 500;
+  private static final double MILLIS_PER_TEST_RUN = 0.5;
+  private static final double MILLIS_PER_BUILD = 5;
+
+  /**
+   * @param buildsByProject The builds of each project.
+   * @param previousTimings The timings of a previous run by project, which may be empty.
+   * @return the cost of each project, ordered by decreasing predicted time and then by name.
+   */
+  public List<ProjectCost> plan(List<List<Build>> buildsByProject, Map<String, ProjectTiming> previousTimings) {
+    double recordedMillis = 0;
+    double estimatedMillisOfRecordedSize = 0;
+    for (ProjectTiming timing : previousTimings.values()) {
+      recordedMillis += timing.getActualMillis();
+      estimatedMillisOfRecordedSize += estimateMillis(timing.getNumBuilds(), timing.getNumCommits(),
+          timing.getNumTestsRun());
+    }
+    double calibration = recordedMillis > 0 && estimatedMillisOfRecordedSize > 0
+        ? recordedMillis / estimatedMillisOfRecordedSize
+        : 1;
+
+    List<ProjectCost> plan = new ArrayList<>();
+    for (List<Build> projectBuilds : buildsByProject) {
+      plan.add(estimateProject(projectBuilds, previousTimings, calibration));
+    }
+    plan.sort(Comparator.comparingLong(ProjectCost::getPredictedMillis).reversed()
+        .thenComparing(ProjectCost::getProjectName));
+    return plan;
+  }
+
+  private ProjectCost estimateProject(List<Build> projectBuilds, Map<String, ProjectTiming> previousTimings,
+                                      double calibration) {
+    String projectName = projectBuilds.get(0).getProjectBranchKey().getProjectName();
+    // The largest test run of a commit stands for the test files of its tree.
+    Map<String, Integer> numTestsRunByCommit = new HashMap<>();
+    for (Build build : projectBuilds) {
+      int numTestsRun = build.getNumTestsRun() != null ? Math.max(build.getNumTestsRun(), 0) : 0;
+      numTestsRunByCommit.merge(build.getTriggerCommit(), numTestsRun, Math::max);
+    }
+    long numTestsRun = numTestsRunByCommit.values().stream().mapToLong(Integer::longValue).sum();
+    double estimatedMillis = estimateMillis(projectBuilds.size(), numTestsRunByCommit.size(), numTestsRun);
+
+    ProjectTiming timing = previousTimings.get(projectName);
+    if (timing != null) {
+      double estimatedMillisOfRecordedSize = estimateMillis(timing.getNumBuilds(), timing.getNumCommits(),
+          timing.getNumTestsRun());
+      double growth = estimatedMillisOfRecordedSize > 0 ? estimatedMillis / estimatedMillisOfRecordedSize : 1;
+      return new ProjectCost(projectName, projectBuilds.size(), numTestsRunByCommit.size(), numTestsRun,
+          Math.round(timing.getActualMillis() * growth), true);
+    }
+    return new ProjectCost(projectName, projectBuilds.size(), numTestsRunByCommit.size(), numTestsRun,
+        Math.round(estimatedMillis * calibration), false);
+  }
+
+  private double estimateMillis(long numBuilds, long numCommits, long numTestsRun) {
+    return numCommits * MILLIS_PER_COMMIT + numTestsRun * MILLIS_PER_TEST_RUN + numBuilds * MILLIS_PER_BUILD;
+  }
+
+  /**
+   * Simulates the workers taking the planned projects in order.
+   *
+   * @param plan The planned projects in the order in which they are started.
+   * @param numWorkers The number of projects that are analyzed at the same time.
+   * @return the predicted time until the last project has been analyzed.
+   */
+  public static long predictMakespanMillis(List<ProjectCost> plan, int numWorkers) {
+    PriorityQueue<Long> workerLoads = new PriorityQueue<>();
+    for (int i = 0; i < Math.max(numWorkers, 1); i++) {
+      workerLoads.add(0L);
+    }
+    long makespan = 0;
+    for (ProjectCost cost : plan) {
+      long load = workerLoads.poll() + cost.getPredictedMillis();
+      makespan = Math.max(makespan, load);
+      workerLoads.add(load);
+    }
+    return makespan;
+  }
+}
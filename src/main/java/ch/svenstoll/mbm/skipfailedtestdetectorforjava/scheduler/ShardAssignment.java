@@ -0,0 +1,57 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.scheduler;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.Build;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.HashUtility;
+
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Splits the projects of the input file into shards that can be analyzed by separate processes.
+ * A project is assigned by a stable hash of its name, so all builds of a project, including the
+ * previous builds they are compared with, end up in the same shard.
+ */
+public class ShardAssignment {
+
+  public static final String SHARDS_FOLDER = "Shards";
+
+  /**
+   * @param projectName The name of the project.
+   * @param shardCount The number of shards.
+   * @return the index of the shard the project belongs to.
+   */
+  public static int calculateShardIndex(String projectName, int shardCount) {
+    return (int) Long.remainderUnsigned(HashUtility.hash64(projectName), shardCount);
+  }
+
+  /**
+   * @param builds All builds of the input file.
+   * @param shardIndex The index of the shard.
+   * @param shardCount The number of shards.
+   * @return the builds of the projects that belong to the shard.
+   */
+  public static List<Build> selectBuilds(List<Build> builds, int shardIndex, int shardCount) {
+    validateShard(shardIndex, shardCount);
+    return builds.stream()
+        .filter(build -> calculateShardIndex(build.getProjectBranchKey().getProjectName(), shardCount) == shardIndex)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * @param outputFolderPath The output folder given on the command line.
+   * @param shardIndex The index of the shard.
+   * @param shardCount The number of shards.
+   * @return the folder for the results, repositories and logs of the shard.
+   */
+  public static String getShardFolderPath(String outputFolderPath, int shardIndex, int shardCount) {
+    validateShard(shardIndex, shardCount);
+    return Paths.get(outputFolderPath, SHARDS_FOLDER, "shard-" + shardIndex + "-of-" + shardCount).toString();
+  }
+
+  private static void validateShard(int shardIndex, int shardCount) {
+    if (shardCount < 1 || shardIndex < 0 || shardIndex >= shardCount) {
+      throw new IllegalArgumentException("The shard index must be between 0 and the shard count minus 1.");
+    }
+  }
+}
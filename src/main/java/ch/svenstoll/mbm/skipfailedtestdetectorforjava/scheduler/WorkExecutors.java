@@ -0,0 +1,124 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.scheduler;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.DetectorConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>The executors of the extraction. Blocking repository work such as reading files of a work tree
+ * or objects of a pack file runs on the I/O executor, while parsing runs on the CPU executor with
+ * one thread per processor. Keeping them apart means that threads waiting for the disk do not hold
+ * back the parser and that the parser does not compete with a large number of reading threads.</p>
+ *
+ * <p>The I/O executor starts a virtual thread per task if the JVM supports them and a bounded pool
+ * of platform threads otherwise. Virtual threads are looked up by reflection, because the detector
+ * is compiled for Java 8.</p>
+ */
+public class WorkExecutors implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(WorkExecutors.class);
+
+  private final ExecutorBackend backend;
+  private final ExecutorService ioExecutor;
+  private final ExecutorService cpuExecutor;
+
+  private WorkExecutors(ExecutorBackend backend, ExecutorService ioExecutor, ExecutorService cpuExecutor) {
+    this.backend = backend;
+    this.ioExecutor = ioExecutor;
+    this.cpuExecutor = cpuExecutor;
+  }
+
+  /**
+   * @param configuration The configuration with the executor backend and the number of I/O threads.
+   * @return the executors of the configured backend.
+   */
+  public static WorkExecutors create(DetectorConfiguration configuration) {
+    return create(configuration.getExecutorBackend(), configuration.getNumIoThreads());
+  }
+
+  /**
+   * @param backend The backend of the I/O executor. If virtual threads are requested but not
+   *                supported, a bounded pool is used instead.
+   * @param numIoThreads The number of threads of a bounded pool.
+   * @return the executors of the backend.
+   */
+  public static WorkExecutors create(ExecutorBackend backend, int numIoThreads) {
+    ExecutorService cpuExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+        createDaemonThreadFactory("java-parser"));
+
+    if (backend != ExecutorBackend.BOUNDED_POOL) {
+      ExecutorService virtualThreadExecutor = createVirtualThreadExecutor();
+      if (virtualThreadExecutor != null) {
+        return new WorkExecutors(ExecutorBackend.VIRTUAL_THREADS, virtualThreadExecutor, cpuExecutor);
+      }
+      if (backend == ExecutorBackend.VIRTUAL_THREADS) {
+        LOGGER.warn("Virtual threads are not supported by Java {}. A pool of {} threads is used instead.",
+            System.getProperty("java.version"), numIoThreads);
+      }
+    }
+    return new WorkExecutors(ExecutorBackend.BOUNDED_POOL,
+        Executors.newFixedThreadPool(numIoThreads, createDaemonThreadFactory("repository-reader")), cpuExecutor);
+  }
+
+  /**
+   * @return true if the JVM can run tasks on virtual threads.
+   */
+  public static boolean isVirtualThreadsSupported() {
+    ExecutorService executorService = createVirtualThreadExecutor();
+    if (executorService == null) {
+      return false;
+    }
+    executorService.shutdown();
+    return true;
+  }
+
+  private static ExecutorService createVirtualThreadExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    }
+    catch (NoSuchMethodException | IllegalAccessException e) {
+      return null;
+    }
+    catch (InvocationTargetException e) {
+      // Virtual threads are a preview feature in Java 19 and 20 and fail without --enable-preview.
+      return null;
+    }
+  }
+
+  private static ThreadFactory createDaemonThreadFactory(String name) {
+    AtomicInteger numThreads = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, name + "-" + numThreads.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  /**
+   * @return the backend that is actually used, which is never {@link ExecutorBackend#AUTO}.
+   */
+  public ExecutorBackend getBackend() {
+    return backend;
+  }
+
+  public ExecutorService getIoExecutor() {
+    return ioExecutor;
+  }
+
+  public ExecutorService getCpuExecutor() {
+    return cpuExecutor;
+  }
+
+  @Override
+  public void close() {
+    ioExecutor.shutdownNow();
+    cpuExecutor.shutdownNow();
+  }
+}
@@ -0,0 +1,260 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.server;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.comparator.BuildComparator;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.extractor.ExtractionRegistry;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.extractor.MethodExtractor;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.Build;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.BuildAnalysisResult;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.DetectorConfiguration;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.parser.BuildParser;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.JsonUtility;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Long-running daemon that analyzes single build pairs over a local HTTP API. The
+ * {@link MethodExtractor}, the repositories it has opened and the extracted methods are kept for
+ * the lifetime of the daemon, so that repeated requests for the same projects neither pay for the
+ * startup of the JVM nor for cloning or extracting the same commits again.</p>
+ *
+ * <p>{@code POST /analyze} expects a JSON object with the builds {@code build_t1} (optional) and
+ * {@code build_t2}, each with the columns of the input file as keys, and responds with the columns
+ * of the result files. {@code GET /metrics} responds with the number of requests, the latency
+ * percentiles of recent requests and the state of the extraction cache. At most the configured
+ * number of requests is analyzed at the same time. Further requests are rejected with status
+ * 503, so that clients can retry instead of piling up behind a slow extraction.</p>
+ */
+public class AnalysisServer implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AnalysisServer.class);
+  private static final int MAX_REQUEST_BYTES = 1024 * 1024;
+  private static final int NUM_LATENCY_SAMPLES = 4096;
+  private static final int NUM_EXTRA_THREADS = 2;
+
+  private final MethodExtractor extractor;
+  private final ExtractionRegistry extractionRegistry;
+  private final BuildComparator comparator;
+  private final BuildParser buildParser = new BuildParser();
+  private final int maxConcurrentRequests;
+  private final Semaphore requestPermits;
+  private final ExecutorService executorService;
+  private final HttpServer httpServer;
+  private final LatencyRecorder latencyRecorder = new LatencyRecorder(NUM_LATENCY_SAMPLES);
+  private final AtomicLong numRejectedRequests = new AtomicLong();
+  private final AtomicLong numFailedRequests = new AtomicLong();
+  private final long startTime = System.nanoTime();
+
+  /**
+   * Binds the server to the loopback address, but does not start it yet.
+   *
+   * @param configuration The configuration of the daemon.
+   * @throws IOException if the port cannot be bound.
+   * @throws IllegalArgumentException if the port or the number of concurrent requests is invalid.
+   */
+  public AnalysisServer(DetectorConfiguration configuration) throws IOException {
+    if (configuration.getServerPort() < 0 || configuration.getServerPort() > 65535
+        || configuration.getMaxConcurrentRequests() < 1) {
+      throw new IllegalArgumentException("The server port must be between 0 and 65535 and at least one concurrent "
+          + "request is required.");
+    }
+    this.extractor = new MethodExtractor(configuration);
+    this.extractionRegistry = new ExtractionRegistry(extractor, configuration.getExtractionCacheBytes());
+    this.comparator = new BuildComparator(configuration);
+    this.maxConcurrentRequests = configuration.getMaxConcurrentRequests();
+    this.requestPermits = new Semaphore(maxConcurrentRequests);
+    // The extra threads answer metrics requests and rejections while all permits are taken.
+    this.executorService = Executors.newFixedThreadPool(maxConcurrentRequests + NUM_EXTRA_THREADS);
+    this.httpServer = HttpServer.create(
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), configuration.getServerPort()), 0);
+    httpServer.setExecutor(executorService);
+    httpServer.createContext("/analyze", this::handleAnalyze);
+    httpServer.createContext("/metrics", this::handleMetrics);
+  }
+
+  public void start() {
+    httpServer.start();
+    LOGGER.info("Listening on http://{}:{} for up to {} concurrent requests.",
+        httpServer.getAddress().getHostString(), getPort(), maxConcurrentRequests);
+  }
+
+  /**
+   * @return the port the server is bound to, which differs from the configured port if that was 0.
+   */
+  public int getPort() {
+    return httpServer.getAddress().getPort();
+  }
+
+  private void handleAnalyze(HttpExchange exchange) throws IOException {
+    try {
+      if (!"POST".equals(exchange.getRequestMethod())) {
+        sendError(exchange, 405, "Only POST is supported.");
+        return;
+      }
+      if (!requestPermits.tryAcquire()) {
+        numRejectedRequests.incrementAndGet();
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        sendError(exchange, 503, "Too many concurrent requests.");
+        return;
+      }
+
+      long requestStartTime = System.nanoTime();
+      try {
+        analyze(exchange);
+      }
+      finally {
+        requestPermits.release();
+        latencyRecorder.record(System.nanoTime() - requestStartTime);
+      }
+    }
+    finally {
+      exchange.close();
+    }
+  }
+
+  private void analyze(HttpExchange exchange) throws IOException {
+    Build buildT1;
+    Build buildT2;
+    try {
+      Object request = JsonUtility.parse(readRequestBody(exchange));
+      if (!(request instanceof Map)) {
+        throw new IllegalArgumentException("The request must be a JSON object.");
+      }
+      buildT1 = parseBuild(((Map<?, ?>) request).get("build_t1"), false);
+      buildT2 = parseBuild(((Map<?, ?>) request).get("build_t2"), true);
+      if (buildT1 != null && !buildT1.getProjectBranchKey().getProjectName()
+          .equals(buildT2.getProjectBranchKey().getProjectName())) {
+        throw new IllegalArgumentException("Both builds must belong to the same project.");
+      }
+    }
+    catch (IllegalArgumentException e) {
+      numFailedRequests.incrementAndGet();
+      sendError(exchange, 400, e.getMessage());
+      return;
+    }
+
+    BuildAnalysisResult result;
+    try {
+      result = comparator.compareBuildPair(buildT1, buildT2, extractionRegistry);
+    }
+    catch (RuntimeException e) {
+      LOGGER.error("Could not analyze {}.", buildT2, e);
+      numFailedRequests.incrementAndGet();
+      sendError(exchange, 500, "The analysis failed.");
+      return;
+    }
+    sendJson(exchange, 200, result.toMap());
+  }
+
+  private Build parseBuild(Object value, boolean required) {
+    if (value == null && !required) {
+      return null;
+    }
+    if (!(value instanceof Map)) {
+      throw new IllegalArgumentException("The build must be a JSON object.");
+    }
+
+    Build build = buildParser.transformObjectToBuild((Map<?, ?>) value);
+    if (buildParser.hasExtractionErrors(build)) {
+      throw new IllegalArgumentException("The failed tests of build " + build.getBuildId() + " are invalid.");
+    }
+    return build;
+  }
+
+  private void handleMetrics(HttpExchange exchange) throws IOException {
+    try {
+      if (!"GET".equals(exchange.getRequestMethod())) {
+        sendError(exchange, 405, "Only GET is supported.");
+        return;
+      }
+
+      Map<String, Object> requests = new LinkedHashMap<>();
+      requests.put("in_flight", maxConcurrentRequests - requestPermits.availablePermits());
+      requests.put("rejected", numRejectedRequests.get());
+      requests.put("failed", numFailedRequests.get());
+
+      Map<String, Object> extractionCache = new LinkedHashMap<>();
+      synchronized (extractionRegistry) {
+        extractionCache.put("requests", extractionRegistry.getNumRequests());
+        extractionCache.put("hits", extractionRegistry.getNumHits());
+        extractionCache.put("extractions", extractionRegistry.getNumExtractions());
+        extractionCache.put("evictions", extractionRegistry.getNumEvictions());
+        extractionCache.put("cached_bytes", extractionRegistry.getCachedBytes());
+      }
+
+      Map<String, Object> metrics = new LinkedHashMap<>();
+      metrics.put("uptime_s", TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startTime));
+      metrics.put("requests", requests);
+      metrics.put("latency", latencyRecorder.getSummary());
+      metrics.put("extraction_cache", extractionCache);
+      sendJson(exchange, 200, metrics);
+    }
+    finally {
+      exchange.close();
+    }
+  }
+
+  private String readRequestBody(HttpExchange exchange) throws IOException {
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    try (InputStream inputStream = exchange.getRequestBody()) {
+      int numRead;
+      while ((numRead = inputStream.read(buffer)) != -1) {
+        body.write(buffer, 0, numRead);
+        if (body.size() > MAX_REQUEST_BYTES) {
+          throw new IllegalArgumentException("The request must not be larger than " + MAX_REQUEST_BYTES + " bytes.");
+        }
+      }
+    }
+    return new String(body.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+    Map<String, Object> error = new LinkedHashMap<>();
+    error.put("error", message);
+    sendJson(exchange, status, error);
+  }
+
+  private void sendJson(HttpExchange exchange, int status, Object value) throws IOException {
+    byte[] response = JsonUtility.toJson(value).getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+    exchange.sendResponseHeaders(status, response.length);
+    try (OutputStream outputStream = exchange.getResponseBody()) {
+      outputStream.write(response);
+    }
+  }
+
+  /**
+   * Stops accepting requests, waits briefly for running ones and closes the repositories.
+   */
+  @Override
+  public void close() {
+    httpServer.stop(1);
+    executorService.shutdown();
+    try {
+      executorService.awaitTermination(1, TimeUnit.MINUTES);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    extractor.close();
+    LOGGER.info("The daemon has been stopped after {} requests.", latencyRecorder.getSummary().get("count"));
+  }
+}
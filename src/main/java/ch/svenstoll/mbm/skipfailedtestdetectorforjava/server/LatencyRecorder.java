@@ -0,0 +1,74 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.server;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the latencies of the most recent requests in a ring buffer, so that the percentiles
+ * follow the current load instead of being dominated by the warm-up of the daemon.
+ */
+public class LatencyRecorder {
+
+  private static final double[] PERCENTILES = {50, 90, 99};
+
+  private final long[] latenciesNanos;
+  private int numSamples = 0;
+  private int nextIndex = 0;
+  private long numRecorded = 0;
+  private long maxNanos = 0;
+
+  /**
+   * @param capacity The number of most recent latencies the percentiles are calculated from.
+   */
+  public LatencyRecorder(int capacity) {
+    this.latenciesNanos = new long[capacity];
+  }
+
+  public synchronized void record(long latencyNanos) {
+    latenciesNanos[nextIndex] = latencyNanos;
+    nextIndex = (nextIndex + 1) % latenciesNanos.length;
+    numSamples = Math.min(numSamples + 1, latenciesNanos.length);
+    numRecorded++;
+    maxNanos = Math.max(maxNanos, latencyNanos);
+  }
+
+  /**
+   * @return the number of recorded requests, the 50th, 90th and 99th percentile of the recent
+   *         latencies and the maximum latency since the start in milliseconds.
+   */
+  public Map<String, Object> getSummary() {
+    long[] samples;
+    long recorded;
+    long max;
+    synchronized (this) {
+      samples = Arrays.copyOf(latenciesNanos, numSamples);
+      recorded = numRecorded;
+      max = maxNanos;
+    }
+    Arrays.sort(samples);
+
+    Map<String, Object> summary = new LinkedHashMap<>();
+    summary.put("count", recorded);
+    for (double percentile : PERCENTILES) {
+      summary.put("p" + (int) percentile + "_ms", toMillis(calculatePercentile(samples, percentile)));
+    }
+    summary.put("max_ms", toMillis(max));
+    return summary;
+  }
+
+  /**
+   * Nearest-rank percentile of sorted samples.
+   */
+  private long calculatePercentile(long[] sortedSamples, double percentile) {
+    if (sortedSamples.length == 0) {
+      return 0;
+    }
+    int rank = (int) Math.ceil(percentile / 100 * sortedSamples.length);
+    return sortedSamples[Math.max(rank - 1, 0)];
+  }
+
+  private double toMillis(long nanos) {
+    return Math.round(nanos / 1000.0) / 1000.0;
+  }
+}
@@ -0,0 +1,200 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.stream;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.Build;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.DetectorConfiguration;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.parser.BuildParser;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.JsonUtility;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.StringUtility;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Reads build records line by line from the standard input or from a file that is followed
+ * like {@code tail -f}. The lines are read on a separate thread, so that the consumer can wait for
+ * the next build with a timeout and handle expired builds in the meantime.</p>
+ *
+ * <p>The standard input is read until it is closed. A followed file is read until the reader is
+ * closed, while lines that are appended to it are picked up within {@link #FOLLOW_INTERVAL_MILLIS}.
+ * Lines that cannot be parsed are logged and skipped.</p>
+ */
+public class BuildEventReader implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BuildEventReader.class);
+  private static final long FOLLOW_INTERVAL_MILLIS = 500;
+  private static final int MAX_QUEUED_LINES = 10000;
+  // Compared by identity, so that it cannot be confused with a line of the stream.
+  private static final String END_OF_STREAM = new String("end of stream");
+
+  private final String source;
+  private final StreamFormat format;
+  private final BuildParser buildParser = new BuildParser();
+  private final BlockingQueue<String> lines = new LinkedBlockingQueue<>(MAX_QUEUED_LINES);
+  private final Thread readerThread;
+  private volatile boolean closed = false;
+  private boolean finished = false;
+  private long numLines = 0;
+  private long numInvalidLines = 0;
+
+  /**
+   * Starts reading the configured stream source.
+   *
+   * @param configuration The configuration with the stream source and format.
+   * @throws IllegalArgumentException if the source or the format is missing.
+   */
+  public BuildEventReader(DetectorConfiguration configuration) {
+    if (StringUtility.isNullOrEmpty(configuration.getStreamSource()) || configuration.getStreamFormat() == null) {
+      throw new IllegalArgumentException("The stream source and format must not be null or empty.");
+    }
+    this.source = configuration.getStreamSource();
+    this.format = configuration.getStreamFormat();
+    this.readerThread = new Thread(this::readLines, "build-event-reader");
+    // A thread blocked on the standard input must not keep the JVM alive.
+    readerThread.setDaemon(true);
+    readerThread.start();
+  }
+
+  /**
+   * @param timeout How long to wait for the next build.
+   * @param unit The unit of the timeout.
+   * @return the next build or null if there is none within the timeout or the stream has ended.
+   *         Lines that have been read before the reader was closed are dropped.
+   * @throws InterruptedException if the thread is interrupted while waiting.
+   */
+  public Build poll(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    while (!isFinished()) {
+      String line = lines.poll(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+      if (line == null) {
+        return null;
+      }
+      if (line == END_OF_STREAM) {
+        finished = true;
+        return null;
+      }
+
+      Build build = parseLine(line);
+      if (build != null) {
+        return build;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return true if the stream has ended and all builds have been returned or the reader has been
+   *         closed.
+   */
+  public boolean isFinished() {
+    return finished || closed;
+  }
+
+  private Build parseLine(String line) {
+    if (line.trim().isEmpty() || (format == StreamFormat.CSV && buildParser.isHeaderLine(line))) {
+      return null;
+    }
+
+    numLines++;
+    try {
+      Build build;
+      if (format == StreamFormat.JSON) {
+        Object object = JsonUtility.parse(line);
+        if (!(object instanceof Map)) {
+          throw new IllegalArgumentException("The line is not a JSON object.");
+        }
+        build = buildParser.transformObjectToBuild((Map<?, ?>) object);
+      }
+      else {
+        build = buildParser.transformLineToBuild(line);
+      }
+
+      if (buildParser.hasExtractionErrors(build)) {
+        throw new IllegalArgumentException("The failed tests are invalid.");
+      }
+      return build;
+    }
+    catch (IOException | RuntimeException e) {
+      numInvalidLines++;
+      LOGGER.warn("Skipping line {}, because it is not a valid build record: {}", numLines, e.getMessage());
+      return null;
+    }
+  }
+
+  private void readLines() {
+    boolean follow = !DetectorConfiguration.STDIN_STREAM_SOURCE.equals(source);
+    try (Reader reader = follow
+        ? new BufferedReader(new InputStreamReader(new FileInputStream(source), StandardCharsets.UTF_8))
+        : new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))) {
+      StringBuilder line = new StringBuilder();
+      while (!closed) {
+        int c = reader.read();
+        if (c == -1) {
+          if (!follow) {
+            break;
+          }
+          // The last line may still be incomplete, so it is only taken once its newline arrives.
+          Thread.sleep(FOLLOW_INTERVAL_MILLIS);
+        }
+        else if (c == '\n') {
+          lines.put(line.toString());
+          line.setLength(0);
+        }
+        else if (c != '\r') {
+          line.append((char) c);
+        }
+      }
+      if (line.length() > 0 && !follow) {
+        lines.put(line.toString());
+      }
+    }
+    catch (IOException e) {
+      LOGGER.error("Could not read the build records from \"{}\".", source, e);
+    }
+    catch (InterruptedException e) {
+      // The reader has been closed.
+      return;
+    }
+
+    try {
+      lines.put(END_OF_STREAM);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * @return the number of non-empty lines that have been read.
+   */
+  public long getNumLines() {
+    return numLines;
+  }
+
+  /**
+   * @return the number of lines that have been skipped, because they are not valid build records.
+   */
+  public long getNumInvalidLines() {
+    return numInvalidLines;
+  }
+
+  /**
+   * Stops reading. A followed file is closed, while a thread blocked on the standard input is left
+   * behind as a daemon thread.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    readerThread.interrupt();
+  }
+}
@@ -0,0 +1,26 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.stream;
+
+/**
+ * Format of the build records that are read in streaming mode, one record per line.
+ */
+public enum StreamFormat {
+
+  /**
+   * Comma-separated values in the column order of the input file. A header line is skipped.
+   */
+  CSV,
+
+  /**
+   * A JSON object per line with the columns of the input file as keys.
+   */
+  JSON;
+
+  public static StreamFormat fromString(String value) {
+    for (StreamFormat format : values()) {
+      if (format.name().replace('_', '-').equalsIgnoreCase(value)) {
+        return format;
+      }
+    }
+    throw new IllegalArgumentException("Unknown stream format \"" + value + "\".");
+  }
+}
@@ -0,0 +1,251 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.stream;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.comparator.BuildComparator;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.extractor.ExtractionRegistry;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.extractor.MethodExtractor;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.Build;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.BuildAnalysisResult;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.DetectorConfiguration;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.ProjectBranchKey;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer.ResultWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Analyzes builds as they arrive instead of over a complete input file. For every project and
+ * branch, the most recent build is kept as the previous build of the next one, together with all
+ * builds that have arrived within the window. A build is compared as soon as its previous build is
+ * known, so that a smell is written within seconds after the build has been recorded. Like in the
+ * batch mode, the previous build is looked up by its build ID, so it may belong to another
+ * branch.</p>
+ *
+ * <p>A build whose previous build has not arrived yet is buffered. Once the previous build
+ * arrives, both are compared in order. If it does not arrive within the window, the build is
+ * written without a previous build, like a build whose previous build is missing in the input
+ * file.</p>
+ */
+public class StreamingAnalyzer implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(StreamingAnalyzer.class);
+  private static final long POLL_INTERVAL_MILLIS = 500;
+
+  private final long windowMillis;
+  private final MethodExtractor extractor;
+  private final ExtractionRegistry extractionRegistry;
+  private final BuildComparator comparator;
+  private final ResultWriter resultWriter;
+  private final Map<ProjectBranchKey, Long> lastBuildIdByPartition = new HashMap<>();
+  private final Map<Long, RecentBuild> recentBuildsById = new HashMap<>();
+  private final Map<Long, List<WaitingBuild>> waitingBuildsByPrevBuildId = new HashMap<>();
+  private final Set<Long> waitingBuildIds = new HashSet<>();
+  private long numReceivedBuilds = 0;
+  private long numWrittenResults = 0;
+  private long numExpiredBuilds = 0;
+  private long numDuplicateBuilds = 0;
+  private long numSmells = 0;
+
+  /**
+   * Opens the result files in the output folder, appending to them if they already exist.
+   *
+   * @param configuration The configuration of the streaming mode.
+   * @throws IOException if the result files cannot be opened.
+   * @throws IllegalArgumentException if the stream window is negative.
+   */
+  public StreamingAnalyzer(DetectorConfiguration configuration) throws IOException {
+    if (configuration.getStreamWindowMillis() < 0) {
+      throw new IllegalArgumentException("The stream window must not be negative.");
+    }
+    String outputFolderPath = configuration.getOutputFolderPath();
+    this.windowMillis = configuration.getStreamWindowMillis();
+    this.extractor = new MethodExtractor(configuration);
+    this.extractionRegistry = new ExtractionRegistry(extractor, configuration.getExtractionCacheBytes());
+    this.comparator = new BuildComparator(configuration);
+    this.resultWriter = new ResultWriter(outputFolderPath + "/Results/all_results.csv",
+        outputFolderPath + "/Results/smell_results.csv", outputFolderPath + "/Results/checkpoint_journal.csv",
+        null, configuration);
+  }
+
+  /**
+   * Analyzes the builds of a reader until its stream ends or the thread is interrupted.
+   *
+   * @param reader The reader of the build records.
+   * @throws IOException if a result cannot be written.
+   */
+  public void consume(BuildEventReader reader) throws IOException {
+    try {
+      while (!reader.isFinished()) {
+        Build build = reader.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        long nowMillis = System.currentTimeMillis();
+        if (build != null) {
+          accept(build, nowMillis);
+        }
+        expire(nowMillis);
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOGGER.info("Streaming has been interrupted.");
+    }
+  }
+
+  /**
+   * Compares a build with its previous build if that is known and otherwise buffers it.
+   *
+   * @param build The build that has arrived.
+   * @param nowMillis The time of arrival.
+   * @throws IOException if a result cannot be written.
+   */
+  public void accept(Build build, long nowMillis) throws IOException {
+    numReceivedBuilds++;
+    if (recentBuildsById.containsKey(build.getBuildId()) || waitingBuildIds.contains(build.getBuildId())) {
+      numDuplicateBuilds++;
+      LOGGER.warn("Skipping {}, because it has already arrived before.", build);
+      return;
+    }
+
+    Long prevBuildId = build.getPrevBuildId();
+    RecentBuild previousBuild = prevBuildId != null ? recentBuildsById.get(prevBuildId) : null;
+    if (prevBuildId != null && previousBuild == null) {
+      waitingBuildsByPrevBuildId.computeIfAbsent(prevBuildId, id -> new ArrayList<>())
+          .add(new WaitingBuild(build, nowMillis));
+      waitingBuildIds.add(build.getBuildId());
+      return;
+    }
+    analyzeAndRelease(previousBuild != null ? previousBuild.build : null, build, nowMillis);
+  }
+
+  /**
+   * Writes the builds whose previous build has not arrived within the window and forgets builds
+   * that can no longer be the previous build of a buffered one, except the most recent build of
+   * each branch.
+   *
+   * @param nowMillis The current time.
+   * @throws IOException if a result cannot be written.
+   */
+  public void expire(long nowMillis) throws IOException {
+    long arrivedBeforeMillis = nowMillis - windowMillis;
+    // Sorted by build ID, so that an expired build is written before the builds waiting for it,
+    // which are then compared with it instead of expiring as well.
+    List<WaitingBuild> expiredBuilds = waitingBuildsByPrevBuildId.values().stream()
+        .flatMap(List::stream)
+        .filter(waitingBuild -> waitingBuild.arrivalMillis <= arrivedBeforeMillis)
+        .sorted(Comparator.comparingLong(waitingBuild -> waitingBuild.build.getBuildId()))
+        .collect(Collectors.toList());
+    for (WaitingBuild waitingBuild : expiredBuilds) {
+      if (!waitingBuildIds.contains(waitingBuild.build.getBuildId())) {
+        continue;
+      }
+
+      List<WaitingBuild> waitingBuilds = waitingBuildsByPrevBuildId.get(waitingBuild.build.getPrevBuildId());
+      waitingBuilds.remove(waitingBuild);
+      if (waitingBuilds.isEmpty()) {
+        waitingBuildsByPrevBuildId.remove(waitingBuild.build.getPrevBuildId());
+      }
+      waitingBuildIds.remove(waitingBuild.build.getBuildId());
+      numExpiredBuilds++;
+      LOGGER.warn("The previous build {} of {} has not arrived within {} ms.",
+          waitingBuild.build.getPrevBuildId(), waitingBuild.build, windowMillis);
+      analyzeAndRelease(null, waitingBuild.build, nowMillis);
+    }
+
+    recentBuildsById.values().removeIf(recentBuild -> recentBuild.arrivalMillis <= arrivedBeforeMillis
+        && !lastBuildIdByPartition.get(recentBuild.build.getProjectBranchKey()).equals(recentBuild.build.getBuildId()));
+  }
+
+  /**
+   * Compares a build and then all buffered builds that have been waiting for it, in the order of
+   * their arrival.
+   */
+  private void analyzeAndRelease(Build previousBuild, Build build, long nowMillis) throws IOException {
+    Deque<Build[]> pairs = new ArrayDeque<>();
+    pairs.add(new Build[]{previousBuild, build});
+    while (!pairs.isEmpty()) {
+      Build[] pair = pairs.poll();
+      write(comparator.compareBuildPair(pair[0], pair[1], extractionRegistry));
+      remember(pair[1], nowMillis);
+
+      List<WaitingBuild> waitingBuilds = waitingBuildsByPrevBuildId.remove(pair[1].getBuildId());
+      if (waitingBuilds != null) {
+        for (WaitingBuild waitingBuild : waitingBuilds) {
+          waitingBuildIds.remove(waitingBuild.build.getBuildId());
+          pairs.add(new Build[]{pair[1], waitingBuild.build});
+        }
+      }
+    }
+  }
+
+  private void remember(Build build, long nowMillis) {
+    recentBuildsById.put(build.getBuildId(), new RecentBuild(build, nowMillis));
+    lastBuildIdByPartition.merge(build.getProjectBranchKey(), build.getBuildId(), Math::max);
+  }
+
+  private void write(BuildAnalysisResult result) throws IOException {
+    resultWriter.write(result);
+    numWrittenResults++;
+    if (result.hasSmell()) {
+      numSmells++;
+      LOGGER.info("Smell in build {} of {} ({}): removed failed tests \"{}\", legacy smell warning {}.",
+          result.getBuildIdT2(), result.getProject(), result.getBranchT2(), result.getRemovedFailedTests(),
+          result.getLegacySmellWarning());
+    }
+  }
+
+  /**
+   * Writes the builds that are still waiting for their previous build and closes the result files.
+   *
+   * @throws IOException if a result cannot be written.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      expire(Long.MAX_VALUE);
+      LOGGER.info("Received {} builds and wrote {} results with {} smells. {} builds have been written without "
+              + "their previous build and {} duplicates have been skipped.",
+          numReceivedBuilds, numWrittenResults, numSmells, numExpiredBuilds, numDuplicateBuilds);
+    }
+    finally {
+      try {
+        resultWriter.close();
+      }
+      finally {
+        extractor.close();
+      }
+    }
+  }
+
+  private static final class RecentBuild {
+
+    private final Build build;
+    private final long arrivalMillis;
+
+    private RecentBuild(Build build, long arrivalMillis) {
+      this.build = build;
+      this.arrivalMillis = arrivalMillis;
+    }
+  }
+
+  private static final class WaitingBuild {
+
+    private final Build build;
+    private final long arrivalMillis;
+
+    private WaitingBuild(Build build, long arrivalMillis) {
+      this.build = build;
+      this.arrivalMillis = arrivalMillis;
+    }
+  }
+}
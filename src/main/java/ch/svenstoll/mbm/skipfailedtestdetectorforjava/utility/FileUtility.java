@@ -0,0 +1,59 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class FileUtility {
+
+  public static long calculateSize(Path path) {
+    if (path == null || !Files.exists(path)) {
+      return 0;
+    }
+    try (Stream<Path> paths = Files.walk(path)) {
+      return paths
+          .filter(Files::isRegularFile)
+          .mapToLong(file -> {
+            try {
+              return Files.size(file);
+            }
+            catch (IOException e) {
+              return 0;
+            }
+          })
+          .sum();
+    }
+    catch (IOException | UncheckedIOException e) {
+      return 0;
+    }
+  }
+
+  /**
+   * Deletes a file or a directory including its content. Nothing happens if the path does not
+   * exist.
+   *
+   * @param path The file or directory to delete.
+   * @throws IOException if a file cannot be deleted.
+   */
+  public static void deleteRecursively(Path path) throws IOException {
+    if (path == null || !Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+      return;
+    }
+    try (Stream<Path> paths = Files.walk(path)) {
+      List<Path> pathsToDelete = paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+      for (Path pathToDelete : pathsToDelete) {
+        Files.delete(pathToDelete);
+      }
+    }
+  }
+
+  public static String formatBytes(long bytes) {
+    return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+  }
+}
@@ -0,0 +1,51 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility;
+
+public class HashUtility {
+
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  /**
+   * Calculates a 64-bit hash of a string that is stable across runs and JVMs.
+   *
+   * @param s The string to hash.
+   * @return the hash of the string or 0 if it is null.
+   */
+  public static long hash64(String s) {
+    if (s == null) {
+      return 0;
+    }
+
+    long hash = FNV_OFFSET_BASIS;
+    for (int i = 0; i < s.length(); i++) {
+      hash ^= s.charAt(i);
+      hash *= FNV_PRIME;
+    }
+    return mix64(hash);
+  }
+
+  /**
+   * Calculates the hash of an extracted method. A method that only changes its test method status
+   * or is only disabled with {@code @Ignore} or {@code @Disabled} gets a different hash.
+   *
+   * @param qualifiedName The qualified name of the method.
+   * @param testMethod Whether the method is a test method.
+   * @param ignoredMethod Whether the method is ignored.
+   * @return the hash of the method, which can be added up with the hashes of other methods.
+   */
+  public static long hashMethod(String qualifiedName, boolean testMethod, boolean ignoredMethod) {
+    return mix64(hash64(qualifiedName) + (testMethod ? 1 : 0) + (ignoredMethod ? 2 : 0));
+  }
+
+  /**
+   * Spreads the bits of a hash, so that hashes can be combined by adding them up.
+   *
+   * @param hash The hash to mix.
+   * @return the mixed hash.
+   */
+  public static long mix64(long hash) {
+    hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+    hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+    return hash ^ (hash >>> 31);
+  }
+}
@@ -0,0 +1,292 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON support for the small documents of the daemon mode. Objects are read into
+ * {@link LinkedHashMap}s, arrays into {@link ArrayList}s, numbers into {@link Long}s or
+ * {@link Double}s and the remaining values into strings, booleans and null.
+ */
+public class JsonUtility {
+
+  /**
+   * @param json The JSON document.
+   * @return the value of the document.
+   * @throws IllegalArgumentException if the document is not valid JSON.
+   */
+  public static Object parse(String json) {
+    JsonReader reader = new JsonReader(json);
+    Object value = reader.readValue();
+    reader.skipWhitespace();
+    if (reader.position < json.length()) {
+      throw reader.error("Unexpected content after the document");
+    }
+    return value;
+  }
+
+  /**
+   * @param value A map with string keys, a collection, a string, a number, a boolean or null.
+   * @return the value as JSON.
+   */
+  public static String toJson(Object value) {
+    StringBuilder json = new StringBuilder();
+    appendValue(json, value);
+    return json.toString();
+  }
+
+  private static void appendValue(StringBuilder json, Object value) {
+    if (value == null) {
+      json.append("null");
+    }
+    else if (value instanceof String) {
+      appendString(json, (String) value);
+    }
+    else if (value instanceof Number || value instanceof Boolean) {
+      json.append(value);
+    }
+    else if (value instanceof Map) {
+      json.append('{');
+      boolean first = true;
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        if (!first) {
+          json.append(',');
+        }
+        appendString(json, String.valueOf(entry.getKey()));
+        json.append(':');
+        appendValue(json, entry.getValue());
+        first = false;
+      }
+      json.append('}');
+    }
+    else if (value instanceof Collection) {
+      json.append('[');
+      boolean first = true;
+      for (Object element : (Collection<?>) value) {
+        if (!first) {
+          json.append(',');
+        }
+        appendValue(json, element);
+        first = false;
+      }
+      json.append(']');
+    }
+    else {
+      appendString(json, value.toString());
+    }
+  }
+
+  private static void appendString(StringBuilder json, String value) {
+    json.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"':
+          json.append("\\\"");
+          break;
+        case '\\':
+          json.append("\\\\");
+          break;
+        case '\n':
+          json.append("\\n");
+          break;
+        case '\r':
+          json.append("\\r");
+          break;
+        case '\t':
+          json.append("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            json.append(String.format("\\u%04x", (int) c));
+          }
+          else {
+            json.append(c);
+          }
+      }
+    }
+    json.append('"');
+  }
+
+  private static final class JsonReader {
+
+    private final String json;
+    private int position = 0;
+
+    private JsonReader(String json) {
+      this.json = json;
+    }
+
+    private Object readValue() {
+      skipWhitespace();
+      if (position >= json.length()) {
+        throw error("Unexpected end of the document");
+      }
+
+      char c = json.charAt(position);
+      switch (c) {
+        case '{':
+          return readObject();
+        case '[':
+          return readArray();
+        case '"':
+          return readString();
+        case 't':
+          return readLiteral("true", Boolean.TRUE);
+        case 'f':
+          return readLiteral("false", Boolean.FALSE);
+        case 'n':
+          return readLiteral("null", null);
+        default:
+          if (c == '-' || (c >= '0' && c <= '9')) {
+            return readNumber();
+          }
+          throw error("Unexpected character '" + c + "'");
+      }
+    }
+
+    private Map<String, Object> readObject() {
+      Map<String, Object> object = new LinkedHashMap<>();
+      position++;
+      skipWhitespace();
+      if (consume('}')) {
+        return object;
+      }
+
+      do {
+        skipWhitespace();
+        if (position >= json.length() || json.charAt(position) != '"') {
+          throw error("Expected a key");
+        }
+        String key = readString();
+        skipWhitespace();
+        expect(':');
+        object.put(key, readValue());
+        skipWhitespace();
+      } while (consume(','));
+      expect('}');
+      return object;
+    }
+
+    private List<Object> readArray() {
+      List<Object> array = new ArrayList<>();
+      position++;
+      skipWhitespace();
+      if (consume(']')) {
+        return array;
+      }
+
+      do {
+        array.add(readValue());
+        skipWhitespace();
+      } while (consume(','));
+      expect(']');
+      return array;
+    }
+
+    private String readString() {
+      StringBuilder value = new StringBuilder();
+      position++;
+      while (position < json.length()) {
+        char c = json.charAt(position++);
+        if (c == '"') {
+          return value.toString();
+        }
+        if (c != '\\') {
+          value.append(c);
+          continue;
+        }
+        if (position >= json.length()) {
+          break;
+        }
+
+        char escaped = json.charAt(position++);
+        switch (escaped) {
+          case 'b':
+            value.append('\b');
+            break;
+          case 'f':
+            value.append('\f');
+            break;
+          case 'n':
+            value.append('\n');
+            break;
+          case 'r':
+            value.append('\r');
+            break;
+          case 't':
+            value.append('\t');
+            break;
+          case 'u':
+            if (position + 4 > json.length()) {
+              throw error("Incomplete unicode escape");
+            }
+            try {
+              value.append((char) Integer.parseInt(json.substring(position, position + 4), 16));
+            }
+            catch (NumberFormatException e) {
+              throw error("Invalid unicode escape");
+            }
+            position += 4;
+            break;
+          default:
+            value.append(escaped);
+        }
+      }
+      throw error("Unterminated string");
+    }
+
+    private Number readNumber() {
+      int start = position;
+      boolean decimal = false;
+      while (position < json.length() && "+-0123456789.eE".indexOf(json.charAt(position)) >= 0) {
+        char c = json.charAt(position);
+        decimal |= c == '.' || c == 'e' || c == 'E';
+        position++;
+      }
+
+      String number = json.substring(start, position);
+      try {
+        return decimal ? (Number) Double.parseDouble(number) : (Number) Long.parseLong(number);
+      }
+      catch (NumberFormatException e) {
+        throw error("Invalid number \"" + number + "\"");
+      }
+    }
+
+    private Object readLiteral(String literal, Object value) {
+      if (!json.startsWith(literal, position)) {
+        throw error("Unexpected literal");
+      }
+      position += literal.length();
+      return value;
+    }
+
+    private void skipWhitespace() {
+      while (position < json.length() && Character.isWhitespace(json.charAt(position))) {
+        position++;
+      }
+    }
+
+    private boolean consume(char c) {
+      if (position < json.length() && json.charAt(position) == c) {
+        position++;
+        return true;
+      }
+      return false;
+    }
+
+    private void expect(char c) {
+      if (!consume(c)) {
+        throw error("Expected '" + c + "'");
+      }
+    }
+
+    private IllegalArgumentException error(String message) {
+      return new IllegalArgumentException(message + " at position " + position + ".");
+    }
+  }
+}
@@ -26,6 +26,18 @@ public class NumberUtility {
     }
   }
 
+  public static Double parseDoubleSafely(String s) {
+    if (StringUtility.isNullOrEmpty(s)) {
+      return null;
+    }
+    try {
+      return Double.parseDouble(s);
+    }
+    catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
   public static Integer calculateDelta(Integer n1, Integer n2) {
     if (n1 == null || n2 == null) {
       return null;
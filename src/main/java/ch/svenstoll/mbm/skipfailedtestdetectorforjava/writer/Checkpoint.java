@@ -0,0 +1,106 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.Build;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.ProjectBranchKey;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The state of the result files at the last fully committed checkpoint of a run.
+ */
+public class Checkpoint {
+
+  private final long allResultsOffset;
+  private final long smellResultsOffset;
+  private final long journalOffset;
+  private final Map<ProjectBranchKey, Long> lastBuildIdByPartition;
+  private final Map<String, Long> startOffsetsByFile;
+
+  public Checkpoint(long allResultsOffset, long smellResultsOffset, long journalOffset,
+                    Map<ProjectBranchKey, Long> lastBuildIdByPartition, Map<String, Long> startOffsetsByFile) {
+    this.allResultsOffset = allResultsOffset;
+    this.smellResultsOffset = smellResultsOffset;
+    this.journalOffset = journalOffset;
+    this.lastBuildIdByPartition = Collections.unmodifiableMap(new HashMap<>(lastBuildIdByPartition));
+    this.startOffsetsByFile = Collections.unmodifiableMap(new HashMap<>(startOffsetsByFile));
+  }
+
+  /**
+   * @return the length of the all results file at the checkpoint. Everything after this offset
+   *         has been written after the checkpoint and may be incomplete.
+   */
+  public long getAllResultsOffset() {
+    return allResultsOffset;
+  }
+
+  /**
+   * @return the length of the smell results file at the checkpoint.
+   */
+  public long getSmellResultsOffset() {
+    return smellResultsOffset;
+  }
+
+  /**
+   * @return the length of the journal up to and including the record of this checkpoint.
+   */
+  public long getJournalOffset() {
+    return journalOffset;
+  }
+
+  /**
+   * @return the ID of the last follow-up build that has been committed for each project and
+   *         branch.
+   */
+  public Map<ProjectBranchKey, Long> getLastBuildIdByPartition() {
+    return lastBuildIdByPartition;
+  }
+
+  /**
+   * @return the length of every file the interrupted run has appended to when it was started, by
+   *         the name of the file relative to the folder of the journal.
+   */
+  public Map<String, Long> getStartOffsetsByFile() {
+    return startOffsetsByFile;
+  }
+
+  /**
+   * @param fileName The name of a file relative to the folder of the journal.
+   * @return the length of the file when the interrupted run was started or 0 if it is unknown.
+   */
+  public long getStartOffset(String fileName) {
+    return startOffsetsByFile.getOrDefault(fileName, 0L);
+  }
+
+  /**
+   * Builds are compared in ascending order of their build IDs within a project and branch. A
+   * build has therefore already been committed if its build ID is not greater than the last
+   * committed build ID of its project and branch.
+   *
+   * @param build The follow-up build of a comparison.
+   * @return true if the result of comparing the build with its predecessor has been committed.
+   */
+  public boolean isCommitted(Build build) {
+    return isCommitted(build.getProjectBranchKey(), build.getBuildId());
+  }
+
+  /**
+   * @param projectBranchKey The project and branch of a follow-up build.
+   * @param buildId The ID of the follow-up build.
+   * @return true if the result of comparing the build with its predecessor has been committed.
+   */
+  public boolean isCommitted(ProjectBranchKey projectBranchKey, long buildId) {
+    Long lastBuildId = lastBuildIdByPartition.get(projectBranchKey);
+    return lastBuildId != null && buildId <= lastBuildId;
+  }
+
+  /**
+   * @param projectName The project.
+   * @return true if a comparison of the project has been committed before the run was
+   *         interrupted.
+   */
+  public boolean hasCommittedBuilds(String projectName) {
+    return lastBuildIdByPartition.keySet().stream().anyMatch(key -> key.getProjectName().equals(projectName));
+  }
+}
@@ -0,0 +1,185 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.ProjectBranchKey;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.NumberUtility;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>An append-only journal of committed checkpoints. A journal starts with one
+ * {@code S,<file name>,<offset>} record for every file that the run appends to, which holds the
+ * length of the file when the run was started. Each checkpoint consists of one
+ * {@code P,<project>,<branch>,<buildIdT2>} record for every project and branch that has progressed
+ * since the previous checkpoint, followed by a {@code C,<allResultsOffset>,<smellResultsOffset>,OK}
+ * record.</p>
+ *
+ * <p>A checkpoint only counts once its {@code C} record has been written completely. Records
+ * written after the last complete {@code C} record stem from an interrupted run and are
+ * discarded when the journal is read.</p>
+ */
+public class CheckpointJournal implements Closeable {
+
+  private static final String START_RECORD = "S";
+  private static final String PARTITION_RECORD = "P";
+  private static final String COMMIT_RECORD = "C";
+  private static final String COMMIT_RECORD_END = "OK";
+
+  private final FileOutputStream journalOut;
+
+  /**
+   * Opens the journal for writing. If a checkpoint is given, everything after it is cut off and
+   * new checkpoints are appended. Otherwise, the journal is started from scratch.
+   *
+   * @param journalFilePath The path to the journal file.
+   * @param checkpoint The checkpoint to continue from or null.
+   * @throws IOException if the journal cannot be opened.
+   */
+  public CheckpointJournal(String journalFilePath, Checkpoint checkpoint) throws IOException {
+    this(journalFilePath, checkpoint, Collections.emptyMap());
+  }
+
+  /**
+   * Opens the journal for writing. If a checkpoint is given, everything after it is cut off and
+   * new checkpoints are appended. Otherwise, the journal is started from scratch with the given
+   * start offsets.
+   *
+   * @param journalFilePath The path to the journal file.
+   * @param checkpoint The checkpoint to continue from or null.
+   * @param startOffsetsByFile The length of every file the run appends to by its name relative to
+   *                           the folder of the journal. They are ignored if a checkpoint is given,
+   *                           because the run continues with the start offsets of the checkpoint.
+   * @throws IOException if the journal cannot be opened.
+   */
+  public CheckpointJournal(String journalFilePath, Checkpoint checkpoint, Map<String, Long> startOffsetsByFile)
+      throws IOException {
+    this.journalOut = new FileOutputStream(journalFilePath, checkpoint != null);
+    if (checkpoint != null) {
+      journalOut.getChannel().truncate(checkpoint.getJournalOffset());
+      return;
+    }
+
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    try (CSVPrinter printer = new CSVPrinter(new OutputStreamWriter(buffer, StandardCharsets.UTF_8),
+        CSVFormat.DEFAULT.withRecordSeparator('\n'))) {
+      for (Map.Entry<String, Long> entry : startOffsetsByFile.entrySet()) {
+        printer.printRecord(START_RECORD, entry.getKey(), entry.getValue());
+      }
+    }
+    journalOut.write(buffer.toByteArray());
+  }
+
+  /**
+   * Reads the last complete checkpoint of a journal.
+   *
+   * @param journalFilePath The path to the journal file.
+   * @return the last complete checkpoint or null if the journal does not contain any.
+   * @throws IOException if the journal exists but cannot be read.
+   */
+  public static Checkpoint readLastCheckpoint(String journalFilePath) throws IOException {
+    Path journalPath = Paths.get(journalFilePath);
+    if (!Files.exists(journalPath)) {
+      return null;
+    }
+
+    byte[] journal = Files.readAllBytes(journalPath);
+    Map<ProjectBranchKey, Long> committedBuildIds = new HashMap<>();
+    Map<ProjectBranchKey, Long> pendingBuildIds = new HashMap<>();
+    Map<String, Long> startOffsetsByFile = new HashMap<>();
+    long lastAllResultsOffset = -1;
+    long lastSmellResultsOffset = -1;
+    long lastJournalOffset = -1;
+
+    int lineStart = 0;
+    for (int i = 0; i < journal.length; i++) {
+      if (journal[i] != '\n') {
+        continue;
+      }
+
+      String line = new String(journal, lineStart, i - lineStart, StandardCharsets.UTF_8);
+      lineStart = i + 1;
+      List<CSVRecord> records = CSVParser.parse(line, CSVFormat.DEFAULT).getRecords();
+      if (records.size() != 1) {
+        continue;
+      }
+
+      CSVRecord record = records.get(0);
+      if (START_RECORD.equals(record.get(0)) && record.size() == 3) {
+        Long startOffset = NumberUtility.parseLongSafely(record.get(2));
+        if (startOffset != null) {
+          startOffsetsByFile.put(record.get(1), startOffset);
+        }
+      }
+      else if (PARTITION_RECORD.equals(record.get(0)) && record.size() == 4) {
+        Long buildId = NumberUtility.parseLongSafely(record.get(3));
+        if (buildId != null) {
+          pendingBuildIds.put(new ProjectBranchKey(record.get(1), record.get(2)), buildId);
+        }
+      }
+      else if (COMMIT_RECORD.equals(record.get(0)) && record.size() == 4
+          && COMMIT_RECORD_END.equals(record.get(3))) {
+        Long allResultsOffset = NumberUtility.parseLongSafely(record.get(1));
+        Long smellResultsOffset = NumberUtility.parseLongSafely(record.get(2));
+        if (allResultsOffset != null && smellResultsOffset != null) {
+          committedBuildIds.putAll(pendingBuildIds);
+          pendingBuildIds.clear();
+          lastAllResultsOffset = allResultsOffset;
+          lastSmellResultsOffset = smellResultsOffset;
+          lastJournalOffset = lineStart;
+        }
+      }
+    }
+
+    if (lastJournalOffset < 0) {
+      return null;
+    }
+    return new Checkpoint(lastAllResultsOffset, lastSmellResultsOffset, lastJournalOffset, committedBuildIds,
+        startOffsetsByFile);
+  }
+
+  /**
+   * Appends a checkpoint and forces it to the storage device. The result files must already have
+   * been forced up to the given offsets.
+   *
+   * @param allResultsOffset The length of the all results file.
+   * @param smellResultsOffset The length of the smell results file.
+   * @param lastBuildIdByPartition The last written follow-up build ID of every project and branch
+   *                               that progressed since the previous checkpoint.
+   * @throws IOException if the checkpoint cannot be written.
+   */
+  public void commit(long allResultsOffset, long smellResultsOffset,
+                     Map<ProjectBranchKey, Long> lastBuildIdByPartition) throws IOException {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    try (CSVPrinter printer = new CSVPrinter(new OutputStreamWriter(buffer, StandardCharsets.UTF_8),
+        CSVFormat.DEFAULT.withRecordSeparator('\n'))) {
+      for (Map.Entry<ProjectBranchKey, Long> entry : lastBuildIdByPartition.entrySet()) {
+        printer.printRecord(PARTITION_RECORD, entry.getKey().getProjectName(), entry.getKey().getBranch(),
+            entry.getValue());
+      }
+      printer.printRecord(COMMIT_RECORD, allResultsOffset, smellResultsOffset, COMMIT_RECORD_END);
+    }
+
+    journalOut.write(buffer.toByteArray());
+    journalOut.getChannel().force(false);
+  }
+
+  @Override
+  public void close() throws IOException {
+    journalOut.close();
+  }
+}
@@ -0,0 +1,226 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.detector.SmellDetector;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.BuildAnalysisResult;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.DetectorFinding;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.ProjectBranchKey;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.NumberUtility;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>A {@link ResultSink} that writes the findings of every detector to its own file
+ * {@code <name>.csv} in the detectors folder and hands the results on to another sink. A finding
+ * starts with the columns that identify its build pair, followed by the columns of its
+ * detector.</p>
+ *
+ * <p>A finding is flushed before its result is handed on, so it is on disk before the result can
+ * be committed by a checkpoint. When a run is resumed, the findings that the interrupted run has
+ * written for results that have not been committed are removed, because their build pairs are
+ * analyzed again. The findings of earlier runs are kept as they are. The other sink is not
+ * closed.</p>
+ */
+public class DetectorFindingWriter implements ResultSink {
+
+  public static final String FOLDER_NAME = "Detectors";
+  private static final String[] PAIR_CSV_HEADERS = {
+      "project", "branch_t1", "branch_t2", "build_id_t1", "build_id_t2", "trigger_commit_t1", "trigger_commit_t2"};
+
+  private final ResultSink resultSink;
+  private final Map<String, CSVPrinter> printersByDetector = new HashMap<>();
+
+  /**
+   * Opens the finding files of the detectors.
+   *
+   * @param detectorsFolderPath The folder of the finding files.
+   * @param detectors The detectors whose findings are written.
+   * @param checkpoint The checkpoint to resume from or null to append to the finding files.
+   * @param resultSink The sink that receives the results afterwards.
+   * @throws IOException if a file cannot be opened.
+   */
+  public DetectorFindingWriter(String detectorsFolderPath, List<SmellDetector> detectors, Checkpoint checkpoint,
+                               ResultSink resultSink) throws IOException {
+    this.resultSink = resultSink;
+    if (!detectors.isEmpty()) {
+      Files.createDirectories(Paths.get(detectorsFolderPath));
+    }
+    try {
+      for (SmellDetector detector : detectors) {
+        Path findingsPath = Paths.get(detectorsFolderPath, detector.getName() + ".csv");
+        if (checkpoint != null && Files.exists(findingsPath)) {
+          removeUncommittedFindings(findingsPath, checkpoint, checkpoint.getStartOffset(getFileName(detector)));
+        }
+
+        CSVFormat csvFormat = CSVFormat.DEFAULT.withNullString("null");
+        if (!Files.exists(findingsPath)) {
+          List<String> headers = new ArrayList<>(Arrays.asList(PAIR_CSV_HEADERS));
+          headers.addAll(Arrays.asList(detector.getHeaders()));
+          csvFormat = csvFormat.withHeader(headers.toArray(new String[0]));
+        }
+        Writer writer = Files.newBufferedWriter(findingsPath, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+            StandardOpenOption.APPEND);
+        printersByDetector.put(detector.getName(), new CSVPrinter(writer, csvFormat));
+      }
+    }
+    catch (IOException e) {
+      closePrinters();
+      throw e;
+    }
+  }
+
+  /**
+   * @param detector A detector.
+   * @return the name of the finding file of the detector relative to the {@code Results} folder.
+   */
+  public static String getFileName(SmellDetector detector) {
+    return FOLDER_NAME + "/" + detector.getName() + ".csv";
+  }
+
+  /**
+   * Restores the order of project, branch and build ID in the findings that a run has appended to
+   * the finding files in the order in which the projects have been analyzed.
+   *
+   * @param detectorsFolderPath The folder of the finding files.
+   * @param detectors The detectors whose findings have been written.
+   * @param startOffsetsByFile The length of every finding file when the run was started by the
+   *                           name that {@link #getFileName(SmellDetector)} returns.
+   * @throws IOException if a file cannot be rewritten.
+   */
+  public static void sortFindings(String detectorsFolderPath, List<SmellDetector> detectors,
+                                  Map<String, Long> startOffsetsByFile) throws IOException {
+    for (SmellDetector detector : detectors) {
+      ResultFileSorter.sort(Paths.get(detectorsFolderPath, detector.getName() + ".csv"), StandardCharsets.UTF_8,
+          startOffsetsByFile.getOrDefault(getFileName(detector), 0L), Long.MAX_VALUE);
+    }
+  }
+
+  /**
+   * Copies the findings before the start offset and the committed findings after it to a new
+   * file that replaces the finding file.
+   */
+  private void removeUncommittedFindings(Path findingsPath, Checkpoint checkpoint, long startOffset)
+      throws IOException {
+    Path temporaryPath = findingsPath.resolveSibling(findingsPath.getFileName() + ".tmp");
+    String[] headers = readHeaders(findingsPath);
+    try (FileChannel source = FileChannel.open(findingsPath, StandardOpenOption.READ);
+         OutputStream out = Files.newOutputStream(temporaryPath)) {
+      long keptLength = Math.min(Math.max(startOffset, readHeaderLength(findingsPath)), source.size());
+      long position = 0;
+      WritableByteChannel target = Channels.newChannel(out);
+      while (position < keptLength) {
+        position += source.transferTo(position, keptLength - position, target);
+      }
+
+      Reader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(source.position(keptLength)),
+          StandardCharsets.UTF_8));
+      CSVParser parser = new CSVParser(reader, CSVFormat.DEFAULT.withHeader(headers));
+      CSVPrinter printer = new CSVPrinter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)),
+          CSVFormat.DEFAULT);
+      for (CSVRecord record : parser) {
+        Long buildIdT2 = NumberUtility.parseLongSafely(record.get("build_id_t2"));
+        if (buildIdT2 != null
+            && checkpoint.isCommitted(new ProjectBranchKey(record.get("project"), record.get("branch_t2")), buildIdT2)) {
+          printer.printRecord(record);
+        }
+      }
+      printer.flush();
+    }
+    catch (IllegalArgumentException e) {
+      throw new IOException("The findings file \"" + findingsPath + "\" is invalid.", e);
+    }
+    Files.move(temporaryPath, findingsPath, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private static String[] readHeaders(Path findingsPath) throws IOException {
+    try (Reader reader = Files.newBufferedReader(findingsPath, StandardCharsets.UTF_8);
+         CSVParser parser = new CSVParser(reader, CSVFormat.DEFAULT.withHeader())) {
+      return parser.getHeaderMap().keySet().toArray(new String[0]);
+    }
+    catch (IllegalArgumentException e) {
+      throw new IOException("The findings file \"" + findingsPath + "\" is invalid.", e);
+    }
+  }
+
+  /**
+   * The headers do not contain line breaks, so the header ends with the first line feed.
+   */
+  private static long readHeaderLength(Path findingsPath) throws IOException {
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(findingsPath))) {
+      long length = 0;
+      int b;
+      while ((b = in.read()) != -1) {
+        length++;
+        if (b == '\n') {
+          break;
+        }
+      }
+      return length;
+    }
+  }
+
+  @Override
+  public synchronized void write(BuildAnalysisResult result) throws IOException {
+    for (DetectorFinding finding : result.getDetectorFindings()) {
+      CSVPrinter printer = printersByDetector.get(finding.getDetectorName());
+      if (printer == null) {
+        continue;
+      }
+
+      List<Object> values = new ArrayList<>(Arrays.asList(result.getProject(), result.getBranchT1(),
+          result.getBranchT2(), result.getBuildIdT1(), result.getBuildIdT2(), result.getTriggerCommitT1(),
+          result.getTriggerCommitT2()));
+      values.addAll(finding.getValues());
+      printer.printRecord(values);
+      printer.flush();
+    }
+    resultSink.write(result);
+  }
+
+  @Override
+  public void close() throws IOException {
+    closePrinters();
+  }
+
+  private synchronized void closePrinters() throws IOException {
+    IOException closeException = null;
+    for (CSVPrinter printer : printersByDetector.values()) {
+      try {
+        printer.close();
+      }
+      catch (IOException e) {
+        closeException = e;
+      }
+    }
+    printersByDetector.clear();
+    if (closeException != null) {
+      throw closeException;
+    }
+  }
+}
@@ -0,0 +1,121 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.NumberUtility;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The predicted and the actual time the analysis of a project took, together with the size of the
+ * project in the input. The timings of a run are written to {@code Results/project_timings.csv},
+ * so that the next run can plan with them.
+ */
+public class ProjectTiming {
+
+  public static final String FILE_NAME = "project_timings.csv";
+  private static final String[] CSV_HEADERS = {
+      "project", "num_builds", "num_commits", "num_tests_run", "predicted_ms", "actual_ms"};
+
+  private final String projectName;
+  private final long numBuilds;
+  private final long numCommits;
+  private final long numTestsRun;
+  private final long predictedMillis;
+  private final long actualMillis;
+
+  public ProjectTiming(String projectName, long numBuilds, long numCommits, long numTestsRun, long predictedMillis,
+                       long actualMillis) {
+    this.projectName = projectName;
+    this.numBuilds = numBuilds;
+    this.numCommits = numCommits;
+    this.numTestsRun = numTestsRun;
+    this.predictedMillis = predictedMillis;
+    this.actualMillis = actualMillis;
+  }
+
+  /**
+   * Replaces a timings file atomically.
+   *
+   * @param timingsPath The path of the timings file.
+   * @param timings The timings of all projects.
+   * @throws IOException if the file cannot be written.
+   */
+  public static void write(Path timingsPath, Collection<ProjectTiming> timings) throws IOException {
+    Files.createDirectories(timingsPath.toAbsolutePath().getParent());
+    Path temporaryPath = timingsPath.resolveSibling(timingsPath.getFileName() + ".tmp");
+    try (Writer writer = Files.newBufferedWriter(temporaryPath, StandardCharsets.UTF_8);
+         CSVPrinter printer = new CSVPrinter(writer, CSVFormat.DEFAULT.withHeader(CSV_HEADERS))) {
+      for (ProjectTiming timing : timings) {
+        printer.printRecord(timing.projectName, timing.numBuilds, timing.numCommits, timing.numTestsRun,
+            timing.predictedMillis, timing.actualMillis);
+      }
+    }
+    Files.move(temporaryPath, timingsPath, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * @param timingsPath The path of a timings file.
+   * @return the timings by project in the order of the file.
+   * @throws IOException if the file cannot be read or is invalid.
+   */
+  public static Map<String, ProjectTiming> read(Path timingsPath) throws IOException {
+    Map<String, ProjectTiming> timingsByProject = new LinkedHashMap<>();
+    try (Reader reader = Files.newBufferedReader(timingsPath, StandardCharsets.UTF_8);
+         CSVParser parser = new CSVParser(reader, CSVFormat.DEFAULT.withHeader())) {
+      for (CSVRecord record : parser) {
+        Long numBuilds = NumberUtility.parseLongSafely(record.get("num_builds"));
+        Long numCommits = NumberUtility.parseLongSafely(record.get("num_commits"));
+        Long numTestsRun = NumberUtility.parseLongSafely(record.get("num_tests_run"));
+        Long predictedMillis = NumberUtility.parseLongSafely(record.get("predicted_ms"));
+        Long actualMillis = NumberUtility.parseLongSafely(record.get("actual_ms"));
+        if (numBuilds == null || numCommits == null || numTestsRun == null || predictedMillis == null
+            || actualMillis == null) {
+          throw new IOException("Line " + parser.getCurrentLineNumber() + " of the timings file \"" + timingsPath
+              + "\" is invalid.");
+        }
+        timingsByProject.put(record.get("project"), new ProjectTiming(record.get("project"), numBuilds, numCommits,
+            numTestsRun, predictedMillis, actualMillis));
+      }
+    }
+    catch (IllegalArgumentException e) {
+      throw new IOException("The timings file \"" + timingsPath + "\" is invalid.", e);
+    }
+    return timingsByProject;
+  }
+
+  public String getProjectName() {
+    return projectName;
+  }
+
+  public long getNumBuilds() {
+    return numBuilds;
+  }
+
+  public long getNumCommits() {
+    return numCommits;
+  }
+
+  public long getNumTestsRun() {
+    return numTestsRun;
+  }
+
+  public long getPredictedMillis() {
+    return predictedMillis;
+  }
+
+  public long getActualMillis() {
+    return actualMillis;
+  }
+}
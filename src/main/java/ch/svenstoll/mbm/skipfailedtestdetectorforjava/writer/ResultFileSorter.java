@@ -0,0 +1,183 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.ProjectBranchKey;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * <p>Restores the order of project, branch and build ID in the rows that a run has appended to a
+ * result file in the order in which the projects have been analyzed. The rows of every project and
+ * branch are already in the order of their build IDs, so the rows of the run consist of runs of
+ * rows of the same project and branch that only have to be rearranged. The rows before and after
+ * the rows of the run, e.g. those of earlier runs, are left as they are.</p>
+ *
+ * <p>Only the byte ranges of the runs are held in memory. The runs are copied to a temporary file
+ * that replaces the result file, so the length of the file does not change and the last
+ * checkpoint committed for it stays valid.</p>
+ */
+public class ResultFileSorter {
+
+  private static final String PROJECT_COLUMN = "project";
+  private static final String BRANCH_COLUMN = "branch_t2";
+
+  /**
+   * @param filePath The result file with a header that contains the columns {@code project} and
+   *                 {@code branch_t2}.
+   * @param charset The charset the file has been written with.
+   * @param startOffset The offset of the first row to rearrange, which must start a row. Offsets
+   *                    within the header stand for the first row.
+   * @param endOffset The offset after the last row to rearrange, which must end a row, or
+   *                  {@link Long#MAX_VALUE} for the end of the file.
+   * @return true if the file has been rewritten, false if the rows have already been in order.
+   * @throws IOException if the file cannot be read or written.
+   */
+  public static boolean sort(Path filePath, Charset charset, long startOffset, long endOffset) throws IOException {
+    if (!Files.exists(filePath)) {
+      return false;
+    }
+
+    List<Run> runs = new ArrayList<>();
+    long headerLength = -1;
+    int projectIndex = -1;
+    int branchIndex = -1;
+    long end = Math.min(endOffset, Files.size(filePath));
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(filePath), 1024 * 1024)) {
+      ByteArrayOutputStream record = new ByteArrayOutputStream();
+      long position = 0;
+      long recordStart = 0;
+      boolean quoted = false;
+      int b;
+      while (position < end && (b = in.read()) != -1) {
+        position++;
+        record.write(b);
+        // Quotes are ASCII, so they cannot be part of a multi-byte character.
+        if (b == '"') {
+          quoted = !quoted;
+        }
+        if (b != '\n' || quoted) {
+          continue;
+        }
+
+        CSVRecord fields = parseRecord(record.toByteArray(), charset, filePath);
+        if (headerLength < 0) {
+          headerLength = position;
+          projectIndex = findColumn(fields, PROJECT_COLUMN, filePath);
+          branchIndex = findColumn(fields, BRANCH_COLUMN, filePath);
+          position += skip(in, startOffset - position);
+        }
+        else {
+          String partition = new ProjectBranchKey(fields.get(projectIndex), fields.get(branchIndex)).toString();
+          Run lastRun = runs.isEmpty() ? null : runs.get(runs.size() - 1);
+          if (lastRun != null && lastRun.partition.equals(partition)) {
+            lastRun.end = position;
+          }
+          else {
+            runs.add(new Run(partition, recordStart, position));
+          }
+        }
+        record.reset();
+        recordStart = position;
+      }
+      if (record.size() > 0) {
+        throw new IOException("The last row of \"" + filePath + "\" is incomplete.");
+      }
+    }
+
+    if (isSorted(runs)) {
+      return false;
+    }
+    // The sort is stable, so the runs of a project and branch keep the order of their build IDs.
+    long sortedStart = runs.get(0).start;
+    runs.sort(Comparator.comparing(run -> run.partition));
+
+    Path temporaryPath = filePath.resolveSibling(filePath.getFileName() + ".tmp");
+    try (FileChannel source = FileChannel.open(filePath, StandardOpenOption.READ);
+         FileChannel target = FileChannel.open(temporaryPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+             StandardOpenOption.TRUNCATE_EXISTING)) {
+      transfer(source, target, 0, sortedStart);
+      for (Run run : runs) {
+        transfer(source, target, run.start, run.end);
+      }
+      transfer(source, target, end, source.size());
+      target.force(false);
+    }
+    Files.move(temporaryPath, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    return true;
+  }
+
+  private static long skip(InputStream in, long numBytes) throws IOException {
+    long numSkipped = 0;
+    while (numSkipped < numBytes) {
+      long skipped = in.skip(numBytes - numSkipped);
+      if (skipped <= 0) {
+        break;
+      }
+      numSkipped += skipped;
+    }
+    return numSkipped;
+  }
+
+  private static CSVRecord parseRecord(byte[] bytes, Charset charset, Path filePath) throws IOException {
+    List<CSVRecord> records = CSVParser.parse(new String(bytes, charset), CSVFormat.DEFAULT).getRecords();
+    if (records.size() != 1) {
+      throw new IOException("\"" + filePath + "\" contains an invalid row.");
+    }
+    return records.get(0);
+  }
+
+  private static int findColumn(CSVRecord header, String column, Path filePath) throws IOException {
+    for (int i = 0; i < header.size(); i++) {
+      if (column.equals(header.get(i))) {
+        return i;
+      }
+    }
+    throw new IOException("\"" + filePath + "\" does not have a column \"" + column + "\".");
+  }
+
+  private static boolean isSorted(List<Run> runs) {
+    for (int i = 1; i < runs.size(); i++) {
+      if (runs.get(i - 1).partition.compareTo(runs.get(i).partition) >= 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void transfer(FileChannel source, FileChannel target, long start, long end) throws IOException {
+    long position = start;
+    while (position < end) {
+      position += source.transferTo(position, end - position, target);
+    }
+  }
+
+  /**
+   * Consecutive rows of the same project and branch.
+   */
+  private static final class Run {
+
+    private final String partition;
+    private final long start;
+    private long end;
+
+    private Run(String partition, long start, long end) {
+      this.partition = partition;
+      this.start = start;
+      this.end = end;
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.Build;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.BuildAnalysisResult;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * <p>Hands results over to a {@link ResultSink} in the original order of the builds of each
+ * project, even if the builds of a project are compared in a different order. Results that arrive
+ * early are held back until all results of the same project before them have been written or
+ * skipped.</p>
+ *
+ * <p>Projects are independent of each other, so the results of a project are handed over as soon
+ * as they are in order, no matter whether the projects before it have been analyzed yet. Only the
+ * comparisons of a project that are still running can hold back its results, which keeps the
+ * number of pending results bounded by the number of pending comparisons. Results are handed over
+ * one at a time.</p>
+ */
+public class ResultResequencer {
+
+  private final ResultSink resultSink;
+  private final Map<String, ProjectSequence> sequencesByProject = new HashMap<>();
+  private final Map<Long, ProjectSequence> sequencesByBuildId = new HashMap<>();
+  private final Map<Long, Integer> sequenceNumbersByBuildId = new HashMap<>();
+
+  /**
+   * @param builds The follow-up builds in the order in which the results of each project must be
+   *               written.
+   * @param resultSink The sink that receives the results.
+   */
+  public ResultResequencer(List<Build> builds, ResultSink resultSink) {
+    this.resultSink = resultSink;
+    for (Build build : builds) {
+      ProjectSequence sequence = sequencesByProject.computeIfAbsent(build.getProjectBranchKey().getProjectName(),
+          projectName -> new ProjectSequence());
+      sequencesByBuildId.put(build.getBuildId(), sequence);
+      sequenceNumbersByBuildId.put(build.getBuildId(), sequence.numBuilds++);
+    }
+  }
+
+  /**
+   * @param buildIdT2 The follow-up build the result belongs to.
+   * @param result The result of the follow-up build.
+   * @throws IOException if the result sink has failed.
+   */
+  public synchronized void write(long buildIdT2, BuildAnalysisResult result) throws IOException {
+    if (result == null) {
+      throw new IllegalArgumentException("The result must not be null.");
+    }
+    submit(buildIdT2, Optional.of(result));
+  }
+
+  /**
+   * Marks a follow-up build as done without writing a result for it.
+   *
+   * @param buildIdT2 The follow-up build.
+   * @throws IOException if the result sink has failed.
+   */
+  public synchronized void skip(long buildIdT2) throws IOException {
+    submit(buildIdT2, Optional.empty());
+  }
+
+  /**
+   * @return the number of results that are held back.
+   */
+  public synchronized int getNumPendingResults() {
+    return sequencesByProject.values().stream().mapToInt(sequence -> sequence.pendingResults.size()).sum();
+  }
+
+  private void submit(long buildIdT2, Optional<BuildAnalysisResult> result) throws IOException {
+    ProjectSequence sequence = sequencesByBuildId.get(buildIdT2);
+    if (sequence == null) {
+      throw new IllegalArgumentException("Build " + buildIdT2 + " has not been registered.");
+    }
+    sequence.pendingResults.put(sequenceNumbersByBuildId.get(buildIdT2), result);
+
+    Optional<BuildAnalysisResult> nextResult;
+    while ((nextResult = sequence.pendingResults.remove(sequence.nextSequenceNumber)) != null) {
+      if (nextResult.isPresent()) {
+        resultSink.write(nextResult.get());
+      }
+      sequence.nextSequenceNumber++;
+    }
+  }
+
+  /**
+   * The results of a project that are held back.
+   */
+  private static final class ProjectSequence {
+
+    private final Map<Integer, Optional<BuildAnalysisResult>> pendingResults = new HashMap<>();
+    private int numBuilds = 0;
+    private int nextSequenceNumber = 0;
+  }
+}
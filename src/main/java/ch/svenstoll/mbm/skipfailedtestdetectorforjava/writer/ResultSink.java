@@ -0,0 +1,21 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.BuildAnalysisResult;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Receives the results of an analysis one at a time. The results of each project arrive in the
+ * order of its builds. A sink may block in {@link #write(BuildAnalysisResult)} while it cannot
+ * take more results, which holds back the comparisons and thereby the extraction of further
+ * builds.
+ */
+public interface ResultSink extends Closeable {
+
+  /**
+   * @param result The next result.
+   * @throws IOException if the result cannot be written.
+   */
+  void write(BuildAnalysisResult result) throws IOException;
+}
@@ -0,0 +1,274 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.BuildAnalysisResult;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.DetectorConfiguration;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.ProjectBranchKey;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>The {@link ResultSink} of the command line, which writes {@link BuildAnalysisResult}s to the
+ * CSV result files on a dedicated thread. Results are handed over through a bounded queue,
+ * formatted on the writer thread and written through large buffers. This way the comparison loop
+ * only waits for the writer if the queue is full.</p>
+ *
+ * <p>Buffered rows are flushed once {@link DetectorConfiguration#getResultFlushRows()} rows have
+ * been written or {@link DetectorConfiguration#getResultFlushIntervalMillis()} has elapsed. Every
+ * {@link DetectorConfiguration#getResultCheckpointRows()} rows and when the writer is closed, the
+ * result files are additionally forced to the storage device and a checkpoint is committed to the
+ * {@link CheckpointJournal}. A run that has been interrupted can be resumed from the last
+ * checkpoint by passing it to the constructor, which cuts off all rows written after it.</p>
+ */
+public class ResultWriter implements ResultSink {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ResultWriter.class);
+  private static final QueueEntry END_OF_RESULTS = new QueueEntry(null);
+
+  private final DetectorConfiguration configuration;
+  private final BlockingQueue<QueueEntry> queue;
+  private final FileOutputStream allResultsOut;
+  private final FileOutputStream smellResultsOut;
+  private final CSVPrinter allResultsPrinter;
+  private final CSVPrinter smellResultsPrinter;
+  private final CheckpointJournal journal;
+  private final Map<ProjectBranchKey, Long> uncommittedBuildIds = new LinkedHashMap<>();
+  private final Thread writerThread;
+
+  private volatile IOException writerException = null;
+  private int numUnflushedRows = 0;
+  private int numRowsSinceCheckpoint = 0;
+  private long lastFlushMillis = System.currentTimeMillis();
+  private boolean closed = false;
+
+  /**
+   * Opens the result files and commits an initial checkpoint.
+   *
+   * @param allResultsFilePath The path to the file for all results.
+   * @param smellResultsFilePath The path to the file for results with a smell.
+   * @param journalFilePath The path to the checkpoint journal.
+   * @param checkpoint The checkpoint to resume from or null to append to the result files.
+   * @param configuration The configuration of the run.
+   * @throws IOException if the files cannot be opened.
+   */
+  public ResultWriter(String allResultsFilePath, String smellResultsFilePath, String journalFilePath,
+                      Checkpoint checkpoint, DetectorConfiguration configuration) throws IOException {
+    this(allResultsFilePath, smellResultsFilePath, journalFilePath, checkpoint, Collections.emptyMap(),
+        configuration);
+  }
+
+  /**
+   * Opens the result files and commits an initial checkpoint.
+   *
+   * @param allResultsFilePath The path to the file for all results.
+   * @param smellResultsFilePath The path to the file for results with a smell.
+   * @param journalFilePath The path to the checkpoint journal.
+   * @param checkpoint The checkpoint to resume from or null to append to the result files.
+   * @param startOffsetsByFile The length of every file the run appends to by its name relative to
+   *                           the folder of the journal, which is recorded in a new journal.
+   * @param configuration The configuration of the run.
+   * @throws IOException if the files cannot be opened.
+   */
+  public ResultWriter(String allResultsFilePath, String smellResultsFilePath, String journalFilePath,
+                      Checkpoint checkpoint, Map<String, Long> startOffsetsByFile,
+                      DetectorConfiguration configuration) throws IOException {
+    this.configuration = configuration;
+    this.queue = new ArrayBlockingQueue<>(configuration.getResultQueueCapacity());
+
+    CSVFormat allResultsCsvFormat = initializeResultFilePathAndCsvFormat(allResultsFilePath);
+    CSVFormat smellResultsCsvFormat = initializeResultFilePathAndCsvFormat(smellResultsFilePath);
+    this.allResultsOut = new FileOutputStream(allResultsFilePath, true);
+    this.smellResultsOut = new FileOutputStream(smellResultsFilePath, true);
+    if (checkpoint != null) {
+      allResultsOut.getChannel().truncate(checkpoint.getAllResultsOffset());
+      smellResultsOut.getChannel().truncate(checkpoint.getSmellResultsOffset());
+    }
+    this.journal = new CheckpointJournal(journalFilePath, checkpoint, startOffsetsByFile);
+    this.allResultsPrinter = new CSVPrinter(new BufferedWriter(new OutputStreamWriter(allResultsOut),
+        configuration.getResultBufferSize()), allResultsCsvFormat);
+    this.smellResultsPrinter = new CSVPrinter(new BufferedWriter(new OutputStreamWriter(smellResultsOut),
+        configuration.getResultBufferSize()), smellResultsCsvFormat);
+    checkpoint();
+
+    this.writerThread = new Thread(this::processQueue, "result-writer");
+    this.writerThread.start();
+  }
+
+  private CSVFormat initializeResultFilePathAndCsvFormat(String filePath) {
+    CSVFormat csvFormat = CSVFormat.DEFAULT.withNullString("null");
+    if (!Files.exists(Paths.get(filePath))) {
+      csvFormat = csvFormat.withHeader(BuildAnalysisResult.CSV_HEADERS);
+
+      if (!Files.exists(Paths.get(filePath).getParent())) {
+        File resultFolder = new File(Paths.get(filePath).getParent().toString());
+        resultFolder.mkdirs();
+      }
+    }
+    return csvFormat;
+  }
+
+  /**
+   * Enqueues a result for writing. This method only blocks if the queue is full.
+   *
+   * @param result The result to write.
+   * @throws IOException if a previous write failed on the writer thread.
+   */
+  @Override
+  public void write(BuildAnalysisResult result) throws IOException {
+    if (result == null) {
+      throw new IllegalArgumentException("The result must not be null.");
+    }
+    enqueue(new QueueEntry(result));
+  }
+
+  private void enqueue(QueueEntry entry) throws IOException {
+    rethrowWriterException();
+    try {
+      while (!queue.offer(entry, 1, TimeUnit.SECONDS)) {
+        rethrowWriterException();
+        if (!writerThread.isAlive()) {
+          throw new IOException("The result writer has stopped.");
+        }
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the result writer.");
+    }
+  }
+
+  private void rethrowWriterException() throws IOException {
+    if (writerException != null) {
+      throw new IOException("The result writer has failed.", writerException);
+    }
+  }
+
+  private void processQueue() {
+    try {
+      while (true) {
+        long millisUntilFlush = configuration.getResultFlushIntervalMillis()
+            - (System.currentTimeMillis() - lastFlushMillis);
+        QueueEntry entry = queue.poll(Math.max(millisUntilFlush, 1), TimeUnit.MILLISECONDS);
+        if (entry == END_OF_RESULTS) {
+          checkpoint();
+          return;
+        }
+
+        if (entry != null) {
+          printResult(entry.result);
+        }
+        if (numUnflushedRows > 0 && (numUnflushedRows >= configuration.getResultFlushRows()
+            || System.currentTimeMillis() - lastFlushMillis >= configuration.getResultFlushIntervalMillis())) {
+          flush();
+        }
+        if (numRowsSinceCheckpoint >= configuration.getResultCheckpointRows()) {
+          checkpoint();
+        }
+      }
+    }
+    catch (IOException e) {
+      LOGGER.error("Could not write build comparison to file.", e);
+      writerException = e;
+      queue.clear();
+    }
+    catch (InterruptedException e) {
+      writerException = new InterruptedIOException("The result writer has been interrupted.");
+    }
+    catch (RuntimeException e) {
+      LOGGER.error("Could not write build comparison to file.", e);
+      writerException = new IOException("The result writer has failed unexpectedly.", e);
+      queue.clear();
+    }
+  }
+
+  private void printResult(BuildAnalysisResult result) throws IOException {
+    result.printToCsv(allResultsPrinter);
+    if (result.hasSmell()) {
+      result.printToCsv(smellResultsPrinter);
+    }
+    uncommittedBuildIds.put(new ProjectBranchKey(result.getProject(), result.getBranchT2()), result.getBuildIdT2());
+    numUnflushedRows++;
+    numRowsSinceCheckpoint++;
+  }
+
+  private void flush() throws IOException {
+    allResultsPrinter.flush();
+    smellResultsPrinter.flush();
+    numUnflushedRows = 0;
+    lastFlushMillis = System.currentTimeMillis();
+  }
+
+  private void checkpoint() throws IOException {
+    flush();
+    allResultsOut.getChannel().force(false);
+    smellResultsOut.getChannel().force(false);
+    journal.commit(allResultsOut.getChannel().position(), smellResultsOut.getChannel().position(),
+        uncommittedBuildIds);
+    uncommittedBuildIds.clear();
+    numRowsSinceCheckpoint = 0;
+  }
+
+  /**
+   * @return the thread that formats and writes the results. Only used by the tests.
+   */
+  Thread getWriterThread() {
+    return writerThread;
+  }
+
+  /**
+   * Writes all pending results, commits a final checkpoint and closes the result files.
+   *
+   * @throws IOException if a pending result could not be written.
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+
+    try {
+      // The writer thread may stop while the queue is full, so it is checked again while waiting.
+      boolean endEnqueued = false;
+      while (!endEnqueued && writerException == null && writerThread.isAlive()) {
+        endEnqueued = queue.offer(END_OF_RESULTS, 1, TimeUnit.SECONDS);
+      }
+      writerThread.join();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      writerThread.interrupt();
+    }
+    finally {
+      allResultsPrinter.close();
+      smellResultsPrinter.close();
+      journal.close();
+    }
+    rethrowWriterException();
+  }
+
+  private static final class QueueEntry {
+
+    private final BuildAnalysisResult result;
+
+    private QueueEntry(BuildAnalysisResult result) {
+      this.result = result;
+    }
+  }
+}
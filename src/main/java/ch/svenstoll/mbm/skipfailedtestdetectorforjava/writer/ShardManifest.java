@@ -0,0 +1,125 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.NumberUtility;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+/**
+ * Describes the part of the input that a shard has analyzed and whether the analysis has been
+ * completed. The manifest is written to {@code Results/shard_manifest.csv} of the shard folder
+ * when the shard starts and again when it has finished, so that an interrupted shard can be told
+ * apart from a finished one.
+ */
+public class ShardManifest {
+
+  public static final String FILE_NAME = "shard_manifest.csv";
+  private static final String[] CSV_HEADERS = {
+      "shard_index", "shard_count", "input_file", "num_projects", "num_builds", "completed"};
+
+  private final int shardIndex;
+  private final int shardCount;
+  private final String inputFilePath;
+  private final long numProjects;
+  private final long numBuilds;
+  private final boolean completed;
+
+  public ShardManifest(int shardIndex, int shardCount, String inputFilePath, long numProjects, long numBuilds,
+                       boolean completed) {
+    this.shardIndex = shardIndex;
+    this.shardCount = shardCount;
+    this.inputFilePath = inputFilePath;
+    this.numProjects = numProjects;
+    this.numBuilds = numBuilds;
+    this.completed = completed;
+  }
+
+  /**
+   * @param shardFolderPath The folder of the shard.
+   * @return the path of the manifest of the shard.
+   */
+  public static Path getManifestPath(String shardFolderPath) {
+    return Paths.get(shardFolderPath, "Results", FILE_NAME);
+  }
+
+  /**
+   * Replaces the manifest of a shard atomically.
+   *
+   * @param shardFolderPath The folder of the shard.
+   * @throws IOException if the manifest cannot be written.
+   */
+  public void write(String shardFolderPath) throws IOException {
+    Path manifestPath = getManifestPath(shardFolderPath);
+    Files.createDirectories(manifestPath.getParent());
+    Path temporaryPath = manifestPath.resolveSibling(FILE_NAME + ".tmp");
+    try (Writer writer = Files.newBufferedWriter(temporaryPath, StandardCharsets.UTF_8);
+         CSVPrinter printer = new CSVPrinter(writer, CSVFormat.DEFAULT.withHeader(CSV_HEADERS))) {
+      printer.printRecord(shardIndex, shardCount, inputFilePath, numProjects, numBuilds, completed);
+    }
+    Files.move(temporaryPath, manifestPath, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * @param manifestPath The path of a manifest.
+   * @return the manifest.
+   * @throws IOException if the manifest cannot be read or is invalid.
+   */
+  public static ShardManifest read(Path manifestPath) throws IOException {
+    try (Reader reader = Files.newBufferedReader(manifestPath, StandardCharsets.UTF_8);
+         CSVParser parser = new CSVParser(reader, CSVFormat.DEFAULT.withHeader())) {
+      List<CSVRecord> records = parser.getRecords();
+      if (records.size() != 1) {
+        throw new IOException("The shard manifest \"" + manifestPath + "\" must contain exactly one record.");
+      }
+
+      CSVRecord record = records.get(0);
+      Integer shardIndex = NumberUtility.parseIntegerSafely(record.get("shard_index"));
+      Integer shardCount = NumberUtility.parseIntegerSafely(record.get("shard_count"));
+      Long numProjects = NumberUtility.parseLongSafely(record.get("num_projects"));
+      Long numBuilds = NumberUtility.parseLongSafely(record.get("num_builds"));
+      if (shardIndex == null || shardCount == null || numProjects == null || numBuilds == null) {
+        throw new IOException("The shard manifest \"" + manifestPath + "\" is invalid.");
+      }
+      return new ShardManifest(shardIndex, shardCount, record.get("input_file"), numProjects, numBuilds,
+          Boolean.parseBoolean(record.get("completed")));
+    }
+    catch (IllegalArgumentException e) {
+      throw new IOException("The shard manifest \"" + manifestPath + "\" is invalid.", e);
+    }
+  }
+
+  public int getShardIndex() {
+    return shardIndex;
+  }
+
+  public int getShardCount() {
+    return shardCount;
+  }
+
+  public String getInputFilePath() {
+    return inputFilePath;
+  }
+
+  public long getNumProjects() {
+    return numProjects;
+  }
+
+  public long getNumBuilds() {
+    return numBuilds;
+  }
+
+  public boolean isCompleted() {
+    return completed;
+  }
+}
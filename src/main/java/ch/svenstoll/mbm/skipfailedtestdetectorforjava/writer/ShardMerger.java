@@ -0,0 +1,337 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.detector.DetectorEngine;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.lifecycle.TestLifecycleIndex;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.BuildAnalysisResult;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.ProjectBranchKey;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.scheduler.ShardAssignment;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.NumberUtility;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * <p>Merges the result files of all shards in the {@code Shards} folder of an output folder into
+ * the result files of the output folder. The rows of every shard are ordered by project, branch
+ * and build ID like the rows of a single process, so a k-way merge over the shards produces the
+ * same files as a single process would have written. The findings of the detectors are merged the
+ * same way, the detector timings are summed up and the branches of the lifecycle indexes are
+ * combined into one index.</p>
+ *
+ * <p>The merge is only done if the manifests of all shards of the given shard count are present
+ * and state that the shards have been completed. Folders of earlier runs with another shard count
+ * are ignored, even if they have not been completed.</p>
+ */
+public class ShardMerger {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ShardMerger.class);
+  private static final String[] RESULT_FILE_NAMES = {"all_results.csv", "smell_results.csv"};
+  private static final CSVFormat RESULT_CSV_FORMAT = CSVFormat.DEFAULT.withNullString("null");
+
+  /**
+   * @param outputFolderPath The output folder that has been passed to the shards.
+   * @param shardCount The number of shards of the run whose results are merged.
+   * @throws IOException if the shards are incomplete or a file cannot be read or written.
+   */
+  public void merge(String outputFolderPath, int shardCount) throws IOException {
+    if (shardCount < 1) {
+      throw new IllegalArgumentException("The number of shards must be at least 1.");
+    }
+
+    List<String> shardFolderPaths = findCompletedShards(outputFolderPath, shardCount);
+    Path resultsPath = Paths.get(outputFolderPath, "Results");
+    Files.createDirectories(resultsPath);
+
+    for (String fileName : RESULT_FILE_NAMES) {
+      mergeFiles(getShardFilePaths(shardFolderPaths, fileName), resultsPath.resolve(fileName),
+          Charset.defaultCharset(), BuildAnalysisResult.CSV_HEADERS);
+    }
+
+    Set<String> findingFileNames = findFindingFileNames(shardFolderPaths);
+    if (!findingFileNames.isEmpty()) {
+      Files.createDirectories(resultsPath.resolve(DetectorFindingWriter.FOLDER_NAME));
+    }
+    for (String fileName : findingFileNames) {
+      // The headers depend on the detector, so they are taken from the files of the shards.
+      mergeFiles(getShardFilePaths(shardFolderPaths, fileName), resultsPath.resolve(fileName),
+          StandardCharsets.UTF_8, null);
+    }
+
+    String timingsFileName = DetectorFindingWriter.FOLDER_NAME + "/" + DetectorEngine.TIMINGS_FILE_NAME;
+    mergeTimings(getShardFilePaths(shardFolderPaths, timingsFileName), resultsPath.resolve(timingsFileName));
+    mergeLifecycleIndexes(getShardFilePaths(shardFolderPaths, TestLifecycleIndex.FILE_NAME),
+        resultsPath.resolve(TestLifecycleIndex.FILE_NAME));
+  }
+
+  private static List<Path> getShardFilePaths(List<String> shardFolderPaths, String fileName) {
+    return shardFolderPaths.stream()
+        .map(shardFolderPath -> Paths.get(shardFolderPath, "Results", fileName))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * @return the paths of the finding files of all detectors that have written findings in any
+   *         shard, relative to the {@code Results} folder.
+   */
+  private static Set<String> findFindingFileNames(List<String> shardFolderPaths) throws IOException {
+    Set<String> fileNames = new TreeSet<>();
+    for (String shardFolderPath : shardFolderPaths) {
+      Path detectorsPath = Paths.get(shardFolderPath, "Results", DetectorFindingWriter.FOLDER_NAME);
+      if (!Files.isDirectory(detectorsPath)) {
+        continue;
+      }
+      try (Stream<Path> paths = Files.list(detectorsPath)) {
+        paths.map(path -> path.getFileName().toString())
+            .filter(fileName -> fileName.endsWith(".csv") && !DetectorEngine.TIMINGS_FILE_NAME.equals(fileName))
+            .forEach(fileName -> fileNames.add(DetectorFindingWriter.FOLDER_NAME + "/" + fileName));
+      }
+    }
+    return fileNames;
+  }
+
+  private List<String> findCompletedShards(String outputFolderPath, int shardCount) throws IOException {
+    Path shardsPath = Paths.get(outputFolderPath, ShardAssignment.SHARDS_FOLDER);
+    if (!Files.isDirectory(shardsPath)) {
+      throw new IOException("There is no \"" + shardsPath + "\" folder to merge.");
+    }
+
+    List<Path> shardFolderPaths;
+    try (Stream<Path> paths = Files.list(shardsPath)) {
+      shardFolderPaths = paths.filter(Files::isDirectory).sorted().collect(Collectors.toList());
+    }
+
+    Map<Integer, String> shardFolderPathByIndex = new TreeMap<>();
+    for (Path shardFolderPath : shardFolderPaths) {
+      Path manifestPath = ShardManifest.getManifestPath(shardFolderPath.toString());
+      if (!Files.exists(manifestPath)) {
+        LOGGER.warn("Ignoring \"{}\", because it does not contain a shard manifest.", shardFolderPath);
+        continue;
+      }
+
+      ShardManifest manifest = ShardManifest.read(manifestPath);
+      if (manifest.getShardCount() != shardCount) {
+        // Folders of an earlier run with a different shard count are left alone.
+        LOGGER.warn("Ignoring \"{}\", because it belongs to a run with {} shards.", shardFolderPath,
+            manifest.getShardCount());
+        continue;
+      }
+      if (!manifest.isCompleted()) {
+        throw new IOException("Shard " + manifest.getShardIndex() + " of " + shardCount + " has not been completed.");
+      }
+      if (manifest.getShardIndex() < 0 || manifest.getShardIndex() >= shardCount) {
+        throw new IOException("\"" + shardFolderPath + "\" states an invalid shard index " + manifest.getShardIndex()
+            + ".");
+      }
+      if (shardFolderPathByIndex.put(manifest.getShardIndex(), shardFolderPath.toString()) != null) {
+        throw new IOException("Shard " + manifest.getShardIndex() + " has been found more than once.");
+      }
+    }
+
+    if (shardFolderPathByIndex.size() != shardCount) {
+      throw new IOException("Found " + shardFolderPathByIndex.size() + " completed shards of " + shardCount
+          + ", but expected all of them.");
+    }
+    return new ArrayList<>(shardFolderPathByIndex.values());
+  }
+
+  /**
+   * @param headers The headers of the merged file or null to take them from the shard files.
+   */
+  private void mergeFiles(List<Path> shardFilePaths, Path mergedFilePath, Charset charset, String[] headers)
+      throws IOException {
+    List<ShardCursor> cursors = new ArrayList<>();
+    PriorityQueue<ShardCursor> queue = new PriorityQueue<>();
+    long numRows = 0;
+    try {
+      for (int i = 0; i < shardFilePaths.size(); i++) {
+        if (Files.exists(shardFilePaths.get(i))) {
+          ShardCursor cursor = new ShardCursor(shardFilePaths.get(i), charset, i);
+          cursors.add(cursor);
+          if (headers == null) {
+            headers = cursor.getHeaders();
+          }
+          if (!Arrays.equals(headers, cursor.getHeaders())) {
+            throw new IOException("The headers of \"" + shardFilePaths.get(i) + "\" differ from the ones of the other "
+                + "shards.");
+          }
+        }
+      }
+      if (headers == null) {
+        return;
+      }
+
+      try (CSVPrinter printer = new CSVPrinter(new BufferedWriter(new OutputStreamWriter(
+          new FileOutputStream(mergedFilePath.toFile()), charset)), RESULT_CSV_FORMAT.withHeader(headers))) {
+        for (ShardCursor cursor : cursors) {
+          if (cursor.advance()) {
+            queue.add(cursor);
+          }
+        }
+
+        while (!queue.isEmpty()) {
+          ShardCursor cursor = queue.poll();
+          printer.printRecord(cursor.current);
+          numRows++;
+          if (cursor.advance()) {
+            queue.add(cursor);
+          }
+        }
+      }
+    }
+    finally {
+      for (ShardCursor cursor : cursors) {
+        cursor.close();
+      }
+    }
+    LOGGER.info("Merged {} rows of {} shards into \"{}\".", numRows, cursors.size(), mergedFilePath);
+  }
+
+  /**
+   * Sums up the timings of every detector. The mean time per pair is weighted by the number of
+   * pairs that each shard has evaluated.
+   */
+  private void mergeTimings(List<Path> shardFilePaths, Path mergedFilePath) throws IOException {
+    String[] headers = null;
+    Map<String, double[]> sumsByDetector = new LinkedHashMap<>();
+    for (Path shardFilePath : shardFilePaths) {
+      if (!Files.exists(shardFilePath)) {
+        continue;
+      }
+      try (CSVParser parser = new CSVParser(Files.newBufferedReader(shardFilePath, StandardCharsets.UTF_8),
+          CSVFormat.DEFAULT.withHeader())) {
+        headers = parser.getHeaderMap().keySet().toArray(new String[0]);
+        for (CSVRecord record : parser) {
+          double[] sums = sumsByDetector.computeIfAbsent(record.get("detector"), detector -> new double[4]);
+          double numEvaluations = parseTiming(record, "evaluated_pairs", shardFilePath);
+          sums[0] += numEvaluations;
+          sums[1] += parseTiming(record, "findings", shardFilePath);
+          sums[2] += parseTiming(record, "total_ms", shardFilePath);
+          sums[3] += parseTiming(record, "mean_us", shardFilePath) * numEvaluations;
+        }
+      }
+    }
+    if (headers == null) {
+      return;
+    }
+
+    try (CSVPrinter printer = new CSVPrinter(Files.newBufferedWriter(mergedFilePath, StandardCharsets.UTF_8),
+        CSVFormat.DEFAULT.withHeader(headers))) {
+      for (Map.Entry<String, double[]> entry : sumsByDetector.entrySet()) {
+        double[] sums = entry.getValue();
+        printer.printRecord(entry.getKey(), (long) sums[0], (long) sums[1], (long) sums[2],
+            sums[0] > 0 ? Math.round(sums[3] / sums[0]) : 0);
+      }
+    }
+    LOGGER.info("Merged the detector timings of {} shards into \"{}\".", shardFilePaths.size(), mergedFilePath);
+  }
+
+  private static double parseTiming(CSVRecord record, String column, Path filePath) throws IOException {
+    Long value = NumberUtility.parseLongSafely(record.get(column));
+    if (value == null) {
+      throw new IOException("Row " + record.getRecordNumber() + " of \"" + filePath + "\" is incomplete.");
+    }
+    return value;
+  }
+
+  /**
+   * The shards analyze disjoint projects, so their indexes contain disjoint branches.
+   */
+  private void mergeLifecycleIndexes(List<Path> shardIndexPaths, Path mergedIndexPath) throws IOException {
+    TestLifecycleIndex mergedIndex = null;
+    for (Path shardIndexPath : shardIndexPaths) {
+      if (!Files.exists(shardIndexPath)) {
+        continue;
+      }
+      TestLifecycleIndex shardIndex = TestLifecycleIndex.read(shardIndexPath);
+      if (mergedIndex == null) {
+        mergedIndex = shardIndex;
+        continue;
+      }
+      try {
+        mergedIndex.addBranches(shardIndex);
+      }
+      catch (IllegalArgumentException e) {
+        throw new IOException("Could not merge \"" + shardIndexPath + "\".", e);
+      }
+    }
+    if (mergedIndex == null) {
+      return;
+    }
+
+    mergedIndex.write(mergedIndexPath);
+    LOGGER.info("Merged {} branches into \"{}\".", mergedIndex.getBranches().size(), mergedIndexPath);
+  }
+
+  /**
+   * Reads the rows of a result file of a shard one after another.
+   */
+  private static final class ShardCursor implements Comparable<ShardCursor>, Closeable {
+
+    private final Path filePath;
+    private final int shardIndex;
+    private final CSVParser parser;
+    private final Iterator<CSVRecord> iterator;
+    private CSVRecord current;
+    private String currentPartition;
+    private long currentBuildId;
+
+    private ShardCursor(Path filePath, Charset charset, int shardIndex) throws IOException {
+      this.filePath = filePath;
+      this.shardIndex = shardIndex;
+      this.parser = new CSVParser(new BufferedReader(new InputStreamReader(new FileInputStream(filePath.toFile()),
+          charset)), RESULT_CSV_FORMAT.withHeader());
+      this.iterator = parser.iterator();
+    }
+
+    private String[] getHeaders() {
+      return parser.getHeaderMap().keySet().toArray(new String[0]);
+    }
+
+    private boolean advance() throws IOException {
+      if (!iterator.hasNext()) {
+        current = null;
+        return false;
+      }
+
+      current = iterator.next();
+      Long buildId = NumberUtility.parseLongSafely(current.get("build_id_t2"));
+      if (current.get("project") == null || current.get("branch_t2") == null || buildId == null) {
+        throw new IOException("Row " + current.getRecordNumber() + " of \"" + filePath + "\" is incomplete.");
+      }
+      currentPartition = new ProjectBranchKey(current.get("project"), current.get("branch_t2")).toString();
+      currentBuildId = buildId;
+      return true;
+    }
+
+    /**
+     * Same order as the builds of a single process: by project and branch, then by build ID.
+     */
+    @Override
+    public int compareTo(ShardCursor other) {
+      int partitionComparison = currentPartition.compareTo(other.currentPartition);
+      if (partitionComparison != 0) {
+        return partitionComparison;
+      }
+      int buildIdComparison = Long.compare(currentBuildId, other.currentBuildId);
+      return buildIdComparison != 0 ? buildIdComparison : Integer.compare(shardIndex, other.shardIndex);
+    }
+
+    @Override
+    public void close() throws IOException {
+      parser.close();
+    }
+  }
+}
@@ -0,0 +1,147 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The estimated share of build pairs with a smell and with a removed failed test in a stratum or
+ * a group of strata of a sample, each with a confidence interval. The estimates of a sample are
+ * written to {@code Results/sample_estimates.csv}.
+ */
+public class SmellRateEstimate {
+
+  public static final String FILE_NAME = "sample_estimates.csv";
+  public static final String ALL = "all";
+  private static final String[] CSV_HEADERS = {
+      "project", "t1_has_failures", "population_pairs", "sampled_pairs", "failed_analyses", "smells", "smell_rate",
+      "smell_ci_lower", "smell_ci_upper", "removed_failed_tests", "removed_failed_test_rate",
+      "removed_failed_test_ci_lower", "removed_failed_test_ci_upper"};
+
+  private final String project;
+  private final String t1HasFailures;
+  private final long populationSize;
+  private final long sampleSize;
+  private final long numFailedAnalyses;
+  private final long numSmells;
+  private final Interval smellRate;
+  private final long numRemovedFailedTests;
+  private final Interval removedFailedTestRate;
+
+  /**
+   * @param project The project or {@link #ALL} for a group of projects.
+   * @param t1HasFailures true, false or {@link #ALL} for both.
+   * @param populationSize The number of build pairs the estimate refers to.
+   * @param sampleSize The number of drawn build pairs.
+   * @param numFailedAnalyses The number of drawn build pairs whose analysis has failed.
+   * @param numSmells The number of drawn build pairs with a smell.
+   * @param smellRate The estimated share of build pairs with a smell.
+   * @param numRemovedFailedTests The number of drawn build pairs that removed a failed test.
+   * @param removedFailedTestRate The estimated share of build pairs that removed a failed test.
+   */
+  public SmellRateEstimate(String project, String t1HasFailures, long populationSize, long sampleSize,
+                           long numFailedAnalyses, long numSmells, Interval smellRate, long numRemovedFailedTests,
+                           Interval removedFailedTestRate) {
+    this.project = project;
+    this.t1HasFailures = t1HasFailures;
+    this.populationSize = populationSize;
+    this.sampleSize = sampleSize;
+    this.numFailedAnalyses = numFailedAnalyses;
+    this.numSmells = numSmells;
+    this.smellRate = smellRate;
+    this.numRemovedFailedTests = numRemovedFailedTests;
+    this.removedFailedTestRate = removedFailedTestRate;
+  }
+
+  /**
+   * Replaces an estimates file.
+   *
+   * @param estimatesPath The path of the estimates file.
+   * @param estimates The estimates of a sample.
+   * @throws IOException if the file cannot be written.
+   */
+  public static void write(Path estimatesPath, List<SmellRateEstimate> estimates) throws IOException {
+    Files.createDirectories(estimatesPath.toAbsolutePath().getParent());
+    try (Writer writer = Files.newBufferedWriter(estimatesPath, StandardCharsets.UTF_8);
+         CSVPrinter printer = new CSVPrinter(writer, CSVFormat.DEFAULT.withHeader(CSV_HEADERS))) {
+      for (SmellRateEstimate estimate : estimates) {
+        printer.printRecord(estimate.project, estimate.t1HasFailures, estimate.populationSize, estimate.sampleSize,
+            estimate.numFailedAnalyses, estimate.numSmells, format(estimate.smellRate.getRate()),
+            format(estimate.smellRate.getLower()), format(estimate.smellRate.getUpper()),
+            estimate.numRemovedFailedTests, format(estimate.removedFailedTestRate.getRate()),
+            format(estimate.removedFailedTestRate.getLower()), format(estimate.removedFailedTestRate.getUpper()));
+      }
+    }
+  }
+
+  private static String format(Double value) {
+    return value != null ? String.format(Locale.ROOT, "%.6f", value) : null;
+  }
+
+  public String getProject() {
+    return project;
+  }
+
+  public String getT1HasFailures() {
+    return t1HasFailures;
+  }
+
+  public long getPopulationSize() {
+    return populationSize;
+  }
+
+  public long getSampleSize() {
+    return sampleSize;
+  }
+
+  public Interval getSmellRate() {
+    return smellRate;
+  }
+
+  public Interval getRemovedFailedTestRate() {
+    return removedFailedTestRate;
+  }
+
+  /**
+   * An estimated rate with the bounds of its confidence interval. All values are null if there is
+   * no observation to estimate from.
+   */
+  public static final class Interval {
+
+    private final Double rate;
+    private final Double lower;
+    private final Double upper;
+
+    public Interval(Double rate, Double lower, Double upper) {
+      this.rate = rate;
+      this.lower = lower;
+      this.upper = upper;
+    }
+
+    public Double getRate() {
+      return rate;
+    }
+
+    public Double getLower() {
+      return lower;
+    }
+
+    public Double getUpper() {
+      return upper;
+    }
+
+    @Override
+    public String toString() {
+      return rate != null
+          ? String.format(Locale.ROOT, "%.2f%% [%.2f%%, %.2f%%]", rate * 100, lower * 100, upper * 100)
+          : "n/a";
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.comparator;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.Build;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.DetectorConfiguration;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.FixtureRepositories;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Comparing the build pairs on several threads must write the same result files as comparing
+ * them one after another.
+ */
+public class ComparisonStageEquivalenceTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void writesTheSameResultFilesWithOneAndSeveralComparisonThreads() throws Exception {
+    Path remotesPath = temporaryFolder.newFolder("remotes").toPath();
+    List<Build> builds = FixtureRepositories.create(remotesPath, "org/alpha", "org/beta", "org/gamma");
+
+    Path sequentialPath = compareBuilds(remotesPath, builds, 1);
+    Path concurrentPath = compareBuilds(remotesPath, builds, 4);
+
+    assertEquals(3 * FixtureRepositories.NUM_BUILDS_PER_PROJECT + 1,
+        Files.readAllLines(sequentialPath.resolve("Results/all_results.csv")).size());
+    assertTrue(Files.readAllLines(sequentialPath.resolve("Results/smell_results.csv")).size() > 1);
+    for (String fileName : new String[]{"all_results.csv", "smell_results.csv"}) {
+      assertArrayEquals(fileName, Files.readAllBytes(sequentialPath.resolve("Results").resolve(fileName)),
+          Files.readAllBytes(concurrentPath.resolve("Results").resolve(fileName)));
+    }
+  }
+
+  private Path compareBuilds(Path remotesPath, List<Build> builds, int numComparisonThreads) throws Exception {
+    Path outputPath = temporaryFolder.newFolder("output-" + numComparisonThreads).toPath();
+    DetectorConfiguration configuration = DetectorConfiguration.ConfigurationBuilder.aConfiguration()
+        .withInputFilePath(null)
+        .withOutputFolderPath(outputPath.toString())
+        .andGitUriTemplate(FixtureRepositories.getGitUriTemplate(remotesPath))
+        .andNumComparisonThreads(numComparisonThreads)
+        .create();
+    // Every run gets its own copies of the builds, so that the runs cannot influence each other.
+    List<Build> buildCopies = new ArrayList<>();
+    for (Build build : builds) {
+      buildCopies.add(new Build(build));
+    }
+    assertTrue(new BuildComparator(configuration).compareBuilds(buildCopies));
+    return outputPath;
+  }
+}
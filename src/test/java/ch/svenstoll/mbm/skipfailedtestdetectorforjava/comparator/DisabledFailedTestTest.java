@@ -0,0 +1,116 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.comparator;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.detector.IgnoredFailedTestDetector;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.extractor.MethodStorage;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.Build;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.DetectorConfiguration;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.ProjectBranchKey;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.FixtureRepositories;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer.DetectorFindingWriter;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * A failed JUnit 5 test that is disabled in the follow-up build is reported by the detector, while
+ * the baseline columns still count it as a test method in both builds.
+ */
+public class DisabledFailedTestTest {
+
+  private static final String SOURCE_PATH = "src/test/java/org/alpha/FooTest.java";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void reportsDisabledFailedTestsWithMethodsOnTheHeap() throws Exception {
+    assertDisabledFailedTestIsReported(MethodStorage.HEAP);
+  }
+
+  @Test
+  public void reportsDisabledFailedTestsWithMethodTables() throws Exception {
+    assertDisabledFailedTestIsReported(MethodStorage.DIRECT);
+  }
+
+  private void assertDisabledFailedTestIsReported(MethodStorage methodStorage) throws Exception {
+    Path remotesPath = temporaryFolder.newFolder("remotes").toPath();
+    Path outputPath = temporaryFolder.newFolder("output").toPath();
+    List<Build> builds = createRepository(remotesPath.resolve("org#alpha"));
+
+    DetectorConfiguration configuration = DetectorConfiguration.ConfigurationBuilder.aConfiguration()
+        .withInputFilePath(null)
+        .withOutputFolderPath(outputPath.toString())
+        .andGitUriTemplate(FixtureRepositories.getGitUriTemplate(remotesPath))
+        .andMethodStorage(methodStorage)
+        .create();
+    new BuildComparator(configuration).compareBuilds(builds);
+
+    CSVRecord result = readRecords(outputPath.resolve("Results/all_results.csv")).get(1);
+    assertEquals("2", result.get("num_test_methods_extracted_t1"));
+    assertEquals("2", result.get("num_test_methods_extracted_t2"));
+    assertEquals("0", result.get("num_removed_failed_tests"));
+
+    List<CSVRecord> findings = readRecords(outputPath.resolve("Results").resolve(DetectorFindingWriter.FOLDER_NAME)
+        .resolve(IgnoredFailedTestDetector.NAME + ".csv"));
+    assertEquals(1, findings.size());
+    assertEquals("2", findings.get(0).get("build_id_t2"));
+    assertEquals("org.alpha.FooTest.test1()", findings.get(0).get("ignored_failed_tests"));
+  }
+
+  private static List<Build> createRepository(Path repositoryPath) throws Exception {
+    try (Git git = Git.init().setDirectory(repositoryPath.toFile()).call()) {
+      RevCommit commit1 = commit(git, repositoryPath, "");
+      RevCommit commit2 = commit(git, repositoryPath, "@Disabled ");
+      return Arrays.asList(
+          createBuild(1, null, commit1.getName(), Collections.singletonList("test1")),
+          createBuild(2, 1L, commit2.getName(), Collections.emptyList()));
+    }
+  }
+
+  private static RevCommit commit(Git git, Path repositoryPath, String annotation) throws Exception {
+    Path filePath = repositoryPath.resolve(SOURCE_PATH);
+    Files.createDirectories(filePath.getParent());
+    Files.write(filePath, ("package org.alpha; import org.junit.jupiter.api.*;\n"
+        + "public class FooTest {\n"
+        + "  @Test " + annotation + "public void test1() {}\n"
+        + "  @Test public void test2() {}\n"
+        + "}\n").getBytes(StandardCharsets.UTF_8));
+    git.add().addFilepattern(".").call();
+    return git.commit().setMessage(annotation).call();
+  }
+
+  private static Build createBuild(long buildId, Long prevBuildId, String triggerCommit, List<String> failedMethods) {
+    return Build.BuildBuilder.aBuild()
+        .withProjectBranch(new ProjectBranchKey("org/alpha", "master"))
+        .withBuildId(buildId)
+        .withPrevBuildId(prevBuildId)
+        .withTriggerCommit(triggerCommit)
+        .andStatus(failedMethods.isEmpty() ? "passed" : "failed")
+        .andNumTestsRun(2)
+        .andNumTestsOk(2 - failedMethods.size())
+        .andNumTestsFailed(failedMethods.size())
+        .andNumTestsSkipped(0)
+        .andFailedMethods(failedMethods)
+        .create();
+  }
+
+  private static List<CSVRecord> readRecords(Path filePath) throws Exception {
+    try (CSVParser parser = CSVParser.parse(filePath.toFile(), StandardCharsets.UTF_8, CSVFormat.DEFAULT.withHeader())) {
+      return parser.getRecords();
+    }
+  }
+}
@@ -0,0 +1,132 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.comparator;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.Build;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.BuildAnalysisResult;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.DetectorConfiguration;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.FixtureRepositories;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer.Checkpoint;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer.CheckpointJournal;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer.ProjectTiming;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The timings of a previous run make the second project the most expensive one, so that the cost
+ * order of the projects differs from the order of their names.
+ */
+public class ProjectOrderTest {
+
+  private static final List<String> SORTED_BUILDS = Arrays.asList(
+      "org/alpha#feature#107", "org/alpha#master#101", "org/alpha#master#102", "org/alpha#master#103",
+      "org/alpha#master#104", "org/alpha#master#105", "org/alpha#master#106",
+      "org/beta#feature#114", "org/beta#master#108", "org/beta#master#109", "org/beta#master#110",
+      "org/beta#master#111", "org/beta#master#112", "org/beta#master#113");
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void analyzesTheProjectsInTheOrderOfTheirNamesWithASingleWorker() throws Exception {
+    Path remotesPath = temporaryFolder.newFolder("remotes").toPath();
+    Path outputPath = temporaryFolder.newFolder("output").toPath();
+    List<Build> builds = FixtureRepositories.create(remotesPath, "org/alpha", "org/beta");
+    writeTimings(outputPath);
+
+    assertTrue(new BuildComparator(createConfiguration(remotesPath, outputPath, 1)).compareBuilds(builds));
+
+    // The first checkpoints only contain builds of the project with the first name.
+    List<Set<String>> committedProjects = readCommittedProjects(outputPath.resolve("Results/checkpoint_journal.csv"));
+    assertTrue(committedProjects.contains(new HashSet<>(Arrays.asList("org/alpha"))));
+    assertEquals(new HashSet<>(Arrays.asList("org/alpha", "org/beta")),
+        committedProjects.get(committedProjects.size() - 1));
+    assertEquals(SORTED_BUILDS, readBuilds(outputPath.resolve("Results/all_results.csv")));
+  }
+
+  @Test
+  public void onlyRestoresTheOrderOfTheRowsOfTheRunWithSeveralWorkers() throws Exception {
+    Path remotesPath = temporaryFolder.newFolder("remotes").toPath();
+    Path outputPath = temporaryFolder.newFolder("output").toPath();
+    List<Build> builds = FixtureRepositories.create(remotesPath, "org/alpha", "org/beta");
+    writeTimings(outputPath);
+    // The rows of an earlier run that the run appends to are out of order.
+    Path allResultsPath = outputPath.resolve("Results/all_results.csv");
+    List<String> earlierRows = new ArrayList<>();
+    for (Build build : builds) {
+      earlierRows.add(0, build.getProjectBranchKey().getProjectName() + "," + build.getProjectBranchKey().getBranch()
+          + "," + build.getProjectBranchKey().getBranch() + ",null," + build.getBuildId());
+    }
+    String earlierContent = String.join(",", BuildAnalysisResult.CSV_HEADERS) + "\r\n"
+        + String.join("\r\n", earlierRows) + "\r\n";
+    Files.write(allResultsPath, earlierContent.getBytes(StandardCharsets.UTF_8));
+
+    assertTrue(new BuildComparator(createConfiguration(remotesPath, outputPath, 2)).compareBuilds(builds));
+
+    byte[] earlierBytes = earlierContent.getBytes(StandardCharsets.UTF_8);
+    assertArrayEquals(earlierBytes, Arrays.copyOf(Files.readAllBytes(allResultsPath), earlierBytes.length));
+    List<String> allBuilds = readBuilds(allResultsPath);
+    assertEquals(SORTED_BUILDS, allBuilds.subList(earlierRows.size(), allBuilds.size()));
+
+    Checkpoint checkpoint = CheckpointJournal.readLastCheckpoint(
+        outputPath.resolve("Results/checkpoint_journal.csv").toString());
+    assertEquals(Files.size(allResultsPath), checkpoint.getAllResultsOffset());
+    assertEquals(earlierBytes.length, checkpoint.getStartOffset("all_results.csv"));
+  }
+
+  private static void writeTimings(Path outputPath) throws Exception {
+    ProjectTiming.write(outputPath.resolve("Results").resolve(ProjectTiming.FILE_NAME), Arrays.asList(
+        new ProjectTiming("org/alpha", 7, 7, 70, 10, 10),
+        new ProjectTiming("org/beta", 7, 7, 70, 10, 100000)));
+  }
+
+  private static DetectorConfiguration createConfiguration(Path remotesPath, Path outputPath, int numProjectThreads) {
+    return DetectorConfiguration.ConfigurationBuilder.aConfiguration()
+        .withInputFilePath(null)
+        .withOutputFolderPath(outputPath.toString())
+        .andGitUriTemplate(FixtureRepositories.getGitUriTemplate(remotesPath))
+        .andResultCheckpointRows(1)
+        .andNumProjectThreads(numProjectThreads)
+        .create();
+  }
+
+  /**
+   * @return the project, branch and follow-up build ID of every row.
+   */
+  private static List<String> readBuilds(Path resultsPath) throws Exception {
+    List<String> rows = Files.readAllLines(resultsPath, StandardCharsets.UTF_8);
+    return rows.subList(1, rows.size()).stream()
+        .map(row -> row.split(",")[0] + "#" + row.split(",")[2] + "#" + row.split(",")[4])
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * @return the projects that have been committed at each checkpoint of the journal.
+   */
+  private static List<Set<String>> readCommittedProjects(Path journalPath) throws Exception {
+    List<Set<String>> committedProjects = new ArrayList<>();
+    Set<String> projects = new HashSet<>();
+    for (String line : Files.readAllLines(journalPath, StandardCharsets.UTF_8)) {
+      if (line.startsWith("P,")) {
+        projects.add(line.split(",")[1]);
+      }
+      else if (line.startsWith("C,")) {
+        committedProjects.add(new HashSet<>(projects));
+      }
+    }
+    return committedProjects;
+  }
+}
@@ -0,0 +1,53 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.extractor;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.BasicClassData;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.BasicMethodData;
+import com.github.javaparser.JavaParser;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MethodVisitorTest {
+
+  @Test
+  public void flagsIgnoredAndDisabledMethodsButKeepsDisabledOnesAsTestMethods() {
+    Map<String, BasicMethodData> methods = visit("package org.alpha;\n"
+        + "import org.junit.Test;\n"
+        + "public class FooTest {\n"
+        + "  @Test public void run() {}\n"
+        + "  @Test @org.junit.Ignore public void ignored() {}\n"
+        + "  @Test @Disabled public void disabled() {}\n"
+        + "  @ParameterizedTest @Disabled public void parameterized(int i) {}\n"
+        + "}\n");
+
+    assertTrue(methods.get("org.alpha.FooTest.run()").isTestMethod());
+    assertFalse(methods.get("org.alpha.FooTest.run()").isIgnoredMethod());
+    assertFalse(methods.get("org.alpha.FooTest.ignored()").isTestMethod());
+    assertTrue(methods.get("org.alpha.FooTest.ignored()").isIgnoredMethod());
+    // Only @Ignore removes the test method status, so that the extracted test counts stay the same.
+    for (String name : new String[]{"org.alpha.FooTest.disabled()", "org.alpha.FooTest.parameterized(int)"}) {
+      assertTrue(name, methods.get(name).isTestMethod());
+      assertTrue(name, methods.get(name).isIgnoredMethod());
+    }
+    assertEquals(4, methods.size());
+  }
+
+  private static Map<String, BasicMethodData> visit(String source) {
+    Map<BasicClassData, List<BasicMethodData>> methodsByClass = new HashMap<>();
+    JavaParser.parse(source).accept(new MethodVisitor(),
+        new MethodVisitorArgument("org.alpha", (classData, methodData) -> methodsByClass
+            .computeIfAbsent(classData, key -> new ArrayList<>()).add(methodData), true, new HashMap<>(),
+            new ArrayList<>()));
+    return methodsByClass.values().stream()
+        .flatMap(List::stream)
+        .collect(Collectors.toMap(BasicMethodData::getQualifiedName, method -> method));
+  }
+}
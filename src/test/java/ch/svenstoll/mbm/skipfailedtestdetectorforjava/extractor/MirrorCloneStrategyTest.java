@@ -0,0 +1,66 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.extractor;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.comparator.BuildComparator;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.Build;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.DetectorConfiguration;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility.FixtureRepositories;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.Status;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A mirror that has been checked out must be analyzed without touching its work tree.
+ */
+public class MirrorCloneStrategyTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void leavesTheWorkTreeOfAMirrorUnchanged() throws Exception {
+    Path remotesPath = temporaryFolder.newFolder("remotes").toPath();
+    Path outputPath = temporaryFolder.newFolder("output").toPath();
+    List<Build> builds = FixtureRepositories.create(remotesPath, "org/alpha");
+    Path mirrorPath = remotesPath.resolve("org#alpha");
+    Path untrackedPath = mirrorPath.resolve("notes.txt");
+    Path modifiedPath = mirrorPath.resolve("src/main/java/org/alpha/Main.java");
+    Files.write(untrackedPath, "untracked".getBytes(StandardCharsets.UTF_8));
+    Files.write(modifiedPath, "modified".getBytes(StandardCharsets.UTF_8));
+    String head;
+    try (Git git = Git.open(mirrorPath.toFile())) {
+      head = git.getRepository().getFullBranch();
+    }
+
+    DetectorConfiguration configuration = DetectorConfiguration.ConfigurationBuilder.aConfiguration()
+        .withInputFilePath(null)
+        .withOutputFolderPath(outputPath.toString())
+        .andCloneStrategy(CloneStrategy.MIRROR)
+        .andGitUriTemplate(FixtureRepositories.getGitUriTemplate(remotesPath))
+        .create();
+    assertTrue(new BuildComparator(configuration).compareBuilds(builds));
+
+    try (Git git = Git.open(mirrorPath.toFile())) {
+      Status status = git.status().call();
+      assertEquals(head, git.getRepository().getFullBranch());
+      assertEquals(Collections.singleton("notes.txt"), status.getUntracked());
+      assertEquals(Collections.singleton("src/main/java/org/alpha/Main.java"), status.getModified());
+    }
+    assertEquals("untracked", new String(Files.readAllBytes(untrackedPath), StandardCharsets.UTF_8));
+    assertEquals("modified", new String(Files.readAllBytes(modifiedPath), StandardCharsets.UTF_8));
+
+    // The methods have been read from the object database nevertheless.
+    List<String> rows = Files.readAllLines(outputPath.resolve("Results/smell_results.csv"), StandardCharsets.UTF_8);
+    assertEquals(3, rows.size());
+  }
+}
@@ -0,0 +1,56 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.extractor;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.DetectorConfiguration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Repositories of previous runs that are needed by the current input must survive the eviction at
+ * startup, even if they are the least recently used ones.
+ */
+public class RepositoryStoreTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void keepsTheRepositoriesOfTheCurrentInputWhenEvictingAtStartup() throws Exception {
+    Path outputPath = temporaryFolder.newFolder("output").toPath();
+    Path alphaPath = createRepository(outputPath, "org#alpha", 1000, 1_000_000_000L);
+    Path stalePath = createRepository(outputPath, "org#stale", 1000, 2_000_000_000L);
+
+    DetectorConfiguration configuration = DetectorConfiguration.ConfigurationBuilder.aConfiguration()
+        .withInputFilePath(null)
+        .withOutputFolderPath(outputPath.toString())
+        .andRepositoryDiskBudget(1500)
+        .create();
+    try (RepositoryStore repositoryStore = new RepositoryStore(new RepositoryCloner(configuration), configuration)) {
+      // Nothing is evicted before the projects of the input are known.
+      assertTrue(Files.exists(alphaPath));
+      assertTrue(Files.exists(stalePath));
+
+      repositoryStore.registerProjects(Collections.singleton("org/alpha"));
+
+      assertTrue(Files.exists(alphaPath));
+      assertFalse(Files.exists(stalePath));
+      assertEquals(1000, repositoryStore.getTotalBytes());
+    }
+  }
+
+  private static Path createRepository(Path outputPath, String folderName, int sizeBytes, long lastModified)
+      throws Exception {
+    Path repositoryPath = Files.createDirectories(outputPath.resolve("Repositories").resolve(folderName));
+    Files.write(repositoryPath.resolve("pack"), new byte[sizeBytes]);
+    assertTrue(repositoryPath.toFile().setLastModified(lastModified));
+    return repositoryPath;
+  }
+}
@@ -0,0 +1,181 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.model;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MethodTableTest {
+
+  @Test
+  public void findsTheTestMethodsThatAreMissingInTheOtherTable() throws Exception {
+    MethodTable tableT1 = createTable(
+        "org.alpha.FooTest.a()", "test",
+        "org.alpha.FooTest.b()", "test",
+        "org.alpha.FooTest.c()", "test",
+        "org.alpha.FooTest.d()", "test",
+        "org.alpha.FooTest.helper()", "method");
+    MethodTable tableT2 = createTable(
+        "org.alpha.FooTest.a()", "test",
+        "org.alpha.FooTest.c()", "method",
+        "org.alpha.FooTest.d()", "ignored",
+        "org.alpha.FooTest.e()", "test",
+        "org.alpha.FooTest.helper()", "test");
+
+    MethodTable.Comparison comparison = MethodTable.compare(tableT1, tableT2);
+
+    Map<String, Boolean> notInT2 = toNames(comparison.getTestMethodsNotInT2());
+    Map<String, Boolean> expectedNotInT2 = new HashMap<>();
+    expectedNotInT2.put("org.alpha.FooTest.b()", false);
+    expectedNotInT2.put("org.alpha.FooTest.c()", true);
+    expectedNotInT2.put("org.alpha.FooTest.d()", true);
+    assertEquals(expectedNotInT2, notInT2);
+
+    Map<String, Boolean> expectedNotInT1 = new HashMap<>();
+    expectedNotInT1.put("org.alpha.FooTest.e()", false);
+    expectedNotInT1.put("org.alpha.FooTest.helper()", true);
+    assertEquals(expectedNotInT1, toNames(comparison.getTestMethodsNotInT1()));
+
+    assertEquals(new HashSet<>(Arrays.asList("org.alpha.FooTest.d()")), comparison.getTestMethodsIgnoredInT2().stream()
+        .map(BasicMethodData::getQualifiedName).collect(Collectors.toSet()));
+  }
+
+  @Test
+  public void findsTestMethodsThatAreDisabledInT2() throws Exception {
+    MethodTable tableT1 = createTable(
+        "org.alpha.FooTest.a()", "test",
+        "org.alpha.FooTest.b()", "disabled",
+        "org.alpha.FooTest.c()", "test");
+    MethodTable tableT2 = createTable(
+        "org.alpha.FooTest.a()", "disabled",
+        "org.alpha.FooTest.b()", "disabled",
+        "org.alpha.FooTest.c()", "test");
+
+    MethodTable.Comparison comparison = MethodTable.compare(tableT1, tableT2);
+
+    // A disabled test is still a test method, so only the set of ignored test methods changes.
+    assertTrue(comparison.getTestMethodsNotInT2().isEmpty());
+    assertTrue(comparison.getTestMethodsNotInT1().isEmpty());
+    assertEquals(Collections.singleton("org.alpha.FooTest.a()"), comparison.getTestMethodsIgnoredInT2().stream()
+        .map(BasicMethodData::getQualifiedName).collect(Collectors.toSet()));
+  }
+
+  @Test
+  public void comparesAgainstAnEmptyTable() throws Exception {
+    MethodTable table = createTable("org.alpha.FooTest.a()", "test", "org.alpha.FooTest.b()", "method");
+
+    assertEquals(Collections.singletonMap("org.alpha.FooTest.a()", false),
+        toNames(MethodTable.compare(table, MethodTable.EMPTY).getTestMethodsNotInT2()));
+    assertTrue(MethodTable.compare(table, table).getTestMethodsNotInT2().isEmpty());
+    assertTrue(MethodTable.compare(table, table).getTestMethodsNotInT1().isEmpty());
+  }
+
+  @Test
+  public void countsAndFindsTheDistinctTestMethods() throws Exception {
+    // A method that occurs more than once is a test method if one of its occurrences is.
+    MethodTable table = createTable(
+        "org.alpha.FooTest.a()", "method",
+        "org.alpha.FooTest.b()", "test",
+        "org.alpha.FooTest.a()", "test");
+
+    assertEquals(2, table.getNumMethods());
+    assertEquals(2, table.getNumTestMethods());
+    assertEquals(Arrays.asList("org.alpha.FooTest.a()", "org.alpha.FooTest.b()"), table.getTestMethodNames());
+    assertTrue(table.containsTestMethodMatching("FooTest.b"));
+    assertFalse(table.containsTestMethodMatching("BarTest"));
+  }
+
+  @Test
+  public void keepsOverloadedMethodsApart() throws Exception {
+    MethodTable tableT1 = createTable(
+        "org.alpha.FooTest.foo()", "test",
+        "org.alpha.FooTest.foo(int)", "method");
+    MethodTable tableT2 = createTable(
+        "org.alpha.FooTest.foo(int)", "method",
+        "org.alpha.FooTest.foo()", "method");
+
+    assertEquals(2, tableT1.getNumMethods());
+    assertEquals(Collections.singletonList("org.alpha.FooTest.foo()"), tableT1.getTestMethodNames());
+    assertEquals(Collections.singletonMap("org.alpha.FooTest.foo()", true),
+        toNames(MethodTable.compare(tableT1, tableT2).getTestMethodsNotInT2()));
+  }
+
+  @Test
+  public void mergesDuplicatesLikeTheMethodsOnTheHeap() throws Exception {
+    BasicClassData classData = new BasicClassData("org.alpha.FooTest", "FooTest");
+    BasicMethodData method = createMethod("org.alpha.FooTest.a()", "method", classData);
+    method.mergeDuplicate(createMethod("org.alpha.FooTest.a()", "ignored", classData));
+    method.mergeDuplicate(createMethod("org.alpha.FooTest.a()", "test", classData));
+
+    MethodTable table = createTable(
+        "org.alpha.FooTest.a()", "method",
+        "org.alpha.FooTest.a()", "ignored",
+        "org.alpha.FooTest.a()", "test");
+    assertTrue(method.isTestMethod());
+    assertTrue(method.isIgnoredMethod());
+    assertEquals(1, table.getNumTestMethods());
+    // The merged method is ignored in T2, so it is reported as such.
+    assertEquals(Collections.singleton("org.alpha.FooTest.a()"), MethodTable.compare(
+        createTable("org.alpha.FooTest.a()", "test"), table).getTestMethodsIgnoredInT2().stream()
+        .map(BasicMethodData::getQualifiedName).collect(Collectors.toSet()));
+  }
+
+  @Test
+  public void marksMethodsThatOverrideATestMethodAsTestMethods() throws Exception {
+    BasicClassData baseClass = new BasicClassData("org.alpha.BaseTest", "BaseTest");
+    BasicClassData childClass = new BasicClassData("org.alpha.FooTest", "FooTest");
+    BasicMethodData childMethod = createMethod("org.alpha.FooTest.run()", "method", childClass);
+    childMethod.setIsChildMethod(true);
+    MethodTable.Builder builder = new MethodTable.Builder();
+    builder.addMethod(childClass, childMethod);
+    builder.addMethod(childClass, createMethod("org.alpha.FooTest.helper()", "method", childClass));
+    builder.addMethod(baseClass, createMethod("org.alpha.BaseTest.run()", "test", baseClass));
+    builder.addMethod(baseClass, createMethod("org.alpha.BaseTest.helper()", "method", baseClass));
+
+    builder.markExtendedTestMethods(classData -> classData.equals(childClass) ? baseClass : null);
+    long methodsHash = builder.calculateMethodsHashes();
+    MethodTable table = builder.create(ByteBuffer::allocate);
+
+    assertEquals(Arrays.asList("org.alpha.BaseTest.run()", "org.alpha.FooTest.run()"), table.getTestMethodNames());
+    assertEquals(methodsHash, baseClass.getMethodsHash() + childClass.getMethodsHash());
+  }
+
+  /**
+   * @param namesAndKinds Pairs of a qualified method name and {@code test}, {@code ignored},
+   *                      {@code disabled} or {@code method}.
+   */
+  private static MethodTable createTable(String... namesAndKinds) throws Exception {
+    BasicClassData classData = new BasicClassData("org.alpha.FooTest", "FooTest");
+    MethodTable.Builder builder = new MethodTable.Builder();
+    for (int i = 0; i < namesAndKinds.length; i += 2) {
+      builder.addMethod(classData, createMethod(namesAndKinds[i], namesAndKinds[i + 1], classData));
+    }
+    builder.calculateMethodsHashes();
+    return builder.create(ByteBuffer::allocate);
+  }
+
+  private static BasicMethodData createMethod(String qualifiedName, String kind, BasicClassData classData) {
+    BasicMethodData method = new BasicMethodData(qualifiedName,
+        qualifiedName.substring(qualifiedName.lastIndexOf('.') + 1), classData);
+    method.setIsTestMethod("test".equals(kind) || "disabled".equals(kind));
+    method.setIsIgnoredMethod("ignored".equals(kind) || "disabled".equals(kind));
+    method.setIsChildMethod(false);
+    method.setIsAbstract(false);
+    return method;
+  }
+
+  private static Map<String, Boolean> toNames(Map<BasicMethodData, Boolean> methods) {
+    Map<String, Boolean> namesAndValues = new HashMap<>();
+    methods.forEach((method, value) -> namesAndValues.put(method.getQualifiedName(), value));
+    return namesAndValues;
+  }
+}
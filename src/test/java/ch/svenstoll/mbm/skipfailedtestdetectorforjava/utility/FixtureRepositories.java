@@ -0,0 +1,128 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.utility;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.Build;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.ProjectBranchKey;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Creates local repositories with JUnit tests and the builds of their commits. Each project has
+ * six builds on {@code master} and one on {@code feature}, which branches off the fourth commit:
+ * <ul>
+ *   <li>{@code test2} fails in the second build and is deleted in the third.</li>
+ *   <li>{@code test4} fails in the fourth build and is ignored in the fifth.</li>
+ * </ul>
+ */
+public final class FixtureRepositories {
+
+  public static final int NUM_BUILDS_PER_PROJECT = 7;
+  private static final PersonIdent AUTHOR = new PersonIdent("fixture", "fixture@example.com");
+
+  private FixtureRepositories() {
+  }
+
+  /**
+   * @param remotesPath The folder of the repositories.
+   * @return the URI template under which the repositories can be cloned.
+   */
+  public static String getGitUriTemplate(Path remotesPath) {
+    return "file://" + remotesPath.toAbsolutePath() + "/{owner}#{name}";
+  }
+
+  /**
+   * @param remotesPath The folder in which a repository is created for every project.
+   * @param projectNames The projects in the form {@code owner/name}.
+   * @return the builds of all projects with consecutive build IDs starting at 101.
+   * @throws Exception if a repository cannot be created.
+   */
+  public static List<Build> create(Path remotesPath, String... projectNames) throws Exception {
+    List<Build> builds = new ArrayList<>();
+    long buildId = 100;
+    for (String projectName : projectNames) {
+      String owner = projectName.substring(0, projectName.indexOf('/'));
+      String name = projectName.substring(projectName.indexOf('/') + 1);
+      String javaPackage = owner + "." + name;
+      Path repositoryPath = remotesPath.resolve(owner + "#" + name);
+      try (Git git = Git.init().setDirectory(repositoryPath.toFile()).call()) {
+        Long prevBuildId = null;
+        RevCommit featureBase = null;
+        for (int i = 1; i <= 6; i++) {
+          writeFooTest(repositoryPath, javaPackage, i);
+          write(repositoryPath.resolve("src/main/java/" + owner + "/" + name + "/Main.java"),
+              "package " + javaPackage + "; public class Main { void m" + i + "() {} }");
+          RevCommit commit = commit(git, "c" + i);
+          if (i == 4) {
+            featureBase = commit;
+          }
+
+          boolean failed = i == 2 || i == 4;
+          buildId++;
+          builds.add(createBuild(projectName, "master", buildId, prevBuildId, commit.getName(),
+              failed ? "test" + i : null));
+          prevBuildId = buildId;
+        }
+
+        git.checkout().setCreateBranch(true).setName("feature").setStartPoint(featureBase).call();
+        write(repositoryPath.resolve("src/test/java/" + owner + "/" + name + "/Extra.java"),
+            "package " + javaPackage + "; public class Extra { }");
+        RevCommit featureCommit = commit(git, "feature");
+        builds.add(createBuild(projectName, "feature", buildId + 1, buildId - 2, featureCommit.getName(), null));
+        buildId++;
+        git.checkout().setName("master").call();
+      }
+    }
+    return builds;
+  }
+
+  private static void writeFooTest(Path repositoryPath, String javaPackage, int commitNumber) throws IOException {
+    StringBuilder source = new StringBuilder("package " + javaPackage + "; import org.junit.Test; "
+        + "import org.junit.Ignore;\npublic class FooTest {\n");
+    for (int m = 1; m <= 5; m++) {
+      if (m == 2 && commitNumber >= 3) {
+        continue;
+      }
+      if (m == 4 && commitNumber >= 5) {
+        source.append("  @Ignore\n");
+      }
+      source.append("  @Test public void test").append(m).append("() {}\n");
+    }
+    source.append("}\n");
+    write(repositoryPath.resolve("src/test/java/" + javaPackage.replace('.', '/') + "/FooTest.java"),
+        source.toString());
+  }
+
+  private static void write(Path filePath, String content) throws IOException {
+    Files.createDirectories(filePath.getParent());
+    Files.write(filePath, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static RevCommit commit(Git git, String message) throws Exception {
+    git.add().addFilepattern(".").call();
+    return git.commit().setMessage(message).setAuthor(AUTHOR).setCommitter(AUTHOR).call();
+  }
+
+  private static Build createBuild(String projectName, String branch, long buildId, Long prevBuildId,
+                                   String triggerCommit, String failedMethod) {
+    return Build.BuildBuilder.aBuild()
+        .withProjectBranch(new ProjectBranchKey(projectName, branch))
+        .withBuildId(buildId)
+        .withPrevBuildId(prevBuildId)
+        .withTriggerCommit(triggerCommit)
+        .andStatus(failedMethod != null ? "failed" : "passed")
+        .andNumTestsRun(10)
+        .andNumTestsOk(failedMethod != null ? 9 : 10)
+        .andNumTestsFailed(failedMethod != null ? 1 : 0)
+        .andNumTestsSkipped(0)
+        .andFailedMethods(failedMethod != null ? Collections.singletonList(failedMethod) : Collections.emptyList())
+        .create();
+  }
+}
@@ -0,0 +1,89 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.ProjectBranchKey;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CheckpointJournalTest {
+
+  private static final ProjectBranchKey ALPHA_MASTER = new ProjectBranchKey("org/alpha", "master");
+  private static final ProjectBranchKey BETA_MASTER = new ProjectBranchKey("org/beta", "master");
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void readsTheLastCheckpointWithTheBuildsOfAllCheckpoints() throws Exception {
+    Path journalPath = temporaryFolder.getRoot().toPath().resolve("journal.csv");
+    try (CheckpointJournal journal = new CheckpointJournal(journalPath.toString(), null,
+        Collections.singletonMap("all_results.csv", 42L))) {
+      journal.commit(0, 0, Collections.emptyMap());
+      journal.commit(100, 10, Collections.singletonMap(ALPHA_MASTER, 2L));
+      Map<ProjectBranchKey, Long> buildIds = new HashMap<>();
+      buildIds.put(ALPHA_MASTER, 5L);
+      buildIds.put(BETA_MASTER, 7L);
+      journal.commit(250, 40, buildIds);
+    }
+
+    Checkpoint checkpoint = CheckpointJournal.readLastCheckpoint(journalPath.toString());
+    assertEquals(250, checkpoint.getAllResultsOffset());
+    assertEquals(40, checkpoint.getSmellResultsOffset());
+    assertEquals(Files.size(journalPath), checkpoint.getJournalOffset());
+    assertTrue(checkpoint.isCommitted(ALPHA_MASTER, 5));
+    assertFalse(checkpoint.isCommitted(ALPHA_MASTER, 6));
+    assertTrue(checkpoint.isCommitted(BETA_MASTER, 7));
+    assertEquals(42, checkpoint.getStartOffset("all_results.csv"));
+    assertEquals(0, checkpoint.getStartOffset("smell_results.csv"));
+  }
+
+  @Test
+  public void discardsRecordsAfterTheLastCompleteCheckpoint() throws Exception {
+    Path journalPath = temporaryFolder.getRoot().toPath().resolve("journal.csv");
+    try (CheckpointJournal journal = new CheckpointJournal(journalPath.toString(), null)) {
+      journal.commit(100, 10, Collections.singletonMap(ALPHA_MASTER, 2L));
+    }
+    long committedLength = Files.size(journalPath);
+    // An interrupted run has written a partition record and a torn commit record.
+    Files.write(journalPath, "P,org/beta,master,7\nC,300,50,O".getBytes(StandardCharsets.UTF_8),
+        StandardOpenOption.APPEND);
+
+    Checkpoint checkpoint = CheckpointJournal.readLastCheckpoint(journalPath.toString());
+    assertEquals(100, checkpoint.getAllResultsOffset());
+    assertEquals(committedLength, checkpoint.getJournalOffset());
+    assertFalse(checkpoint.hasCommittedBuilds("org/beta"));
+
+    // Resuming cuts off the torn records before new checkpoints are appended.
+    try (CheckpointJournal journal = new CheckpointJournal(journalPath.toString(), checkpoint)) {
+      assertEquals(committedLength, Files.size(journalPath));
+      journal.commit(200, 20, Collections.singletonMap(BETA_MASTER, 8L));
+    }
+
+    Checkpoint resumedCheckpoint = CheckpointJournal.readLastCheckpoint(journalPath.toString());
+    assertEquals(200, resumedCheckpoint.getAllResultsOffset());
+    assertTrue(resumedCheckpoint.isCommitted(ALPHA_MASTER, 2));
+    assertTrue(resumedCheckpoint.isCommitted(BETA_MASTER, 8));
+  }
+
+  @Test
+  public void returnsNoCheckpointWithoutACompleteCommitRecord() throws Exception {
+    Path journalPath = temporaryFolder.getRoot().toPath().resolve("journal.csv");
+    assertNull(CheckpointJournal.readLastCheckpoint(journalPath.toString()));
+
+    Files.write(journalPath, "P,org/alpha,master,2\nC,100,10\n".getBytes(StandardCharsets.UTF_8));
+    assertNull(CheckpointJournal.readLastCheckpoint(journalPath.toString()));
+  }
+}
@@ -0,0 +1,85 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ResultFileSorterTest {
+
+  private static final String HEADER = "project,branch_t1,branch_t2,build_id_t2,tests\r\n";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void ordersRowsByProjectAndBranchAndKeepsTheOrderWithinABranch() throws Exception {
+    Path filePath = write(HEADER
+        + "org/beta,master,master,11,a\r\n"
+        + "org/alpha,master,master,2,\"multi\r\nline\"\r\n"
+        + "org/beta,master,master,12,b\r\n"
+        + "org/alpha,master,feature,3,c\r\n"
+        + "org/alpha,master,master,4,d\r\n");
+    long length = Files.size(filePath);
+
+    assertTrue(ResultFileSorter.sort(filePath, StandardCharsets.UTF_8, 0, Long.MAX_VALUE));
+    assertEquals(HEADER
+        + "org/alpha,master,feature,3,c\r\n"
+        + "org/alpha,master,master,2,\"multi\r\nline\"\r\n"
+        + "org/alpha,master,master,4,d\r\n"
+        + "org/beta,master,master,11,a\r\n"
+        + "org/beta,master,master,12,b\r\n", read(filePath));
+    assertEquals(length, Files.size(filePath));
+  }
+
+  @Test
+  public void leavesOrderedFilesUntouched() throws Exception {
+    Path filePath = write(HEADER
+        + "org/alpha,master,master,2,a\r\n"
+        + "org/alpha,master,master,4,b\r\n"
+        + "org/beta,master,master,11,c\r\n");
+
+    assertFalse(ResultFileSorter.sort(filePath, StandardCharsets.UTF_8, 0, Long.MAX_VALUE));
+    assertFalse(ResultFileSorter.sort(write(HEADER), StandardCharsets.UTF_8, 0, Long.MAX_VALUE));
+    assertFalse(ResultFileSorter.sort(temporaryFolder.getRoot().toPath().resolve("missing.csv"),
+        StandardCharsets.UTF_8, 0, Long.MAX_VALUE));
+  }
+
+  @Test
+  public void onlyOrdersTheRowsBetweenTheOffsets() throws Exception {
+    String earlierRun = HEADER
+        + "org/beta,master,master,11,a\r\n"
+        + "org/alpha,master,master,2,b\r\n";
+    String uncommittedRows = "org/alpha,master,master,6,e\r\n";
+    Path filePath = write(earlierRun
+        + "org/beta,master,master,12,c\r\n"
+        + "org/alpha,master,master,5,d\r\n"
+        + uncommittedRows);
+    long startOffset = earlierRun.getBytes(StandardCharsets.UTF_8).length;
+    long endOffset = Files.size(filePath) - uncommittedRows.getBytes(StandardCharsets.UTF_8).length;
+
+    assertTrue(ResultFileSorter.sort(filePath, StandardCharsets.UTF_8, startOffset, endOffset));
+    assertEquals(earlierRun
+        + "org/alpha,master,master,5,d\r\n"
+        + "org/beta,master,master,12,c\r\n"
+        + uncommittedRows, read(filePath));
+    assertFalse(ResultFileSorter.sort(filePath, StandardCharsets.UTF_8, startOffset, endOffset));
+  }
+
+  private Path write(String content) throws Exception {
+    Path filePath = temporaryFolder.newFile().toPath();
+    Files.write(filePath, content.getBytes(StandardCharsets.UTF_8));
+    return filePath;
+  }
+
+  private static String read(Path filePath) throws Exception {
+    return new String(Files.readAllBytes(filePath), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,83 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.Build;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.BuildAnalysisResult;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.ProjectBranchKey;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ResultResequencerTest {
+
+  private final List<Long> writtenBuildIds = new ArrayList<>();
+  private final ResultSink sink = new ResultSink() {
+    @Override
+    public void write(BuildAnalysisResult result) {
+      writtenBuildIds.add(result.getBuildIdT2());
+    }
+
+    @Override
+    public void close() {
+    }
+  };
+
+  @Test
+  public void writesResultsOfAProjectInTheOrderOfItsBuilds() throws Exception {
+    ResultResequencer resequencer = new ResultResequencer(Arrays.asList(
+        createBuild("org/alpha", "master", 1), createBuild("org/alpha", "master", 2),
+        createBuild("org/alpha", "master", 3)), sink);
+
+    resequencer.write(3, createResult("org/alpha", 3));
+    resequencer.write(2, createResult("org/alpha", 2));
+    assertEquals(Arrays.asList(), writtenBuildIds);
+    assertEquals(2, resequencer.getNumPendingResults());
+
+    resequencer.write(1, createResult("org/alpha", 1));
+    assertEquals(Arrays.asList(1L, 2L, 3L), writtenBuildIds);
+    assertEquals(0, resequencer.getNumPendingResults());
+  }
+
+  @Test
+  public void writesResultsOfALaterProjectWithoutWaitingForEarlierProjects() throws Exception {
+    ResultResequencer resequencer = new ResultResequencer(Arrays.asList(
+        createBuild("org/alpha", "master", 1), createBuild("org/alpha", "master", 2),
+        createBuild("org/beta", "master", 3), createBuild("org/beta", "master", 4)), sink);
+
+    resequencer.write(3, createResult("org/beta", 3));
+    resequencer.write(4, createResult("org/beta", 4));
+    assertEquals(Arrays.asList(3L, 4L), writtenBuildIds);
+
+    resequencer.write(2, createResult("org/alpha", 2));
+    resequencer.skip(1);
+    assertEquals(Arrays.asList(3L, 4L, 2L), writtenBuildIds);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsUnknownBuilds() throws Exception {
+    new ResultResequencer(Arrays.asList(createBuild("org/alpha", "master", 1)), sink)
+        .write(2, createResult("org/alpha", 2));
+  }
+
+  private static Build createBuild(String projectName, String branch, long buildId) {
+    return Build.BuildBuilder.aBuild()
+        .withProjectBranch(new ProjectBranchKey(projectName, branch))
+        .withBuildId(buildId)
+        .withPrevBuildId(null)
+        .withTriggerCommit("commit" + buildId)
+        .create();
+  }
+
+  private static BuildAnalysisResult createResult(String projectName, long buildId) {
+    return BuildAnalysisResult.BuildAnalysisBuilder.aBuildAnalysisResult()
+        .withAnalysisOk(true)
+        .withProject(projectName)
+        .withBranchT2("master")
+        .withBuildIdT2(buildId)
+        .withTriggerCommitT2("commit" + buildId)
+        .create();
+  }
+}
@@ -0,0 +1,79 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.BuildAnalysisResult;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.DetectorConfiguration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ResultWriterTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test(timeout = 30000)
+  public void writesAllResultsAndCommitsACheckpointWhenClosed() throws Exception {
+    Path resultsPath = temporaryFolder.getRoot().toPath();
+    ResultWriter writer = createWriter(resultsPath, 1);
+    for (long buildId = 1; buildId <= 5; buildId++) {
+      writer.write(createResult("master", buildId));
+    }
+    writer.close();
+
+    assertEquals(6, Files.readAllLines(resultsPath.resolve("all_results.csv"), StandardCharsets.UTF_8).size());
+    Checkpoint checkpoint = CheckpointJournal.readLastCheckpoint(resultsPath.resolve("journal.csv").toString());
+    assertEquals(Files.size(resultsPath.resolve("all_results.csv")), checkpoint.getAllResultsOffset());
+  }
+
+  @Test(timeout = 30000)
+  public void failsInsteadOfWaitingIfTheWriterThreadHasStopped() throws Exception {
+    ResultWriter writer = createWriter(temporaryFolder.getRoot().toPath(), 1);
+    Thread writerThread = writer.getWriterThread();
+    writerThread.interrupt();
+    writerThread.join();
+
+    try {
+      writer.write(createResult("master", 1));
+      fail("The result has been accepted by a stopped writer.");
+    }
+    catch (IOException e) {
+      // Expected
+    }
+    try {
+      writer.close();
+      fail("The failure of the writer thread has not been reported.");
+    }
+    catch (IOException e) {
+      // Expected
+    }
+  }
+
+  private static ResultWriter createWriter(Path resultsPath, int queueCapacity) throws IOException {
+    DetectorConfiguration configuration = DetectorConfiguration.ConfigurationBuilder.aConfiguration()
+        .withInputFilePath(null)
+        .withOutputFolderPath(resultsPath.toString())
+        .andResultQueueCapacity(queueCapacity)
+        .create();
+    return new ResultWriter(resultsPath.resolve("all_results.csv").toString(),
+        resultsPath.resolve("smell_results.csv").toString(), resultsPath.resolve("journal.csv").toString(), null,
+        configuration);
+  }
+
+  private static BuildAnalysisResult createResult(String branch, long buildId) {
+    return BuildAnalysisResult.BuildAnalysisBuilder.aBuildAnalysisResult()
+        .withAnalysisOk(true)
+        .withProject("org/alpha")
+        .withBranchT2(branch)
+        .withBuildIdT2(buildId)
+        .withTriggerCommitT2("commit" + buildId)
+        .create();
+  }
+}
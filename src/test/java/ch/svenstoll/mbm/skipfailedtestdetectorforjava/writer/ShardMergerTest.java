@@ -0,0 +1,185 @@
+package ch.svenstoll.mbm.skipfailedtestdetectorforjava.writer;
+
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.detector.DetectorEngine;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.lifecycle.BranchLifecycle;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.lifecycle.TestLifecycleIndex;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.Build;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.BuildAnalysisResult;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.model.ProjectBranchKey;
+import ch.svenstoll.mbm.skipfailedtestdetectorforjava.scheduler.ShardAssignment;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+public class ShardMergerTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void mergesTheRowsOfAllShardsInTheOrderOfASingleProcess() throws Exception {
+    String outputFolderPath = temporaryFolder.getRoot().toString();
+    writeShard(outputFolderPath, 0, 2, true,
+        "org/alpha,master,2", "org/alpha,master,5", "org/gamma,feature,9", "org/gamma,master,7");
+    writeShard(outputFolderPath, 1, 2, true,
+        "org/alpha,feature,6", "org/beta,master,3", "org/beta,master,4");
+
+    new ShardMerger().merge(outputFolderPath, 2);
+
+    assertEquals(Arrays.asList(
+        "org/alpha,feature,6", "org/alpha,master,2", "org/alpha,master,5", "org/beta,master,3",
+        "org/beta,master,4", "org/gamma,feature,9", "org/gamma,master,7"), readMergedRows(outputFolderPath));
+  }
+
+  @Test
+  public void ignoresFoldersOfRunsWithAnotherShardCount() throws Exception {
+    String outputFolderPath = temporaryFolder.getRoot().toString();
+    // The stale folders sort before the ones of the current run and one of them is incomplete.
+    writeShard(outputFolderPath, 0, 1, true, "org/stale,master,1");
+    writeShard(outputFolderPath, 0, 3, false, "org/stale,master,2");
+    writeShard(outputFolderPath, 0, 2, true, "org/alpha,master,2");
+    writeShard(outputFolderPath, 1, 2, true, "org/beta,master,3");
+
+    new ShardMerger().merge(outputFolderPath, 2);
+
+    assertEquals(Arrays.asList("org/alpha,master,2", "org/beta,master,3"), readMergedRows(outputFolderPath));
+  }
+
+  @Test
+  public void mergesTheFindingsTimingsAndLifecycleIndexesOfAllShards() throws Exception {
+    String outputFolderPath = temporaryFolder.getRoot().toString();
+    writeShard(outputFolderPath, 0, 2, true, "org/alpha,master,2", "org/gamma,master,7");
+    writeShard(outputFolderPath, 1, 2, true, "org/beta,master,3");
+    Path detectorsPath0 = writeDetectorFiles(outputFolderPath, 0, "org/alpha,master,2,a", "org/gamma,master,7,g",
+        "2,1,10,5000");
+    Path detectorsPath1 = writeDetectorFiles(outputFolderPath, 1, "org/beta,master,3,\"b,c\"", "6,0,20,2000");
+    // Only one shard has found a converted test.
+    Files.write(detectorsPath1.resolve("converted-test.csv"),
+        "project,branch_t2,build_id_t2,converted_tests\r\norg/beta,master,3,d\r\n".getBytes(StandardCharsets.UTF_8));
+    writeLifecycleIndex(detectorsPath0.getParent(), "org/alpha", 2);
+    writeLifecycleIndex(detectorsPath1.getParent(), "org/beta", 3);
+
+    new ShardMerger().merge(outputFolderPath, 2);
+
+    Path detectorsPath = Paths.get(outputFolderPath, "Results", DetectorFindingWriter.FOLDER_NAME);
+    assertEquals(Arrays.asList("project,branch_t2,build_id_t2,ignored_failed_tests", "org/alpha,master,2,a",
+        "org/beta,master,3,\"b,c\"", "org/gamma,master,7,g"),
+        Files.readAllLines(detectorsPath.resolve("ignored-failed-test.csv"), StandardCharsets.UTF_8));
+    assertEquals(Arrays.asList("project,branch_t2,build_id_t2,converted_tests", "org/beta,master,3,d"),
+        Files.readAllLines(detectorsPath.resolve("converted-test.csv"), StandardCharsets.UTF_8));
+    // The mean is weighted by the number of evaluated pairs of each shard.
+    assertEquals(Arrays.asList("detector,evaluated_pairs,findings,total_ms,mean_us", "ignored-failed-test,8,1,30,2750"),
+        Files.readAllLines(detectorsPath.resolve(DetectorEngine.TIMINGS_FILE_NAME), StandardCharsets.UTF_8));
+    List<ProjectBranchKey> branches = TestLifecycleIndex.read(Paths.get(outputFolderPath, "Results",
+        TestLifecycleIndex.FILE_NAME)).getBranches().stream()
+        .map(BranchLifecycle::getProjectBranchKey)
+        .collect(Collectors.toList());
+    assertEquals(Arrays.asList(new ProjectBranchKey("org/alpha", "master"), new ProjectBranchKey("org/beta", "master")),
+        branches);
+  }
+
+  @Test(expected = IOException.class)
+  public void refusesToMergeIncompleteShards() throws Exception {
+    String outputFolderPath = temporaryFolder.getRoot().toString();
+    writeShard(outputFolderPath, 0, 2, true, "org/alpha,master,2");
+    writeShard(outputFolderPath, 1, 2, false, "org/beta,master,3");
+
+    new ShardMerger().merge(outputFolderPath, 2);
+  }
+
+  @Test(expected = IOException.class)
+  public void refusesToMergeMissingShards() throws Exception {
+    String outputFolderPath = temporaryFolder.getRoot().toString();
+    writeShard(outputFolderPath, 0, 2, true, "org/alpha,master,2");
+    writeShard(outputFolderPath, 0, 1, true, "org/beta,master,3");
+
+    new ShardMerger().merge(outputFolderPath, 2);
+  }
+
+  /**
+   * Writes the manifest and an {@code all_results.csv} of a shard whose rows only contain the
+   * project, the branch and the build ID of T2.
+   */
+  private static void writeShard(String outputFolderPath, int shardIndex, int shardCount, boolean completed,
+                                 String... rows) throws IOException {
+    String shardFolderPath = ShardAssignment.getShardFolderPath(outputFolderPath, shardIndex, shardCount);
+    Path resultsPath = Paths.get(shardFolderPath, "Results");
+    Files.createDirectories(resultsPath);
+    new ShardManifest(shardIndex, shardCount, "input.csv", 1, rows.length, completed).write(shardFolderPath);
+
+    StringBuilder content = new StringBuilder(String.join(",", BuildAnalysisResult.CSV_HEADERS)).append("\r\n");
+    for (String row : rows) {
+      String[] values = row.split(",");
+      for (int i = 0; i < BuildAnalysisResult.CSV_HEADERS.length; i++) {
+        String header = BuildAnalysisResult.CSV_HEADERS[i];
+        content.append(i > 0 ? "," : "").append(
+            "project".equals(header) ? values[0]
+                : "branch_t2".equals(header) ? values[1]
+                : "build_id_t2".equals(header) ? values[2]
+                : "null");
+      }
+      content.append("\r\n");
+    }
+    Files.write(resultsPath.resolve("all_results.csv"), content.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Writes the findings of the {@code ignored-failed-test} detector and its timings into the
+   * {@code Detectors} folder of a shard.
+   */
+  private static Path writeDetectorFiles(String outputFolderPath, int shardIndex, String... rowsAndTimings)
+      throws IOException {
+    Path detectorsPath = Paths.get(ShardAssignment.getShardFolderPath(outputFolderPath, shardIndex, 2), "Results",
+        DetectorFindingWriter.FOLDER_NAME);
+    Files.createDirectories(detectorsPath);
+    StringBuilder content = new StringBuilder("project,branch_t2,build_id_t2,ignored_failed_tests\r\n");
+    for (int i = 0; i < rowsAndTimings.length - 1; i++) {
+      content.append(rowsAndTimings[i]).append("\r\n");
+    }
+    Files.write(detectorsPath.resolve("ignored-failed-test.csv"), content.toString().getBytes(StandardCharsets.UTF_8));
+    Files.write(detectorsPath.resolve(DetectorEngine.TIMINGS_FILE_NAME),
+        ("detector,evaluated_pairs,findings,total_ms,mean_us\r\nignored-failed-test,"
+            + rowsAndTimings[rowsAndTimings.length - 1] + "\r\n").getBytes(StandardCharsets.UTF_8));
+    return detectorsPath;
+  }
+
+  private static void writeLifecycleIndex(Path resultsPath, String projectName, long buildId) throws IOException {
+    TestLifecycleIndex index = new TestLifecycleIndex();
+    index.recordBranchStart(Build.BuildBuilder.aBuild()
+        .withProjectBranch(new ProjectBranchKey(projectName, "master"))
+        .withBuildId(buildId)
+        .withPrevBuildId(null)
+        .withTriggerCommit("abc")
+        .andStatus("passed")
+        .andNumTestsRun(1)
+        .andNumTestsOk(1)
+        .andNumTestsFailed(0)
+        .andNumTestsSkipped(0)
+        .andFailedMethods(Collections.emptyList())
+        .create(), Collections.singletonList(projectName + ".FooTest.run()"));
+    index.write(resultsPath.resolve(TestLifecycleIndex.FILE_NAME));
+  }
+
+  private static List<String> readMergedRows(String outputFolderPath) throws IOException {
+    List<String> lines = Files.readAllLines(Paths.get(outputFolderPath, "Results", "all_results.csv"),
+        StandardCharsets.UTF_8);
+    List<String> headers = Arrays.asList(lines.get(0).split(","));
+    return lines.subList(1, lines.size()).stream()
+        .map(line -> line.split(","))
+        .map(values -> values[headers.indexOf("project")] + "," + values[headers.indexOf("branch_t2")] + ","
+            + values[headers.indexOf("build_id_t2")])
+        .collect(Collectors.toList());
+  }
+}